@@ -0,0 +1,181 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.datastore.memory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+
+/**
+ * Benchmark the hash map based data stores against the array based stores,
+ * by incrementing and reading the values of 90% of a DBID range, in
+ * sequential or shuffled order.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataStoreBenchmark {
+  /**
+   * Size of the DBID domain.
+   */
+  @Param({ "10000", "2000000" })
+  int size;
+
+  /**
+   * Access the objects in random order.
+   */
+  @Param({ "false", "true" })
+  boolean shuffled;
+
+  /**
+   * Objects to access.
+   */
+  ArrayModifiableDBIDs keys;
+
+  /**
+   * Map based double store.
+   */
+  MapIntegerDBIDDoubleStore mapDouble;
+
+  /**
+   * Map based integer store.
+   */
+  MapIntegerDBIDIntegerStore mapInteger;
+
+  /**
+   * Array based double store.
+   */
+  ArrayDoubleStore arrayDouble;
+
+  /**
+   * Array based integer store.
+   */
+  ArrayIntegerStore arrayInteger;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    Random r = new Random(0L);
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(size);
+    keys = DBIDUtil.newArray(size);
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+      if(r.nextDouble() < 0.9) {
+        keys.add(it);
+      }
+    }
+    if(shuffled) {
+      DBIDUtil.randomShuffle(keys, r);
+    }
+    mapDouble = new MapIntegerDBIDDoubleStore(keys.size(), 0.);
+    mapInteger = new MapIntegerDBIDIntegerStore(keys.size(), 0);
+    arrayDouble = new ArrayDoubleStore(size, ids, 0.);
+    arrayInteger = new ArrayIntegerStore(size, ids, 0);
+    // Populate the stores, so that all benchmarks update existing entries.
+    for(DBIDIter it = keys.iter(); it.valid(); it.advance()) {
+      mapDouble.putDouble(it, 0.);
+      mapInteger.putInt(it, 0);
+    }
+  }
+
+  /**
+   * Increment and read a map based double store.
+   *
+   * @return Sum
+   */
+  @Benchmark
+  public double mapDouble() {
+    double sum = 0.;
+    for(DBIDIter it = keys.iter(); it.valid(); it.advance()) {
+      mapDouble.increment(it, 1.);
+      sum += mapDouble.doubleValue(it);
+    }
+    return sum;
+  }
+
+  /**
+   * Increment and read an array based double store.
+   *
+   * @return Sum
+   */
+  @Benchmark
+  public double arrayDouble() {
+    double sum = 0.;
+    for(DBIDIter it = keys.iter(); it.valid(); it.advance()) {
+      arrayDouble.increment(it, 1.);
+      sum += arrayDouble.doubleValue(it);
+    }
+    return sum;
+  }
+
+  /**
+   * Increment and read a map based integer store.
+   *
+   * @return Sum
+   */
+  @Benchmark
+  public long mapInteger() {
+    long sum = 0L;
+    for(DBIDIter it = keys.iter(); it.valid(); it.advance()) {
+      mapInteger.increment(it, 1);
+      sum += mapInteger.intValue(it);
+    }
+    return sum;
+  }
+
+  /**
+   * Increment and read an array based integer store.
+   *
+   * @return Sum
+   */
+  @Benchmark
+  public long arrayInteger() {
+    long sum = 0L;
+    for(DBIDIter it = keys.iter(); it.valid(); it.advance()) {
+      arrayInteger.increment(it, 1);
+      sum += arrayInteger.intValue(it);
+    }
+    return sum;
+  }
+}
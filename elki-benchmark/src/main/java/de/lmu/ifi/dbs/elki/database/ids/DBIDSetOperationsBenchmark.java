@@ -0,0 +1,165 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.ids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark the set operations of {@link DBIDUtil}, on random subsets of a
+ * DBID range.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DBIDSetOperationsBenchmark {
+  /**
+   * Size of the DBID domain.
+   */
+  @Param({ "10000", "1000000" })
+  int size;
+
+  /**
+   * Fraction of the domain in each set.
+   */
+  @Param({ "0.01", "0.5" })
+  double fraction;
+
+  /**
+   * Hash sets.
+   */
+  HashSetModifiableDBIDs hash1, hash2;
+
+  /**
+   * Sets over the domain.
+   */
+  HashSetModifiableDBIDs domain1, domain2;
+
+  /**
+   * Sorted arrays.
+   */
+  ArrayModifiableDBIDs array1, array2;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    Random r = new Random(0L);
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(size);
+    hash1 = DBIDUtil.newHashSet();
+    hash2 = DBIDUtil.newHashSet();
+    domain1 = DBIDUtil.newDomainHashSet(ids);
+    domain2 = DBIDUtil.newDomainHashSet(ids);
+    array1 = DBIDUtil.newArray();
+    array2 = DBIDUtil.newArray();
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+      if(r.nextDouble() < fraction) {
+        hash1.add(it);
+        domain1.add(it);
+        array1.add(it);
+      }
+      if(r.nextDouble() < fraction) {
+        hash2.add(it);
+        domain2.add(it);
+        array2.add(it);
+      }
+    }
+  }
+
+  /**
+   * Intersection size of two hash sets.
+   *
+   * @return Size
+   */
+  @Benchmark
+  public int intersectionSizeHash() {
+    return DBIDUtil.intersectionSize(hash1, hash2);
+  }
+
+  /**
+   * Intersection size of two domain sets.
+   *
+   * @return Size
+   */
+  @Benchmark
+  public int intersectionSizeDomain() {
+    return DBIDUtil.intersectionSize(domain1, domain2);
+  }
+
+  /**
+   * Intersection size of an array and a hash set.
+   *
+   * @return Size
+   */
+  @Benchmark
+  public int intersectionSizeArrayHash() {
+    return DBIDUtil.intersectionSize(array1, hash2);
+  }
+
+  /**
+   * Union of two hash sets.
+   *
+   * @return Union
+   */
+  @Benchmark
+  public DBIDs unionHash() {
+    return DBIDUtil.union(hash1, hash2);
+  }
+
+  /**
+   * Difference of two hash sets.
+   *
+   * @return Difference
+   */
+  @Benchmark
+  public DBIDs differenceHash() {
+    return DBIDUtil.difference(hash1, hash2);
+  }
+
+  /**
+   * Intersection of two hash sets.
+   *
+   * @return Intersection
+   */
+  @Benchmark
+  public DBIDs intersectionHash() {
+    return DBIDUtil.intersection(hash1, hash2);
+  }
+}
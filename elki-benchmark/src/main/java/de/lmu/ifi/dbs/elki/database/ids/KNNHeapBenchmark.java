@@ -0,0 +1,103 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.ids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark inserting candidates into a kNN heap.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KNNHeapBenchmark {
+  /**
+   * Number of neighbors.
+   */
+  @Param({ "10", "100" })
+  int k;
+
+  /**
+   * Number of candidates.
+   */
+  @Param({ "10000", "1000000" })
+  int size;
+
+  /**
+   * Candidate DBIDs.
+   */
+  DBIDRange ids;
+
+  /**
+   * Candidate distances.
+   */
+  double[] dists;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    Random r = new Random(0L);
+    ids = DBIDUtil.generateStaticDBIDRange(size);
+    dists = new double[size];
+    for(int i = 0; i < size; i++) {
+      dists[i] = r.nextDouble();
+    }
+  }
+
+  /**
+   * Insert all candidates, using the returned bound for pruning.
+   *
+   * @return kNN list
+   */
+  @Benchmark
+  public KNNList insert() {
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    double max = Double.POSITIVE_INFINITY;
+    int i = 0;
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance(), i++) {
+      if(dists[i] <= max) {
+        max = heap.insert(dists[i], it);
+      }
+    }
+    return heap.toKNNList();
+  }
+}
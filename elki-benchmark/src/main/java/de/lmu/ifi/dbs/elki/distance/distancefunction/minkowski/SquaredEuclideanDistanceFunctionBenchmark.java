@@ -0,0 +1,133 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+
+/**
+ * Benchmark the squared Euclidean distance, computing the distances of one
+ * query vector to a set of vectors.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SquaredEuclideanDistanceFunctionBenchmark {
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "10", "100" })
+  int dim;
+
+  /**
+   * Number of vectors.
+   */
+  @Param({ "1000", "100000" })
+  int size;
+
+  /**
+   * Data vectors.
+   */
+  DoubleVector[] data;
+
+  /**
+   * Query vector.
+   */
+  DoubleVector query;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    Random r = new Random(0L);
+    data = new DoubleVector[size];
+    for(int i = 0; i < size; i++) {
+      data[i] = new DoubleVector(randomVector(r, dim));
+    }
+    query = new DoubleVector(randomVector(r, dim));
+  }
+
+  /**
+   * Generate a random vector.
+   *
+   * @param r Random generator
+   * @param dim Dimensionality
+   * @return Vector
+   */
+  private static double[] randomVector(Random r, int dim) {
+    double[] v = new double[dim];
+    for(int d = 0; d < dim; d++) {
+      v[d] = r.nextDouble();
+    }
+    return v;
+  }
+
+  /**
+   * Full distance computations.
+   *
+   * @return Sum of distances
+   */
+  @Benchmark
+  public double distance() {
+    final SquaredEuclideanDistanceFunction df = SquaredEuclideanDistanceFunction.STATIC;
+    double sum = 0.;
+    for(DoubleVector v : data) {
+      sum += df.distance(query, v);
+    }
+    return sum;
+  }
+
+  /**
+   * Distance computations with early abandoning, as in a kNN search.
+   *
+   * @return Best distance
+   */
+  @Benchmark
+  public double distanceCutoff() {
+    final SquaredEuclideanDistanceFunction df = SquaredEuclideanDistanceFunction.STATIC;
+    double best = Double.POSITIVE_INFINITY;
+    for(DoubleVector v : data) {
+      best = Math.min(best, df.distance(query, v, best));
+    }
+    return best;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.math.linearalgebra;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark common {@link VMath} operations.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VMathBenchmark {
+  /**
+   * Dimensionality.
+   */
+  @Param({ "3", "10", "100" })
+  int dim;
+
+  /**
+   * Vectors.
+   */
+  double[] v1, v2;
+
+  /**
+   * Matrixes.
+   */
+  double[][] m1, m2;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    Random r = new Random(0L);
+    v1 = randomVector(r, dim);
+    v2 = randomVector(r, dim);
+    m1 = new double[dim][];
+    m2 = new double[dim][];
+    for(int i = 0; i < dim; i++) {
+      m1[i] = randomVector(r, dim);
+      m2[i] = randomVector(r, dim);
+    }
+  }
+
+  /**
+   * Generate a random vector.
+   *
+   * @param r Random generator
+   * @param dim Dimensionality
+   * @return Vector
+   */
+  private static double[] randomVector(Random r, int dim) {
+    double[] v = new double[dim];
+    for(int d = 0; d < dim; d++) {
+      v[d] = r.nextDouble();
+    }
+    return v;
+  }
+
+  /**
+   * Scalar product.
+   *
+   * @return Product
+   */
+  @Benchmark
+  public double scalarProduct() {
+    return VMath.scalarProduct(v1, v2);
+  }
+
+  /**
+   * Vector addition with scaling.
+   *
+   * @return Result
+   */
+  @Benchmark
+  public double[] plusTimes() {
+    return VMath.plusTimes(v1, v2, .5);
+  }
+
+  /**
+   * Matrix times vector.
+   *
+   * @return Result
+   */
+  @Benchmark
+  public double[] matrixTimesVector() {
+    return VMath.times(m1, v1);
+  }
+
+  /**
+   * Matrix times matrix.
+   *
+   * @return Result
+   */
+  @Benchmark
+  public double[][] matrixTimesMatrix() {
+    return VMath.times(m1, m2);
+  }
+
+  /**
+   * Quadratic form {@code v^T M v}, as in Mahalanobis distances.
+   *
+   * @return Result
+   */
+  @Benchmark
+  public double transposeTimesTimes() {
+    return VMath.transposeTimesTimes(v1, m1, v1);
+  }
+}
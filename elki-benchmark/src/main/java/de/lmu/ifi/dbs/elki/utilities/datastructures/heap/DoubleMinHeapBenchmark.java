@@ -0,0 +1,134 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.heap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark the primitive heaps: add all values, then poll all of them.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleMinHeapBenchmark {
+  /**
+   * Number of values.
+   */
+  @Param({ "1000", "100000" })
+  int size;
+
+  /**
+   * Random keys.
+   */
+  double[] keys;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    Random r = new Random(0L);
+    keys = new double[size];
+    for(int i = 0; i < size; i++) {
+      keys[i] = r.nextDouble();
+    }
+  }
+
+  /**
+   * Double heap.
+   *
+   * @return Checksum
+   */
+  @Benchmark
+  public double doubleMinHeap() {
+    DoubleMinHeap heap = new DoubleMinHeap();
+    for(double k : keys) {
+      heap.add(k);
+    }
+    double sum = 0.;
+    while(!heap.isEmpty()) {
+      sum += heap.poll();
+    }
+    return sum;
+  }
+
+  /**
+   * Double-integer heap, as used for kNN candidates.
+   *
+   * @return Checksum
+   */
+  @Benchmark
+  public double doubleIntegerMinHeap() {
+    DoubleIntegerMinHeap heap = new DoubleIntegerMinHeap();
+    for(int i = 0; i < keys.length; i++) {
+      heap.add(keys[i], i);
+    }
+    double sum = 0.;
+    while(!heap.isEmpty()) {
+      sum += heap.peekKey() * heap.peekValue();
+      heap.poll();
+    }
+    return sum;
+  }
+
+  /**
+   * Addressable heap, with decrease-key operations as in OPTICS.
+   *
+   * @return Checksum
+   */
+  @Benchmark
+  public double updatableMinHeap() {
+    final int n = keys.length;
+    DoubleIntegerUpdatableMinHeap heap = new DoubleIntegerUpdatableMinHeap(n);
+    for(int i = 0; i < n; i++) {
+      heap.offer(keys[i], i);
+    }
+    // Decrease some keys:
+    for(int i = 0; i < n; i++) {
+      heap.offer(keys[i] * keys[n - 1 - i], (i * 7) % n);
+    }
+    double sum = 0.;
+    while(!heap.isEmpty()) {
+      sum += heap.peekKey();
+      heap.poll();
+    }
+    return sum;
+  }
+}
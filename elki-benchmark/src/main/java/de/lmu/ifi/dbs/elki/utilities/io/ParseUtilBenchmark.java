@@ -0,0 +1,185 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark parsing the numbers in the bundled test data files.
+ *
+ * Tokens are located once on setup, so only number parsing is measured.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseUtilBenchmark {
+  /**
+   * Data file, relative to the ELKI root directory.
+   */
+  @Param({ "data/testdata/correlation-outlier/axis-parallel-20d.csv", "data/testdata/subspace/subspaces-10d.csv" })
+  String file;
+
+  /**
+   * File contents.
+   */
+  byte[] data;
+
+  /**
+   * Token start and end positions, interleaved.
+   */
+  int[] tokens;
+
+  /**
+   * Token strings.
+   */
+  String[] strings;
+
+  /**
+   * Load the data file and locate the numeric tokens.
+   *
+   * @throws IOException on read errors
+   */
+  @Setup
+  public void setup() throws IOException {
+    data = Files.readAllBytes(Paths.get(file));
+    int[] tok = new int[1024];
+    int n = 0;
+    for(int pos = 0; pos < data.length;) {
+      // Skip comment lines:
+      if(data[pos] == '#' && (pos == 0 || data[pos - 1] == '\n')) {
+        while(pos < data.length && data[pos] != '\n') {
+          pos++;
+        }
+        continue;
+      }
+      if(isSeparator(data[pos])) {
+        pos++;
+        continue;
+      }
+      int end = pos;
+      boolean numeric = true;
+      while(end < data.length && !isSeparator(data[end])) {
+        numeric &= isNumberChar(data[end++]);
+      }
+      // Skip labels:
+      if(!numeric) {
+        pos = end;
+        continue;
+      }
+      if(n + 2 > tok.length) {
+        tok = Arrays.copyOf(tok, tok.length << 1);
+      }
+      tok[n++] = pos;
+      tok[n++] = end;
+      pos = end;
+    }
+    tokens = Arrays.copyOf(tok, n);
+    strings = new String[n >>> 1];
+    for(int i = 0; i < n; i += 2) {
+      strings[i >>> 1] = new String(data, tokens[i], tokens[i + 1] - tokens[i], StandardCharsets.US_ASCII);
+    }
+  }
+
+  /**
+   * Test for column separators.
+   *
+   * @param c Character
+   * @return {@code true} for whitespace and comma.
+   */
+  private static boolean isSeparator(byte c) {
+    return c == ' ' || c == ',' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  /**
+   * Test for characters of a number.
+   *
+   * @param c Character
+   * @return {@code true} for digits, sign, decimal point and exponent.
+   */
+  private static boolean isNumberChar(byte c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+  }
+
+  /**
+   * Parse from the byte array.
+   *
+   * @return Checksum
+   */
+  @Benchmark
+  public double parseBytes() {
+    double sum = 0.;
+    for(int i = 0; i < tokens.length; i += 2) {
+      sum += ParseUtil.parseDouble(data, tokens[i], tokens[i + 1]);
+    }
+    return sum;
+  }
+
+  /**
+   * Parse from character sequences.
+   *
+   * @return Checksum
+   */
+  @Benchmark
+  public double parseCharSequence() {
+    double sum = 0.;
+    for(String s : strings) {
+      sum += ParseUtil.parseDouble(s);
+    }
+    return sum;
+  }
+
+  /**
+   * Baseline: the Java parser.
+   *
+   * @return Checksum
+   */
+  @Benchmark
+  public double parseJava() {
+    double sum = 0.;
+    for(String s : strings) {
+      sum += Double.parseDouble(s);
+    }
+    return sum;
+  }
+}
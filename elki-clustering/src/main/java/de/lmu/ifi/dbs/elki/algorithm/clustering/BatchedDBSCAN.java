@@ -0,0 +1,471 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.ClusterModel;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.data.type.CombinedTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.SpatialPair;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.spacefillingcurves.HilbertSpatialSorter;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.IntegerArray;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.unionfind.WeightedQuickUnionInteger;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+
+/**
+ * DBSCAN variant that processes the data in Hilbert curve order, and reuses
+ * range query results.
+ * <p>
+ * Consecutive queries along the Hilbert curve touch mostly the same index
+ * pages. For metric distances, the range query of a point p may be issued
+ * with radius 1.5 &epsilon;: this candidate list contains the
+ * &epsilon;-neighborhood of every point q within &epsilon;/2 of p, which is
+ * then derived from the candidates using the triangle inequality instead of
+ * querying the index again. The enlarged radius is only used while the
+ * previous query found unprocessed points within &epsilon;/2.
+ * <p>
+ * Clusters are formed by union-find on the core points, so the cluster
+ * expansion order of {@link DBSCAN} is not needed. Core points and noise are
+ * identical to DBSCAN; border points that are density-reachable from more
+ * than one cluster may be assigned to a different one of these clusters.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.uses HilbertSpatialSorter
+ * @apiviz.uses WeightedQuickUnionInteger
+ *
+ * @param <V> Vector type
+ */
+@Title("Batched DBSCAN")
+@Description("DBSCAN processing the data in Hilbert curve order, reusing range query results for points close to a queried point.")
+public class BatchedDBSCAN<V extends NumberVector> extends AbstractDistanceBasedAlgorithm<V, Clustering<Model>> implements ClusteringAlgorithm<Clustering<Model>> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(BatchedDBSCAN.class);
+
+  /**
+   * Object state: not yet processed.
+   */
+  private static final byte UNKNOWN = 0;
+
+  /**
+   * Object state: core point.
+   */
+  private static final byte CORE = 1;
+
+  /**
+   * Object state: processed, but not a core point.
+   */
+  private static final byte NOCORE = 2;
+
+  /**
+   * Holds the epsilon radius threshold.
+   */
+  protected double epsilon;
+
+  /**
+   * Holds the minimum cluster size.
+   */
+  protected int minpts;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts parameter
+   */
+  public BatchedDBSCAN(DistanceFunction<? super V> distanceFunction, double epsilon, int minpts) {
+    super(distanceFunction);
+    this.epsilon = epsilon;
+    this.minpts = minpts;
+  }
+
+  /**
+   * Run the clustering algorithm.
+   *
+   * @param database Database
+   * @param relation Data relation
+   * @return Clustering result
+   */
+  public Clustering<Model> run(Database database, Relation<V> relation) {
+    final int size = relation.size();
+    Clustering<Model> result = new Clustering<>("DBSCAN Clustering", "dbscan-clustering");
+    if(size < minpts) {
+      result.addToplevelCluster(new Cluster<Model>(relation.getDBIDs(), true, ClusterModel.CLUSTER));
+      return result;
+    }
+    // Process the objects in Hilbert curve order.
+    List<SpatialPair<DBID, V>> pairs = new ArrayList<>(size);
+    for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
+      pairs.add(new SpatialPair<>(DBIDUtil.deref(iditer), relation.get(iditer)));
+    }
+    new HilbertSpatialSorter().sort(pairs);
+    ArrayModifiableDBIDs ids = DBIDUtil.newArray(size);
+    for(SpatialPair<DBID, V> pair : pairs) {
+      ids.add(pair.first);
+    }
+    pairs = null;
+    WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, -1);
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      offsets.putInt(it, it.getOffset());
+    }
+
+    DistanceQuery<V> distQ = database.getDistanceQuery(relation, getDistanceFunction());
+    RangeQuery<V> rangeQuery = QueryUtil.getRangeQuery(relation, getDistanceFunction());
+    Instance instance = new Instance(ids, offsets, distQ, rangeQuery, getDistanceFunction().isMetric());
+    instance.run();
+    offsets.destroy();
+
+    if(LOG.isStatistics()) {
+      LOG.statistics(new LongStatistic(BatchedDBSCAN.class.getName() + ".range-queries", instance.queries));
+      LOG.statistics(new LongStatistic(BatchedDBSCAN.class.getName() + ".derived-neighborhoods", instance.derived));
+      LOG.statistics(new DoubleStatistic(BatchedDBSCAN.class.getName() + ".average-neighbors", instance.ncounter / (double) size));
+    }
+
+    // Core points first, as border points refer to their clusters.
+    WeightedQuickUnionInteger uf = instance.uf;
+    int[] clusterof = new int[size];
+    List<ModifiableDBIDs> clusters = new ArrayList<>();
+    ModifiableDBIDs noise = DBIDUtil.newArray();
+    DBIDArrayIter it = ids.iter();
+    for(int i = 0; i < size; i++) {
+      clusterof[i] = -1;
+    }
+    for(int i = 0; i < size; i++) {
+      if(instance.state[i] == CORE) {
+        final int root = uf.find(i);
+        if(clusterof[root] < 0) {
+          clusterof[root] = clusters.size();
+          clusters.add(DBIDUtil.newArray());
+        }
+        clusters.get(clusterof[root]).add(it.seek(i));
+      }
+    }
+    for(int i = 0; i < size; i++) {
+      if(instance.state[i] != CORE) {
+        final int b = instance.border[i];
+        (b < 0 ? noise : clusters.get(clusterof[uf.find(b)])).add(it.seek(i));
+      }
+    }
+    for(ModifiableDBIDs res : clusters) {
+      result.addToplevelCluster(new Cluster<Model>(res, ClusterModel.CLUSTER));
+    }
+    result.addToplevelCluster(new Cluster<Model>(noise, true, ClusterModel.CLUSTER));
+    return result;
+  }
+
+  /**
+   * Instance for a single run.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private class Instance {
+    /**
+     * Object ids, in processing order.
+     */
+    ArrayModifiableDBIDs ids;
+
+    /**
+     * Map of object ids to offsets.
+     */
+    WritableIntegerDataStore offsets;
+
+    /**
+     * Distance query.
+     */
+    DistanceQuery<V> distQ;
+
+    /**
+     * Range query.
+     */
+    RangeQuery<V> rangeQuery;
+
+    /**
+     * Distance function is a metric.
+     */
+    boolean metric;
+
+    /**
+     * Object states.
+     */
+    byte[] state;
+
+    /**
+     * Core point each non-core point is assigned to, or -1 for noise.
+     */
+    int[] border;
+
+    /**
+     * Union-find of core points.
+     */
+    WeightedQuickUnionInteger uf;
+
+    /**
+     * Candidates of the current query: offsets and distances.
+     */
+    int[] coffs = new int[100];
+
+    /**
+     * Candidates of the current query: offsets and distances.
+     */
+    double[] cdists = new double[100];
+
+    /**
+     * Number of range queries, derived neighborhoods, and neighbors.
+     */
+    long queries, derived, ncounter;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Object ids, in processing order
+     * @param offsets Map of object ids to offsets
+     * @param distQ Distance query
+     * @param rangeQuery Range query
+     * @param metric Distance function is a metric
+     */
+    Instance(ArrayModifiableDBIDs ids, WritableIntegerDataStore offsets, DistanceQuery<V> distQ, RangeQuery<V> rangeQuery, boolean metric) {
+      this.ids = ids;
+      this.offsets = offsets;
+      this.distQ = distQ;
+      this.rangeQuery = rangeQuery;
+      this.metric = metric;
+      final int size = ids.size();
+      this.state = new byte[size];
+      this.border = new int[size];
+      this.uf = new WeightedQuickUnionInteger();
+      for(int i = 0; i < size; i++) {
+        border[i] = -1;
+        uf.nextIndex(1);
+      }
+    }
+
+    /**
+     * Process all objects.
+     */
+    void run() {
+      final int size = ids.size();
+      final double halfeps = .5 * epsilon;
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Processing objects", size, LOG) : null;
+      ModifiableDoubleDBIDList cands = DBIDUtil.newDistanceDBIDList();
+      IntegerArray neighbors = new IntegerArray();
+      DBIDArrayIter pi = ids.iter(), qi = ids.iter(), xi = ids.iter();
+      boolean wide = metric;
+      for(int p = 0; p < size; p++) {
+        if(state[p] != UNKNOWN) {
+          continue;
+        }
+        cands.clear();
+        rangeQuery.getRangeForDBID(pi.seek(p), wide ? 1.5 * epsilon : epsilon, cands);
+        cands.sort();
+        ++queries;
+        final int m = loadCandidates(cands);
+        // Neighbors of the query point itself:
+        neighbors.clear();
+        for(int i = 0; i < m && cdists[i] <= epsilon; i++) {
+          neighbors.add(coffs[i]);
+        }
+        process(p, neighbors);
+        int close = 0;
+        for(int i = 0; i < m && cdists[i] <= halfeps; i++) {
+          final int q = coffs[i];
+          if(state[q] != UNKNOWN) {
+            continue;
+          }
+          ++close;
+          if(!wide) {
+            continue;
+          }
+          // Derive the neighborhood of q using the triangle inequality.
+          final double dpq = cdists[i], lower = epsilon - dpq, upper = epsilon + dpq;
+          qi.seek(q);
+          neighbors.clear();
+          for(int j = 0; j < m; j++) {
+            final double dpx = cdists[j];
+            if(dpx > upper) {
+              break;
+            }
+            if(dpx <= lower || distQ.distance(qi, xi.seek(coffs[j])) <= epsilon) {
+              neighbors.add(coffs[j]);
+            }
+          }
+          process(q, neighbors);
+          ++derived;
+          if(prog != null) {
+            prog.incrementProcessed(LOG);
+          }
+        }
+        // Only enlarge the next query if this region allows reuse.
+        wide = metric && close > 0;
+        if(prog != null) {
+          prog.incrementProcessed(LOG);
+        }
+      }
+      LOG.ensureCompleted(prog);
+    }
+
+    /**
+     * Copy the candidates into the offset and distance buffers.
+     *
+     * @param cands Candidates, sorted by distance
+     * @return Number of candidates
+     */
+    private int loadCandidates(ModifiableDoubleDBIDList cands) {
+      final int m = cands.size();
+      if(m > coffs.length) {
+        final int newlen = Math.max(m, coffs.length << 1);
+        coffs = new int[newlen];
+        cdists = new double[newlen];
+      }
+      int i = 0;
+      for(DoubleDBIDListIter it = cands.iter(); it.valid(); it.advance(), i++) {
+        coffs[i] = offsets.intValue(it);
+        cdists[i] = it.doubleValue();
+      }
+      return m;
+    }
+
+    /**
+     * Process the neighborhood of a single object.
+     *
+     * Core points are joined with all known core points in their neighborhood,
+     * and claim all other neighbors as border points. Non-core points need no
+     * further work: any core neighbor processed earlier has claimed them
+     * already, and any core neighbor processed later will.
+     *
+     * @param p Object offset
+     * @param neighbors Neighbor offsets
+     */
+    private void process(int p, IntegerArray neighbors) {
+      final int n = neighbors.size;
+      ncounter += n;
+      if(n < minpts) {
+        state[p] = NOCORE;
+        return;
+      }
+      state[p] = CORE;
+      for(int i = 0; i < n; i++) {
+        final int x = neighbors.data[i];
+        if(x == p) {
+          continue;
+        }
+        if(state[x] == CORE) {
+          uf.union(p, x);
+        }
+        else if(border[x] < 0) {
+          border[x] = p;
+        }
+      }
+    }
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    // Hilbert curve sorting needs vectors:
+    return TypeUtil.array(new CombinedTypeInformation(TypeUtil.NUMBER_VECTOR_FIELD, getDistanceFunction().getInputTypeRestriction()));
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <V> Vector type
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractDistanceBasedAlgorithm.Parameterizer<V> {
+    /**
+     * Holds the epsilon radius threshold.
+     */
+    protected double epsilon;
+
+    /**
+     * Holds the minimum cluster size.
+     */
+    protected int minpts;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      DoubleParameter epsilonP = new DoubleParameter(DBSCAN.Parameterizer.EPSILON_ID) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+      if(config.grab(epsilonP)) {
+        epsilon = epsilonP.getValue();
+      }
+
+      IntParameter minptsP = new IntParameter(DBSCAN.Parameterizer.MINPTS_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(minptsP)) {
+        minpts = minptsP.getValue();
+      }
+    }
+
+    @Override
+    protected BatchedDBSCAN<V> makeInstance() {
+      return new BatchedDBSCAN<>(distanceFunction, epsilon, minpts);
+    }
+  }
+}
@@ -90,7 +90,7 @@ public class Leader<O> extends AbstractDistanceBasedAlgorithm<O, Clustering<Prot
   public Clustering<PrototypeModel<O>> run(Relation<O> relation) {
     RangeQuery<O> rq = relation.getRangeQuery(getDistanceFunction(), threshold);
 
-    ModifiableDBIDs seen = DBIDUtil.newHashSet(relation.size());
+    ModifiableDBIDs seen = DBIDUtil.newDomainHashSet(relation.getDBIDs());
     Clustering<PrototypeModel<O>> clustering = new Clustering<>("Prototype clustering", "prototype-clustering");
 
     int queries = 0;
@@ -41,6 +41,7 @@ import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.query.similarity.SimilarityQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.similarityfunction.SharedNearestNeighborSimilarityFunction;
+import de.lmu.ifi.dbs.elki.index.preprocessed.snn.SharedNearestNeighborGraph;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
@@ -68,6 +69,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  * @since 0.2
  *
  * @apiviz.uses SharedNearestNeighborSimilarityFunction
+ * @apiviz.uses SharedNearestNeighborGraph
  *
  * @param <O> the type of Object the algorithm is applied on
  */
@@ -110,6 +112,11 @@ public class SNNClustering<O> extends AbstractAlgorithm<Clustering<Model>> imple
    */
   protected ModifiableDBIDs processedIDs;
 
+  /**
+   * Shared nearest neighbor graph, for a positive epsilon.
+   */
+  protected SharedNearestNeighborGraph graph;
+
   /**
    * The similarity function for the shared nearest neighbor similarity.
    */
@@ -137,13 +144,17 @@ public class SNNClustering<O> extends AbstractAlgorithm<Clustering<Model>> imple
    * @return Result
    */
   public Clustering<Model> run(Database database, Relation<O> relation) {
-    SimilarityQuery<O> snnInstance = similarityFunction.instantiate(relation);
+    SharedNearestNeighborSimilarityFunction.Instance<O> snnInstance = similarityFunction.instantiate(relation);
+    // Objects without shared neighbors are only similar enough for epsilon <= 0
+    if(epsilon > 0) {
+      graph = SharedNearestNeighborGraph.build(snnInstance.getIndex(), relation.getDBIDs(), epsilon);
+    }
 
     FiniteProgress objprog = LOG.isVerbose() ? new FiniteProgress("SNNClustering", relation.size(), LOG) : null;
     IndefiniteProgress clusprog = LOG.isVerbose() ? new IndefiniteProgress("Number of clusters", LOG) : null;
     resultList = new ArrayList<>();
     noise = DBIDUtil.newHashSet();
-    processedIDs = DBIDUtil.newHashSet(relation.size());
+    processedIDs = DBIDUtil.newDomainHashSet(relation.getDBIDs());
     if(relation.size() >= minpts) {
       for(DBIDIter id = relation.iterDBIDs(); id.valid(); id.advance()) {
         if(!processedIDs.contains(id)) {
@@ -170,6 +181,7 @@ public class SNNClustering<O> extends AbstractAlgorithm<Clustering<Model>> imple
     // Finish progress logging
     LOG.ensureCompleted(objprog);
     LOG.setCompleted(clusprog);
+    graph = null;
 
     Clustering<Model> result = new Clustering<>("Shared-Nearest-Neighbor Clustering", "snn-clustering");
     for(Iterator<ModifiableDBIDs> resultListIter = resultList.iterator(); resultListIter.hasNext();) {
@@ -191,6 +203,10 @@ public class SNNClustering<O> extends AbstractAlgorithm<Clustering<Model>> imple
    */
   protected ArrayModifiableDBIDs findSNNNeighbors(SimilarityQuery<O> snnInstance, DBIDRef queryObject) {
     ArrayModifiableDBIDs neighbors = DBIDUtil.newArray();
+    if(graph != null) {
+      graph.getNeighbors(queryObject, neighbors);
+      return neighbors;
+    }
     for(DBIDIter iditer = snnInstance.getRelation().iterDBIDs(); iditer.valid(); iditer.advance()) {
       if(snnInstance.similarity(queryObject, iditer) >= epsilon) {
         neighbors.add(iditer);
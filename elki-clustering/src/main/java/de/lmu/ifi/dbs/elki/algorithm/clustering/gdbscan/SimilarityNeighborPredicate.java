@@ -27,11 +27,15 @@ import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.query.similarity.SimilarityQuery;
+import de.lmu.ifi.dbs.elki.distance.similarityfunction.SharedNearestNeighborSimilarityFunction;
 import de.lmu.ifi.dbs.elki.distance.similarityfunction.SimilarityFunction;
+import de.lmu.ifi.dbs.elki.index.preprocessed.snn.SharedNearestNeighborGraph;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
@@ -44,6 +48,9 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * The DBSCAN neighbor predicate for a {@link SimilarityFunction}, using all
  * neighbors with a minimum similarity.
  *
+ * For the shared nearest neighbor similarity, the neighbors are obtained from
+ * a precomputed {@link SharedNearestNeighborGraph} instead of a linear scan.
+ *
  * Reference:
  * <p>
  * M. Ester, H.-P. Kriegel, J. Sander, X. Xu<br />
@@ -57,6 +64,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * @since 0.5.0
  *
  * @apiviz.has Instance
+ * @apiviz.has SNNGraphInstance
  *
  * @param <O> object type
  */
@@ -88,8 +96,14 @@ public class SimilarityNeighborPredicate<O> implements NeighborPredicate<DoubleD
   }
 
   @Override
-  public Instance instantiate(Database database) {
+  public NeighborPredicate.Instance<DoubleDBIDList> instantiate(Database database) {
     SimilarityQuery<O> dq = QueryUtil.getSimilarityQuery(database, distFunc);
+    // Objects without shared neighbors are only similar enough for epsilon <= 0
+    if(dq instanceof SharedNearestNeighborSimilarityFunction.Instance && epsilon > 0) {
+      SharedNearestNeighborSimilarityFunction.Instance<?> snn = (SharedNearestNeighborSimilarityFunction.Instance<?>) dq;
+      DBIDs ids = dq.getRelation().getDBIDs();
+      return new SNNGraphInstance(SharedNearestNeighborGraph.build(snn.getIndex(), ids, (int) Math.ceil(epsilon)), ids);
+    }
     RangeQuery<O> rq = database.getSimilarityRangeQuery(dq);
     return new Instance(epsilon, rq, dq.getRelation().getDBIDs());
   }
@@ -155,6 +169,52 @@ public class SimilarityNeighborPredicate<O> implements NeighborPredicate<DoubleD
     }
   }
 
+  /**
+   * Instance using a precomputed shared nearest neighbor graph.
+   *
+   * @author Erich Schubert
+   */
+  public static class SNNGraphInstance implements NeighborPredicate.Instance<DoubleDBIDList> {
+    /**
+     * Shared nearest neighbor graph.
+     */
+    protected SharedNearestNeighborGraph graph;
+
+    /**
+     * DBIDs to process
+     */
+    protected DBIDs ids;
+
+    /**
+     * Constructor.
+     *
+     * @param graph Shared nearest neighbor graph
+     * @param ids DBIDs to process
+     */
+    public SNNGraphInstance(SharedNearestNeighborGraph graph, DBIDs ids) {
+      super();
+      this.graph = graph;
+      this.ids = ids;
+    }
+
+    @Override
+    public DBIDs getIDs() {
+      return ids;
+    }
+
+    @Override
+    public DoubleDBIDList getNeighbors(DBIDRef reference) {
+      ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
+      graph.getNeighbors(reference, neighbors);
+      return neighbors;
+    }
+
+    @Override
+    public DBIDIter iterDBIDs(DoubleDBIDList neighbors) {
+      return neighbors.iter();
+    }
+  }
+
   /**
    * Parameterization class
    *
@@ -0,0 +1,759 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.DBSCAN;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.ClusterModel;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.StepProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelRanges;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.IntegerArray;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arrays.IntegerArrayQuickSort;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.unionfind.WeightedQuickUnionInteger;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.IncompatibleDataException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import net.jafama.FastMath;
+
+/**
+ * Exact grid-based DBSCAN for low-dimensional data and Euclidean distance.
+ * <p>
+ * The data space is partitioned into cells of width
+ * &epsilon;/&radic;<i>d</i>, so all objects within a cell are neighbors of
+ * each other. Cells with at least minPts objects consist of core points only;
+ * in all other cells, the neighbors are counted in the adjacent cells. Two
+ * cells containing core points belong to the same cluster if they contain a
+ * pair of core points within distance &epsilon;, which is tested with an
+ * early-aborting closest pair search, and the clusters are then obtained with
+ * union-find on the cells. Border points are assigned to any adjacent cell
+ * with a core point within &epsilon;.
+ * <p>
+ * All phases except sorting the objects into cells and the final union-find
+ * are executed in parallel. The number of adjacent cells grows exponentially
+ * with the dimensionality, so this is intended for low-dimensional data (up to
+ * about 8 dimensions, but best with 2 or 3); if there are more adjacent cells
+ * than non-empty cells, the non-empty cells are scanned instead.
+ * <p>
+ * Core points and noise are identical to {@link DBSCAN}; border points that
+ * are density-reachable from more than one cluster may be assigned to a
+ * different one of these clusters.
+ * <p>
+ * Reference:
+ * <p>
+ * J. Gan, Y. Tao<br>
+ * DBSCAN Revisited: Mis-Claim, Un-Fixability, and Approximation<br>
+ * Proc. 2015 ACM SIGMOD Int. Conf. Management of Data
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.uses ParallelRanges
+ * @apiviz.uses WeightedQuickUnionInteger
+ *
+ * @param <V> Vector type
+ */
+@Title("Parallel Grid Cell DBSCAN")
+@Description("Exact DBSCAN for low-dimensional Euclidean data, using a grid of cells of width epsilon/sqrt(d), with parallel processing of the cells.")
+@Reference(authors = "J. Gan, Y. Tao", //
+    title = "DBSCAN Revisited: Mis-Claim, Un-Fixability, and Approximation", //
+    booktitle = "Proc. 2015 ACM SIGMOD Int. Conf. Management of Data", //
+    url = "https://doi.org/10.1145/2723372.2737792")
+public class ParallelCellDBSCAN<V extends NumberVector> extends AbstractAlgorithm<Clustering<Model>> implements ClusteringAlgorithm<Clustering<Model>> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelCellDBSCAN.class);
+
+  /**
+   * Minimum number of objects per parallel block.
+   */
+  private static final int OBJECT_BLOCK = 4096;
+
+  /**
+   * Minimum number of cells per parallel block.
+   */
+  private static final int CELL_BLOCK = 256;
+
+  /**
+   * Holds the epsilon radius threshold.
+   */
+  protected double epsilon;
+
+  /**
+   * Holds the minimum cluster size.
+   */
+  protected int minpts;
+
+  /**
+   * Constructor.
+   *
+   * @param epsilon Epsilon value
+   * @param minpts Minpts parameter
+   */
+  public ParallelCellDBSCAN(double epsilon, int minpts) {
+    super();
+    this.epsilon = epsilon;
+    this.minpts = minpts;
+  }
+
+  /**
+   * Run the clustering algorithm.
+   *
+   * @param relation Data relation
+   * @return Clustering result
+   */
+  public Clustering<Model> run(Relation<V> relation) {
+    Clustering<Model> result = new Clustering<>("DBSCAN Clustering", "dbscan-clustering");
+    if(relation.size() < minpts) {
+      result.addToplevelCluster(new Cluster<Model>(relation.getDBIDs(), true, ClusterModel.CLUSTER));
+      return result;
+    }
+    return new Instance(relation).run(result);
+  }
+
+  /**
+   * Instance for a single data set.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private class Instance {
+    /**
+     * Data relation.
+     */
+    Relation<V> relation;
+
+    /**
+     * Object ids.
+     */
+    ArrayDBIDs ids;
+
+    /**
+     * Number of objects, and dimensionality.
+     */
+    int size, dim;
+
+    /**
+     * Grid origin.
+     */
+    double[] min;
+
+    /**
+     * Width of the grid cells.
+     */
+    double width;
+
+    /**
+     * Number of cells in each dimension.
+     */
+    int[] extent;
+
+    /**
+     * Object offsets, in cell order.
+     */
+    int[] order;
+
+    /**
+     * Object coordinates, in cell order.
+     */
+    double[] data;
+
+    /**
+     * Number of non-empty cells.
+     */
+    int numcells;
+
+    /**
+     * Grid coordinates of the non-empty cells, in lexicographic order (first
+     * dimension most significant).
+     */
+    int[] cellcoord;
+
+    /**
+     * First object of each cell, in cell order; one extra entry.
+     */
+    int[] cellstart;
+
+    /**
+     * Adjacent non-empty cells of each cell.
+     */
+    int[][] adjacent;
+
+    /**
+     * Core point flags, in cell order.
+     */
+    boolean[] core;
+
+    /**
+     * Cells containing a core point.
+     */
+    boolean[] corecell;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     */
+    Instance(Relation<V> relation) {
+      this.relation = relation;
+      this.ids = DBIDUtil.ensureArray(relation.getDBIDs());
+      this.size = ids.size();
+      this.dim = RelationUtil.dimensionality(relation);
+    }
+
+    /**
+     * Run the clustering.
+     *
+     * @param result Result to fill
+     * @return Clustering
+     */
+    Clustering<Model> run(Clustering<Model> result) {
+      StepProgress stepprog = LOG.isVerbose() ? new StepProgress(5) : null;
+      LOG.beginStep(stepprog, 1, "Sorting objects into grid cells.");
+      buildGrid();
+      LOG.beginStep(stepprog, 2, "Finding adjacent cells.");
+      // Enumerating offsets only pays off if there are fewer than cells.
+      final List<int[]> offsets = neighborOffsets(numcells);
+      ParallelRanges.run(0, numcells, CELL_BLOCK, (start, end) -> findAdjacent(start, end, offsets));
+      LOG.beginStep(stepprog, 3, "Finding core points.");
+      core = new boolean[size];
+      corecell = new boolean[numcells];
+      ParallelRanges.run(0, numcells, CELL_BLOCK, this::findCore);
+      LOG.beginStep(stepprog, 4, "Connecting core cells.");
+      int[][] links = new int[numcells][];
+      ParallelRanges.run(0, numcells, CELL_BLOCK, (start, end) -> linkCells(start, end, links));
+      WeightedQuickUnionInteger uf = new WeightedQuickUnionInteger();
+      for(int c = 0; c < numcells; c++) {
+        uf.nextIndex(1);
+      }
+      for(int c = 0; c < numcells; c++) {
+        if(links[c] != null) {
+          for(int c2 : links[c]) {
+            uf.union(c, c2);
+          }
+        }
+      }
+      LOG.beginStep(stepprog, 5, "Assigning border points.");
+      int[] border = new int[size];
+      ParallelRanges.run(0, numcells, CELL_BLOCK, (start, end) -> assignBorder(start, end, border));
+      LOG.setCompleted(stepprog);
+
+      // Build the clusters, numbered by union-find root.
+      int[] clusterof = new int[numcells];
+      Arrays.fill(clusterof, -1);
+      List<ModifiableDBIDs> clusters = new ArrayList<>();
+      ModifiableDBIDs noise = DBIDUtil.newArray();
+      DBIDArrayIter it = ids.iter();
+      int corecells = 0;
+      for(int c = 0; c < numcells; c++) {
+        corecells += corecell[c] ? 1 : 0;
+        for(int i = cellstart[c], e = cellstart[c + 1]; i < e; i++) {
+          final int cell = core[i] ? c : border[i];
+          if(cell < 0) {
+            noise.add(it.seek(order[i]));
+            continue;
+          }
+          final int root = uf.find(cell);
+          if(clusterof[root] < 0) {
+            clusterof[root] = clusters.size();
+            clusters.add(DBIDUtil.newArray());
+          }
+          clusters.get(clusterof[root]).add(it.seek(order[i]));
+        }
+      }
+      if(LOG.isStatistics()) {
+        LOG.statistics(new LongStatistic(ParallelCellDBSCAN.class.getName() + ".cells", numcells));
+        LOG.statistics(new LongStatistic(ParallelCellDBSCAN.class.getName() + ".core-cells", corecells));
+      }
+      for(ModifiableDBIDs res : clusters) {
+        result.addToplevelCluster(new Cluster<Model>(res, ClusterModel.CLUSTER));
+      }
+      result.addToplevelCluster(new Cluster<Model>(noise, true, ClusterModel.CLUSTER));
+      return result;
+    }
+
+    /**
+     * Compute the cell of each object, and sort the objects by cell.
+     */
+    private void buildGrid() {
+      double[][] mm = RelationUtil.computeMinMax(relation);
+      min = mm[0];
+      width = epsilon / FastMath.sqrt(dim);
+      extent = new int[dim];
+      for(int d = 0; d < dim; d++) {
+        final double mi = min[d], ma = mm[1][d];
+        if(mi == Double.NEGATIVE_INFINITY || ma == Double.POSITIVE_INFINITY || mi != mi || ma != ma) {
+          throw new IncompatibleDataException("Dimension " + d + " contains non-finite values.");
+        }
+        final double cells = Math.floor((ma - mi) / width) + 1;
+        if(cells >= Integer.MAX_VALUE) {
+          throw new IncompatibleDataException("Too many grid cells, epsilon is too small for the data extent.");
+        }
+        extent[d] = (int) cells;
+      }
+      // Compute the cell coordinates, and sort the objects lexicographically.
+      // Only the non-empty cells are stored, so the total number of cells may
+      // exceed the range of any integer type.
+      final int[] coords = new int[size * dim];
+      ParallelRanges.run(0, size, OBJECT_BLOCK, (start, end) -> {
+        DBIDArrayIter it = ids.iter();
+        for(int i = start, j = start * dim; i < end; i++) {
+          V vec = relation.get(it.seek(i));
+          for(int d = 0; d < dim; d++, j++) {
+            final int c = (int) ((vec.doubleValue(d) - min[d]) / width);
+            coords[j] = Math.min(c, extent[d] - 1);
+          }
+        }
+      });
+      order = new int[size];
+      for(int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      IntegerArrayQuickSort.sort(order, (x, y) -> compareCoords(coords, x * dim, coords, y * dim));
+      data = new double[size * dim];
+      ParallelRanges.run(0, size, OBJECT_BLOCK, (start, end) -> {
+        DBIDArrayIter it = ids.iter();
+        for(int i = start, j = start * dim; i < end; i++) {
+          V vec = relation.get(it.seek(order[i]));
+          for(int d = 0; d < dim; d++, j++) {
+            data[j] = vec.doubleValue(d);
+          }
+        }
+      });
+      // Collect the non-empty cells.
+      numcells = 0;
+      for(int i = 0; i < size; i++) {
+        if(i == 0 || compareCoords(coords, order[i] * dim, coords, order[i - 1] * dim) != 0) {
+          ++numcells;
+        }
+      }
+      cellcoord = new int[numcells * dim];
+      cellstart = new int[numcells + 1];
+      for(int i = 0, c = 0; i < size; i++) {
+        final int off = order[i] * dim;
+        if(i == 0 || compareCoords(coords, off, cellcoord, (c - 1) * dim) != 0) {
+          System.arraycopy(coords, off, cellcoord, c * dim, dim);
+          cellstart[c++] = i;
+        }
+      }
+      cellstart[numcells] = size;
+      adjacent = new int[numcells][];
+    }
+
+    /**
+     * Enumerate the cell offsets that may contain neighbors, i.e., with a
+     * minimum distance of at most epsilon.
+     *
+     * @param limit Maximum number of offsets
+     * @return Offsets, or {@code null} if there are more than {@code limit}
+     */
+    private List<int[]> neighborOffsets(int limit) {
+      final int r = maxOffset();
+      List<int[]> offsets = new ArrayList<>();
+      int[] cur = new int[dim];
+      Arrays.fill(cur, -r);
+      // Odometer-style enumeration of [-r;r]^dim.
+      while(true) {
+        if(minCellDistance(cur) <= dim && !isZero(cur)) {
+          if(offsets.size() >= limit) {
+            return null;
+          }
+          offsets.add(cur.clone());
+        }
+        int d = 0;
+        while(d < dim && cur[d] == r) {
+          cur[d++] = -r;
+        }
+        if(d == dim) {
+          return offsets;
+        }
+        cur[d]++;
+      }
+    }
+
+    /**
+     * Maximum offset of adjacent cells in a single dimension.
+     *
+     * @return Maximum offset
+     */
+    private int maxOffset() {
+      return (int) (1 + FastMath.sqrt(dim));
+    }
+
+    /**
+     * Find the adjacent non-empty cells.
+     *
+     * @param start First cell
+     * @param end End of cell range
+     * @param offsets Cell offsets to check, or {@code null} to scan all cells
+     */
+    private void findAdjacent(int start, int end, List<int[]> offsets) {
+      int[] coord = new int[dim], other = new int[dim];
+      IntegerArray buf = new IntegerArray();
+      for(int c = start; c < end; c++) {
+        System.arraycopy(cellcoord, c * dim, coord, 0, dim);
+        buf.clear();
+        if(offsets != null) {
+          offsets: for(int[] off : offsets) {
+            for(int d = 0; d < dim; d++) {
+              final int v = coord[d] + off[d];
+              if(v < 0 || v >= extent[d]) {
+                continue offsets;
+              }
+              other[d] = v;
+            }
+            final int c2 = findCell(other);
+            if(c2 >= 0) {
+              buf.add(c2);
+            }
+          }
+        }
+        else {
+          // Cells are sorted by the first coordinate first, so we only need to
+          // scan the slab of cells with an adjacent first coordinate.
+          final int reach = maxOffset();
+          final int cstart = firstCell(coord[0] - reach);
+          final int cend = firstCell(coord[0] + reach + 1);
+          for(int c2 = cstart; c2 < cend; c2++) {
+            if(c2 != c) {
+              for(int d = 0, j = c2 * dim; d < dim; d++, j++) {
+                other[d] = cellcoord[j] - coord[d];
+              }
+              if(minCellDistance(other) <= dim) {
+                buf.add(c2);
+              }
+            }
+          }
+        }
+        adjacent[c] = Arrays.copyOf(buf.data, buf.size);
+      }
+    }
+
+    /**
+     * Find the core points.
+     *
+     * @param start First cell
+     * @param end End of cell range
+     */
+    private void findCore(int start, int end) {
+      final double eps2 = epsilon * epsilon;
+      for(int c = start; c < end; c++) {
+        final int cs = cellstart[c], ce = cellstart[c + 1];
+        if(ce - cs >= minpts) {
+          Arrays.fill(core, cs, ce, true);
+          corecell[c] = true;
+          continue;
+        }
+        for(int i = cs; i < ce; i++) {
+          int count = ce - cs;
+          search: for(int c2 : adjacent[c]) {
+            for(int j = cellstart[c2], e = cellstart[c2 + 1]; j < e; j++) {
+              if(squaredDistance(i, j) <= eps2 && ++count >= minpts) {
+                break search;
+              }
+            }
+          }
+          if(count >= minpts) {
+            core[i] = corecell[c] = true;
+          }
+        }
+      }
+    }
+
+    /**
+     * Find the pairs of core cells that are connected, i.e., that contain a
+     * pair of core points within epsilon. Each pair is only stored for the
+     * cell with the smaller index.
+     *
+     * @param start First cell
+     * @param end End of cell range
+     * @param links Output: linked cells
+     */
+    private void linkCells(int start, int end, int[][] links) {
+      final double eps2 = epsilon * epsilon;
+      IntegerArray buf = new IntegerArray();
+      for(int c = start; c < end; c++) {
+        if(!corecell[c]) {
+          continue;
+        }
+        buf.clear();
+        for(int c2 : adjacent[c]) {
+          if(c2 > c && corecell[c2] && connected(c, c2, eps2)) {
+            buf.add(c2);
+          }
+        }
+        links[c] = buf.size > 0 ? Arrays.copyOf(buf.data, buf.size) : null;
+      }
+    }
+
+    /**
+     * Test whether two cells contain core points within epsilon.
+     *
+     * @param c1 First cell
+     * @param c2 Second cell
+     * @param eps2 Squared epsilon
+     * @return {@code true} when connected
+     */
+    private boolean connected(int c1, int c2, double eps2) {
+      for(int i = cellstart[c1], ie = cellstart[c1 + 1]; i < ie; i++) {
+        if(!core[i]) {
+          continue;
+        }
+        for(int j = cellstart[c2], je = cellstart[c2 + 1]; j < je; j++) {
+          if(core[j] && squaredDistance(i, j) <= eps2) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Assign non-core points to a cell with a core point within epsilon.
+     *
+     * @param start First cell
+     * @param end End of cell range
+     * @param border Output: cell of each object, -1 for noise
+     */
+    private void assignBorder(int start, int end, int[] border) {
+      final double eps2 = epsilon * epsilon;
+      for(int c = start; c < end; c++) {
+        for(int i = cellstart[c], e = cellstart[c + 1]; i < e; i++) {
+          if(core[i]) {
+            continue;
+          }
+          // Any core point in the same cell is within epsilon.
+          border[i] = corecell[c] ? c : findCoreCell(c, i, eps2);
+        }
+      }
+    }
+
+    /**
+     * Find an adjacent cell containing a core point within epsilon.
+     *
+     * @param c Cell of the object
+     * @param i Object position
+     * @param eps2 Squared epsilon
+     * @return Cell, or -1
+     */
+    private int findCoreCell(int c, int i, double eps2) {
+      for(int c2 : adjacent[c]) {
+        if(!corecell[c2]) {
+          continue;
+        }
+        for(int j = cellstart[c2], e = cellstart[c2 + 1]; j < e; j++) {
+          if(core[j] && squaredDistance(i, j) <= eps2) {
+            return c2;
+          }
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Squared Euclidean distance of two objects, by position in cell order.
+     *
+     * @param i First object
+     * @param j Second object
+     * @return Squared distance
+     */
+    private double squaredDistance(int i, int j) {
+      double sum = 0.;
+      for(int d = 0, a = i * dim, b = j * dim; d < dim; d++, a++, b++) {
+        final double v = data[a] - data[b];
+        sum += v * v;
+      }
+      return sum;
+    }
+
+    /**
+     * Find a non-empty cell by binary search.
+     *
+     * @param coord Grid coordinates
+     * @return Cell, or -1 if empty
+     */
+    private int findCell(int[] coord) {
+      int lo = 0, hi = numcells - 1;
+      while(lo <= hi) {
+        final int mid = (lo + hi) >>> 1;
+        final int cmp = compareCoords(cellcoord, mid * dim, coord, 0);
+        if(cmp < 0) {
+          lo = mid + 1;
+        }
+        else if(cmp > 0) {
+          hi = mid - 1;
+        }
+        else {
+          return mid;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Find the first cell with a first coordinate of at least {@code v}.
+     *
+     * @param v Minimum first coordinate
+     * @return Cell index, {@link #numcells} if none
+     */
+    private int firstCell(int v) {
+      int lo = 0, hi = numcells;
+      while(lo < hi) {
+        final int mid = (lo + hi) >>> 1;
+        if(cellcoord[mid * dim] < v) {
+          lo = mid + 1;
+        }
+        else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+
+    /**
+     * Compare two grid coordinate vectors lexicographically.
+     *
+     * @param a First array
+     * @param aoff Offset in first array
+     * @param b Second array
+     * @param boff Offset in second array
+     * @return Comparison result
+     */
+    private int compareCoords(int[] a, int aoff, int[] b, int boff) {
+      for(int d = 0; d < dim; d++) {
+        final int cmp = Integer.compare(a[aoff + d], b[boff + d]);
+        if(cmp != 0) {
+          return cmp;
+        }
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Minimum squared distance of two cells with the given coordinate offset,
+   * in units of the cell width.
+   *
+   * @param off Offset
+   * @return Minimum squared distance
+   */
+  private static int minCellDistance(int[] off) {
+    int sum = 0;
+    for(int v : off) {
+      final int gap = Math.abs(v) - 1;
+      sum += gap > 0 ? gap * gap : 0;
+    }
+    return sum;
+  }
+
+  /**
+   * Test for the zero offset.
+   *
+   * @param off Offset
+   * @return {@code true} if all zero
+   */
+  private static boolean isZero(int[] off) {
+    for(int v : off) {
+      if(v != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <V> Vector type
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractParameterizer {
+    /**
+     * Holds the epsilon radius threshold.
+     */
+    protected double epsilon;
+
+    /**
+     * Holds the minimum cluster size.
+     */
+    protected int minpts;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      DoubleParameter epsilonP = new DoubleParameter(DBSCAN.Parameterizer.EPSILON_ID) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+      if(config.grab(epsilonP)) {
+        epsilon = epsilonP.getValue();
+      }
+
+      IntParameter minptsP = new IntParameter(DBSCAN.Parameterizer.MINPTS_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(minptsP)) {
+        minpts = minptsP.getValue();
+      }
+    }
+
+    @Override
+    protected ParallelCellDBSCAN<V> makeInstance() {
+      return new ParallelCellDBSCAN<>(epsilon, minpts);
+    }
+  }
+}
@@ -33,9 +33,9 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.ParallelRanges;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
-import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
@@ -87,6 +87,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  *
  * @apiviz.composedOf LinkageMethod
  * @apiviz.composedOf PointerHierarchyRepresentationBuilder
+ * @apiviz.uses TriangularMatrix
  *
  * @param <O> Object type
  */
@@ -102,11 +103,28 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    */
   private static final Logging LOG = Logging.getLogger(AGNES.class);
 
+  /**
+   * Minimum number of matrix entries per task when computing the initial
+   * distance matrix in parallel.
+   */
+  static final int PARALLEL_INIT_BLOCK = 1 << 14;
+
+  /**
+   * Minimum number of rows per task when updating the distance matrix in
+   * parallel after a merge.
+   */
+  static final int PARALLEL_UPDATE_BLOCK = 1 << 12;
+
   /**
    * Current linkage method in use.
    */
   LinkageMethod linkage = WardLinkageMethod.STATIC;
 
+  /**
+   * Storage for the distance matrix.
+   */
+  TriangularMatrix.Factory matrix = DoubleTriangularMatrix.Factory.STATIC;
+
   /**
    * Constructor.
    *
@@ -114,8 +132,20 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param linkage Linkage method
    */
   public AGNES(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage) {
+    this(distanceFunction, linkage, DoubleTriangularMatrix.Factory.STATIC);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function to use
+   * @param linkage Linkage method
+   * @param matrix Distance matrix storage
+   */
+  public AGNES(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage, TriangularMatrix.Factory matrix) {
     super(distanceFunction);
     this.linkage = linkage;
+    this.matrix = matrix;
   }
 
   /**
@@ -139,44 +169,43 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
     ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
     final int size = ids.size();
 
-    if(size > 0x10000) {
-      throw new AbortException("This implementation does not scale to data sets larger than " + //
-          0x10000 // = 65535
-          + " instances (~16 GB RAM), at which point the Java maximum array size is reached.");
-    }
     if(SingleLinkageMethod.class.isInstance(linkage)) {
       LOG.verbose("Notice: SLINK is a much faster algorithm for single-linkage clustering!");
     }
 
     // Compute the initial (lower triangular) distance matrix.
-    double[] scratch = new double[triangleSize(size)];
-    DBIDArrayIter ix = ids.iter(), iy = ids.iter();
-    initializeDistanceMatrix(scratch, dq, linkage, ix, iy);
-
-    // Initialize space for result:
-    PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids, dq.getDistanceFunction().isSquared());
-
-    // Repeat until everything merged into 1 cluster
-    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Agglomerative clustering", size - 1, LOG) : null;
-    int wsize = size;
-    for(int i = 1; i < size; i++) {
-      int x = findMerge(wsize, scratch, ix, iy, builder);
-      if(x == wsize - 1) {
-        --wsize;
-        for(ix.seek(wsize - 1); builder.isLinked(ix); ix.retract()) {
+    try (TriangularMatrix scratch = matrix.newMatrix(size)) {
+      initializeDistanceMatrix(scratch, dq, linkage, ids);
+      DBIDArrayIter ix = ids.iter(), iy = ids.iter();
+
+      // Initialize space for result:
+      PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids, dq.getDistanceFunction().isSquared());
+
+      // Repeat until everything merged into 1 cluster
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Agglomerative clustering", size - 1, LOG) : null;
+      int wsize = size;
+      for(int i = 1; i < size; i++) {
+        int x = findMerge(wsize, scratch, ix, iy, builder);
+        if(x == wsize - 1) {
           --wsize;
+          for(ix.seek(wsize - 1); builder.isLinked(ix); ix.retract()) {
+            --wsize;
+          }
         }
+        LOG.incrementProcessed(prog);
       }
-      LOG.incrementProcessed(prog);
-    }
-    LOG.ensureCompleted(prog);
+      LOG.ensureCompleted(prog);
 
-    return builder.complete();
+      return builder.complete();
+    }
   }
 
   /**
    * Compute the size of a complete x by x triangle (minus diagonal)
    *
+   * Note: this overflows for x > 65535, use
+   * {@link TriangularMatrix#triangleSize} for larger matrixes.
+   *
    * @param x Offset
    * @return Size of complete triangle
    */
@@ -187,32 +216,45 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
   /**
    * Initialize a distance matrix.
    *
+   * The rows are computed in parallel, if multiple processors are available.
+   *
+   * @param scratch Scratch space to be used.
+   * @param dq Distance query
+   * @param linkage Linkage method
+   * @param ids Object ids
+   */
+  protected static void initializeDistanceMatrix(TriangularMatrix scratch, DistanceQuery<?> dq, LinkageMethod linkage, ArrayDBIDs ids) {
+    // Progress is in rows, as the number of entries may exceed the int range.
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Distance matrix computation", ids.size(), LOG) : null;
+    ParallelRanges.runTriangle(ids.size(), PARALLEL_INIT_BLOCK, //
+        (start, end) -> initializeDistanceMatrix(scratch, dq, linkage, ids.iter(), ids.iter(), start, end, prog));
+    LOG.ensureCompleted(prog);
+  }
+
+  /**
+   * Initialize the rows start to end (exclusive) of a distance matrix.
+   *
    * @param scratch Scratch space to be used.
    * @param dq Distance query
    * @param linkage Linkage method
    * @param ix Data iterator
    * @param iy Data iterator
+   * @param start First row
+   * @param end End row (exclusive)
+   * @param prog Progress, may be {@code null}
    */
-  protected static void initializeDistanceMatrix(double[] scratch, DistanceQuery<?> dq, LinkageMethod linkage, DBIDArrayIter ix, DBIDArrayIter iy) {
+  private static void initializeDistanceMatrix(TriangularMatrix scratch, DistanceQuery<?> dq, LinkageMethod linkage, DBIDArrayIter ix, DBIDArrayIter iy, int start, int end, FiniteProgress prog) {
     final boolean issquare = dq.getDistanceFunction().isSquared();
-    int pos = 0;
-    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Distance matrix computation", scratch.length, LOG) : null;
-    for(ix.seek(0); ix.valid(); ix.advance()) {
+    long pos = TriangularMatrix.triangleSize(start);
+    for(ix.seek(start); ix.getOffset() < end; ix.advance()) {
       final int x = ix.getOffset();
-      assert (pos == triangleSize(x));
+      assert (pos == TriangularMatrix.triangleSize(x));
       for(iy.seek(0); iy.getOffset() < x; iy.advance()) {
-        scratch[pos] = linkage.initial(dq.distance(ix, iy), issquare);
+        scratch.set(pos, linkage.initial(dq.distance(ix, iy), issquare));
         pos++;
       }
-      if(prog != null) {
-        prog.setProcessed(pos, LOG);
-      }
-    }
-    // Avoid logging errors in case scratch space was too large:
-    if(prog != null) {
-      prog.setProcessed(scratch.length, LOG);
+      LOG.incrementProcessed(prog);
     }
-    LOG.ensureCompleted(prog);
   }
 
   /**
@@ -225,24 +267,25 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param builder Pointer representation builder
    * @return x, for shrinking the working set.
    */
-  protected int findMerge(int size, double[] scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder) {
+  protected int findMerge(int size, TriangularMatrix scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder) {
     double mindist = Double.POSITIVE_INFINITY;
     int x = -1, y = -1;
     // Find minimum:
-    for(int ox = 0, xbase = 0; ox < size; xbase += ox++) {
+    long xbase = 0;
+    for(int ox = 0; ox < size; xbase += ox++) {
       // Skip if object has already joined a cluster:
       if(builder.isLinked(ix.seek(ox))) {
         continue;
       }
-      assert (xbase == triangleSize(ox));
+      assert (xbase == TriangularMatrix.triangleSize(ox));
       for(int oy = 0; oy < ox; oy++) {
         // Skip if object has already joined a cluster:
         if(builder.isLinked(iy.seek(oy))) {
           continue;
         }
-        final int idx = xbase + oy;
-        if(scratch[idx] <= mindist) {
-          mindist = scratch[idx];
+        final double d = scratch.get(xbase + oy);
+        if(d <= mindist) {
+          mindist = d;
           x = ox;
           y = oy;
         }
@@ -265,7 +308,7 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param x First matrix position
    * @param y Second matrix position
    */
-  protected void merge(int size, double[] scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y) {
+  protected void merge(int size, TriangularMatrix scratch, DBIDArrayIter ix, DBIDArrayIter iy, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y) {
     // Avoid allocating memory, by reusing existing iterators:
     ix.seek(x);
     iy.seek(y);
@@ -297,37 +340,67 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
    * @param sizex Old size of first cluster
    * @param sizey Old size of second cluster
    */
-  protected void updateMatrix(int size, double[] scratch, DBIDArrayIter ij, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
+  protected void updateMatrix(int size, TriangularMatrix scratch, DBIDArrayIter ij, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
+    if(size < PARALLEL_UPDATE_BLOCK << 1) {
+      updateMatrix(0, size, scratch, ij, builder, mindist, x, y, sizex, sizey);
+      return;
+    }
+    // Rows are independent, update them in parallel:
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(builder.ids);
+    ParallelRanges.run(0, size, PARALLEL_UPDATE_BLOCK, //
+        (start, end) -> updateMatrix(start, end, scratch, ids.iter(), builder, mindist, x, y, sizex, sizey));
+  }
+
+  /**
+   * Update the rows start to end (exclusive) of the scratch distance matrix.
+   *
+   * @param start First row
+   * @param end End row (exclusive)
+   * @param scratch Scratch matrix.
+   * @param ij Iterator to reuse
+   * @param builder Hierarchy builder
+   * @param mindist Distance that was used for merging
+   * @param x First matrix position
+   * @param y Second matrix position
+   * @param sizex Old size of first cluster
+   * @param sizey Old size of second cluster
+   */
+  private void updateMatrix(int start, int end, TriangularMatrix scratch, DBIDArrayIter ij, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
     // Update distance matrix. Note: y < x
-    final int xbase = triangleSize(x), ybase = triangleSize(y);
+    final long xbase = TriangularMatrix.triangleSize(x), ybase = TriangularMatrix.triangleSize(y);
 
     // Write to (y, j), with j < y
-    int j = 0;
-    for(; j < y; j++) {
+    int j = start;
+    for(; j < y && j < end; j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
       assert (j < y); // Otherwise, ybase + j is the wrong position!
-      final int yb = ybase + j;
-      scratch[yb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[yb], builder.getSize(ij), mindist);
+      final long yb = ybase + j;
+      scratch.set(yb, linkage.combine(sizex, scratch.get(xbase + j), sizey, scratch.get(yb), builder.getSize(ij), mindist));
+    }
+    if(j == y) {
+      j++; // Skip y
     }
-    j++; // Skip y
     // Write to (j, y), with y < j < x
-    int jbase = triangleSize(j);
-    for(; j < x; jbase += j++) {
+    long jbase = TriangularMatrix.triangleSize(j);
+    for(; j < x && j < end; jbase += j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
-      final int jb = jbase + y;
-      scratch[jb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[jb], builder.getSize(ij), mindist);
+      final long jb = jbase + y;
+      scratch.set(jb, linkage.combine(sizex, scratch.get(xbase + j), sizey, scratch.get(jb), builder.getSize(ij), mindist));
+    }
+    if(j == x) {
+      jbase += j++; // Skip x
     }
-    jbase += j++; // Skip x
     // Write to (j, y), with y < x < j
-    for(; j < size; jbase += j++) {
+    for(; j < end; jbase += j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
-      scratch[jbase + y] = linkage.combine(sizex, scratch[jbase + x], sizey, scratch[jbase + y], builder.getSize(ij), mindist);
+      final long jb = jbase + y;
+      scratch.set(jb, linkage.combine(sizex, scratch.get(jbase + x), sizey, scratch.get(jb), builder.getSize(ij), mindist));
     }
   }
 
@@ -357,11 +430,21 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
      */
     public static final OptionID LINKAGE_ID = new OptionID("hierarchical.linkage", "Linkage method to use (e.g. Ward, Single-Link)");
 
+    /**
+     * Option ID for the distance matrix storage.
+     */
+    public static final OptionID MATRIX_ID = new OptionID("hierarchical.matrix", "Storage for the distance matrix (in-memory double or float precision, or a memory-mapped file for large data sets).");
+
     /**
      * Current linkage in use.
      */
     protected LinkageMethod linkage;
 
+    /**
+     * Distance matrix storage.
+     */
+    protected TriangularMatrix.Factory matrix;
+
     @Override
     protected void makeOptions(Parameterization config) {
       // We don't call super, because we want a different default distance.
@@ -375,11 +458,16 @@ public class AGNES<O> extends AbstractDistanceBasedAlgorithm<O, PointerHierarchy
       if(config.grab(linkageP)) {
         linkage = linkageP.instantiateClass(config);
       }
+
+      ObjectParameter<TriangularMatrix.Factory> matrixP = new ObjectParameter<>(MATRIX_ID, TriangularMatrix.Factory.class, DoubleTriangularMatrix.Factory.class);
+      if(config.grab(matrixP)) {
+        matrix = matrixP.instantiateClass(config);
+      }
     }
 
     @Override
     protected AGNES<O> makeInstance() {
-      return new AGNES<>(distanceFunction, linkage);
+      return new AGNES<>(distanceFunction, linkage, matrix);
     }
   }
 }
@@ -35,8 +35,8 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.ParallelRanges;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
-import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
 
@@ -66,6 +66,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  *
  * @apiviz.composedOf LinkageMethod
  * @apiviz.composedOf PointerHierarchyRepresentationBuilder
+ * @apiviz.uses TriangularMatrix
  *
  * @param <O> Object type
  */
@@ -83,6 +84,11 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    */
   LinkageMethod linkage = WardLinkageMethod.STATIC;
 
+  /**
+   * Storage for the distance matrix.
+   */
+  TriangularMatrix.Factory matrix = DoubleTriangularMatrix.Factory.STATIC;
+
   /**
    * Constructor.
    *
@@ -90,8 +96,20 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param linkage Linkage method
    */
   public AnderbergHierarchicalClustering(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage) {
+    this(distanceFunction, linkage, DoubleTriangularMatrix.Factory.STATIC);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function to use
+   * @param linkage Linkage method
+   * @param matrix Distance matrix storage
+   */
+  public AnderbergHierarchicalClustering(DistanceFunction<? super O> distanceFunction, LinkageMethod linkage, TriangularMatrix.Factory matrix) {
     super(distanceFunction);
     this.linkage = linkage;
+    this.matrix = matrix;
   }
 
   /**
@@ -106,45 +124,40 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
     ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
     final int size = ids.size();
 
-    if(size > 0x10000) {
-      throw new AbortException("This implementation does not scale to data sets larger than " + //
-          0x10000 // = 65535
-          + " instances (~16 GB RAM), at which point the Java maximum array size is reached.");
-    }
     if(SingleLinkageMethod.class.isInstance(linkage)) {
       LOG.verbose("Notice: SLINK is a much faster algorithm for single-linkage clustering!");
     }
 
     // Compute the initial (lower triangular) distance matrix.
-    double[] scratch = new double[AGNES.triangleSize(size)];
-    DBIDArrayIter ix = ids.iter(), iy = ids.iter();
-    // Position counter - must agree with computeOffset!
-    AGNES.initializeDistanceMatrix(scratch, dq, linkage, ix, iy);
-
-    // Arrays used for caching:
-    double[] bestd = new double[size];
-    int[] besti = new int[size];
-    initializeNNCache(scratch, bestd, besti);
-
-    // Initialize space for result:
-    PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids, dq.getDistanceFunction().isSquared());
-
-    // Repeat until everything merged into 1 cluster
-    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Agglomerative clustering", size - 1, LOG) : null;
-    int wsize = size;
-    for(int i = 1; i < size; i++) {
-      int x = findMerge(wsize, scratch, ix, iy, bestd, besti, builder);
-      if(x == wsize - 1) {
-        --wsize;
-        for(ix.seek(wsize - 1); builder.isLinked(ix); ix.retract()) {
+    try (TriangularMatrix scratch = matrix.newMatrix(size)) {
+      AGNES.initializeDistanceMatrix(scratch, dq, linkage, ids);
+      DBIDArrayIter ix = ids.iter(), iy = ids.iter();
+
+      // Arrays used for caching:
+      double[] bestd = new double[size];
+      int[] besti = new int[size];
+      initializeNNCache(scratch, bestd, besti);
+
+      // Initialize space for result:
+      PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids, dq.getDistanceFunction().isSquared());
+
+      // Repeat until everything merged into 1 cluster
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Agglomerative clustering", size - 1, LOG) : null;
+      int wsize = size;
+      for(int i = 1; i < size; i++) {
+        int x = findMerge(wsize, scratch, ix, iy, bestd, besti, builder);
+        if(x == wsize - 1) {
           --wsize;
+          for(ix.seek(wsize - 1); builder.isLinked(ix); ix.retract()) {
+            --wsize;
+          }
         }
+        LOG.incrementProcessed(prog);
       }
-      LOG.incrementProcessed(prog);
-    }
-    LOG.ensureCompleted(prog);
+      LOG.ensureCompleted(prog);
 
-    return builder.complete();
+      return builder.complete();
+    }
   }
 
   /**
@@ -154,16 +167,17 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param bestd Best distance
    * @param besti Best index
    */
-  private static void initializeNNCache(double[] scratch, double[] bestd, int[] besti) {
+  private static void initializeNNCache(TriangularMatrix scratch, double[] bestd, int[] besti) {
     final int size = bestd.length;
     Arrays.fill(bestd, Double.POSITIVE_INFINITY);
     Arrays.fill(besti, -1);
-    for(int x = 0, p = 0; x < size; x++) {
-      assert (p == AGNES.triangleSize(x));
+    long p = 0;
+    for(int x = 0; x < size; x++) {
+      assert (p == TriangularMatrix.triangleSize(x));
       double bestdx = Double.POSITIVE_INFINITY;
       int bestix = -1;
       for(int y = 0; y < x; y++, p++) {
-        final double v = scratch[p];
+        final double v = scratch.get(p);
         if(v < bestd[y]) {
           bestd[y] = v;
           besti[y] = x;
@@ -192,7 +206,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param builder Hierarchy builder
    * @return x, for shrinking the working set.
    */
-  protected int findMerge(int size, double[] scratch, DBIDArrayIter ix, DBIDArrayIter iy, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder) {
+  protected int findMerge(int size, TriangularMatrix scratch, DBIDArrayIter ix, DBIDArrayIter iy, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder) {
     double mindist = Double.POSITIVE_INFINITY;
     int x = -1, y = -1;
     // Find minimum:
@@ -226,7 +240,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param x First matrix position
    * @param y Second matrix position
    */
-  protected void merge(int size, double[] scratch, DBIDArrayIter ix, DBIDArrayIter iy, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y) {
+  protected void merge(int size, TriangularMatrix scratch, DBIDArrayIter ix, DBIDArrayIter iy, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y) {
     // Avoid allocating memory, by reusing existing iterators:
     ix.seek(x);
     iy.seek(y);
@@ -266,42 +280,80 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param sizex Old size of first cluster
    * @param sizey Old size of second cluster
    */
-  protected void updateMatrix(int size, double[] scratch, DBIDArrayIter ij, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
+  protected void updateMatrix(int size, TriangularMatrix scratch, DBIDArrayIter ij, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
+    if(size < AGNES.PARALLEL_UPDATE_BLOCK << 1) {
+      updateMatrix(size, 0, size, scratch, ij, bestd, besti, builder, mindist, x, y, sizex, sizey);
+      return;
+    }
+    // Rows are independent: each task only modifies the cache entries of its
+    // own rows, and the update never deactivates a cluster.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(builder.ids);
+    ParallelRanges.run(0, size, AGNES.PARALLEL_UPDATE_BLOCK, //
+        (start, end) -> updateMatrix(size, start, end, scratch, ids.iter(), bestd, besti, builder, mindist, x, y, sizex, sizey));
+  }
+
+  /**
+   * Update the rows start to end (exclusive) of the scratch distance matrix.
+   *
+   * @param size Data set size
+   * @param start First row
+   * @param end End row (exclusive)
+   * @param scratch Scratch matrix.
+   * @param ij Iterator to reuse
+   * @param bestd Best distance
+   * @param besti Index of best distance
+   * @param builder Hierarchy builder
+   * @param mindist Distance that was used for merging
+   * @param x First matrix position
+   * @param y Second matrix position
+   * @param sizex Old size of first cluster
+   * @param sizey Old size of second cluster
+   */
+  private void updateMatrix(int size, int start, int end, TriangularMatrix scratch, DBIDArrayIter ij, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
     // Update distance matrix. Note: miny < minx
-    final int xbase = AGNES.triangleSize(x), ybase = AGNES.triangleSize(y);
+    final long xbase = TriangularMatrix.triangleSize(x), ybase = TriangularMatrix.triangleSize(y);
 
     // Write to (y, j), with j < y
-    int j = 0;
-    for(; j < y; j++) {
+    int j = start;
+    for(; j < y && j < end; j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
       final int sizej = builder.getSize(ij);
-      final int yb = ybase + j;
-      final double d = scratch[yb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[yb], sizej, mindist);
-      updateCache(size, scratch, bestd, besti, x, y, j, d);
+      final long yb = ybase + j;
+      final double d = linkage.combine(sizex, scratch.get(xbase + j), sizey, scratch.get(yb), sizej, mindist);
+      scratch.set(yb, d);
+      // Use the stored value, which may have been rounded by the storage.
+      updateCache(size, scratch, bestd, besti, x, y, j, scratch.get(yb));
+    }
+    if(j == y) {
+      j++; // Skip y
     }
-    j++; // Skip y
     // Write to (j, y), with y < j < x
-    int jbase = AGNES.triangleSize(j);
-    for(; j < x; jbase += j++) {
+    long jbase = TriangularMatrix.triangleSize(j);
+    for(; j < x && j < end; jbase += j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
       final int sizej = builder.getSize(ij);
-      final int jb = jbase + y;
-      final double d = scratch[jb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[jb], sizej, mindist);
-      updateCache(size, scratch, bestd, besti, x, y, j, d);
+      final long jb = jbase + y;
+      final double d = linkage.combine(sizex, scratch.get(xbase + j), sizey, scratch.get(jb), sizej, mindist);
+      scratch.set(jb, d);
+      updateCache(size, scratch, bestd, besti, x, y, j, scratch.get(jb));
+    }
+    if(j == x) {
+      jbase += j++; // Skip x
     }
-    jbase += j++; // Skip x
     // Write to (j, y), with y < x < j
-    for(; j < size; jbase += j++) {
+    for(; j < end; jbase += j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
       final int sizej = builder.getSize(ij);
-      final double d = scratch[jbase + y] = linkage.combine(sizex, scratch[jbase + x], sizey, scratch[jbase + y], sizej, mindist);
-      updateCache(size, scratch, bestd, besti, x, y, j, d);
+      final long jb = jbase + y;
+      final double d = linkage.combine(sizex, scratch.get(jbase + x), sizey, scratch.get(jb), sizej, mindist);
+      scratch.set(jb, d);
+      updateCache(size, scratch, bestd, besti, x, y, j, scratch.get(jb));
     }
   }
 
@@ -317,7 +369,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param j Updated value d(y, j)
    * @param d New distance
    */
-  private void updateCache(int size, double[] scratch, double[] bestd, int[] besti, int x, int y, int j, double d) {
+  private void updateCache(int size, TriangularMatrix scratch, double[] bestd, int[] besti, int x, int y, int j, double d) {
     // New best
     if(d <= bestd[j]) {
       bestd[j] = d;
@@ -330,27 +382,31 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
     }
   }
 
-  protected void findBest(int size, double[] scratch, double[] bestd, int[] besti, int j) {
-    final int jbase = AGNES.triangleSize(j);
+  protected void findBest(int size, TriangularMatrix scratch, double[] bestd, int[] besti, int j) {
+    final long jbase = TriangularMatrix.triangleSize(j);
     // The distance has increased, we may no longer be the best merge.
     double bestdj = Double.POSITIVE_INFINITY;
     int bestij = -1;
-    for(int i = 0, o = jbase; i < j; i++, o++) {
+    long o = jbase;
+    for(int i = 0; i < j; i++, o++) {
       if(besti[i] < 0) {
         continue;
       }
-      if(scratch[o] < bestdj) {
-        bestdj = scratch[o];
+      final double d = scratch.get(o);
+      if(d < bestdj) {
+        bestdj = d;
         bestij = i;
       }
     }
-    for(int i = j + 1, o = jbase + j + j; i < size; o += i, i++) {
-      // assert(o == AGNES.triangleSize(i) + j);
+    o = jbase + j + j;
+    for(int i = j + 1; i < size; o += i, i++) {
+      // assert(o == TriangularMatrix.triangleSize(i) + j);
       if(besti[i] < 0) {
         continue;
       }
-      if(scratch[o] < bestdj) {
-        bestdj = scratch[o];
+      final double d = scratch.get(o);
+      if(d < bestdj) {
+        bestdj = d;
         bestij = i;
       }
     }
@@ -384,6 +440,11 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
      */
     protected LinkageMethod linkage;
 
+    /**
+     * Distance matrix storage.
+     */
+    protected TriangularMatrix.Factory matrix;
+
     @Override
     protected void makeOptions(Parameterization config) {
       // We don't call super, because we want a different default distance.
@@ -397,11 +458,16 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
       if(config.grab(linkageP)) {
         linkage = linkageP.instantiateClass(config);
       }
+
+      ObjectParameter<TriangularMatrix.Factory> matrixP = new ObjectParameter<>(AGNES.Parameterizer.MATRIX_ID, TriangularMatrix.Factory.class, DoubleTriangularMatrix.Factory.class);
+      if(config.grab(matrixP)) {
+        matrix = matrixP.instantiateClass(config);
+      }
     }
 
     @Override
     protected AnderbergHierarchicalClustering<O> makeInstance() {
-      return new AnderbergHierarchicalClustering<>(distanceFunction, linkage);
+      return new AnderbergHierarchicalClustering<>(distanceFunction, linkage, matrix);
     }
   }
 }
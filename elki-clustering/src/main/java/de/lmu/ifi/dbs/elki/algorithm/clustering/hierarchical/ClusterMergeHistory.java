@@ -0,0 +1,536 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.database.datastore.DBIDDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arrays.DoubleIntegerArrayQuickSort;
+
+/**
+ * Merge history of a hierarchical clustering, stored in primitive arrays.
+ *
+ * This is an alternative view of the pointer representation, intended for
+ * fast extraction from huge hierarchies: the merges are sorted only once, and
+ * all further processing uses union-find on DBID offsets instead of
+ * {@link de.lmu.ifi.dbs.elki.database.ids.DBIDs} objects.
+ *
+ * Clusters are numbered as follows: the objects are the clusters
+ * {@code 0..n-1} (by their offset in {@link #getDBIDs()}), and merge {@code j}
+ * creates the cluster {@code n+j}. Each cluster has a representative object,
+ * which for merged clusters is the representative of the second cluster. When
+ * built from a pointer representation, the representative is the cluster lead
+ * used by the other extraction methods.
+ *
+ * Flat cuts are obtained with {@link #cut(int)}, where the number of merges
+ * to execute can be chosen with {@link #mergesBelow(double)} and
+ * {@link #mergesForClusters(int)}. Multiple cuts can be answered in a single
+ * pass with {@link #cut(int[])}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.has Cut
+ */
+public class ClusterMergeHistory {
+  /**
+   * Object ids; cluster numbers below n refer to these offsets.
+   */
+  private final ArrayDBIDs ids;
+
+  /**
+   * Merged clusters, two entries per merge.
+   */
+  private final int[] merges;
+
+  /**
+   * Merge heights.
+   */
+  private final double[] heights;
+
+  /**
+   * Maximum merge height so far, monotone even for non-monotone linkages.
+   */
+  private final double[] maxheights;
+
+  /**
+   * Sizes of the merged clusters.
+   */
+  private final int[] sizes;
+
+  /**
+   * Representative object offsets of the merged clusters.
+   */
+  private final int[] reps;
+
+  /**
+   * Flag for squared distances.
+   */
+  private final boolean isSquared;
+
+  /**
+   * Constructor.
+   *
+   * @param ids Object ids
+   * @param merges Merged clusters, two per merge
+   * @param heights Merge heights
+   * @param isSquared Flag for squared distances
+   */
+  public ClusterMergeHistory(ArrayDBIDs ids, int[] merges, double[] heights, boolean isSquared) {
+    final int n = ids.size(), m = heights.length;
+    assert (merges.length == m << 1 && m < n);
+    this.ids = ids;
+    this.merges = merges;
+    this.heights = heights;
+    this.isSquared = isSquared;
+    this.sizes = new int[m];
+    this.reps = new int[m];
+    this.maxheights = new double[m];
+    double max = Double.NEGATIVE_INFINITY;
+    for(int j = 0; j < m; j++) {
+      final int a = merges[j << 1], b = merges[(j << 1) + 1];
+      assert (a < n + j && b < n + j);
+      sizes[j] = size(a) + size(b);
+      reps[j] = representative(b);
+      maxheights[j] = max = Math.max(max, heights[j]);
+    }
+  }
+
+  /**
+   * Build the merge history of a pointer representation.
+   *
+   * @param pointerresult Pointer representation
+   * @return Merge history
+   */
+  public static ClusterMergeHistory fromPointerHierarchy(PointerHierarchyRepresentationResult pointerresult) {
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(pointerresult.getDBIDs());
+    final DBIDDataStore pi = pointerresult.getParentStore();
+    final DoubleDataStore lambda = pointerresult.getParentDistanceStore();
+    final IntegerDataStore order = pointerresult.mergeOrder;
+    final int n = ids.size();
+    WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      offsets.putInt(it, it.getOffset());
+    }
+    // Collect all non-root objects, and sort them by merge order.
+    double[] keys = new double[n];
+    int[] joins = new int[n], parents = new int[n];
+    int m = 0;
+    DBIDVar p = DBIDUtil.newVar();
+    DBIDArrayIter it = ids.iter();
+    for(; it.valid(); it.advance()) {
+      if(DBIDUtil.equal(it, pi.assignVar(it, p))) {
+        continue; // Root
+      }
+      parents[it.getOffset()] = offsets.intValue(p);
+      keys[m] = order != null ? order.intValue(it) : lambda.doubleValue(it);
+      joins[m++] = it.getOffset();
+    }
+    offsets.destroy();
+    DoubleIntegerArrayQuickSort.sort(keys, joins, m);
+    int[] uf = new int[n], top = new int[n];
+    if(order != null) {
+      // The merge order need not be ascending by height (e.g. NNChain), and
+      // the linkage may be non-monotone. As in the topological sort, order by
+      // the maximum height of the subtree, then by merge order.
+      for(int i = 0; i < n; i++) {
+        uf[i] = i;
+      }
+      double[] maxh = new double[n];
+      for(int j = 0; j < m; j++) {
+        final int i = joins[j], r = find(uf, parents[i]);
+        final double h = Math.max(lambda.doubleValue(it.seek(i)), Math.max(maxh[i], maxh[r]));
+        maxh[r] = keys[j] = h;
+        uf[i] = r;
+      }
+      // Sort by height; joins are in merge order, so restore it for ties.
+      DoubleIntegerArrayQuickSort.sort(keys, joins, m);
+      for(int j = 0; j < m;) {
+        int e = j + 1;
+        while(e < m && keys[e] == keys[j]) {
+          ++e;
+        }
+        if(e - j > 1) {
+          sortByOrder(joins, j, e, order, ids);
+        }
+        j = e;
+      }
+    }
+    // Replay the merges with union-find.
+    for(int i = 0; i < n; i++) {
+      uf[i] = top[i] = i;
+    }
+    int[] merges = new int[m << 1];
+    double[] heights = new double[m];
+    for(int j = 0; j < m; j++) {
+      final int i = joins[j];
+      // i is the lead of its cluster, and joins the cluster of its parent.
+      final int r = find(uf, parents[i]);
+      merges[j << 1] = top[i];
+      merges[(j << 1) + 1] = top[r];
+      heights[j] = lambda.doubleValue(it.seek(i));
+      uf[i] = r;
+      top[r] = n + j;
+    }
+    return new ClusterMergeHistory(ids, merges, heights, pointerresult.isSquared());
+  }
+
+  /**
+   * Sort a range of object offsets by their merge order.
+   *
+   * @param joins Object offsets
+   * @param start Range begin
+   * @param end Range end (exclusive)
+   * @param order Merge order
+   * @param ids Object ids
+   */
+  private static void sortByOrder(int[] joins, int start, int end, IntegerDataStore order, ArrayDBIDs ids) {
+    DBIDArrayIter it = ids.iter();
+    double[] keys = new double[end - start];
+    int[] vals = Arrays.copyOfRange(joins, start, end);
+    for(int i = 0; i < keys.length; i++) {
+      keys[i] = order.intValue(it.seek(vals[i]));
+    }
+    DoubleIntegerArrayQuickSort.sort(keys, vals, keys.length);
+    System.arraycopy(vals, 0, joins, start, vals.length);
+  }
+
+  /**
+   * Find the union-find root, with path halving.
+   *
+   * @param uf Union-find parent array
+   * @param i Element
+   * @return Root element
+   */
+  private static int find(int[] uf, int i) {
+    while(uf[i] != i) {
+      i = uf[i] = uf[uf[i]];
+    }
+    return i;
+  }
+
+  /**
+   * Get the object ids. Object clusters are numbered by offset in this array.
+   *
+   * @return Object ids
+   */
+  public ArrayDBIDs getDBIDs() {
+    return ids;
+  }
+
+  /**
+   * Number of objects.
+   *
+   * @return Number of objects
+   */
+  public int size() {
+    return ids.size();
+  }
+
+  /**
+   * Number of merges.
+   *
+   * @return Number of merges
+   */
+  public int numMerges() {
+    return heights.length;
+  }
+
+  /**
+   * Get the first cluster of merge j.
+   *
+   * @param j Merge number
+   * @return Cluster number
+   */
+  public int getMergeA(int j) {
+    return merges[j << 1];
+  }
+
+  /**
+   * Get the second cluster of merge j.
+   *
+   * @param j Merge number
+   * @return Cluster number
+   */
+  public int getMergeB(int j) {
+    return merges[(j << 1) + 1];
+  }
+
+  /**
+   * Get the height of merge j.
+   *
+   * @param j Merge number
+   * @return Merge height
+   */
+  public double getMergeHeight(int j) {
+    return heights[j];
+  }
+
+  /**
+   * Get the size of a cluster.
+   *
+   * @param c Cluster number
+   * @return Number of objects in the cluster
+   */
+  public int size(int c) {
+    final int n = ids.size();
+    return c < n ? 1 : sizes[c - n];
+  }
+
+  /**
+   * Get the representative object offset of a cluster.
+   *
+   * @param c Cluster number
+   * @return Object offset
+   */
+  public int representative(int c) {
+    final int n = ids.size();
+    return c < n ? c : reps[c - n];
+  }
+
+  /**
+   * Get the flag for squared distances.
+   *
+   * @return {@code true} if squared distances are used.
+   */
+  public boolean isSquared() {
+    return isSquared;
+  }
+
+  /**
+   * Number of merges to execute for a cut below the given height (exclusive).
+   *
+   * For non-monotone hierarchies, a merge is only executed if all previous
+   * merges were below the threshold, too.
+   *
+   * @param threshold Height threshold
+   * @return Number of merges
+   */
+  public int mergesBelow(double threshold) {
+    // Binary search for the first merge at or above the threshold.
+    int lo = 0, hi = maxheights.length;
+    while(lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if(maxheights[mid] < threshold) {
+        lo = mid + 1;
+      }
+      else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Number of merges to execute to obtain at least the given number of
+   * clusters. Tied merges are either all executed or all not, so there may be
+   * more clusters than requested.
+   *
+   * @param minclusters Minimum number of clusters
+   * @return Number of merges
+   */
+  public int mergesForClusters(int minclusters) {
+    final int m = heights.length;
+    int split = Math.max(0, Math.min(ids.size() - minclusters, m));
+    if(split < m) {
+      // Tie handling: do not execute merges tied with the next merge.
+      final double stop = maxheights[split];
+      while(split > 0 && maxheights[split - 1] >= stop) {
+        split--;
+      }
+    }
+    return split;
+  }
+
+  /**
+   * Compute a flat cut, executing the first merges only.
+   *
+   * @param nummerges Number of merges to execute
+   * @return Flat clustering
+   */
+  public Cut cut(int nummerges) {
+    return cut(new int[] { nummerges })[0];
+  }
+
+  /**
+   * Compute multiple flat cuts in a single pass over the merges.
+   *
+   * @param nummerges Number of merges to execute, for each cut
+   * @return Flat clusterings, in the same order
+   */
+  public Cut[] cut(int[] nummerges) {
+    final int n = ids.size();
+    // Process the requested cuts in ascending order.
+    double[] keys = new double[nummerges.length];
+    int[] idx = new int[nummerges.length];
+    for(int i = 0; i < nummerges.length; i++) {
+      assert (nummerges[i] >= 0 && nummerges[i] <= heights.length);
+      keys[i] = nummerges[i];
+      idx[i] = i;
+    }
+    DoubleIntegerArrayQuickSort.sort(keys, idx, idx.length);
+    Cut[] cuts = new Cut[nummerges.length];
+    int[] uf = new int[n];
+    double[] maxh = new double[n];
+    for(int i = 0; i < n; i++) {
+      uf[i] = i;
+    }
+    Arrays.fill(maxh, Double.NaN);
+    int j = 0;
+    for(int c : idx) {
+      for(; j < nummerges[c]; j++) {
+        // Join the representatives; the second one remains the root.
+        final int a = find(uf, representative(merges[j << 1]));
+        final int b = find(uf, representative(merges[(j << 1) + 1]));
+        uf[a] = b;
+        // Note: comparisons with NaN (single objects) are false.
+        double h = heights[j];
+        h = maxh[a] > h ? maxh[a] : h;
+        maxh[b] = maxh[b] > h ? maxh[b] : h;
+      }
+      cuts[c] = new Cut(uf, maxh, n - j);
+    }
+    return cuts;
+  }
+
+  /**
+   * Flat clustering, obtained by cutting the merge history.
+   *
+   * @author Erich Schubert
+   */
+  public static class Cut {
+    /**
+     * Cluster number of each object.
+     */
+    private final int[] labels;
+
+    /**
+     * Representative object offset of each cluster.
+     */
+    private final int[] leads;
+
+    /**
+     * Maximum merge height within each cluster, NaN for single objects.
+     */
+    private final double[] heights;
+
+    /**
+     * Cluster sizes.
+     */
+    private final int[] sizes;
+
+    /**
+     * Constructor.
+     *
+     * @param uf Union-find state
+     * @param maxh Maximum merge heights of roots
+     * @param k Number of clusters
+     */
+    protected Cut(int[] uf, double[] maxh, int k) {
+      final int n = uf.length;
+      labels = new int[n];
+      leads = new int[k];
+      heights = new double[k];
+      sizes = new int[k];
+      Arrays.fill(labels, -1);
+      int next = 0;
+      for(int i = 0; i < n; i++) {
+        final int r = find(uf, i);
+        int l = labels[r];
+        if(l < 0) {
+          l = labels[r] = next++;
+          leads[l] = r;
+          heights[l] = maxh[r];
+        }
+        labels[i] = l;
+        sizes[l]++;
+      }
+      assert (next == k);
+    }
+
+    /**
+     * Number of clusters.
+     *
+     * @return Number of clusters
+     */
+    public int numClusters() {
+      return leads.length;
+    }
+
+    /**
+     * Get the cluster number of an object.
+     *
+     * @param i Object offset
+     * @return Cluster number
+     */
+    public int getLabel(int i) {
+      return labels[i];
+    }
+
+    /**
+     * Get the cluster numbers of all objects, by offset. Do not modify.
+     *
+     * @return Cluster numbers
+     */
+    public int[] getLabels() {
+      return labels;
+    }
+
+    /**
+     * Get the representative object of a cluster.
+     *
+     * @param c Cluster number
+     * @return Object offset
+     */
+    public int getLead(int c) {
+      return leads[c];
+    }
+
+    /**
+     * Get the maximum merge height within a cluster.
+     *
+     * @param c Cluster number
+     * @return Height, NaN for single objects
+     */
+    public double getHeight(int c) {
+      return heights[c];
+    }
+
+    /**
+     * Get the size of a cluster.
+     *
+     * @param c Cluster number
+     * @return Size
+     */
+    public int getSize(int c) {
+      return sizes[c];
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+
+/**
+ * In-memory triangular matrix using double precision.
+ *
+ * The values are split into chunks of at most 2^27 entries (1 GB), so that
+ * the size is bounded by the available memory only, not by the maximum array
+ * size.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class DoubleTriangularMatrix implements TriangularMatrix {
+  /**
+   * Default chunk size, as bit shift.
+   */
+  static final int SHIFT = 27;
+
+  /**
+   * Chunk size, as bit shift.
+   */
+  private final int shift;
+
+  /**
+   * Bit mask for the offset within a chunk.
+   */
+  private final int mask;
+
+  /**
+   * Data chunks.
+   */
+  private double[][] chunks;
+
+  /**
+   * Number of entries.
+   */
+  private final long size;
+
+  /**
+   * Constructor.
+   *
+   * @param size Number of entries
+   */
+  public DoubleTriangularMatrix(long size) {
+    this(size, SHIFT);
+  }
+
+  /**
+   * Constructor with a custom chunk size.
+   *
+   * @param size Number of entries
+   * @param shift Chunk size, as bit shift
+   */
+  DoubleTriangularMatrix(long size, int shift) {
+    this.shift = shift;
+    this.mask = (1 << shift) - 1;
+    this.size = size;
+    final int nchunks = (int) ((size + mask) >>> shift);
+    chunks = new double[nchunks][];
+    for(int i = 0; i < nchunks; i++) {
+      chunks[i] = new double[(int) Math.min(mask + 1L, size - (((long) i) << shift))];
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public double get(long idx) {
+    return chunks[(int) (idx >>> shift)][((int) idx) & mask];
+  }
+
+  @Override
+  public void set(long idx, double v) {
+    chunks[(int) (idx >>> shift)][((int) idx) & mask] = v;
+  }
+
+  @Override
+  public void close() {
+    chunks = null;
+  }
+
+  /**
+   * Factory for in-memory double precision matrixes.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has DoubleTriangularMatrix - - «create»
+   */
+  @Alias({ "double", "memory" })
+  public static class Factory implements TriangularMatrix.Factory {
+    /**
+     * Static instance.
+     */
+    public static final Factory STATIC = new Factory();
+
+    @Override
+    public DoubleTriangularMatrix newMatrix(int size) {
+      return new DoubleTriangularMatrix(TriangularMatrix.triangleSize(size));
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * Returns the static instance.
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     */
+    public static class Parameterizer extends AbstractParameterizer {
+      @Override
+      protected Factory makeInstance() {
+        return STATIC;
+      }
+    }
+  }
+}
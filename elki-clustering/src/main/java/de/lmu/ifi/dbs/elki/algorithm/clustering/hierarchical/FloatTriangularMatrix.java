@@ -0,0 +1,145 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+
+/**
+ * In-memory triangular matrix using single precision, halving the memory
+ * requirements compared to {@link DoubleTriangularMatrix}. Values are rounded
+ * to float on write, which may change the merge order for near-ties.
+ *
+ * The values are split into chunks of at most 2^27 entries (512 MB), so that
+ * the size is bounded by the available memory only, not by the maximum array
+ * size.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class FloatTriangularMatrix implements TriangularMatrix {
+  /**
+   * Default chunk size, as bit shift.
+   */
+  static final int SHIFT = DoubleTriangularMatrix.SHIFT;
+
+  /**
+   * Chunk size, as bit shift.
+   */
+  private final int shift;
+
+  /**
+   * Bit mask for the offset within a chunk.
+   */
+  private final int mask;
+
+  /**
+   * Data chunks.
+   */
+  private float[][] chunks;
+
+  /**
+   * Number of entries.
+   */
+  private final long size;
+
+  /**
+   * Constructor.
+   *
+   * @param size Number of entries
+   */
+  public FloatTriangularMatrix(long size) {
+    this(size, SHIFT);
+  }
+
+  /**
+   * Constructor with a custom chunk size.
+   *
+   * @param size Number of entries
+   * @param shift Chunk size, as bit shift
+   */
+  FloatTriangularMatrix(long size, int shift) {
+    this.shift = shift;
+    this.mask = (1 << shift) - 1;
+    this.size = size;
+    final int nchunks = (int) ((size + mask) >>> shift);
+    chunks = new float[nchunks][];
+    for(int i = 0; i < nchunks; i++) {
+      chunks[i] = new float[(int) Math.min(mask + 1L, size - (((long) i) << shift))];
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public double get(long idx) {
+    return chunks[(int) (idx >>> shift)][((int) idx) & mask];
+  }
+
+  @Override
+  public void set(long idx, double v) {
+    chunks[(int) (idx >>> shift)][((int) idx) & mask] = (float) v;
+  }
+
+  @Override
+  public void close() {
+    chunks = null;
+  }
+
+  /**
+   * Factory for in-memory single precision matrixes.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has FloatTriangularMatrix - - «create»
+   */
+  @Alias({ "float" })
+  public static class Factory implements TriangularMatrix.Factory {
+    /**
+     * Static instance.
+     */
+    public static final Factory STATIC = new Factory();
+
+    @Override
+    public FloatTriangularMatrix newMatrix(int size) {
+      return new FloatTriangularMatrix(TriangularMatrix.triangleSize(size));
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * Returns the static instance.
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     */
+    public static class Parameterizer extends AbstractParameterizer {
+      @Override
+      protected Factory makeInstance() {
+        return STATIC;
+      }
+    }
+  }
+}
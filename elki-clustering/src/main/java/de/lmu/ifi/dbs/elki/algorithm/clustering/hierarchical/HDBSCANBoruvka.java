@@ -0,0 +1,704 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.ModifiableHyperBoundingBox;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListMIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.ids.QuickSelectDBIDs;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * HDBSCAN* clustering for vector data, computing the minimum spanning tree of
+ * the mutual reachability graph with a dual-tree Boruvka algorithm.
+ *
+ * The core distances are obtained from the kNN query of the database, and
+ * thus benefit from any index (e.g. a k-d-tree or a cover tree). The spanning
+ * tree is then built on a k-d-tree over the data, where pairs of subtrees are
+ * pruned if they belong to the same component, or if the lower bound of their
+ * mutual reachability distance, {@code max(mindist, coremin, coremin)}, exceeds
+ * the best candidate edge of the query components. For low-dimensional data,
+ * this avoids most of the O(n²) distance computations of
+ * {@link HDBSCANLinearMemory}.
+ *
+ * The result is the same hierarchy as produced by {@link HDBSCANLinearMemory},
+ * and can be processed with the same extraction methods.
+ *
+ * Reference:
+ * <p>
+ * W. B. March, P. Ram, and A. G. Gray<br />
+ * Fast Euclidean minimum spanning tree: algorithm, analysis, and applications
+ * <br />
+ * Proc. 16th ACM SIGKDD Int. Conf. on Knowledge Discovery and Data Mining
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Vector type
+ *
+ * @apiviz.has PointerDensityHierarchyRepresentationResult
+ */
+@Reference(authors = "W. B. March, P. Ram, and A. G. Gray", //
+    title = "Fast Euclidean minimum spanning tree: algorithm, analysis, and applications", //
+    booktitle = "Proc. 16th ACM SIGKDD Int. Conf. on Knowledge Discovery and Data Mining", //
+    url = "http://dx.doi.org/10.1145/1835804.1835882")
+public class HDBSCANBoruvka<O extends NumberVector> extends AbstractHDBSCAN<O, PointerDensityHierarchyRepresentationResult> implements HierarchicalClusteringAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(HDBSCANBoruvka.class);
+
+  /**
+   * Maximum size of leaf nodes of the k-d-tree.
+   */
+  protected int leafsize;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param minPts Minimum number of points for density
+   * @param leafsize Maximum size of leaf nodes of the k-d-tree
+   */
+  public HDBSCANBoruvka(SpatialPrimitiveDistanceFunction<? super O> distanceFunction, int minPts, int leafsize) {
+    super(distanceFunction, minPts);
+    this.leafsize = leafsize;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public SpatialPrimitiveDistanceFunction<? super O> getDistanceFunction() {
+    return (SpatialPrimitiveDistanceFunction<? super O>) super.getDistanceFunction();
+  }
+
+  /**
+   * Run the algorithm
+   *
+   * @param db Database
+   * @param relation Relation
+   * @return Clustering hierarchy
+   */
+  public PointerDensityHierarchyRepresentationResult run(Database db, Relation<O> relation) {
+    final DistanceQuery<O> distQ = db.getDistanceQuery(relation, getDistanceFunction());
+    final KNNQuery<O> knnQ = db.getKNNQuery(distQ, minPts);
+    // We need array addressing later.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+
+    // 1. Compute the core distances
+    final WritableDoubleDataStore coredists = computeCoreDists(ids, knnQ, minPts);
+
+    // 2. Build spanning tree.
+    DoubleLongHeap heap = new DoubleLongMinHeap(ids.size() - 1);
+    if(ids.size() > 1) {
+      new BoruvkaMST(relation, ids, coredists).run(heap);
+    }
+    // Storage for pointer representation:
+    WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
+    convertToPointerRepresentation(ids, heap, pi, lambda);
+
+    return new PointerDensityHierarchyRepresentationResult(ids, pi, lambda, distQ.getDistanceFunction().isSquared(), coredists);
+  }
+
+  /**
+   * Dual-tree Boruvka on the mutual reachability distance.
+   *
+   * The k-d-tree uses the same implicit layout as
+   * {@code SmallMemoryKDTree}: a subtree is a range [left, right) of the sorted
+   * array, split at the median element, which is a node of its own. Per-node
+   * data of inner nodes is stored at the position of the median.
+   *
+   * @author Erich Schubert
+   */
+  private class BoruvkaMST {
+    /**
+     * Distance function.
+     */
+    private final SpatialPrimitiveDistanceFunction<? super O> df = getDistanceFunction();
+
+    /**
+     * Objects in tree order, the double value is the split coordinate.
+     */
+    private final ModifiableDoubleDBIDList sorted;
+
+    /**
+     * Vectors, in tree order.
+     */
+    private final List<O> vecs;
+
+    /**
+     * Offset in the output ids, by tree position.
+     */
+    private final int[] offset;
+
+    /**
+     * Core distances, by tree position.
+     */
+    private final double[] core;
+
+    /**
+     * Minimum core distance of inner nodes.
+     */
+    private final double[] coremin;
+
+    /**
+     * Component of inner nodes, -1 if mixed.
+     */
+    private final int[] ncomp;
+
+    /**
+     * Candidate distance bound of inner nodes.
+     */
+    private final double[] bounds;
+
+    /**
+     * Component of each object (union-find root, by tree position).
+     */
+    private final int[] comp;
+
+    /**
+     * Union-find parent pointers and weights.
+     */
+    private final int[] parent, weight;
+
+    /**
+     * Best candidate edge per component.
+     */
+    private final double[] bestd;
+
+    /**
+     * Endpoints of the best candidate edges.
+     */
+    private final int[] bestq, bestr;
+
+    /**
+     * Dimensionality.
+     */
+    private final int dims;
+
+    /**
+     * Bounding boxes of subtrees with more than one element.
+     */
+    private final ModifiableHyperBoundingBox[] boxes;
+
+    /**
+     * Number of distance computations.
+     */
+    private long distcalcs = 0;
+
+    /**
+     * Constructor, builds the k-d-tree.
+     *
+     * @param relation Data relation
+     * @param ids Output ids
+     * @param coredists Core distances
+     */
+    BoruvkaMST(Relation<O> relation, ArrayDBIDs ids, DoubleDataStore coredists) {
+      final int size = ids.size();
+      dims = RelationUtil.dimensionality(relation);
+      sorted = DBIDUtil.newDistanceDBIDList(size);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        sorted.add(Double.NaN, it);
+      }
+      buildTree(relation, 0, size, 0, sorted.iter());
+      // Copy the data into tree order, for fast access.
+      WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP);
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        offsets.putInt(it, it.getOffset());
+      }
+      vecs = new ArrayList<>(size);
+      offset = new int[size];
+      core = new double[size];
+      for(DoubleDBIDListIter it = sorted.iter(); it.valid(); it.advance()) {
+        vecs.add(relation.get(it));
+        offset[it.getOffset()] = offsets.intValue(it);
+        core[it.getOffset()] = coredists.doubleValue(it);
+      }
+      offsets.destroy();
+      coremin = new double[size];
+      boxes = new ModifiableHyperBoundingBox[size];
+      computeNodes(0, size);
+      ncomp = new int[size];
+      bounds = new double[size];
+      comp = new int[size];
+      parent = new int[size];
+      weight = new int[size];
+      for(int i = 0; i < size; i++) {
+        parent[i] = i;
+        weight[i] = 1;
+      }
+      bestd = new double[size];
+      bestq = new int[size];
+      bestr = new int[size];
+    }
+
+    /**
+     * Recursively build the tree by partial sorting.
+     *
+     * @param relation Data relation
+     * @param left Interval minimum
+     * @param right Interval maximum
+     * @param axis Current splitting axis
+     * @param iter Iterator
+     */
+    private void buildTree(Relation<O> relation, int left, int right, int axis, DoubleDBIDListMIter iter) {
+      for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
+        iter.setDouble(relation.get(iter).doubleValue(axis));
+      }
+      if(right - left <= leafsize) {
+        return;
+      }
+      final int middle = (left + right) >>> 1;
+      QuickSelectDBIDs.quickSelect(sorted, left, right, middle);
+      final int next = (axis + 1) % dims;
+      if(left < middle) {
+        buildTree(relation, left, middle, next, iter);
+      }
+      if(middle + 1 < right) {
+        buildTree(relation, middle + 1, right, next, iter);
+      }
+    }
+
+    /**
+     * Compute the tight bounding boxes and the minimum core distances of the
+     * subtrees.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @return Minimum core distance in the subtree
+     */
+    private double computeNodes(int left, int right) {
+      final int middle = (left + right) >>> 1;
+      if(right - left <= leafsize) {
+        if(right - left > 1) {
+          ModifiableHyperBoundingBox box = boxes[middle] = new ModifiableHyperBoundingBox(vecs.get(left));
+          for(int i = left + 1; i < right; i++) {
+            box.extend(vecs.get(i));
+          }
+        }
+        return coreMin(left, right);
+      }
+      double min = core[middle];
+      ModifiableHyperBoundingBox box = new ModifiableHyperBoundingBox(vecs.get(middle));
+      if(left < middle) {
+        min = Math.min(min, computeNodes(left, middle));
+        box.extend(box(left, middle));
+      }
+      if(middle + 1 < right) {
+        min = Math.min(min, computeNodes(middle + 1, right));
+        box.extend(box(middle + 1, right));
+      }
+      boxes[middle] = box;
+      return coremin[middle] = min;
+    }
+
+    /**
+     * Run Boruvka's algorithm.
+     *
+     * @param heap Output heap of edges, encoded as in {@link HeapMSTCollector}
+     */
+    void run(DoubleLongHeap heap) {
+      final int size = core.length;
+      HeapMSTCollector collector = new HeapMSTCollector(heap, null, null);
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Computing minimum spanning tree (n-1 edges)", size - 1, LOG) : null;
+      final double rootlb = coremin(0, size);
+      int edges = 0, rounds = 0;
+      while(edges < size - 1) {
+        ++rounds;
+        for(int i = 0; i < size; i++) {
+          comp[i] = find(i);
+        }
+        Arrays.fill(bestd, Double.POSITIVE_INFINITY);
+        Arrays.fill(bestq, -1);
+        Arrays.fill(bestr, -1);
+        computeComponents(0, size);
+        dualTree(0, size, 0, size, rootlb);
+        // Add the best edge of each component.
+        int added = 0;
+        for(int c = 0; c < size; c++) {
+          if(bestq[c] < 0) {
+            continue;
+          }
+          final int a = find(bestq[c]), b = find(bestr[c]);
+          if(a == b) {
+            continue; // Edge was already added by the other component.
+          }
+          union(a, b);
+          final int oa = offset[bestq[c]], ob = offset[bestr[c]];
+          collector.addEdge(bestd[c], oa < ob ? oa : ob, oa < ob ? ob : oa);
+          LOG.incrementProcessed(prog);
+          ++added;
+        }
+        if(added == 0) {
+          LOG.warning("Boruvka did not find any edge to join components, the data may contain infinite distances.");
+          break;
+        }
+        edges += added;
+      }
+      LOG.ensureCompleted(prog);
+      if(LOG.isStatistics()) {
+        LOG.statistics(new LongStatistic(HDBSCANBoruvka.class.getName() + ".rounds", rounds));
+        LOG.statistics(new LongStatistic(HDBSCANBoruvka.class.getName() + ".distancecalcs", distcalcs));
+      }
+    }
+
+    /**
+     * Compute the components of inner nodes.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @return Component, or -1 if mixed
+     */
+    private int computeComponents(int left, int right) {
+      if(right - left <= leafsize) {
+        return component(left, right);
+      }
+      final int middle = (left + right) >>> 1, c = comp[middle];
+      final int lc = left < middle ? computeComponents(left, middle) : c;
+      final int rc = middle + 1 < right ? computeComponents(middle + 1, right) : c;
+      bounds[middle] = Double.POSITIVE_INFINITY;
+      return ncomp[middle] = (lc == c && rc == c) ? c : -1;
+    }
+
+    /**
+     * Process a query subtree and a reference subtree.
+     *
+     * @param ql Query subtree begin
+     * @param qr Query subtree end (exclusive)
+     * @param rl Reference subtree begin
+     * @param rr Reference subtree end (exclusive)
+     * @param lb Lower bound of the mutual reachability distance
+     */
+    private void dualTree(int ql, int qr, int rl, int rr, double lb) {
+      if(lb > bound(ql, qr)) {
+        return; // Pruned.
+      }
+      final int qc = component(ql, qr);
+      if(qc >= 0 && qc == component(rl, rr)) {
+        return; // Same component.
+      }
+      final boolean qleaf = qr - ql <= leafsize, rleaf = rr - rl <= leafsize;
+      if(qleaf && rleaf) {
+        baseCase(ql, qr, rl, rr);
+        return;
+      }
+      // Split the larger subtree first.
+      if(qleaf || (!rleaf && rr - rl >= qr - ql)) {
+        final int middle = (rl + rr) >>> 1;
+        final double ld = rl < middle ? lowerBound(ql, qr, rl, middle) : Double.POSITIVE_INFINITY;
+        final double hd = middle + 1 < rr ? lowerBound(ql, qr, middle + 1, rr) : Double.POSITIVE_INFINITY;
+        // Visit the closer side first, to obtain good bounds early.
+        if(ld <= hd) {
+          if(rl < middle) {
+            dualTree(ql, qr, rl, middle, ld);
+          }
+          dualTree(ql, qr, middle, middle + 1, lowerBound(ql, qr, middle, middle + 1));
+          if(middle + 1 < rr) {
+            dualTree(ql, qr, middle + 1, rr, hd);
+          }
+        }
+        else {
+          dualTree(ql, qr, middle + 1, rr, hd);
+          dualTree(ql, qr, middle, middle + 1, lowerBound(ql, qr, middle, middle + 1));
+          if(rl < middle) {
+            dualTree(ql, qr, rl, middle, ld);
+          }
+        }
+        return;
+      }
+      // Split the query subtree.
+      final int middle = (ql + qr) >>> 1;
+      if(ql < middle) {
+        dualTree(ql, middle, rl, rr, lowerBound(ql, middle, rl, rr));
+      }
+      dualTree(middle, middle + 1, rl, rr, lowerBound(middle, middle + 1, rl, rr));
+      if(middle + 1 < qr) {
+        dualTree(middle + 1, qr, rl, rr, lowerBound(middle + 1, qr, rl, rr));
+      }
+      final double b1 = bound(ql, middle), b2 = bound(middle, middle + 1), b3 = bound(middle + 1, qr);
+      bounds[middle] = Math.max(b1, Math.max(b2, b3));
+    }
+
+    /**
+     * Compare all query objects with all reference objects.
+     *
+     * @param ql Query subtree begin
+     * @param qr Query subtree end (exclusive)
+     * @param rl Reference subtree begin
+     * @param rr Reference subtree end (exclusive)
+     */
+    private void baseCase(int ql, int qr, int rl, int rr) {
+      for(int q = ql; q < qr; q++) {
+        final int cq = comp[q];
+        final double coreq = core[q];
+        if(coreq > bestd[cq]) {
+          continue;
+        }
+        final O vq = vecs.get(q);
+        for(int r = rl; r < rr; r++) {
+          final double corer = core[r];
+          if(comp[r] == cq || corer > bestd[cq]) {
+            continue;
+          }
+          final double dist = df.distance(vq, vecs.get(r));
+          ++distcalcs;
+          final double d = Math.max(dist, Math.max(coreq, corer));
+          if(d < bestd[cq] || (d == bestd[cq] && isPreferred(q, r, bestq[cq], bestr[cq]))) {
+            bestd[cq] = d;
+            bestq[cq] = q;
+            bestr[cq] = r;
+          }
+        }
+      }
+    }
+
+    /**
+     * Tie breaking of edges with the same length, by their endpoints. Boruvka
+     * requires a consistent total order of edges to not produce cycles.
+     *
+     * @param q First endpoint of the new edge
+     * @param r Second endpoint of the new edge
+     * @param bq First endpoint of the current edge
+     * @param br Second endpoint of the current edge
+     * @return {@code true} if the new edge is preferred
+     */
+    private boolean isPreferred(int q, int r, int bq, int br) {
+      final int lo = q < r ? q : r, blo = bq < br ? bq : br;
+      return lo < blo || (lo == blo && (q < r ? r : q) < (bq < br ? br : bq));
+    }
+
+    /**
+     * Lower bound of the mutual reachability distance of two subtrees.
+     *
+     * @param ql Query subtree begin
+     * @param qr Query subtree end (exclusive)
+     * @param rl Reference subtree begin
+     * @param rr Reference subtree end (exclusive)
+     * @return Lower bound
+     */
+    private double lowerBound(int ql, int qr, int rl, int rr) {
+      final double cmin = Math.max(coremin(ql, qr), coremin(rl, rr));
+      return Math.max(cmin, df.minDist(box(ql, qr), box(rl, rr)));
+    }
+
+    /**
+     * Bounding box of a subtree.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @return Bounding box
+     */
+    private SpatialComparable box(int left, int right) {
+      return right - left == 1 ? vecs.get(left) : boxes[(left + right) >>> 1];
+    }
+
+    /**
+     * Upper bound of the candidate edge lengths of the query objects in a
+     * subtree.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @return Upper bound, negative infinity if empty
+     */
+    private double bound(int left, int right) {
+      if(right - left > leafsize) {
+        final int middle = (left + right) >>> 1, c = ncomp[middle];
+        return c >= 0 ? bestd[c] : bounds[middle];
+      }
+      double max = Double.NEGATIVE_INFINITY;
+      for(int i = left; i < right; i++) {
+        final double d = bestd[comp[i]];
+        max = d > max ? d : max;
+      }
+      return max;
+    }
+
+    /**
+     * Component of a subtree.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @return Component, or -1 if mixed
+     */
+    private int component(int left, int right) {
+      if(right - left > leafsize) {
+        return ncomp[(left + right) >>> 1];
+      }
+      final int c = comp[left];
+      for(int i = left + 1; i < right; i++) {
+        if(comp[i] != c) {
+          return -1;
+        }
+      }
+      return c;
+    }
+
+    /**
+     * Minimum core distance of a subtree.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @return Minimum core distance
+     */
+    private double coremin(int left, int right) {
+      return right - left > leafsize ? coremin[(left + right) >>> 1] : coreMin(left, right);
+    }
+
+    /**
+     * Minimum core distance of a range, by scanning.
+     *
+     * @param left Range begin
+     * @param right Range end (exclusive)
+     * @return Minimum core distance
+     */
+    private double coreMin(int left, int right) {
+      double min = Double.POSITIVE_INFINITY;
+      for(int i = left; i < right; i++) {
+        min = core[i] < min ? core[i] : min;
+      }
+      return min;
+    }
+
+    /**
+     * Find the union-find root, with path halving.
+     *
+     * @param i Element
+     * @return Root
+     */
+    private int find(int i) {
+      while(parent[i] != i) {
+        i = parent[i] = parent[parent[i]];
+      }
+      return i;
+    }
+
+    /**
+     * Join two union-find roots.
+     *
+     * @param a First root
+     * @param b Second root
+     */
+    private void union(int a, int b) {
+      if(weight[a] < weight[b]) {
+        parent[a] = b;
+        weight[b] += weight[a];
+      }
+      else {
+        parent[b] = a;
+        weight[a] += weight[b];
+      }
+    }
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <O> Vector type
+   */
+  public static class Parameterizer<O extends NumberVector> extends AbstractHDBSCAN.Parameterizer<O> {
+    /**
+     * Option for the leaf size of the k-d-tree.
+     */
+    public static final OptionID LEAFSIZE_ID = new OptionID("hdbscan.boruvka.leafsize", "Maximum size of leaf nodes of the k-d-tree used to build the spanning tree.");
+
+    /**
+     * Maximum size of leaf nodes.
+     */
+    protected int leafsize;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      // We don't call super, because we need a spatial distance.
+      ObjectParameter<DistanceFunction<O>> distanceFunctionP = makeParameterDistanceFunction(EuclideanDistanceFunction.class, SpatialPrimitiveDistanceFunction.class);
+      if(config.grab(distanceFunctionP)) {
+        distanceFunction = distanceFunctionP.instantiateClass(config);
+      }
+
+      IntParameter minptsP = new IntParameter(MIN_PTS_ID) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ONE_INT);
+      if(config.grab(minptsP)) {
+        minPts = minptsP.getValue();
+      }
+
+      IntParameter leafP = new IntParameter(LEAFSIZE_ID, 16) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(leafP)) {
+        leafsize = leafP.intValue();
+      }
+    }
+
+    @Override
+    protected HDBSCANBoruvka<O> makeInstance() {
+      return new HDBSCANBoruvka<>((SpatialPrimitiveDistanceFunction<? super O>) distanceFunction, minPts, leafsize);
+    }
+  }
+}
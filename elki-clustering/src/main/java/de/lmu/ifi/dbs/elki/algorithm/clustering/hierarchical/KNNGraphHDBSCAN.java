@@ -0,0 +1,301 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.math.geometry.PrimsMinimumSpanningTree;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arrays.DoubleIntegerArrayQuickSort;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.unionfind.WeightedQuickUnionInteger;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+
+import gnu.trove.list.TIntList;
+
+/**
+ * Approximate single-linkage and HDBSCAN* clustering, computing the minimum
+ * spanning tree of a sparse k-nearest-neighbor graph only.
+ *
+ * The kNN graph is obtained from the kNN query of the database, so an
+ * approximate index such as
+ * {@link de.lmu.ifi.dbs.elki.index.preprocessed.knn.NNDescent} or a
+ * materialized kNN preprocessor should be used, as otherwise the graph
+ * construction itself takes quadratic time. The edges are weighted with the
+ * mutual reachability distance and processed with Kruskal's algorithm.
+ *
+ * If the kNN graph is not connected, the remaining components are joined
+ * approximately: for every component, the object with the smallest core
+ * distance is used as representative, and the minimum spanning tree of these
+ * representatives is added. The merge distances of these top-level merges
+ * hence are upper bounds only.
+ *
+ * With {@code minPts=1}, all core distances are zero, and the result is an
+ * approximation of single-linkage clustering (as computed by {@link SLINK}).
+ * The result is a pointer representation, and can be processed with the usual
+ * extraction methods.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ *
+ * @apiviz.uses WeightedQuickUnionInteger
+ * @apiviz.has PointerHierarchyRepresentationResult
+ */
+public class KNNGraphHDBSCAN<O> extends AbstractHDBSCAN<O, PointerHierarchyRepresentationResult> implements HierarchicalClusteringAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(KNNGraphHDBSCAN.class);
+
+  /**
+   * Number of neighbors in the kNN graph.
+   */
+  protected int k;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param minPts Minimum number of points for density, 1 for single-linkage
+   * @param k Number of neighbors in the kNN graph (at least minPts)
+   */
+  public KNNGraphHDBSCAN(DistanceFunction<? super O> distanceFunction, int minPts, int k) {
+    super(distanceFunction, minPts);
+    this.k = Math.max(k, minPts);
+  }
+
+  /**
+   * Run the algorithm
+   *
+   * @param db Database
+   * @param relation Relation
+   * @return Clustering hierarchy
+   */
+  public PointerHierarchyRepresentationResult run(Database db, Relation<O> relation) {
+    final DistanceQuery<O> distQ = db.getDistanceQuery(relation, getDistanceFunction());
+    final KNNQuery<O> knnQ = db.getKNNQuery(distQ, k);
+    // We need array addressing later.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    final int size = ids.size();
+
+    // 1. Compute the kNN graph and the core distances
+    WritableDataStore<KNNList> knns = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, KNNList.class);
+    WritableDoubleDataStore coredists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_DB);
+    WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    FiniteProgress kprog = LOG.isVerbose() ? new FiniteProgress("Computing kNN graph", size, LOG) : null;
+    long numedges = 0;
+    for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      final KNNList knn = knnQ.getKNNForDBID(iter, k);
+      knns.put(iter, knn);
+      offsets.putInt(iter, iter.getOffset());
+      // minPts includes the query point, so minPts = 1 yields 0.
+      coredists.putDouble(iter, knn.iter().seek(Math.min(minPts, knn.size()) - 1).doubleValue());
+      numedges += knn.size();
+      LOG.incrementProcessed(kprog);
+    }
+    LOG.ensureCompleted(kprog);
+    if(numedges > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("kNN graph too large: " + numedges + " edges.");
+    }
+
+    // 2. Collect the edges, weighted by mutual reachability distance
+    final int maxedges = (int) numedges;
+    double[] weights = new double[maxedges];
+    int[] order = new int[maxedges], src = new int[maxedges], dst = new int[maxedges];
+    int m = 0;
+    for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      final int i = iter.getOffset();
+      final double corei = coredists.doubleValue(iter);
+      for(DoubleDBIDListIter it = knns.get(iter).iter(); it.valid(); it.advance()) {
+        final int j = offsets.intValue(it);
+        if(i == j) {
+          continue; // Skip self-loops
+        }
+        weights[m] = MathUtil.max(it.doubleValue(), corei, coredists.doubleValue(it));
+        src[m] = i;
+        dst[m] = j;
+        order[m] = m;
+        ++m;
+      }
+    }
+    knns.destroy();
+    offsets.destroy();
+    DoubleIntegerArrayQuickSort.sort(weights, order, m);
+
+    // 3. Kruskal's algorithm on the kNN graph
+    WeightedQuickUnionInteger uf = new WeightedQuickUnionInteger();
+    for(int i = 0; i < size; i++) {
+      uf.nextIndex(1);
+    }
+    DoubleLongHeap heap = new DoubleLongMinHeap(size - 1);
+    FiniteProgress mprog = LOG.isVerbose() ? new FiniteProgress("Computing minimum spanning tree (n-1 edges)", size - 1, LOG) : null;
+    HeapMSTCollector collector = new HeapMSTCollector(heap, mprog, LOG);
+    for(int e = 0; e < m && heap.size() < size - 1; e++) {
+      final int s = src[order[e]], d = dst[order[e]];
+      if(!uf.isConnected(s, d)) {
+        uf.union(s, d);
+        collector.addEdge(weights[e], s, d);
+      }
+    }
+
+    // 4. Join the remaining components approximately
+    final TIntList roots = uf.getRoots();
+    if(roots.size() > 1) {
+      joinComponents(ids, uf, roots, coredists, distQ, collector);
+    }
+    LOG.ensureCompleted(mprog);
+    if(LOG.isStatistics()) {
+      LOG.statistics(new LongStatistic(KNNGraphHDBSCAN.class.getName() + ".knngraph.edges", m));
+      LOG.statistics(new LongStatistic(KNNGraphHDBSCAN.class.getName() + ".knngraph.components", roots.size()));
+    }
+
+    // Storage for pointer representation:
+    WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
+    convertToPointerRepresentation(ids, heap, pi, lambda);
+
+    final boolean squared = distQ.getDistanceFunction().isSquared();
+    return minPts > 1 ? new PointerDensityHierarchyRepresentationResult(ids, pi, lambda, squared, coredists) //
+        : new PointerHierarchyRepresentationResult(ids, pi, lambda, squared);
+  }
+
+  /**
+   * Join the connected components of the kNN graph, using the minimum spanning
+   * tree of one representative per component.
+   *
+   * @param ids Object ids
+   * @param uf Union-find of the kNN graph components
+   * @param roots Component roots
+   * @param coredists Core distances
+   * @param distQ Distance query
+   * @param collector Edge collector
+   */
+  private void joinComponents(ArrayDBIDs ids, WeightedQuickUnionInteger uf, TIntList roots, WritableDoubleDataStore coredists, DistanceQuery<O> distQ, HeapMSTCollector collector) {
+    final int numc = roots.size();
+    LOG.verbose("kNN graph has " + numc + " components, joining them approximately.");
+    // Component number of each root
+    int[] cnum = new int[ids.size()];
+    for(int c = 0; c < numc; c++) {
+      cnum[roots.get(c)] = c;
+    }
+    // Choose the object with the smallest core distance as representative.
+    final int[] reps = new int[numc];
+    double[] best = new double[numc];
+    Arrays.fill(best, Double.POSITIVE_INFINITY);
+    for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      final int c = cnum[uf.find(iter.getOffset())];
+      final double core = coredists.doubleValue(iter);
+      if(core < best[c]) {
+        best[c] = core;
+        reps[c] = iter.getOffset();
+      }
+    }
+    final HDBSCANAdapter adapter = new HDBSCANAdapter(ids, coredists, distQ);
+    PrimsMinimumSpanningTree.processDense(reps, new PrimsMinimumSpanningTree.Adapter<int[]>() {
+      @Override
+      public double distance(int[] data, int i, int j) {
+        return adapter.distance(ids, data[i], data[j]);
+      }
+
+      @Override
+      public int size(int[] data) {
+        return data.length;
+      }
+    }, (length, i, j) -> collector.addEdge(length, reps[i], reps[j]));
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends AbstractDistanceBasedAlgorithm.Parameterizer<O> {
+    /**
+     * Number of neighbors in the kNN graph.
+     */
+    public static final OptionID K_ID = new OptionID("hdbscan.knngraph.k", "Number of nearest neighbors in the kNN graph (at least minPts). Use an approximate kNN index such as NNDescent for efficiency.");
+
+    /**
+     * Minimum size of core.
+     */
+    protected int minPts;
+
+    /**
+     * Number of neighbors.
+     */
+    protected int k;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config); // distanceFunction
+      IntParameter minptsP = new IntParameter(AbstractHDBSCAN.Parameterizer.MIN_PTS_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(minptsP)) {
+        minPts = minptsP.getValue();
+      }
+      IntParameter kP = new IntParameter(K_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(kP)) {
+        k = kP.getValue();
+      }
+    }
+
+    @Override
+    protected KNNGraphHDBSCAN<O> makeInstance() {
+      return new KNNGraphHDBSCAN<>(distanceFunction, minPts, k);
+    }
+  }
+}
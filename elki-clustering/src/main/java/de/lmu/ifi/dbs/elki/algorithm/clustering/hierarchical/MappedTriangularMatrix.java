@@ -0,0 +1,285 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+
+/**
+ * Out-of-core triangular matrix, stored in a memory-mapped temporary file.
+ *
+ * A single {@link MappedByteBuffer} is limited to 2 GB, so the file is mapped
+ * as a sequence of tiles of 2^27 entries each. The operating system then pages
+ * tiles in and out as needed, which allows data sets whose distance matrix
+ * exceeds the main memory (e.g. 200000 objects need 80 GB in single
+ * precision). The temporary file is deleted when the matrix is closed.
+ *
+ * In contrast to {@code OnDiskUpperTriangleMatrix}, which uses a single mapping
+ * and int offsets, this is not limited to 65535 rows.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MappedTriangularMatrix implements TriangularMatrix {
+  /**
+   * Default tile size, as bit shift.
+   */
+  static final int SHIFT = DoubleTriangularMatrix.SHIFT;
+
+  /**
+   * Tile size, as bit shift.
+   */
+  private final int shift;
+
+  /**
+   * Bit mask for the offset within a tile.
+   */
+  private final int mask;
+
+  /**
+   * Backing file.
+   */
+  private File file;
+
+  /**
+   * Random access file.
+   */
+  private RandomAccessFile raf;
+
+  /**
+   * Tiles, in double precision.
+   */
+  private DoubleBuffer[] dtiles;
+
+  /**
+   * Tiles, in single precision.
+   */
+  private FloatBuffer[] ftiles;
+
+  /**
+   * Number of entries.
+   */
+  private final long size;
+
+  /**
+   * Constructor.
+   *
+   * @param file Backing file (will be overwritten, and deleted on close)
+   * @param size Number of entries
+   * @param single Use single precision
+   * @throws IOException on errors creating the file
+   */
+  public MappedTriangularMatrix(File file, long size, boolean single) throws IOException {
+    this(file, size, single, SHIFT);
+  }
+
+  /**
+   * Constructor with a custom tile size.
+   *
+   * @param file Backing file (will be overwritten, and deleted on close)
+   * @param size Number of entries
+   * @param single Use single precision
+   * @param shift Tile size, as bit shift
+   * @throws IOException on errors creating the file
+   */
+  MappedTriangularMatrix(File file, long size, boolean single, int shift) throws IOException {
+    this.shift = shift;
+    this.mask = (1 << shift) - 1;
+    this.file = file;
+    this.size = size;
+    final int width = single ? Float.BYTES : Double.BYTES;
+    final int ntiles = (int) ((size + mask) >>> shift);
+    raf = new RandomAccessFile(file, "rw");
+    raf.setLength(size * width);
+    FileChannel channel = raf.getChannel();
+    if(single) {
+      ftiles = new FloatBuffer[ntiles];
+    }
+    else {
+      dtiles = new DoubleBuffer[ntiles];
+    }
+    for(int i = 0; i < ntiles; i++) {
+      final long start = ((long) i) << shift;
+      final long len = Math.min(mask + 1L, size - start);
+      MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, start * width, len * width);
+      buf.order(ByteOrder.nativeOrder());
+      if(single) {
+        ftiles[i] = buf.asFloatBuffer();
+      }
+      else {
+        dtiles[i] = buf.asDoubleBuffer();
+      }
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public double get(long idx) {
+    final int t = (int) (idx >>> shift), o = ((int) idx) & mask;
+    return ftiles != null ? ftiles[t].get(o) : dtiles[t].get(o);
+  }
+
+  @Override
+  public void set(long idx, double v) {
+    final int t = (int) (idx >>> shift), o = ((int) idx) & mask;
+    if(ftiles != null) {
+      ftiles[t].put(o, (float) v);
+    }
+    else {
+      dtiles[t].put(o, v);
+    }
+  }
+
+  @Override
+  public void close() {
+    dtiles = null;
+    ftiles = null;
+    try {
+      if(raf != null) {
+        raf.close();
+      }
+    }
+    catch(IOException e) {
+      // Ignore, we are removing the file anyway.
+    }
+    raf = null;
+    // The mappings remain valid until garbage collected, but the file can be
+    // unlinked right away.
+    if(file != null && !file.delete()) {
+      file.deleteOnExit();
+    }
+    file = null;
+  }
+
+  /**
+   * Factory for memory-mapped matrixes.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has MappedTriangularMatrix - - «create»
+   */
+  @Alias({ "mmap", "ondisk" })
+  public static class Factory implements TriangularMatrix.Factory {
+    /**
+     * Directory for temporary files, may be {@code null}.
+     */
+    private File directory;
+
+    /**
+     * Use single precision.
+     */
+    private boolean single;
+
+    /**
+     * Constructor.
+     *
+     * @param directory Directory for temporary files, {@code null} for the
+     *        system default.
+     * @param single Use single precision
+     */
+    public Factory(File directory, boolean single) {
+      super();
+      this.directory = directory;
+      this.single = single;
+    }
+
+    @Override
+    public MappedTriangularMatrix newMatrix(int size) {
+      File file = null;
+      try {
+        file = File.createTempFile("elki-hac-", ".mat", directory);
+        return new MappedTriangularMatrix(file, TriangularMatrix.triangleSize(size), single);
+      }
+      catch(IOException e) {
+        if(file != null) {
+          file.delete();
+        }
+        throw new AbortException("Could not create the on-disk distance matrix.", e);
+      }
+    }
+
+    /**
+     * Parameterization class.
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     */
+    public static class Parameterizer extends AbstractParameterizer {
+      /**
+       * Directory for the temporary matrix file.
+       */
+      public static final OptionID DIRECTORY_ID = new OptionID("hierarchical.matrix.tmpdir", "Directory for the temporary distance matrix file (default: system temporary directory).");
+
+      /**
+       * Flag to store values in single precision.
+       */
+      public static final OptionID FLOAT_ID = new OptionID("hierarchical.matrix.float", "Store the distance matrix in single precision, to halve its size.");
+
+      /**
+       * Directory for temporary files.
+       */
+      private File directory;
+
+      /**
+       * Use single precision.
+       */
+      private boolean single;
+
+      @Override
+      protected void makeOptions(Parameterization config) {
+        super.makeOptions(config);
+        FileParameter directoryP = new FileParameter(DIRECTORY_ID, FileParameter.FileType.OUTPUT_FILE) //
+            .setOptional(true);
+        if(config.grab(directoryP)) {
+          directory = directoryP.getValue();
+        }
+        Flag floatF = new Flag(FLOAT_ID);
+        if(config.grab(floatF)) {
+          single = floatF.isTrue();
+        }
+      }
+
+      @Override
+      protected Factory makeInstance() {
+        return new Factory(directory, single);
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+/**
+ * Storage for the lower triangular part of a symmetric distance matrix, as
+ * used by the agglomerative clustering algorithms.
+ *
+ * Element (x, y) with y &lt; x is stored at offset
+ * {@code triangleSize(x) + y}. Offsets are {@code long}, so that the matrix
+ * is not limited by the maximum Java array size (which would restrict the
+ * data set to about 65535 objects).
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.has Factory
+ */
+public interface TriangularMatrix extends AutoCloseable {
+  /**
+   * Number of entries stored.
+   *
+   * @return Number of entries
+   */
+  long size();
+
+  /**
+   * Get the value at the given offset.
+   *
+   * @param idx Offset
+   * @return Value
+   */
+  double get(long idx);
+
+  /**
+   * Set the value at the given offset.
+   *
+   * @param idx Offset
+   * @param v New value
+   */
+  void set(long idx, double v);
+
+  /**
+   * Release the storage, e.g. delete temporary files.
+   */
+  @Override
+  void close();
+
+  /**
+   * Compute the size of a complete x by x triangle (minus diagonal)
+   *
+   * @param x Offset
+   * @return Size of complete triangle
+   */
+  static long triangleSize(int x) {
+    return (((long) x) * (x - 1)) >>> 1;
+  }
+
+  /**
+   * Factory for triangular matrix storage.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has TriangularMatrix - - «create»
+   */
+  interface Factory {
+    /**
+     * Allocate a triangular matrix for a data set of the given size.
+     *
+     * @param size Number of objects
+     * @return Matrix storage for {@code triangleSize(size)} entries
+     */
+    TriangularMatrix newMatrix(int size);
+  }
+}
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.ClusterMergeHistory;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.HierarchicalClusteringAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.PointerHierarchyRepresentationResult;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.PointerPrototypeHierarchyRepresentationResult;
@@ -33,23 +34,14 @@ import de.lmu.ifi.dbs.elki.data.model.DendrogramModel;
 import de.lmu.ifi.dbs.elki.data.model.PrototypeDendrogramModel;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.database.Database;
-import de.lmu.ifi.dbs.elki.database.datastore.DBIDDataStore;
-import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
-import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
-import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
-import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
-import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.DoubleArray;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
@@ -107,272 +99,115 @@ public abstract class AbstractCutDendrogram implements ClusteringAlgorithm<Clust
    * @apiviz.exclude
    */
   abstract public class Instance {
-    /**
-     * Unordered IDs
-     */
-    protected ArrayDBIDs ids;
-
-    /**
-     * Parent pointer
-     */
-    protected DBIDDataStore pi;
-
-    /**
-     * Merge distance
-     */
-    protected DoubleDataStore lambda;
-
     /**
      * The hierarchical result to process.
      */
     protected PointerHierarchyRepresentationResult pointerresult;
 
-    /**
-     * Map clusters to integer cluster numbers.
-     */
-    protected WritableIntegerDataStore cluster_map;
-
-    /**
-     * Storage for cluster contents
-     */
-    protected ArrayList<ModifiableDBIDs> cluster_dbids;
-
-    /**
-     * Cluster distances
-     */
-    protected DoubleArray clusterHeight;
-
-    /**
-     * Cluster lead objects
-     */
-    protected ArrayModifiableDBIDs cluster_leads;
-
     /**
      * Constructor.
      *
      * @param pointerresult Hierarchical result
      */
     public Instance(PointerHierarchyRepresentationResult pointerresult) {
-      this.ids = pointerresult.topologicalSort();
-      this.pi = pointerresult.getParentStore();
-      this.lambda = pointerresult.getParentDistanceStore();
       this.pointerresult = pointerresult;
     }
 
     /**
      * Extract all clusters from the pi-lambda-representation.
      *
-     * @param pointerresult Result in pointer representation
-     *
      * @return Hierarchical clustering
      */
     public Clustering<DendrogramModel> extractClusters() {
       final Logging log = getLogger();
-      // Sort DBIDs topologically.
-      DBIDArrayIter it = pointerresult.topologicalSort().iter();
-
-      final int split = findSplit(it);
-
-      // Extract the child clusters
-      FiniteProgress progress = log.isVerbose() ? new FiniteProgress("Extracting clusters", ids.size(), log) : null;
-      // Initialize data structures:
-      final int expcnum = ids.size() - split;
-      cluster_map = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP, -1);
-      cluster_dbids = new ArrayList<>(expcnum + 10);
-      clusterHeight = new DoubleArray(expcnum + 10);
-      cluster_leads = DBIDUtil.newArray(expcnum + 10);
-
-      buildLeafClusters(it, split, progress);
-      Clustering<DendrogramModel> dendrogram = hierarchical ? //
-          buildHierarchical(it, split, progress) : buildFlat(it, split, progress);
-      log.ensureCompleted(progress);
-      return dendrogram;
-    }
-
-    /**
-     * Prepare the leaf clusters by executing the first (size - 1 - split)
-     * merges.
-     * 
-     * @param it Iterator
-     * @param split Splitting point
-     * @param progress Progress for logging (may be {@code null})
-     */
-    private void buildLeafClusters(DBIDArrayIter it, final int split, FiniteProgress progress) {
-      final Logging log = getLogger();
-      DBIDVar succ = DBIDUtil.newVar(); // Variable for successor.
-      // Go backwards on the lower part.
-      for(it.seek(split - 1); it.valid(); it.retract()) {
-        double dist = lambda.doubleValue(it); // Distance to successor
-        pi.assignVar(it, succ); // succ = pi(it)
-        int clusterid = cluster_map.intValue(succ);
-        // Successor cluster has already been created:
-        if(clusterid >= 0) {
-          cluster_dbids.get(clusterid).add(it);
-          cluster_map.putInt(it, clusterid);
-          // Update distance to maximum encountered:
-          if(clusterHeight.get(clusterid) < dist) {
-            clusterHeight.set(clusterid, dist);
-          }
-        }
-        else {
-          // Need to start a new cluster:
-          clusterid = cluster_dbids.size(); // next cluster number.
-          ModifiableDBIDs cids = DBIDUtil.newArray();
-          // Add element and successor as initial members:
-          cids.add(succ);
-          cluster_map.putInt(succ, clusterid);
-          cids.add(it);
-          cluster_map.putInt(it, clusterid);
-          // Store new cluster.
-          cluster_dbids.add(cids);
-          cluster_leads.add(succ);
-          clusterHeight.add(dist);
-        }
-
-        // Decrement counter
+      ClusterMergeHistory merges = ClusterMergeHistory.fromPointerHierarchy(pointerresult);
+      final int split = findSplit(merges);
+      ClusterMergeHistory.Cut cut = merges.cut(split);
+      final ArrayDBIDs oids = merges.getDBIDs();
+      final int numc = cut.numClusters();
+      FiniteProgress progress = log.isVerbose() ? new FiniteProgress("Extracting clusters", oids.size(), log) : null;
+      ArrayList<ArrayModifiableDBIDs> members = new ArrayList<>(numc);
+      for(int c = 0; c < numc; c++) {
+        members.add(DBIDUtil.newArray(cut.getSize(c)));
+      }
+      for(DBIDArrayIter it = oids.iter(); it.valid(); it.advance()) {
+        members.get(cut.getLabel(it.getOffset())).add(it);
         log.incrementProcessed(progress);
       }
-    }
-
-    /**
-     * Build a flat clustering.
-     * 
-     * @param it Ordered iterator
-     * @param split Splitting point
-     * @param progress Progress for logging (may be {@code null})
-     * @return Clustering
-     */
-    private Clustering<DendrogramModel> buildFlat(DBIDArrayIter it, final int split, FiniteProgress progress) {
-      final Logging log = getLogger();
-      Clustering<DendrogramModel> dendrogram = new Clustering<>("Flattened Hierarchical Clustering", "flattened-hierarchical-clustering");
-      // Convert initial clusters to cluster objects
-      {
-        int i = 0;
-        for(DBIDIter it2 = cluster_leads.iter(); it2.valid(); it2.advance(), i++) {
-          dendrogram.addToplevelCluster(makeCluster(it2, clusterHeight.get(i), cluster_dbids.get(i)));
-        }
-        clusterHeight = null; // Invalidate
+      log.ensureCompleted(progress);
+      // Convert the partitions to cluster objects
+      ArrayList<Cluster<DendrogramModel>> clusters = new ArrayList<>(numc);
+      DBIDArrayIter lead = oids.iter();
+      for(int c = 0; c < numc; c++) {
+        clusters.add(makeCluster(lead.seek(cut.getLead(c)), cut.getHeight(c), members.get(c)));
       }
-      cluster_dbids = null; // Invalidate
-      // Process the upper part, bottom-up.
-      for(it.seek(split); it.valid(); it.advance()) {
-        int clusterid = cluster_map.intValue(it);
-        if(clusterid < 0) {
-          dendrogram.addToplevelCluster(makeCluster(it, Double.NaN, DBIDUtil.deref(it)));
+      members = null; // Invalidate
+      if(!hierarchical) {
+        Clustering<DendrogramModel> dendrogram = new Clustering<>("Flattened Hierarchical Clustering", "flattened-hierarchical-clustering");
+        for(Cluster<DendrogramModel> clus : clusters) {
+          dendrogram.addToplevelCluster(clus);
         }
-        log.incrementProcessed(progress);
+        return dendrogram;
       }
-      cluster_map = null; // Invalidate
-      return dendrogram;
+      return buildHierarchical(merges, split, cut, clusters);
     }
 
     /**
-     * Build a hierarchical clustering.
-     * 
-     * @param it Iterator
-     * @param split Splitting point
-     * @param progress Progress for logging (may be {@code null})
+     * Build a hierarchical clustering, by executing the remaining merges on
+     * top of the partitions.
+     *
+     * @param merges Merge history
+     * @param split Number of merges already executed
+     * @param cut Partitions after the first split merges
+     * @param clusters Cluster objects of the partitions (modified)
      * @return Clustering
      */
-    private Clustering<DendrogramModel> buildHierarchical(DBIDArrayIter it, int split, FiniteProgress progress) {
-      final int expcnum = ids.size() - split;
-      final Logging log = getLogger();
-      final Clustering<DendrogramModel> dendrogram;
-      // Build a hierarchy out of these clusters.
-      dendrogram = new Clustering<>("Hierarchical Clustering", "hierarchical-clustering");
-      Cluster<DendrogramModel> root = null;
-      ArrayList<Cluster<DendrogramModel>> clusters = new ArrayList<>(expcnum);
-      // Convert initial clusters to cluster objects
-      {
-        int i = 0;
-        for(DBIDIter it2 = cluster_leads.iter(); it2.valid(); it2.advance(), i++) {
-          clusters.add(makeCluster(it2, clusterHeight.get(i), cluster_dbids.get(i)));
-        }
-        clusterHeight = null; // Invalidate
-        cluster_dbids = null; // Invalidate
-      }
-      // Process the upper part, bottom-up.
-      DBIDVar succ = DBIDUtil.newVar(); // Variable for successor.
-      for(it.seek(split); it.valid(); it.advance()) {
-        int clusterid = cluster_map.intValue(it);
-        // The current cluster led by the current element:
-        final Cluster<DendrogramModel> clus;
-        if(clusterid >= 0) {
-          clus = clusters.get(clusterid);
-        }
-        else {
-          clus = makeCluster(it, Double.NaN, DBIDUtil.deref(it));
-        }
-        // The successor to join:
-        pi.assignVar(it, succ); // succ = pi(it)
-        if(DBIDUtil.equal(it, succ)) {
-          assert (root == null);
-          root = clus;
-          log.incrementProcessed(progress);
+    private Clustering<DendrogramModel> buildHierarchical(ClusterMergeHistory merges, int split, ClusterMergeHistory.Cut cut, ArrayList<Cluster<DendrogramModel>> clusters) {
+      Clustering<DendrogramModel> dendrogram = new Clustering<>("Hierarchical Clustering", "hierarchical-clustering");
+      DBIDArrayIter lead = merges.getDBIDs().iter();
+      final int n = merges.size();
+      // Process the upper part, bottom-up. The current top cluster of each
+      // group is stored at the partition of its representative.
+      for(int j = split, m = merges.numMerges(); j < m; j++) {
+        final int a = merges.getMergeA(j), b = merges.getMergeB(j);
+        final int rb = merges.representative(b);
+        final int ca = cut.getLabel(merges.representative(a)), cb = cut.getLabel(rb);
+        final Cluster<DendrogramModel> aclus = clusters.get(ca), bclus = clusters.get(cb);
+        clusters.set(ca, null); // Absorbed
+        final double depth = merges.getMergeHeight(j);
+        // Merge at the same depth: add as child.
+        if(bclus.getModel().getDistance() == depth) {
+          dendrogram.addChildCluster(bclus, aclus);
           continue;
         }
-        // Parent cluster:
-        int parentid = cluster_map.intValue(succ);
-        double depth = lambda.doubleValue(it);
-        // Parent cluster exists - merge as a new cluster:
-        if(parentid >= 0) {
-          final Cluster<DendrogramModel> pclus = clusters.get(parentid);
-          if(pclus.getModel().getDistance() == depth) {
-            if(clus == null) {
-              ((ModifiableDBIDs) pclus.getIDs()).add(it);
-            }
-            else {
-              dendrogram.addChildCluster(pclus, clus);
-            }
-          }
-          else {
-            // Merge at new depth:
-            ModifiableDBIDs cids = DBIDUtil.newArray(clus == null ? 1 : 0);
-            if(clus == null) {
-              cids.add(it);
-            }
-            Cluster<DendrogramModel> npclus = makeCluster(succ, depth, cids);
-            if(clus != null) {
-              dendrogram.addChildCluster(npclus, clus);
-            }
-            dendrogram.addChildCluster(npclus, pclus);
-            // Replace existing parent cluster: new depth
-            clusters.set(parentid, npclus);
-          }
+        // Merge at new depth:
+        Cluster<DendrogramModel> npclus = makeCluster(lead.seek(rb), depth, DBIDUtil.EMPTYDBIDS);
+        if(b < n) {
+          dendrogram.addChildCluster(npclus, bclus);
+          dendrogram.addChildCluster(npclus, aclus);
         }
         else {
-          // Merge with parent at this depth:
-          final Cluster<DendrogramModel> pclus;
-          // Create a new, one-element cluster for parent, and a merged cluster
-          // above it.
-          pclus = makeCluster(succ, depth, DBIDUtil.EMPTYDBIDS);
-          dendrogram.addChildCluster(pclus, makeCluster(succ, Double.NaN, DBIDUtil.deref(succ)));
-          if(clus != null) {
-            dendrogram.addChildCluster(pclus, clus);
-          }
-          // Store cluster:
-          parentid = clusters.size();
-          clusters.add(pclus); // Remember parent cluster
-          cluster_map.putInt(succ, parentid); // Reference
+          dendrogram.addChildCluster(npclus, aclus);
+          dendrogram.addChildCluster(npclus, bclus);
+        }
+        clusters.set(cb, npclus);
+      }
+      // Attach the remaining roots
+      for(Cluster<DendrogramModel> clus : clusters) {
+        if(clus != null) {
+          dendrogram.addToplevelCluster(clus);
         }
-
-        // Decrement counter
-        log.incrementProcessed(progress);
       }
-      assert (root != null);
-      cluster_map = null; // Invalidate
-      // attach root
-      dendrogram.addToplevelCluster(root);
       return dendrogram;
     }
 
     /**
-     * Find the splitting point in the ordered DBIDs list.
+     * Find the number of merges to execute before splitting.
      *
-     * @param it Iterator on this list (reused)
-     * @return Splitting point
+     * @param merges Merge history
+     * @return Number of merges
      */
-    abstract protected int findSplit(DBIDArrayIter it);
+    abstract protected int findSplit(ClusterMergeHistory merges);
 
     /**
      * Make the cluster for the given object
@@ -21,11 +21,11 @@
 package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.extraction;
 
 import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.ClusterMergeHistory;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.HierarchicalClusteringAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.PointerHierarchyRepresentationResult;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.data.model.DendrogramModel;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
@@ -87,14 +87,8 @@ public class CutDendrogramByHeight extends AbstractCutDendrogram implements Clus
     }
 
     @Override
-    protected int findSplit(DBIDArrayIter it) {
-      int split = ids.size();
-      it.seek(split - 1);
-      while(it.valid() && threshold <= lambda.doubleValue(it)) {
-        split--;
-        it.retract();
-      }
-      return split;
+    protected int findSplit(ClusterMergeHistory merges) {
+      return merges.mergesBelow(threshold);
     }
   }
 
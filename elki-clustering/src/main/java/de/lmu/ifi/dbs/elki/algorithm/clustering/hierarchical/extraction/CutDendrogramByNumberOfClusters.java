@@ -21,11 +21,11 @@
 package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.extraction;
 
 import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.ClusterMergeHistory;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.HierarchicalClusteringAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.PointerHierarchyRepresentationResult;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.data.model.DendrogramModel;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
@@ -88,17 +88,8 @@ public class CutDendrogramByNumberOfClusters extends AbstractCutDendrogram imple
     }
 
     @Override
-    protected int findSplit(DBIDArrayIter it) {
-      int split = ids.size() > minclusters ? ids.size() - minclusters : 0;
-      it.seek(split);
-      // Stop distance:
-      final double stopdist = lambda.doubleValue(it);
-
-      // Tie handling: decrement split.
-      for(it.retract(); it.valid() && stopdist <= lambda.doubleValue(it); it.retract()) {
-        split--;
-      }
-      return split;
+    protected int findSplit(ClusterMergeHistory merges) {
+      return merges.mergesForClusters(minclusters);
     }
   }
 
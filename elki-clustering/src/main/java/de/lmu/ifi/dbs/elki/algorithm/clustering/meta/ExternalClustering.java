@@ -28,17 +28,18 @@ import java.util.ArrayList;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
-import de.lmu.ifi.dbs.elki.data.Cluster;
 import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.LabelClustering;
 import de.lmu.ifi.dbs.elki.data.model.ClusterModel;
 import de.lmu.ifi.dbs.elki.data.model.Model;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
-import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.parser.CSVReaderFormat;
@@ -53,13 +54,9 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
-import gnu.trove.iterator.TIntIntIterator;
-import gnu.trove.iterator.TIntIterator;
-import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TIntIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
 
 /**
  * Read an external clustering result from a file, such as produced by
@@ -79,7 +76,7 @@ import gnu.trove.map.hash.TIntObjectHashMap;
  * @since 0.7.0
  *
  * @apiviz.composedOf CSVReaderFormat
- * @apiviz.has Clustering
+ * @apiviz.has LabelClustering
  */
 @Description("Load clustering results from an external file. "//
 + "Each line is expected to consists of one clustering, one integer per point "//
@@ -167,28 +164,29 @@ public class ExternalClustering extends AbstractAlgorithm<Clustering<? extends M
     if(!(ids instanceof ArrayDBIDs)) {
       throw new AbortException("External clusterings can only be used with static DBIDs.");
     }
-    TIntIntMap sizes = new TIntIntHashMap();
-    for(TIntIterator it = assignment.iterator(); it.hasNext();) {
-      sizes.adjustOrPutValue(it.next(), 1, 1);
-    }
-    TIntObjectHashMap<ArrayModifiableDBIDs> cids = new TIntObjectHashMap<>(sizes.size());
-    for(TIntIntIterator it = sizes.iterator(); it.hasNext();) {
-      it.advance();
-      cids.put(it.key(), DBIDUtil.newArray(it.value()));
-    }
+    // Map the external labels to consecutive cluster numbers.
+    TIntIntMap map = new TIntIntHashMap(10, .5f, Integer.MIN_VALUE, -1);
+    TIntArrayList external = new TIntArrayList();
+    WritableIntegerDataStore labels = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_DB);
     {
       DBIDArrayIter it = ((ArrayDBIDs) ids).iter();
       for(int i = 0; i < assignment.size(); i++) {
-        cids.get(assignment.get(i)).add(it.seek(i));
+        final int l = assignment.get(i);
+        int c = map.get(l);
+        if(c < 0) {
+          c = external.size();
+          map.put(l, c);
+          external.add(l);
+        }
+        labels.putInt(it.seek(i), c);
       }
     }
     String nam = FormatUtil.format(name, " ");
     String snam = nam.toLowerCase().replace(' ', '-');
-    Clustering<ClusterModel> result = new Clustering<>(nam, snam);
-    for(TIntObjectIterator<ArrayModifiableDBIDs> it = cids.iterator(); it.hasNext();) {
-      it.advance();
-      boolean noise = it.key() < 0;
-      result.addToplevelCluster(new Cluster<>(it.value(), noise, ClusterModel.CLUSTER));
+    LabelClustering<ClusterModel> result = new LabelClustering<>(nam, snam, ids, labels, external.size());
+    for(int c = 0; c < external.size(); c++) {
+      result.setNoise(c, external.get(c) < 0);
+      result.setModel(c, ClusterModel.CLUSTER);
     }
     database.getHierarchy().add(r, result);
   }
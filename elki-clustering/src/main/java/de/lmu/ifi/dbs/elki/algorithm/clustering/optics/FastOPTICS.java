@@ -34,8 +34,10 @@ import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
-import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
@@ -46,7 +48,7 @@ import de.lmu.ifi.dbs.elki.index.preprocessed.fastoptics.RandomProjectedNeighbor
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.UpdatableHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerUpdatableMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
@@ -105,6 +107,21 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
    */
   ModifiableDBIDs processed;
 
+  /**
+   * Sorted DBIDs, for addressing heap entries by offset.
+   */
+  ArrayDBIDs sorted;
+
+  /**
+   * Heap of candidates, by offset in {@link #sorted}.
+   */
+  DoubleIntegerUpdatableMinHeap heap;
+
+  /**
+   * Predecessor offsets (-1 for none).
+   */
+  int[] predecessor;
+
   /**
    * neighbors of a point
    */
@@ -158,11 +175,14 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
 
     // compute ordering as for OPTICS
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("FastOPTICS clustering", ids.size(), LOG) : null;
-    processed = DBIDUtil.newHashSet(ids.size());
+    processed = DBIDUtil.newDomainHashSet(ids);
     order = new ClusterOrder(ids, "FastOPTICS Cluster Order", "fast-optics");
+    sorted = DBIDUtil.ensureSorted(ids);
+    heap = new DoubleIntegerUpdatableMinHeap(sorted.size());
+    predecessor = new int[sorted.size()];
     for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
       if(!processed.contains(it)) {
-        expandClusterOrder(DBIDUtil.deref(it), order, dq, prog);
+        expandClusterOrder(it, order, dq, prog);
       }
     }
     index.logStatistics();
@@ -179,13 +199,17 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
    * @param dq Distance query
    * @param prog Progress for logging.
    */
-  protected void expandClusterOrder(DBID ipt, ClusterOrder order, DistanceQuery<V> dq, FiniteProgress prog) {
-    UpdatableHeap<OPTICSHeapEntry> heap = new UpdatableHeap<>();
-    heap.add(new OPTICSHeapEntry(ipt, null, Double.POSITIVE_INFINITY));
+  protected void expandClusterOrder(DBIDRef ipt, ClusterOrder order, DistanceQuery<V> dq, FiniteProgress prog) {
+    DBIDArrayIter currPt = sorted.iter(), pred = sorted.iter();
+    final int start = sorted.binarySearch(ipt);
+    heap.offer(Double.POSITIVE_INFINITY, start);
+    predecessor[start] = -1;
     while(!heap.isEmpty()) {
-      final OPTICSHeapEntry current = heap.poll();
-      DBID currPt = current.objectID;
-      order.add(currPt, current.reachability, current.predecessorID);
+      final int off = heap.peekValue();
+      final double reachability = heap.peekKey();
+      heap.poll();
+      currPt.seek(off);
+      order.add(currPt, reachability, predecessor[off] >= 0 ? pred.seek(predecessor[off]) : null);
       processed.add(currPt);
       double coredist = inverseDensities.doubleValue(currPt);
       for(DBIDIter it = neighs.get(currPt).iter(); it.valid(); it.advance()) {
@@ -202,7 +226,10 @@ public class FastOPTICS<V extends NumberVector> extends AbstractAlgorithm<Cluste
         else if(nrdist < reachDist.doubleValue(it)) {
           reachDist.put(it, nrdist);
         }
-        heap.add(new OPTICSHeapEntry(DBIDUtil.deref(it), currPt, nrdist));
+        final int noff = sorted.binarySearch(it);
+        if(heap.offer(nrdist, noff)) {
+          predecessor[noff] = off;
+        }
       }
       LOG.incrementProcessed(prog);
     }
@@ -115,7 +115,7 @@ public abstract class GeneralizedOPTICS<O, R extends ClusterOrder> extends Abstr
      */
     public Instance(Database db, Relation<O> relation) {
       ids = relation.getDBIDs();
-      processedIDs = DBIDUtil.newHashSet(ids.size());
+      processedIDs = DBIDUtil.newDomainHashSet(ids);
       candidates = DBIDUtil.newArray();
       predecessor = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT);
       reachability = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_DB | DataStoreFactory.HINT_HOT, Double.POSITIVE_INFINITY);
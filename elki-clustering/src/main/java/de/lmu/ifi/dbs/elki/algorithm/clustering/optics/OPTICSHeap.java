@@ -21,6 +21,8 @@
 package de.lmu.ifi.dbs.elki.algorithm.clustering.optics;
 
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
@@ -34,9 +36,11 @@ import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
 import de.lmu.ifi.dbs.elki.math.MathUtil;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
-import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.UpdatableHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerUpdatableMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
@@ -44,7 +48,8 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
 /**
  * The OPTICS algorithm for density-based hierarchical clustering.
  *
- * This implementation uses a heap.
+ * This implementation uses an addressable heap, using the offsets of the
+ * objects in the sorted DBIDs.
  *
  * Reference:
  * <p>
@@ -58,6 +63,7 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
  * @since 0.7.0
  *
  * @apiviz.composedOf Instance
+ * @apiviz.uses DoubleIntegerUpdatableMinHeap
  *
  * @param <O> the type of DatabaseObjects handled by the algorithm
  */
@@ -102,9 +108,21 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
     private ModifiableDBIDs processedIDs;
 
     /**
-     * Heap of candidates.
+     * Heap of candidates, by offset in {@link #sorted}.
      */
-    UpdatableHeap<OPTICSHeapEntry> heap;
+    DoubleIntegerUpdatableMinHeap heap;
+
+    /**
+     * Sorted DBIDs, for addressing by offset. Because the order of the offsets
+     * is the same as the DBID order, ties in the heap are resolved the same way
+     * as with {@link OPTICSHeapEntry}.
+     */
+    ArrayDBIDs sorted;
+
+    /**
+     * Predecessor offsets (-1 for none).
+     */
+    int[] predecessor;
 
     /**
      * Output cluster order.
@@ -126,6 +144,11 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
      */
     RangeQuery<O> rangeQuery;
 
+    /**
+     * Instrumentation counter for heap operations, may be {@code null}.
+     */
+    Counter heapOperations;
+
     /**
      * Constructor for a single data set.
      *
@@ -134,12 +157,15 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
      */
     public Instance(Database db, Relation<O> relation) {
       ids = relation.getDBIDs();
-      processedIDs = DBIDUtil.newHashSet(ids.size());
+      processedIDs = DBIDUtil.newDomainHashSet(ids);
       clusterOrder = new ClusterOrder(ids, "OPTICS Clusterorder", "optics-clusterorder");
       progress = LOG.isVerbose() ? new FiniteProgress("OPTICS", ids.size(), LOG) : null;
       DistanceQuery<O> dq = db.getDistanceQuery(relation, getDistanceFunction());
       rangeQuery = db.getRangeQuery(dq, epsilon);
-      heap = new UpdatableHeap<>();
+      sorted = DBIDUtil.ensureSorted(ids);
+      heap = new DoubleIntegerUpdatableMinHeap(sorted.size());
+      predecessor = new int[sorted.size()];
+      heapOperations = Instrumentation.counterIfEnabled(Instrumentation.HEAP_OPERATIONS);
     }
 
     /**
@@ -166,15 +192,24 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
     protected void expandClusterOrder(DBIDRef objectID) {
       ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
       DoubleDBIDListIter neighbor = neighbors.iter();
-      heap.add(new OPTICSHeapEntry(DBIDUtil.deref(objectID), null, Double.POSITIVE_INFINITY));
+      DBIDArrayIter current = sorted.iter(), pred = sorted.iter();
+      final int start = sorted.binarySearch(objectID);
+      heap.offer(Double.POSITIVE_INFINITY, start);
+      predecessor[start] = -1;
 
       while(!heap.isEmpty()) {
-        final OPTICSHeapEntry current = heap.poll();
-        clusterOrder.add(current.objectID, current.reachability, current.predecessorID);
-        processedIDs.add(current.objectID);
+        final int off = heap.peekValue();
+        final double reachability = heap.peekKey();
+        heap.poll();
+        if(heapOperations != null) {
+          heapOperations.increment();
+        }
+        current.seek(off);
+        clusterOrder.add(current, reachability, predecessor[off] >= 0 ? pred.seek(predecessor[off]) : null);
+        processedIDs.add(current);
 
         neighbors.clear();
-        rangeQuery.getRangeForDBID(current.objectID, epsilon, neighbors);
+        rangeQuery.getRangeForDBID(current, epsilon, neighbors);
         if(neighbors.size() >= minpts) {
           neighbors.sort();
           final double coreDistance = neighbor.seek(minpts - 1).doubleValue();
@@ -183,8 +218,13 @@ public class OPTICSHeap<O> extends AbstractOPTICS<O> {
             if(processedIDs.contains(neighbor)) {
               continue;
             }
-            double reachability = MathUtil.max(neighbor.doubleValue(), coreDistance);
-            heap.add(new OPTICSHeapEntry(DBIDUtil.deref(neighbor), current.objectID, reachability));
+            final int noff = sorted.binarySearch(neighbor);
+            if(heap.offer(MathUtil.max(neighbor.doubleValue(), coreDistance), noff)) {
+              predecessor[noff] = off;
+            }
+            if(heapOperations != null) {
+              heapOperations.increment();
+            }
           }
         }
         LOG.incrementProcessed(progress);
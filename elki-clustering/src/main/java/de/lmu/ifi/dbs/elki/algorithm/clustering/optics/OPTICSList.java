@@ -150,7 +150,7 @@ public class OPTICSList<O> extends AbstractOPTICS<O> {
      */
     public Instance(Database db, Relation<O> relation) {
       ids = relation.getDBIDs();
-      processedIDs = DBIDUtil.newHashSet(ids.size());
+      processedIDs = DBIDUtil.newDomainHashSet(ids);
       candidates = DBIDUtil.newArray();
       predecessor = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT);
       reachability = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_DB | DataStoreFactory.HINT_HOT, Double.POSITIVE_INFINITY);
@@ -0,0 +1,256 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.optics.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.optics.AbstractOPTICS;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.optics.ClusterOrder;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.optics.OPTICSHeap;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerUpdatableMinHeap;
+
+/**
+ * Parallel OPTICS, using the equivalence of the cluster order to Prim's
+ * algorithm on the (directed) reachability graph.
+ *
+ * The expensive part of OPTICS are the range queries. These are independent
+ * of the cluster order, so we first compute all neighborhoods and core
+ * distances in parallel, and store the outgoing reachability edges of all
+ * core points. The cluster order is then obtained by Prim's algorithm on this
+ * graph, which only needs a heap and no further distance computations.
+ *
+ * The result is identical to {@link OPTICSHeap}, including the resolution of
+ * ties, but the memory usage is linear in the total size of the neighborhoods
+ * of the core points, so epsilon should be chosen reasonably small.
+ *
+ * Because the reachability graph is directed (the reachability depends on the
+ * core distance of the predecessor only), a minimum spanning tree computed
+ * by other means such as Boruvka's algorithm would not yield the same order.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.has Instance
+ * @apiviz.uses DoubleIntegerUpdatableMinHeap
+ *
+ * @param <O> the type of DatabaseObjects handled by the algorithm
+ */
+public class ParallelOPTICS<O> extends AbstractOPTICS<O> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelOPTICS.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts value
+   */
+  public ParallelOPTICS(DistanceFunction<? super O> distanceFunction, double epsilon, int minpts) {
+    super(distanceFunction, epsilon, minpts);
+  }
+
+  @Override
+  public ClusterOrder run(Database db, Relation<O> relation) {
+    DistanceQuery<O> dq = db.getDistanceQuery(relation, getDistanceFunction());
+    Instance instance = new Instance(relation.getDBIDs(), db.getRangeQuery(dq, epsilon));
+    ParallelExecutor.run(relation.getDBIDs(), instance);
+    return instance.run();
+  }
+
+  /**
+   * Instance for processing a single data set.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.has Mapper
+   */
+  private class Instance implements Processor {
+    /**
+     * IDs to process.
+     */
+    private DBIDs ids;
+
+    /**
+     * Sorted DBIDs, for addressing by offset.
+     */
+    private ArrayDBIDs sorted;
+
+    /**
+     * Range query.
+     */
+    private RangeQuery<O> rangeQuery;
+
+    /**
+     * Neighbor offsets of core points, in order of distance; {@code null} for
+     * non-core points.
+     */
+    private int[][] neighbors;
+
+    /**
+     * Reachability of the neighbors of core points.
+     */
+    private double[][] reachability;
+
+    /**
+     * Constructor for a single data set.
+     *
+     * @param ids IDs to process
+     * @param rangeQuery Range query
+     */
+    public Instance(DBIDs ids, RangeQuery<O> rangeQuery) {
+      this.ids = ids;
+      this.rangeQuery = rangeQuery;
+      this.sorted = DBIDUtil.ensureSorted(ids);
+      this.neighbors = new int[sorted.size()][];
+      this.reachability = new double[sorted.size()][];
+    }
+
+    /**
+     * Compute the cluster order, after the neighborhoods have been computed.
+     *
+     * @return Cluster order result.
+     */
+    public ClusterOrder run() {
+      final int size = sorted.size();
+      ClusterOrder clusterOrder = new ClusterOrder(ids, "OPTICS Clusterorder", "optics-clusterorder");
+      FiniteProgress progress = LOG.isVerbose() ? new FiniteProgress("OPTICS", size, LOG) : null;
+      DoubleIntegerUpdatableMinHeap heap = new DoubleIntegerUpdatableMinHeap(size);
+      int[] predecessor = new int[size];
+      boolean[] processed = new boolean[size];
+      DBIDArrayIter current = sorted.iter(), pred = sorted.iter();
+      for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
+        final int start = sorted.binarySearch(iditer);
+        if(processed[start]) {
+          continue;
+        }
+        assert (heap.isEmpty());
+        heap.offer(Double.POSITIVE_INFINITY, start);
+        predecessor[start] = -1;
+        while(!heap.isEmpty()) {
+          final int off = heap.peekValue();
+          final double reach = heap.peekKey();
+          heap.poll();
+          current.seek(off);
+          clusterOrder.add(current, reach, predecessor[off] >= 0 ? pred.seek(predecessor[off]) : null);
+          processed[off] = true;
+
+          final int[] neigh = neighbors[off];
+          if(neigh != null) {
+            final double[] nreach = reachability[off];
+            for(int i = 0; i < neigh.length; i++) {
+              final int noff = neigh[i];
+              if(!processed[noff] && heap.offer(nreach[i], noff)) {
+                predecessor[noff] = off;
+              }
+            }
+          }
+          LOG.incrementProcessed(progress);
+        }
+      }
+      LOG.ensureCompleted(progress);
+      return clusterOrder;
+    }
+
+    @Override
+    public Mapper instantiate(Executor executor) {
+      return new Mapper();
+    }
+
+    @Override
+    public void cleanup(Processor.Instance inst) {
+      // Nothing to do.
+    }
+
+    /**
+     * Compute the neighborhood and the core distance of each object.
+     *
+     * @author Erich Schubert
+     */
+    private class Mapper implements Processor.Instance {
+      /**
+       * Reused neighbor list.
+       */
+      private ModifiableDoubleDBIDList list = DBIDUtil.newDistanceDBIDList();
+
+      @Override
+      public void map(DBIDRef id) {
+        list.clear();
+        rangeQuery.getRangeForDBID(id, epsilon, list);
+        if(list.size() < minpts) {
+          return; // Not a core point.
+        }
+        list.sort();
+        DoubleDBIDListIter it = list.iter();
+        final double coreDistance = it.seek(minpts - 1).doubleValue();
+        final int n = list.size();
+        int[] neigh = new int[n];
+        double[] reach = new double[n];
+        for(it.seek(0); it.valid(); it.advance()) {
+          final int i = it.getOffset();
+          neigh[i] = sorted.binarySearch(it);
+          reach[i] = Math.max(it.doubleValue(), coreDistance);
+        }
+        // Different objects use different array slots, no locking needed.
+        final int off = sorted.binarySearch(id);
+        reachability[off] = reach;
+        neighbors[off] = neigh;
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  public static class Parameterizer<O> extends AbstractOPTICS.Parameterizer<O> {
+    @Override
+    protected ParallelOPTICS<O> makeInstance() {
+      return new ParallelOPTICS<>(distanceFunction, epsilon, minpts);
+    }
+  }
+}
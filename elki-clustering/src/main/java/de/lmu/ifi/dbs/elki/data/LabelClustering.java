@@ -0,0 +1,378 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.BitsUtil;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.hierarchy.Hierarchy;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.iterator.It;
+
+/**
+ * Flat clustering stored as one integer label per object.
+ * 
+ * Instead of one {@link Cluster} object (with its own DBIDs) per cluster, this
+ * representation only keeps the label storage, and per-cluster model, name and
+ * noise flag arrays. This is much more compact when there are very many
+ * clusters, e.g. when using k-means for vector quantization.
+ * 
+ * Member lists are only built when requested, as slices of a single array
+ * grouped by label. Consumers that are aware of this class (e.g. the
+ * contingency table used for external evaluation) can work on the labels
+ * directly. All other methods of {@link Clustering} convert this clustering
+ * into the usual object form on first use; from then on, the object form is
+ * authoritative, {@link #isMaterialized()} will return {@code true}, and the
+ * per-cluster model, name and noise flag can no longer be changed here.
+ * 
+ * Objects with a negative label do not belong to any cluster.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.composedOf IntegerDataStore
+ * 
+ * @param <M> Model type
+ */
+public class LabelClustering<M extends Model> extends Clustering<M> {
+  /**
+   * Objects covered by the label storage.
+   */
+  private DBIDs ids;
+
+  /**
+   * Cluster label of each object.
+   */
+  private IntegerDataStore labels;
+
+  /**
+   * Number of clusters.
+   */
+  private int numclusters;
+
+  /**
+   * Cluster models, may be {@code null}.
+   */
+  private Object[] models;
+
+  /**
+   * Cluster names, may be {@code null}.
+   */
+  private String[] names;
+
+  /**
+   * Noise flags.
+   */
+  private long[] noise;
+
+  /**
+   * Cluster sizes, computed on demand.
+   */
+  private int[] sizes;
+
+  /**
+   * Objects grouped by cluster label, built on demand.
+   */
+  private ArrayModifiableDBIDs members;
+
+  /**
+   * Start offsets of each cluster in {@link #members}.
+   */
+  private int[] offsets;
+
+  /**
+   * Flag, whether the object form has been built.
+   */
+  private boolean materialized = false;
+
+  /**
+   * Constructor.
+   * 
+   * @param name The long name (for pretty printing)
+   * @param shortname the short name (for filenames etc.)
+   * @param ids Objects covered by the label storage
+   * @param labels Cluster labels, in 0 to numclusters-1, negative for
+   *        unassigned objects
+   * @param numclusters Number of clusters
+   */
+  public LabelClustering(String name, String shortname, DBIDs ids, IntegerDataStore labels, int numclusters) {
+    super(name, shortname);
+    this.ids = ids;
+    this.labels = labels;
+    this.numclusters = numclusters;
+    this.noise = BitsUtil.zero(numclusters);
+  }
+
+  /**
+   * Get the objects covered by this clustering.
+   * 
+   * @return Object ids
+   */
+  public DBIDs getIDs() {
+    return ids;
+  }
+
+  /**
+   * Get the cluster label of an object.
+   * 
+   * @param id Object, must be contained in {@link #getIDs()}.
+   * @return Cluster label, negative if the object is not assigned to a
+   *         cluster.
+   */
+  public int getLabel(DBIDRef id) {
+    return labels.intValue(id);
+  }
+
+  /**
+   * Get the number of clusters.
+   * 
+   * @return Number of clusters
+   */
+  public int getNumClusters() {
+    return numclusters;
+  }
+
+  /**
+   * Get the model of a cluster.
+   * 
+   * @param c Cluster label
+   * @return Model, may be {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public M getModel(int c) {
+    return models != null ? (M) models[c] : null;
+  }
+
+  /**
+   * Set the model of a cluster.
+   * 
+   * @param c Cluster label
+   * @param model Model
+   * @throws IllegalStateException if the object form has already been built
+   */
+  public void setModel(int c, M model) {
+    checkNotMaterialized();
+    if(models == null) {
+      models = new Object[numclusters];
+    }
+    models[c] = model;
+  }
+
+  /**
+   * Get the name of a cluster.
+   * 
+   * @param c Cluster label
+   * @return Name, may be {@code null}
+   */
+  public String getName(int c) {
+    return names != null ? names[c] : null;
+  }
+
+  /**
+   * Set the name of a cluster.
+   * 
+   * @param c Cluster label
+   * @param name Cluster name
+   * @throws IllegalStateException if the object form has already been built
+   */
+  public void setName(int c, String name) {
+    checkNotMaterialized();
+    if(names == null) {
+      names = new String[numclusters];
+    }
+    names[c] = name;
+  }
+
+  /**
+   * Get the noise flag of a cluster.
+   * 
+   * @param c Cluster label
+   * @return Noise flag
+   */
+  public boolean isNoise(int c) {
+    return BitsUtil.get(noise, c);
+  }
+
+  /**
+   * Set the noise flag of a cluster.
+   * 
+   * @param c Cluster label
+   * @param flag Noise flag
+   * @throws IllegalStateException if the object form has already been built
+   */
+  public void setNoise(int c, boolean flag) {
+    checkNotMaterialized();
+    if(flag) {
+      BitsUtil.setI(noise, c);
+    }
+    else {
+      BitsUtil.clearI(noise, c);
+    }
+  }
+
+  /**
+   * Get the cluster sizes.
+   * 
+   * @return Array of cluster sizes. Do not modify.
+   */
+  public int[] getClusterSizes() {
+    if(sizes == null) {
+      int[] s = new int[numclusters];
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        final int l = labels.intValue(it);
+        if(l >= 0) {
+          ++s[l];
+        }
+      }
+      sizes = s;
+    }
+    return sizes;
+  }
+
+  /**
+   * Get the members of a single cluster.
+   * 
+   * On first use, all objects are grouped by their cluster label in a single
+   * array; the result is a slice of this array.
+   * 
+   * @param c Cluster label
+   * @return Cluster members
+   */
+  public ArrayDBIDs getClusterIDs(int c) {
+    if(members == null) {
+      groupMembers();
+    }
+    return members.slice(offsets[c], offsets[c + 1]);
+  }
+
+  /**
+   * Group the objects by their cluster label (counting sort).
+   */
+  private void groupMembers() {
+    final int[] s = getClusterSizes();
+    offsets = new int[numclusters + 1];
+    for(int c = 0; c < numclusters; c++) {
+      offsets[c + 1] = offsets[c] + s[c];
+    }
+    final int total = offsets[numclusters];
+    ArrayModifiableDBIDs grouped = DBIDUtil.newArray(total);
+    // Allocate the final size; every placeholder is overwritten below.
+    final DBIDRef invalid = DBIDUtil.invalid();
+    for(int i = 0; i < total; i++) {
+      grouped.add(invalid);
+    }
+    int[] pos = Arrays.copyOf(offsets, numclusters);
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+      final int l = labels.intValue(it);
+      if(l >= 0) {
+        grouped.set(pos[l]++, it);
+      }
+    }
+    members = grouped;
+  }
+
+  /**
+   * Build a single cluster object, without converting the whole clustering.
+   * 
+   * @param c Cluster label
+   * @return New cluster object
+   */
+  public Cluster<M> makeCluster(int c) {
+    return new Cluster<>(getName(c), getClusterIDs(c), isNoise(c), getModel(c));
+  }
+
+  /**
+   * Test whether the clustering has been converted to the object form.
+   * 
+   * @return {@code true} when the object form is in use.
+   */
+  public boolean isMaterialized() {
+    return materialized;
+  }
+
+  /**
+   * Ensure that the object form has not been built yet.
+   * 
+   * @throws IllegalStateException if the object form is in use
+   */
+  private void checkNotMaterialized() {
+    if(materialized) {
+      throw new IllegalStateException("Cluster properties must be set before the clustering is converted to cluster objects.");
+    }
+  }
+
+  /**
+   * Convert to the object form, if not yet done.
+   */
+  private void materialize() {
+    if(materialized) {
+      return;
+    }
+    materialized = true;
+    for(int c = 0; c < numclusters; c++) {
+      super.addToplevelCluster(makeCluster(c));
+    }
+  }
+
+  @Override
+  public void addToplevelCluster(Cluster<M> clus) {
+    materialize();
+    super.addToplevelCluster(clus);
+  }
+
+  @Override
+  public void addChildCluster(Cluster<M> parent, Cluster<M> child) {
+    materialize();
+    super.addChildCluster(parent, child);
+  }
+
+  @Override
+  public List<Cluster<M>> getToplevelClusters() {
+    materialize();
+    return super.getToplevelClusters();
+  }
+
+  @Override
+  public Hierarchy<Cluster<M>> getClusterHierarchy() {
+    materialize();
+    return super.getClusterHierarchy();
+  }
+
+  @Override
+  public List<Cluster<M>> getAllClusters() {
+    materialize();
+    return super.getAllClusters();
+  }
+
+  @Override
+  public It<Cluster<M>> iterToplevelClusters() {
+    materialize();
+    return super.iterToplevelClusters();
+  }
+}
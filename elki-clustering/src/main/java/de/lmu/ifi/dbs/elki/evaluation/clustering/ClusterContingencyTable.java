@@ -25,6 +25,9 @@ import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.Cluster;
 import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.LabelClustering;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.math.MeanVariance;
@@ -39,6 +42,7 @@ import de.lmu.ifi.dbs.elki.utilities.datastructures.BitsUtil;
  * @apiviz.landmark
  * 
  * @apiviz.uses Clustering
+ * @apiviz.uses LabelClustering
  * @apiviz.composedOf PairCounting
  * @apiviz.composedOf Entropy
  * @apiviz.composedOf EditDistance
@@ -115,6 +119,10 @@ public class ClusterContingencyTable {
    * @param result2 Second clustering
    */
   public void process(Clustering<?> result1, Clustering<?> result2) {
+    if(isLabelClustering(result1) || isLabelClustering(result2)) {
+      processLabels(result1, result2);
+      return;
+    }
     // Get the clusters
     final List<? extends Cluster<?>> cs1 = result1.getAllClusters();
     final List<? extends Cluster<?>> cs2 = result2.getAllClusters();
@@ -160,6 +168,117 @@ public class ClusterContingencyTable {
     }
   }
 
+  /**
+   * Test for a clustering that is still in label form.
+   * 
+   * @param c Clustering
+   * @return {@code true} if the labels can be used directly
+   */
+  private static boolean isLabelClustering(Clustering<?> c) {
+    return c instanceof LabelClustering && !((LabelClustering<?>) c).isMaterialized();
+  }
+
+  /**
+   * Process two clustering results, at least one of which is a
+   * {@link LabelClustering}.
+   * 
+   * Instead of intersecting each pair of clusters, every object is only
+   * visited once, and its label is looked up.
+   * 
+   * @param result1 First clustering
+   * @param result2 Second clustering
+   */
+  private void processLabels(Clustering<?> result1, Clustering<?> result2) {
+    final LabelClustering<?> l1 = isLabelClustering(result1) ? (LabelClustering<?>) result1 : null;
+    final LabelClustering<?> l2 = isLabelClustering(result2) ? (LabelClustering<?>) result2 : null;
+    final List<? extends Cluster<?>> cs1 = l1 == null ? result1.getAllClusters() : null;
+    final List<? extends Cluster<?>> cs2 = l2 == null ? result2.getAllClusters() : null;
+
+    // Initialize
+    size1 = l1 != null ? l1.getNumClusters() : cs1.size();
+    size2 = l2 != null ? l2.getNumClusters() : cs2.size();
+    contingency = new int[size1 + 2][size2 + 2];
+    noise1 = BitsUtil.zero(size1);
+    noise2 = BitsUtil.zero(size2);
+
+    // Cluster sizes and noise flags
+    for(int i1 = 0; i1 < size1; i1++) {
+      final boolean noise = l1 != null ? l1.isNoise(i1) : cs1.get(i1).isNoise();
+      if(noise) {
+        BitsUtil.setI(noise1, i1);
+      }
+      final int size = l1 != null ? l1.getClusterSizes()[i1] : cs1.get(i1).size();
+      contingency[i1][size2 + 1] = size;
+      contingency[size1][size2 + 1] += size;
+    }
+    for(int i2 = 0; i2 < size2; i2++) {
+      final boolean noise = l2 != null ? l2.isNoise(i2) : cs2.get(i2).isNoise();
+      if(noise) {
+        BitsUtil.setI(noise2, i2);
+      }
+      final int size = l2 != null ? l2.getClusterSizes()[i2] : cs2.get(i2).size();
+      contingency[size1 + 1][i2] = size;
+      contingency[size1 + 1][size2] += size;
+    }
+
+    // Fill main part of matrix
+    if(l2 != null) {
+      final DBIDs lookup = lookupSet(l2.getIDs());
+      if(l1 != null) {
+        for(DBIDIter it = l1.getIDs().iter(); it.valid(); it.advance()) {
+          if(lookup.contains(it)) {
+            increment(l1.getLabel(it), l2.getLabel(it));
+          }
+        }
+      }
+      else {
+        for(int i1 = 0; i1 < size1; i1++) {
+          for(DBIDIter it = cs1.get(i1).getIDs().iter(); it.valid(); it.advance()) {
+            if(lookup.contains(it)) {
+              increment(i1, l2.getLabel(it));
+            }
+          }
+        }
+      }
+    }
+    else {
+      final DBIDs lookup = lookupSet(l1.getIDs());
+      for(int i2 = 0; i2 < size2; i2++) {
+        for(DBIDIter it = cs2.get(i2).getIDs().iter(); it.valid(); it.advance()) {
+          if(lookup.contains(it)) {
+            increment(l1.getLabel(it), i2);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Get a set for fast containment tests.
+   * 
+   * @param ids Object ids
+   * @return Set, or range, of the ids
+   */
+  private static DBIDs lookupSet(DBIDs ids) {
+    return ids instanceof DBIDRange ? ids : DBIDUtil.ensureSet(ids);
+  }
+
+  /**
+   * Count one object in the contingency table.
+   * 
+   * @param i1 Cluster in the first clustering, may be negative
+   * @param i2 Cluster in the second clustering, may be negative
+   */
+  private void increment(int i1, int i2) {
+    if(i1 < 0 || i2 < 0) {
+      return;
+    }
+    contingency[i1][i2]++;
+    contingency[i1][size2]++;
+    contingency[size1][i2]++;
+    contingency[size1][size2]++;
+  }
+
   @Override
   public String toString() {
     StringBuilder buf = new StringBuilder();
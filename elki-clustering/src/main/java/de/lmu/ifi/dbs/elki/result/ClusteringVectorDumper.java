@@ -28,14 +28,17 @@ import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.Cluster;
 import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.LabelClustering;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.parser.ClusteringVectorParser;
@@ -170,19 +173,29 @@ public class ClusteringVectorDumper implements ResultHandler {
       return;
     }
 
-    WritableIntegerDataStore map = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP);
-    int cnum = 0;
-    for(Cluster<?> clu : c.getAllClusters()) {
-      for(DBIDIter iter = clu.getIDs().iter(); iter.valid(); iter.advance()) {
-        map.putInt(iter, cnum);
+    // Label clusterings can be written without building the clusters.
+    LabelClustering<?> lc = (c instanceof LabelClustering && !((LabelClustering<?>) c).isMaterialized()) ? (LabelClustering<?>) c : null;
+    IntegerDataStore map = null;
+    if(lc == null) {
+      WritableIntegerDataStore wmap = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP);
+      int cnum = 0;
+      for(Cluster<?> clu : c.getAllClusters()) {
+        for(DBIDIter iter = clu.getIDs().iter(); iter.valid(); iter.advance()) {
+          wmap.putInt(iter, cnum);
+        }
+        ++cnum;
       }
-      ++cnum;
+      map = wmap;
     }
+    // Objects not in any cluster are written as 0, as in the map above.
+    final DBIDs lcids = lc == null ? null : lc.getIDs() instanceof DBIDRange ? lc.getIDs() : DBIDUtil.ensureSet(lc.getIDs());
     for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
       if(iter.getOffset() > 0) {
         writer.append(' ');
       }
-      writer.append(Integer.toString(map.intValue(iter)));
+      int cnum = lc == null ? map.intValue(iter) : //
+          lcids.contains(iter) ? Math.max(lc.getLabel(iter), 0) : 0;
+      writer.append(Integer.toString(cnum));
     }
     if(forceLabel != null) {
       if(forceLabel.length() > 0) {
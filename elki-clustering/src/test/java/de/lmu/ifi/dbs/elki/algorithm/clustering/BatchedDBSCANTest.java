@@ -0,0 +1,76 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test batched DBSCAN.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class BatchedDBSCANTest extends AbstractClusterAlgorithmTest {
+  /**
+   * Run batched DBSCAN with fixed parameters and compare the result to a
+   * golden standard.
+   */
+  @Test
+  public void testBatchedDBSCANResults() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+
+    ListParameterization params = new ListParameterization();
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 0.04);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 20);
+    BatchedDBSCAN<DoubleVector> dbscan = ClassGenericsUtil.parameterizeOrAbort(BatchedDBSCAN.class, params);
+    testParameterizationOk(params);
+
+    Clustering<Model> result = dbscan.run(db);
+    testFMeasure(db, result, 0.996413);
+    testClusterSizes(result, new int[] { 29, 50, 101, 150 });
+  }
+
+  /**
+   * Run batched DBSCAN with fixed parameters and compare the result to a
+   * golden standard.
+   */
+  @Test
+  public void testBatchedDBSCANOnSingleLinkDataset() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+
+    ListParameterization params = new ListParameterization();
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 11.5);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 120);
+    BatchedDBSCAN<DoubleVector> dbscan = ClassGenericsUtil.parameterizeOrAbort(BatchedDBSCAN.class, params);
+    testParameterizationOk(params);
+
+    Clustering<Model> result = dbscan.run(db);
+    testFMeasure(db, result, 0.954382);
+    testClusterSizes(result, new int[] { 11, 200, 203, 224 });
+  }
+}
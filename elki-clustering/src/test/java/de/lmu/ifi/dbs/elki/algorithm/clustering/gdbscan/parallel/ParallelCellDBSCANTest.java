@@ -0,0 +1,112 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.gdbscan.parallel;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.DBSCAN;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the parallel grid cell DBSCAN.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ParallelCellDBSCANTest extends AbstractClusterAlgorithmTest {
+  /**
+   * Run with fixed parameters and compare the result to a golden standard.
+   */
+  @Test
+  public void testParallelCellDBSCANResults() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+
+    ListParameterization params = new ListParameterization();
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 0.04);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 20);
+    ParallelCellDBSCAN<DoubleVector> dbscan = ClassGenericsUtil.parameterizeOrAbort(ParallelCellDBSCAN.class, params);
+    testParameterizationOk(params);
+
+    Clustering<Model> result = dbscan.run(db);
+    testFMeasure(db, result, 0.996413);
+    testClusterSizes(result, new int[] { 29, 50, 101, 150 });
+  }
+
+  /**
+   * Run with fixed parameters and compare the result to a golden standard.
+   */
+  @Test
+  public void testParallelCellDBSCANOnSingleLinkDataset() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+
+    ListParameterization params = new ListParameterization();
+    params.addParameter(DBSCAN.Parameterizer.EPSILON_ID, 11.5);
+    params.addParameter(DBSCAN.Parameterizer.MINPTS_ID, 120);
+    ParallelCellDBSCAN<DoubleVector> dbscan = ClassGenericsUtil.parameterizeOrAbort(ParallelCellDBSCAN.class, params);
+    testParameterizationOk(params);
+
+    Clustering<Model> result = dbscan.run(db);
+    testFMeasure(db, result, 0.954382);
+    testClusterSizes(result, new int[] { 11, 200, 203, 224 });
+  }
+
+  /**
+   * Small epsilon in 8 dimensions: the grid has far more cells than fit into a
+   * long, but only the non-empty cells are stored.
+   */
+  @Test
+  public void testParallelCellDBSCANHighDimensional() {
+    final int dim = 8;
+    Random r = new Random(0L);
+    double[][] data = new double[2000][dim];
+    for(int i = 0; i < data.length; i++) {
+      // The first 400 points form four dense clusters, the rest is uniform.
+      final int c = i < 400 ? i / 100 : -1;
+      for(int d = 0; d < dim; d++) {
+        data[i][d] = c >= 0 ? 2. + 2. * c + .01 * r.nextGaussian() : 10. * r.nextDouble();
+      }
+    }
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+
+    Clustering<Model> expected = new DBSCAN<DoubleVector>(EuclideanDistanceFunction.STATIC, 0.1, 5).run(db);
+    Clustering<Model> result = new ParallelCellDBSCAN<DoubleVector>(0.1, 5).run(db);
+    List<Cluster<Model>> clusters = expected.getAllClusters();
+    int[] sizes = new int[clusters.size()];
+    for(int i = 0; i < sizes.length; i++) {
+      sizes[i] = clusters.get(i).size();
+    }
+    testClusterSizes(result, sizes);
+  }
+}
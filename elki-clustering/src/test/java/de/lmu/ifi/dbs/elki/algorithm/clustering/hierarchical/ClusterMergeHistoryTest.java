@@ -0,0 +1,84 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+
+/**
+ * Test the primitive merge history used for fast extraction.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ClusterMergeHistoryTest extends AbstractClusterAlgorithmTest {
+  /**
+   * Test flat cuts of a single-link hierarchy, by height and by number of
+   * clusters, and a combined pass for multiple cuts.
+   */
+  @Test
+  public void testCuts() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    PointerHierarchyRepresentationResult pointer = new SLINK<DoubleVector>(EuclideanDistanceFunction.STATIC).run(db);
+    ClusterMergeHistory merges = ClusterMergeHistory.fromPointerHierarchy(pointer);
+    assertEquals(638, merges.size());
+    assertEquals(637, merges.numMerges());
+    assertEquals(638, merges.size(merges.size() + merges.numMerges() - 1));
+    for(int j = 1; j < merges.numMerges(); j++) {
+      assertTrue("Merges not sorted.", merges.getMergeHeight(j - 1) <= merges.getMergeHeight(j));
+    }
+
+    final int three = merges.mergesForClusters(3);
+    ClusterMergeHistory.Cut[] cuts = merges.cut(new int[] { three, 0, merges.numMerges() });
+    assertArrayEquals(new int[] { 9, 200, 429 }, sortedSizes(cuts[0]));
+    assertEquals(638, cuts[1].numClusters());
+    assertEquals(1, cuts[2].numClusters());
+    // Single cuts must agree with the combined pass.
+    assertArrayEquals(cuts[0].getLabels(), merges.cut(three).getLabels());
+    // Cutting by height at the next merge yields the same partitions.
+    assertEquals(three, merges.mergesBelow(merges.getMergeHeight(three)));
+  }
+
+  /**
+   * Get the sorted cluster sizes of a cut.
+   *
+   * @param cut Cut
+   * @return Sorted sizes
+   */
+  private static int[] sortedSizes(ClusterMergeHistory.Cut cut) {
+    int[] sizes = new int[cut.numClusters()];
+    for(int c = 0; c < sizes.length; c++) {
+      sizes[c] = cut.getSize(c);
+    }
+    Arrays.sort(sizes);
+    return sizes;
+  }
+}
@@ -86,6 +86,56 @@ public class NNChainTest extends AbstractClusterAlgorithmTest {
     testClusterSizes(clustering, new int[] { 200, 211, 227 });
   }
 
+  /**
+   * Run agglomerative hierarchical clustering with single precision storage.
+   * The result must agree with the in-memory double precision version.
+   */
+  @Test
+  public void testWardFloat() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(CutDendrogramByNumberOfClusters.Parameterizer.MINCLUSTERS_ID, 3);
+    params.addParameter(AbstractAlgorithm.ALGORITHM_ID, NNChain.class);
+    params.addParameter(AGNES.Parameterizer.LINKAGE_ID, WardLinkageMethod.class);
+    params.addParameter(AGNES.Parameterizer.MATRIX_ID, FloatTriangularMatrix.Factory.class);
+    CutDendrogramByNumberOfClusters c = ClassGenericsUtil.parameterizeOrAbort(CutDendrogramByNumberOfClusters.class, params);
+    testParameterizationOk(params);
+
+    // run clustering algorithm on database
+    Result result = c.run(db);
+    Clustering<?> clustering = findSingleClustering(result);
+    testFMeasure(db, clustering, 0.93866265);
+    testClusterSizes(clustering, new int[] { 200, 211, 227 });
+  }
+
+  /**
+   * Run agglomerative hierarchical clustering with a memory-mapped distance
+   * matrix.
+   * The result must agree with the in-memory double precision version.
+   */
+  @Test
+  public void testWardMapped() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(CutDendrogramByNumberOfClusters.Parameterizer.MINCLUSTERS_ID, 3);
+    params.addParameter(AbstractAlgorithm.ALGORITHM_ID, NNChain.class);
+    params.addParameter(AGNES.Parameterizer.LINKAGE_ID, WardLinkageMethod.class);
+    params.addParameter(AGNES.Parameterizer.MATRIX_ID, MappedTriangularMatrix.Factory.class);
+    params.addFlag(MappedTriangularMatrix.Factory.Parameterizer.FLOAT_ID);
+    CutDendrogramByNumberOfClusters c = ClassGenericsUtil.parameterizeOrAbort(CutDendrogramByNumberOfClusters.class, params);
+    testParameterizationOk(params);
+
+    // run clustering algorithm on database
+    Result result = c.run(db);
+    Clustering<?> clustering = findSingleClustering(result);
+    testFMeasure(db, clustering, 0.93866265);
+    testClusterSizes(clustering, new int[] { 200, 211, 227 });
+  }
+
   /**
    * Run agglomerative hierarchical clustering with fixed parameters and compare
    * the result to a golden standard.
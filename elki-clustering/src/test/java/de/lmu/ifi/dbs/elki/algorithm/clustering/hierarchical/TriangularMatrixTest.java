@@ -0,0 +1,112 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the triangular matrix storage backends, with small chunks so that
+ * accesses cross many chunk boundaries.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class TriangularMatrixTest {
+  /**
+   * Small chunk size, as bit shift.
+   */
+  private static final int SHIFT = 4;
+
+  /**
+   * Test the in-memory double precision matrix.
+   */
+  @Test
+  public void testDouble() {
+    final long size = TriangularMatrix.triangleSize(20);
+    assertEquals(190, size);
+    TriangularMatrix mat = new DoubleTriangularMatrix(size, SHIFT);
+    checkAgainstArray(mat, false);
+    mat.close();
+  }
+
+  /**
+   * Test the in-memory single precision matrix.
+   */
+  @Test
+  public void testFloat() {
+    TriangularMatrix mat = new FloatTriangularMatrix(TriangularMatrix.triangleSize(20), SHIFT);
+    checkAgainstArray(mat, true);
+    mat.close();
+  }
+
+  /**
+   * Test the memory-mapped matrix, in both precisions.
+   *
+   * @throws IOException on errors creating the file
+   */
+  @Test
+  public void testMapped() throws IOException {
+    for(boolean single : new boolean[] { false, true }) {
+      File file = File.createTempFile("elki-test-", ".mat");
+      TriangularMatrix mat = new MappedTriangularMatrix(file, TriangularMatrix.triangleSize(20), single, SHIFT);
+      checkAgainstArray(mat, single);
+      mat.close();
+      assertEquals("Temporary file not removed.", false, file.exists());
+    }
+  }
+
+  /**
+   * Write random values in random order, and compare all values to a plain
+   * array, including the last, partial, chunk.
+   *
+   * @param mat Matrix to test
+   * @param single Values are stored in single precision
+   */
+  private static void checkAgainstArray(TriangularMatrix mat, boolean single) {
+    final int size = (int) mat.size();
+    double[] ref = new double[size];
+    Random rnd = new Random(0L);
+    for(int i = 0; i < 4 * size; i++) {
+      final int idx = rnd.nextInt(size);
+      final double v = rnd.nextDouble();
+      mat.set(idx, v);
+      ref[idx] = single ? (float) v : v;
+    }
+    // Both sides of each chunk boundary, and the last entry.
+    for(int idx = 1 << SHIFT; idx < size; idx += 1 << SHIFT) {
+      mat.set(idx - 1, idx);
+      ref[idx - 1] = idx;
+      mat.set(idx, -idx);
+      ref[idx] = -idx;
+    }
+    mat.set(size - 1, Math.PI);
+    ref[size - 1] = single ? (float) Math.PI : Math.PI;
+    for(int idx = 0; idx < size; idx++) {
+      assertEquals("Value differs at " + idx, ref[idx], mat.get(idx), 0.);
+    }
+  }
+}
@@ -20,13 +20,21 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.extraction;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.AGNES;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.AnderbergHierarchicalClustering;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.CentroidLinkageMethod;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.SLINK;
+import de.lmu.ifi.dbs.elki.data.Cluster;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.result.Result;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
@@ -54,4 +62,56 @@ public class CutDendrogramByNumberOfClustersTest extends AbstractClusterAlgorith
     testFMeasure(db, clustering, 0.9474250948);
     testClusterSizes(clustering, new int[] { 1, 1, 1, 1, 1, 2, 3, 62, 104, 154 });
   }
+
+  /**
+   * Check that the hierarchical output contains the same partitions as the
+   * flat output, with the non-monotone centroid linkage.
+   */
+  @Test
+  public void testCentroidHierarchical() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    Clustering<?> flat = findSingleClustering(runCentroid(db, false));
+    testFMeasure(db, flat, 0.93866265);
+    testClusterSizes(flat, new int[] { 200, 211, 227 });
+
+    Clustering<?> hier = findSingleClustering(runCentroid(db, true));
+    assertEquals("Not a single root.", 1, hier.getToplevelClusters().size());
+    int total = 0;
+    for(Cluster<?> clus : hier.getAllClusters()) {
+      if(clus.size() == 0) {
+        continue;
+      }
+      total += clus.size();
+      // Find the flat cluster containing the same objects.
+      boolean found = false;
+      for(Cluster<?> other : flat.getAllClusters()) {
+        if(DBIDUtil.intersectionSize(clus.getIDs(), other.getIDs()) == clus.size()) {
+          assertEquals("Partition differs from flat output.", other.size(), clus.size());
+          found = true;
+        }
+      }
+      assertTrue("Partition not in flat output.", found);
+    }
+    assertEquals("Not all objects assigned.", 638, total);
+  }
+
+  /**
+   * Run centroid linkage clustering.
+   *
+   * @param db Database
+   * @param hierarchical Produce hierarchical output
+   * @return Result
+   */
+  private Result runCentroid(Database db, boolean hierarchical) {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(CutDendrogramByNumberOfClusters.Parameterizer.MINCLUSTERS_ID, 3);
+    if(hierarchical) {
+      params.addFlag(AbstractCutDendrogram.Parameterizer.HIERARCHICAL_ID);
+    }
+    params.addParameter(AbstractAlgorithm.ALGORITHM_ID, AnderbergHierarchicalClustering.class);
+    params.addParameter(AGNES.Parameterizer.LINKAGE_ID, CentroidLinkageMethod.class);
+    CutDendrogramByNumberOfClusters c = ClassGenericsUtil.parameterizeOrAbort(CutDendrogramByNumberOfClusters.class, params);
+    testParameterizationOk(params);
+    return c.run(db);
+  }
 }
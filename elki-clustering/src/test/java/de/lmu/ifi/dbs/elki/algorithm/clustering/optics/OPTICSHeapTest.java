@@ -20,11 +20,15 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.optics;
 
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.ParameterException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
@@ -64,4 +68,29 @@ public class OPTICSHeapTest extends AbstractClusterAlgorithmTest {
     testFMeasure(db, clustering, 0.8819664);
     testClusterSizes(clustering, new int[] { 108, 120, 209, 273 });
   }
+
+  /**
+   * Test that heap operations are instrumented: every object is polled once.
+   */
+  @Test
+  public void testHeapInstrumentation() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+    ListParameterization params = new ListParameterization();
+    params.addParameter(OPTICSHeap.Parameterizer.MINPTS_ID, 18);
+    OPTICSHeap<?> optics = ClassGenericsUtil.parameterizeOrAbort(OPTICSHeap.class, params);
+    testParameterizationOk(params);
+
+    Instrumentation.reset();
+    Instrumentation.setEnabled(true);
+    try {
+      optics.run(db);
+      Long ops = Instrumentation.getTotals().get(Instrumentation.HEAP_OPERATIONS);
+      assertNotNull("Heap operations not counted.", ops);
+      assertTrue("Too few heap operations: " + ops, ops >= 710);
+    }
+    finally {
+      Instrumentation.setEnabled(false);
+      Instrumentation.reset();
+    }
+  }
 }
\ No newline at end of file
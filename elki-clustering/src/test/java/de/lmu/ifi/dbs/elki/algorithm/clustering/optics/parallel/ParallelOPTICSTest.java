@@ -0,0 +1,90 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.optics.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.optics.ClusterOrder;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.optics.OPTICSHeap;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.optics.OPTICSXi;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Performs a full parallel OPTICS run, and compares the result with a
+ * clustering derived from the data set labels, and with the sequential
+ * implementation.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ParallelOPTICSTest extends AbstractClusterAlgorithmTest {
+  /**
+   * Run OPTICS with fixed parameters and compare the result to a golden
+   * standard.
+   */
+  @Test
+  public void testOPTICSResults() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+
+    // Setup algorithm
+    ListParameterization params = new ListParameterization();
+    params.addParameter(ParallelOPTICS.Parameterizer.MINPTS_ID, 18);
+    params.addParameter(OPTICSXi.Parameterizer.XI_ID, 0.038);
+    params.addParameter(OPTICSXi.Parameterizer.XIALG_ID, ParallelOPTICS.class);
+    OPTICSXi opticsxi = ClassGenericsUtil.parameterizeOrAbort(OPTICSXi.class, params);
+    testParameterizationOk(params);
+
+    // run OPTICS on database
+    Clustering<?> clustering = opticsxi.run(db);
+
+    testFMeasure(db, clustering, 0.8819664);
+    testClusterSizes(clustering, new int[] { 108, 120, 209, 273 });
+  }
+
+  /**
+   * The cluster order must be identical to the sequential implementation.
+   */
+  @Test
+  public void testSameOrder() {
+    Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    ClusterOrder expected = new OPTICSHeap<DoubleVector>(EuclideanDistanceFunction.STATIC, 0.1, 18).run(db, rel);
+    ClusterOrder actual = new ParallelOPTICS<DoubleVector>(EuclideanDistanceFunction.STATIC, 0.1, 18).run(db, rel);
+    assertEquals(expected.size(), actual.size());
+    for(DBIDArrayIter e = expected.iter(), a = actual.iter(); e.valid(); e.advance(), a.advance()) {
+      assertTrue("Cluster order differs.", DBIDUtil.equal(e, a));
+      assertEquals("Reachability differs.", expected.getReachability(e), actual.getReachability(a), 0.);
+    }
+  }
+}
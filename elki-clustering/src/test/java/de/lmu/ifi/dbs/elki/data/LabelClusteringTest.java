@@ -0,0 +1,91 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.model.ClusterModel;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+
+/**
+ * Unit test for the label-array backed clustering.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class LabelClusteringTest {
+  @Test
+  public void testGroupingAndMaterialization() {
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(100);
+    WritableIntegerDataStore labels = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP, -1);
+    // Labels 0..2, every 7th object unassigned.
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      final int i = it.getOffset();
+      labels.putInt(it, i % 7 == 0 ? -1 : (i * 5) % 3);
+    }
+    LabelClustering<Model> lc = new LabelClustering<>("test", "test", ids, labels, 3);
+    lc.setName(1, "one");
+    lc.setNoise(2, true);
+    lc.setModel(0, ClusterModel.CLUSTER);
+
+    int total = 0;
+    for(int c = 0; c < 3; c++) {
+      ArrayDBIDs members = lc.getClusterIDs(c);
+      assertEquals(lc.getClusterSizes()[c], members.size());
+      for(DBIDIter it = members.iter(); it.valid(); it.advance()) {
+        assertEquals(c, lc.getLabel(it));
+      }
+      total += members.size();
+    }
+    assertEquals(100 - 15, total);
+
+    assertFalse(lc.isMaterialized());
+    List<Cluster<Model>> clusters = lc.getToplevelClusters();
+    assertTrue(lc.isMaterialized());
+    assertEquals(3, clusters.size());
+    assertEquals("one", clusters.get(1).getName());
+    assertTrue(clusters.get(2).isNoise());
+    assertEquals(ClusterModel.CLUSTER, clusters.get(0).getModel());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSetAfterMaterialize() {
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(10);
+    WritableIntegerDataStore labels = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP, 0);
+    LabelClustering<Model> lc = new LabelClustering<>("test", "test", ids, labels, 1);
+    lc.getAllClusters();
+    lc.setName(0, "late");
+  }
+}
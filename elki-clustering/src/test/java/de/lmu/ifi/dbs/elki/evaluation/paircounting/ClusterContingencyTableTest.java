@@ -21,6 +21,10 @@
 package de.lmu.ifi.dbs.elki.evaluation.paircounting;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
 
 import org.junit.Test;
 
@@ -28,10 +32,16 @@ import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.trivial.ByLabelClustering;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.trivial.TrivialAllInOne;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.trivial.TrivialAllNoise;
+import de.lmu.ifi.dbs.elki.data.Cluster;
 import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.LabelClustering;
 import de.lmu.ifi.dbs.elki.data.model.Model;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.evaluation.clustering.ClusterContingencyTable;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.ParameterException;
@@ -86,6 +96,61 @@ public class ClusterContingencyTableTest {
     assertEquals(0.5 /* 0.3834296724470135 */, computeFMeasure(rai, rbl, false), Double.MIN_VALUE);
   }
 
+  /**
+   * Validate that label clusterings give the same results as the object form.
+   */
+  @Test
+  public void testLabelClustering() {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds);
+    Relation<?> rel = db.getRelation(TypeUtil.ANY);
+    Clustering<Model> rai = new TrivialAllInOne().run(db);
+    Clustering<Model> ran = new TrivialAllNoise().run(db);
+    Clustering<Model> rbl = new ByLabelClustering().run(db);
+
+    LabelClustering<Model> lai = toLabels(rel, rai);
+    LabelClustering<Model> lbl = toLabels(rel, rbl);
+    assertEquals(computeFMeasure(rbl, rbl, false), computeFMeasure(lbl, lbl, false), Double.MIN_VALUE);
+    assertEquals(computeFMeasure(rai, rbl, false), computeFMeasure(lai, lbl, false), Double.MIN_VALUE);
+    assertEquals(computeFMeasure(rai, rbl, false), computeFMeasure(rai, lbl, false), Double.MIN_VALUE);
+    assertEquals(computeFMeasure(rai, rbl, false), computeFMeasure(lai, rbl, false), Double.MIN_VALUE);
+    assertEquals(computeFMeasure(ran, rbl, true), computeFMeasure(ran, lbl, true), Double.MIN_VALUE);
+    assertFalse(lbl.isMaterialized());
+
+    // Conversion to the object form.
+    List<Cluster<Model>> all = rbl.getAllClusters(), lall = lbl.getAllClusters();
+    assertTrue(lbl.isMaterialized());
+    assertEquals(all.size(), lall.size());
+    for(int i = 0; i < all.size(); i++) {
+      assertEquals(all.get(i).getName(), lall.get(i).getName());
+      assertEquals(all.get(i).size(), lall.get(i).size());
+    }
+    assertEquals(computeFMeasure(rai, rbl, false), computeFMeasure(lai, lbl, false), Double.MIN_VALUE);
+  }
+
+  /**
+   * Convert a flat clustering to a label clustering.
+   * 
+   * @param rel Relation
+   * @param c Clustering
+   * @return Label clustering
+   */
+  private static LabelClustering<Model> toLabels(Relation<?> rel, Clustering<Model> c) {
+    List<Cluster<Model>> clusters = c.getAllClusters();
+    WritableIntegerDataStore labels = DataStoreUtil.makeIntegerStorage(rel.getDBIDs(), DataStoreFactory.HINT_TEMP, -1);
+    for(int i = 0; i < clusters.size(); i++) {
+      for(DBIDIter it = clusters.get(i).getIDs().iter(); it.valid(); it.advance()) {
+        labels.putInt(it, i);
+      }
+    }
+    LabelClustering<Model> lc = new LabelClustering<>(c.getLongName(), c.getShortName(), rel.getDBIDs(), labels, clusters.size());
+    for(int i = 0; i < clusters.size(); i++) {
+      lc.setName(i, clusters.get(i).getName());
+      lc.setNoise(i, clusters.get(i).isNoise());
+      lc.setModel(i, clusters.get(i).getModel());
+    }
+    return lc;
+  }
+
   private double computeFMeasure(Clustering<?> c1, Clustering<?> c2, boolean noise) {
     ClusterContingencyTable ct = new ClusterContingencyTable(true, noise);
     ct.process(c1, c2);
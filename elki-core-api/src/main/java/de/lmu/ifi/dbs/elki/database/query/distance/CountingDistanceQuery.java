@@ -0,0 +1,202 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.distance;
+
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+
+/**
+ * Distance query wrapper that counts the number of distance computations.
+ * <p>
+ * Use {@link #wrap} to obtain a counting query: primitive (and spatial
+ * primitive) distance queries are replaced by counting subclasses, such that
+ * {@code instanceof} checks of indexes still succeed. All other queries are
+ * wrapped by this class.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.uses Counter
+ *
+ * @param <O> Object type
+ */
+public class CountingDistanceQuery<O> implements DistanceQuery<O> {
+  /**
+   * Inner query.
+   */
+  private final DistanceQuery<O> inner;
+
+  /**
+   * Counter for distance computations.
+   */
+  private final Counter counter;
+
+  /**
+   * Constructor.
+   *
+   * @param inner Inner query
+   * @param counter Counter for distance computations
+   */
+  public CountingDistanceQuery(DistanceQuery<O> inner, Counter counter) {
+    super();
+    this.inner = inner;
+    this.counter = counter;
+  }
+
+  /**
+   * Wrap a distance query, to count distance computations.
+   *
+   * @param inner Inner query, may be {@code null}
+   * @param counter Counter, may be {@code null}
+   * @param <O> Object type
+   * @return Counting query, or the inner query if no counter was given.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static <O> DistanceQuery<O> wrap(DistanceQuery<O> inner, Counter counter) {
+    if(inner == null || counter == null || isCounting(inner)) {
+      return inner;
+    }
+    if(inner instanceof SpatialPrimitiveDistanceQuery) {
+      SpatialPrimitiveDistanceQuery<?> sq = (SpatialPrimitiveDistanceQuery<?>) inner;
+      return new CountingSpatialPrimitive(sq.getRelation(), sq.getDistanceFunction(), counter);
+    }
+    if(inner instanceof PrimitiveDistanceQuery) {
+      PrimitiveDistanceQuery<O> pq = (PrimitiveDistanceQuery<O>) inner;
+      return new CountingPrimitive<>(pq.getRelation(), pq.getDistanceFunction(), counter);
+    }
+    return new CountingDistanceQuery<>(inner, counter);
+  }
+
+  /**
+   * Test whether a distance query is already counting.
+   *
+   * @param query Distance query
+   * @return {@code true} if the query counts distance computations
+   */
+  public static boolean isCounting(DistanceQuery<?> query) {
+    return query instanceof CountingDistanceQuery || query instanceof CountingPrimitive || query instanceof CountingSpatialPrimitive;
+  }
+
+  @Override
+  public double distance(DBIDRef id1, DBIDRef id2) {
+    counter.increment();
+    return inner.distance(id1, id2);
+  }
+
+  @Override
+  public double distance(O o1, DBIDRef id2) {
+    counter.increment();
+    return inner.distance(o1, id2);
+  }
+
+  @Override
+  public double distance(DBIDRef id1, O o2) {
+    counter.increment();
+    return inner.distance(id1, o2);
+  }
+
+  @Override
+  public double distance(O o1, O o2) {
+    counter.increment();
+    return inner.distance(o1, o2);
+  }
+
+  @Override
+  public DistanceFunction<? super O> getDistanceFunction() {
+    return inner.getDistanceFunction();
+  }
+
+  @Override
+  public Relation<? extends O> getRelation() {
+    return inner.getRelation();
+  }
+
+  /**
+   * Counting primitive distance query.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  public static class CountingPrimitive<O> extends PrimitiveDistanceQuery<O> {
+    /**
+     * Counter for distance computations.
+     */
+    private final Counter counter;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Relation
+     * @param distanceFunction Distance function
+     * @param counter Counter for distance computations
+     */
+    public CountingPrimitive(Relation<? extends O> relation, PrimitiveDistanceFunction<? super O> distanceFunction, Counter counter) {
+      super(relation, distanceFunction);
+      this.counter = counter;
+    }
+
+    @Override
+    public double distance(O o1, O o2) {
+      counter.increment();
+      return distanceFunction.distance(o1, o2);
+    }
+  }
+
+  /**
+   * Counting spatial primitive distance query.
+   * <p>
+   * Note: only distance computations are counted, not {@code minDist} calls.
+   *
+   * @author Erich Schubert
+   *
+   * @param <V> Vector type
+   */
+  public static class CountingSpatialPrimitive<V extends SpatialComparable> extends SpatialPrimitiveDistanceQuery<V> {
+    /**
+     * Counter for distance computations.
+     */
+    private final Counter counter;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Relation
+     * @param distanceFunction Distance function
+     * @param counter Counter for distance computations
+     */
+    public CountingSpatialPrimitive(Relation<? extends V> relation, SpatialPrimitiveDistanceFunction<? super V> distanceFunction, Counter counter) {
+      super(relation, distanceFunction);
+      this.counter = counter;
+    }
+
+    @Override
+    public double distance(V o1, V o2) {
+      counter.increment();
+      return distanceFunction.distance(o1, o2);
+    }
+  }
+}
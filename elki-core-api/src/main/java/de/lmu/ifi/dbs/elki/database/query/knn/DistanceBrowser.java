@@ -0,0 +1,92 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+
+/**
+ * Incremental nearest neighbor search ("distance browsing").
+ * 
+ * After calling {@link #search}, the browser behaves like a {@link DBIDIter}
+ * that returns the objects in ascending distance from the query. Neighbors are
+ * only computed on demand, and the priority queue is retained between calls to
+ * {@link #advance()}, so the caller does not need to know the number of
+ * neighbors in advance.
+ * 
+ * Usage example:
+ * 
+ * <pre>
+ * {@code
+ * DistanceBrowser<O> browser = QueryUtil.getDistanceBrowser(relation, df);
+ * for(browser.search(query); browser.valid(); browser.advance()) {
+ *   double dist = browser.doubleValue();
+ *   if(stopCondition(dist)) break;
+ * }
+ * }
+ * </pre>
+ * 
+ * Reference:
+ * <p>
+ * G. R. Hjaltason, H. Samet<br />
+ * Distance browsing in spatial databases<br />
+ * ACM Transactions on Database Systems (TODS) 24(2)
+ * </p>
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.landmark
+ * 
+ * @param <O> Object type
+ */
+public interface DistanceBrowser<O> extends DatabaseQuery, DBIDIter {
+  /**
+   * Start a new search for the given query object.
+   * 
+   * Any previous search state is discarded.
+   * 
+   * @param obj Query object
+   * @return {@code this}, positioned at the nearest neighbor
+   */
+  DistanceBrowser<O> search(O obj);
+
+  /**
+   * Start a new search for the given query object.
+   * 
+   * Any previous search state is discarded.
+   * 
+   * @param id Query object
+   * @return {@code this}, positioned at the nearest neighbor
+   */
+  DistanceBrowser<O> search(DBIDRef id);
+
+  /**
+   * Get the distance of the current neighbor to the query object.
+   * 
+   * @return Distance
+   */
+  double doubleValue();
+
+  @Override
+  DistanceBrowser<O> advance();
+}
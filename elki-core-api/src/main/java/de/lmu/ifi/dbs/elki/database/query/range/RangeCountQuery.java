@@ -0,0 +1,83 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.range;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+
+/**
+ * The interface for range count queries, that only count the objects within
+ * the specified radius, without materializing the neighborhood.
+ *
+ * When a limit is given, the search may stop as soon as this many objects have
+ * been found. This is sufficient for the common density test "are there at
+ * least {@code minpts} neighbors" used by DBSCAN and similar methods.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.landmark
+ *
+ * @param <O> Object type
+ */
+public interface RangeCountQuery<O> extends DatabaseQuery {
+  /**
+   * Count the neighbors for a particular id in a given query range.
+   *
+   * @param id query object ID
+   * @param range Query range
+   * @param limit Stop counting when this many neighbors were found.
+   * @return Number of neighbors, but at most {@code limit}
+   */
+  int getRangeCountForDBID(DBIDRef id, double range, int limit);
+
+  /**
+   * Count the neighbors for a particular object in a given query range.
+   *
+   * @param obj Query object
+   * @param range Query range
+   * @param limit Stop counting when this many neighbors were found.
+   * @return Number of neighbors, but at most {@code limit}
+   */
+  int getRangeCountForObject(O obj, double range, int limit);
+
+  /**
+   * Count the neighbors for a particular id in a given query range.
+   *
+   * @param id query object ID
+   * @param range Query range
+   * @return Number of neighbors
+   */
+  default int getRangeCountForDBID(DBIDRef id, double range) {
+    return getRangeCountForDBID(id, range, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Count the neighbors for a particular object in a given query range.
+   *
+   * @param obj Query object
+   * @param range Query range
+   * @return Number of neighbors
+   */
+  default int getRangeCountForObject(O obj, double range) {
+    return getRangeCountForObject(obj, range, Integer.MAX_VALUE);
+  }
+}
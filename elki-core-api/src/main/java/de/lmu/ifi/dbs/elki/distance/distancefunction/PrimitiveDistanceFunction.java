@@ -47,6 +47,25 @@ public interface PrimitiveDistanceFunction<O> extends DistanceFunction<O> {
    */
   double distance(O o1, O o2);
 
+  /**
+   * Computes the distance between two objects, but allow the computation to
+   * stop early once the distance is known to exceed the cutoff.
+   * 
+   * If the distance is at most {@code cutoff}, the exact distance is returned.
+   * Otherwise, any value larger than {@code cutoff} may be returned (usually a
+   * lower bound of the distance, such as a partial sum).
+   * 
+   * The default implementation always computes the exact distance.
+   * 
+   * @param o1 first DatabaseObject
+   * @param o2 second DatabaseObject
+   * @param cutoff Distances larger than this value are not of interest
+   * @return the distance, or a value larger than cutoff
+   */
+  default double distance(O o1, O o2, double cutoff) {
+    return distance(o1, o2);
+  }
+
   @Override
   SimpleTypeInformation<? super O> getInputTypeRestriction();
 
@@ -0,0 +1,48 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index;
+
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
+
+/**
+ * Index with support for incremental nearest neighbor search.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.excludeSubtypes
+ * @apiviz.has DistanceBrowser oneway - - «provides»
+ * 
+ * @param <O> Object type
+ */
+public interface DistanceBrowserIndex<O> extends Index {
+  /**
+   * Get a distance browser for the given distance query.
+   * 
+   * This function MAY return null, when the given distance is not supported!
+   * 
+   * @param distanceQuery Distance query
+   * @param hints Hints for the optimizer
+   * @return Distance browser or {@code null}
+   */
+  DistanceBrowser<O> getDistanceBrowser(DistanceQuery<O> distanceQuery, Object... hints);
+}
@@ -22,6 +22,7 @@ package de.lmu.ifi.dbs.elki.database.ids.integer;
 
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayStaticDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBID;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDFactory;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDPair;
@@ -49,6 +50,7 @@ import de.lmu.ifi.dbs.elki.utilities.io.FixedSizeByteBufferSerializer;
  * @apiviz.uses IntegerDBID oneway - - «create»
  * @apiviz.uses IntegerDBIDPair oneway - - «create»
  * @apiviz.uses IntegerDBIDRange oneway - - «create»
+ * @apiviz.uses BitSetModifiableIntegerDBIDs oneway - - «create»
  * @apiviz.uses TroveHashSetModifiableDBIDs oneway - - «create»
  * @apiviz.uses IntegerArrayDBIDs oneway - - «create»
  */
@@ -126,6 +128,19 @@ abstract class AbstractIntegerDBIDFactory implements DBIDFactory {
     return new TroveHashSetModifiableDBIDs(existing);
   }
 
+  @Override
+  public HashSetModifiableDBIDs newDomainHashSet(DBIDs domain) {
+    if(domain instanceof IntegerDBIDRange) {
+      return new BitSetModifiableIntegerDBIDs((IntegerDBIDRange) domain);
+    }
+    return new TroveHashSetModifiableDBIDs(domain.size());
+  }
+
+  @Override
+  public ArrayStaticDBIDs newCompressedArray(DBIDs existing) {
+    return CompressedArrayIntegerDBIDs.sortAndCompress(existing);
+  }
+
   @Override
   public DBIDPair newPair(DBIDRef first, DBIDRef second) {
     return new IntegerDBIDPair(first.internalGetIndex(), second.internalGetIndex());
@@ -0,0 +1,416 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.ids.integer;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.HashSetModifiableDBIDs;
+
+/**
+ * Set of DBIDs, stored as a dense bitset over a range of DBIDs.
+ *
+ * This needs one bit per object of the range, and avoids hashing. DBIDs
+ * outside of the range are supported, but are kept in a secondary hash set.
+ * Iteration is in ascending order for the range, followed by any DBIDs outside
+ * of the range.
+ *
+ * Operations with another bitset over the same range (union, intersection,
+ * difference, intersection size) are performed word by word.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.has Itr
+ */
+public class BitSetModifiableIntegerDBIDs implements HashSetModifiableDBIDs, IntegerDBIDs {
+  /**
+   * First DBID of the range.
+   */
+  private final int start;
+
+  /**
+   * Length of the range.
+   */
+  private final int len;
+
+  /**
+   * Bits.
+   */
+  private long[] bits;
+
+  /**
+   * Number of bits set.
+   */
+  private int size;
+
+  /**
+   * Low-water mark: all words before this index are zero.
+   */
+  private int low;
+
+  /**
+   * DBIDs outside of the range, may be {@code null}.
+   */
+  private TroveHashSetModifiableDBIDs overflow;
+
+  /**
+   * Constructor.
+   *
+   * @param start First DBID of the range
+   * @param len Length of the range
+   */
+  protected BitSetModifiableIntegerDBIDs(int start, int len) {
+    super();
+    this.start = start;
+    this.len = len;
+    this.bits = new long[(len + 63) >>> 6];
+    this.low = bits.length;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param range DBID range
+   */
+  protected BitSetModifiableIntegerDBIDs(IntegerDBIDRange range) {
+    this(range.start, range.len);
+  }
+
+  /**
+   * Test if another set is a bitset over the same range.
+   *
+   * @param other Other set
+   * @return {@code true} if compatible
+   */
+  private boolean isCompatible(DBIDs other) {
+    if(!(other instanceof BitSetModifiableIntegerDBIDs)) {
+      return false;
+    }
+    BitSetModifiableIntegerDBIDs o = (BitSetModifiableIntegerDBIDs) other;
+    return o.start == start && o.len == len;
+  }
+
+  @Override
+  public boolean add(DBIDRef id) {
+    final int i = id.internalGetIndex() - start;
+    if(i < 0 || i >= len) {
+      if(overflow == null) {
+        overflow = new TroveHashSetModifiableDBIDs();
+      }
+      return overflow.add(id);
+    }
+    final int w = i >>> 6;
+    final long m = 1L << i, v = bits[w];
+    if((v & m) != 0L) {
+      return false;
+    }
+    bits[w] = v | m;
+    ++size;
+    low = w < low ? w : low;
+    return true;
+  }
+
+  @Override
+  public boolean remove(DBIDRef id) {
+    final int i = id.internalGetIndex() - start;
+    if(i < 0 || i >= len) {
+      return overflow != null && overflow.remove(id);
+    }
+    final int w = i >>> 6;
+    final long m = 1L << i, v = bits[w];
+    if((v & m) == 0L) {
+      return false;
+    }
+    bits[w] = v & ~m;
+    --size;
+    return true;
+  }
+
+  @Override
+  public boolean contains(DBIDRef id) {
+    final int i = id.internalGetIndex() - start;
+    if(i < 0 || i >= len) {
+      return overflow != null && overflow.contains(id);
+    }
+    return (bits[i >>> 6] & (1L << i)) != 0L;
+  }
+
+  @Override
+  public boolean addDBIDs(DBIDs ids) {
+    if(!isCompatible(ids)) {
+      boolean success = false;
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        success |= add(iter);
+      }
+      return success;
+    }
+    BitSetModifiableIntegerDBIDs o = (BitSetModifiableIntegerDBIDs) ids;
+    final long[] obits = o.bits;
+    int newsize = 0;
+    for(int i = 0; i < bits.length; i++) {
+      newsize += Long.bitCount(bits[i] |= obits[i]);
+    }
+    boolean success = newsize != size;
+    size = newsize;
+    low = o.low < low ? o.low : low;
+    if(o.overflow != null && !o.overflow.isEmpty()) {
+      if(overflow == null) {
+        overflow = new TroveHashSetModifiableDBIDs();
+      }
+      success |= overflow.addDBIDs(o.overflow);
+    }
+    return success;
+  }
+
+  @Override
+  public boolean removeDBIDs(DBIDs ids) {
+    if(!isCompatible(ids)) {
+      boolean success = false;
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        success |= remove(iter);
+      }
+      return success;
+    }
+    BitSetModifiableIntegerDBIDs o = (BitSetModifiableIntegerDBIDs) ids;
+    final long[] obits = o.bits;
+    int newsize = 0;
+    for(int i = 0; i < bits.length; i++) {
+      newsize += Long.bitCount(bits[i] &= ~obits[i]);
+    }
+    boolean success = newsize != size;
+    size = newsize;
+    if(overflow != null && o.overflow != null) {
+      success |= overflow.removeDBIDs(o.overflow);
+    }
+    return success;
+  }
+
+  @Override
+  public boolean retainAll(DBIDs set) {
+    if(!isCompatible(set)) {
+      boolean modified = false;
+      for(Itr it = iter(); it.valid(); it.advance()) {
+        if(!set.contains(it)) {
+          it.remove();
+          modified = true;
+        }
+      }
+      return modified;
+    }
+    BitSetModifiableIntegerDBIDs o = (BitSetModifiableIntegerDBIDs) set;
+    final long[] obits = o.bits;
+    int newsize = 0;
+    for(int i = 0; i < bits.length; i++) {
+      newsize += Long.bitCount(bits[i] &= obits[i]);
+    }
+    boolean modified = newsize != size;
+    size = newsize;
+    if(overflow != null) {
+      modified |= o.overflow != null ? overflow.retainAll(o.overflow) : !overflow.isEmpty();
+      if(o.overflow == null) {
+        overflow.clear();
+      }
+    }
+    return modified;
+  }
+
+  /**
+   * Compute the size of the intersection with another set.
+   *
+   * @param other Other set
+   * @return Intersection size
+   */
+  public int intersectionSize(DBIDs other) {
+    if(!isCompatible(other)) {
+      int c = 0;
+      for(DBIDIter iter = other.iter(); iter.valid(); iter.advance()) {
+        c += contains(iter) ? 1 : 0;
+      }
+      return c;
+    }
+    BitSetModifiableIntegerDBIDs o = (BitSetModifiableIntegerDBIDs) other;
+    final long[] obits = o.bits;
+    int c = 0;
+    for(int i = 0; i < bits.length; i++) {
+      c += Long.bitCount(bits[i] & obits[i]);
+    }
+    if(overflow != null && o.overflow != null) {
+      for(DBIDIter iter = o.overflow.iter(); iter.valid(); iter.advance()) {
+        c += overflow.contains(iter) ? 1 : 0;
+      }
+    }
+    return c;
+  }
+
+  @Override
+  public int size() {
+    return overflow == null ? size : size + overflow.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0 && (overflow == null || overflow.isEmpty());
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(bits, 0L);
+    size = 0;
+    low = bits.length;
+    overflow = null;
+  }
+
+  @Override
+  public DBIDVar pop(DBIDVar outvar) {
+    final int i = nextSetBit(low << 6);
+    // Elements are only removed from the front, so remember the position.
+    low = i < 0 ? bits.length : i >>> 6;
+    if(i < 0) {
+      if(overflow == null || overflow.isEmpty()) {
+        throw new ArrayIndexOutOfBoundsException("Cannot pop() from an empty set.");
+      }
+      return overflow.pop(outvar);
+    }
+    bits[i >>> 6] &= ~(1L << i);
+    --size;
+    if(outvar instanceof IntegerDBIDVar) {
+      ((IntegerDBIDVar) outvar).internalSetIndex(start + i);
+    }
+    else { // Fallback, should not happen (more expensive).
+      outvar.set(new IntegerDBID(start + i));
+    }
+    return outvar;
+  }
+
+  /**
+   * Find the next set bit.
+   *
+   * @param from Starting position
+   * @return Position of the next set bit, or -1
+   */
+  private int nextSetBit(int from) {
+    int w = from >>> 6;
+    if(w >= bits.length) {
+      return -1;
+    }
+    long word = bits[w] & (-1L << from);
+    while(word == 0L) {
+      if(++w == bits.length) {
+        return -1;
+      }
+      word = bits[w];
+    }
+    return (w << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  @Override
+  public Itr iter() {
+    return new Itr();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder();
+    buf.append('[');
+    for(DBIDIter iter = iter(); iter.valid(); iter.advance()) {
+      if(buf.length() > 1) {
+        buf.append(", ");
+      }
+      buf.append(iter.toString());
+    }
+    buf.append(']');
+    return buf.toString();
+  }
+
+  /**
+   * Iterator over the set bits, then the overflow DBIDs.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  protected class Itr implements IntegerDBIDMIter {
+    /**
+     * Current bit, -1 when in the overflow.
+     */
+    private int pos;
+
+    /**
+     * Overflow iterator.
+     */
+    private IntegerDBIDMIter oiter;
+
+    /**
+     * Constructor.
+     */
+    protected Itr() {
+      super();
+      pos = nextSetBit(low << 6);
+      if(pos < 0 && overflow != null) {
+        oiter = overflow.iter();
+      }
+    }
+
+    @Override
+    public boolean valid() {
+      return pos >= 0 || (oiter != null && oiter.valid());
+    }
+
+    @Override
+    public Itr advance() {
+      if(pos >= 0) {
+        pos = nextSetBit(pos + 1);
+        if(pos < 0 && overflow != null) {
+          oiter = overflow.iter();
+        }
+      }
+      else {
+        oiter.advance();
+      }
+      return this;
+    }
+
+    @Override
+    public int internalGetIndex() {
+      return pos >= 0 ? start + pos : oiter.internalGetIndex();
+    }
+
+    @Override
+    public void remove() {
+      if(pos >= 0) {
+        bits[pos >>> 6] &= ~(1L << pos);
+        --size;
+      }
+      else {
+        oiter.remove();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return Integer.toString(internalGetIndex());
+    }
+  }
+}
@@ -0,0 +1,396 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.ids.integer;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDFactory;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.logging.LoggingUtil;
+
+/**
+ * Static (no modifications allowed), sorted and compressed array of DBIDs.
+ *
+ * The sorted values are stored in blocks of {@link #BLOCKSIZE} entries. For
+ * each block, the first value and the byte offset are kept uncompressed, all
+ * other values are stored as variable-length encoded differences to their
+ * predecessor. Dense sets, such as large clusters or neighborhoods, then only
+ * need one or two bytes per entry.
+ *
+ * Sequential iteration is cheap, random access needs to decode up to one block,
+ * and {@link #contains} and {@link #binarySearch} use a binary search on the
+ * block headers.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class CompressedArrayIntegerDBIDs implements IntegerArrayStaticDBIDs {
+  /**
+   * Number of entries per block, must be a power of 2.
+   */
+  protected static final int BLOCKSIZE = 1 << 7;
+
+  /**
+   * Shift for the block size.
+   */
+  private static final int BLOCKSHIFT = 7;
+
+  /**
+   * Number of entries.
+   */
+  private final int size;
+
+  /**
+   * Block headers: first value and byte offset of each block, interleaved.
+   */
+  private final int[] blocks;
+
+  /**
+   * Variable-length encoded differences.
+   */
+  private final byte[] data;
+
+  /**
+   * Constructor.
+   *
+   * @param ids Sorted integer ids.
+   * @param size Number of ids to use
+   */
+  protected CompressedArrayIntegerDBIDs(int[] ids, int size) {
+    super();
+    this.size = size;
+    final int nblocks = (size + BLOCKSIZE - 1) >>> BLOCKSHIFT;
+    this.blocks = new int[nblocks << 1];
+    byte[] buf = new byte[size + (size >>> 1) + 5];
+    int p = 0;
+    for(int i = 0; i < size; i++) {
+      final int v = ids[i];
+      if((i & (BLOCKSIZE - 1)) == 0) {
+        final int b = (i >>> BLOCKSHIFT) << 1;
+        blocks[b] = v;
+        blocks[b + 1] = p;
+        continue;
+      }
+      // Unsigned difference; at most 5 bytes.
+      if(p + 5 > buf.length) {
+        buf = Arrays.copyOf(buf, buf.length + (buf.length >>> 1) + 5);
+      }
+      int d = v - ids[i - 1];
+      while((d & ~0x7F) != 0) {
+        buf[p++] = (byte) ((d & 0x7F) | 0x80);
+        d >>>= 7;
+      }
+      buf[p++] = (byte) d;
+    }
+    this.data = p == buf.length ? buf : Arrays.copyOf(buf, p);
+  }
+
+  /**
+   * Build a compressed array from arbitrary DBIDs.
+   *
+   * @param existing Existing DBIDs
+   * @return Compressed array
+   */
+  protected static CompressedArrayIntegerDBIDs sortAndCompress(DBIDs existing) {
+    final int size = existing.size();
+    int[] ids = new int[size];
+    int i = 0;
+    boolean sorted = true;
+    for(DBIDIter it = existing.iter(); it.valid(); it.advance(), i++) {
+      ids[i] = it.internalGetIndex();
+      sorted &= i == 0 || ids[i - 1] <= ids[i];
+    }
+    if(!sorted) {
+      Arrays.sort(ids);
+    }
+    return new CompressedArrayIntegerDBIDs(ids, size);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public boolean contains(DBIDRef o) {
+    return binarySearch(o) >= 0;
+  }
+
+  @Override
+  public DBID get(int i) {
+    return DBIDFactory.FACTORY.importInteger(new Itr().seek(i).internalGetIndex());
+  }
+
+  @Override
+  public DBIDVar assignVar(int i, DBIDVar var) {
+    if(var instanceof IntegerDBIDVar) {
+      ((IntegerDBIDVar) var).internalSetIndex(new Itr().seek(i).internalGetIndex());
+      return var;
+    }
+    // Much less efficient:
+    var.set(get(i));
+    return var;
+  }
+
+  /**
+   * Find the last block whose first value is at most the key.
+   *
+   * @param key Key
+   * @return Block number, -1 if the key is smaller than all values.
+   */
+  private int findBlock(int key) {
+    int lo = 0, hi = (blocks.length >>> 1) - 1;
+    while(lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      if(blocks[mid << 1] <= key) {
+        lo = mid + 1;
+      }
+      else {
+        hi = mid - 1;
+      }
+    }
+    return hi;
+  }
+
+  @Override
+  public int binarySearch(DBIDRef key) {
+    final int k = key.internalGetIndex();
+    final int b = findBlock(k);
+    if(b < 0) {
+      return -1;
+    }
+    Itr it = new Itr().seekBlock(b);
+    final int end = Math.min(size, (b + 1) << BLOCKSHIFT);
+    for(; it.pos < end; it.advance()) {
+      if(it.cur >= k) {
+        return it.cur == k ? it.pos : -(it.pos + 1);
+      }
+    }
+    return -(end + 1);
+  }
+
+  /**
+   * Compute the size of the intersection with another compressed array.
+   *
+   * Blocks that cannot contain common values are skipped without decoding.
+   *
+   * @param other Other array
+   * @return Number of common entries
+   */
+  public int intersectionSize(CompressedArrayIntegerDBIDs other) {
+    if(size == 0 || other.size == 0) {
+      return 0;
+    }
+    Itr i1 = new Itr(), i2 = other.new Itr();
+    int c = 0;
+    while(i1.valid() && i2.valid()) {
+      final int v1 = i1.cur, v2 = i2.cur;
+      if(v1 == v2) {
+        ++c;
+        i1.advance();
+        i2.advance();
+      }
+      else if(v1 < v2) {
+        i1.skipTo(v2);
+      }
+      else {
+        i2.skipTo(v1);
+      }
+    }
+    return c;
+  }
+
+  @Override
+  public Itr iter() {
+    return new Itr();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * As the array is immutable, this returns an uncompressed copy instead of a
+   * view, to allow fast random access.
+   */
+  @Override
+  public IntegerArrayDBIDs slice(int begin, int end) {
+    int[] ids = new int[end - begin];
+    Itr it = new Itr().seek(begin);
+    for(int i = 0; i < ids.length; i++, it.advance()) {
+      ids[i] = it.cur;
+    }
+    return new ArrayStaticIntegerDBIDs(ids);
+  }
+
+  /**
+   * DBID iterator in ELKI/C style.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  protected class Itr implements IntegerDBIDArrayIter {
+    /**
+     * Position within array.
+     */
+    int pos;
+
+    /**
+     * Current value.
+     */
+    int cur;
+
+    /**
+     * Read position in the byte array.
+     */
+    int bpos;
+
+    /**
+     * Constructor.
+     */
+    protected Itr() {
+      super();
+      seekBlock(0);
+    }
+
+    /**
+     * Seek to the beginning of a block.
+     *
+     * @param b Block number
+     * @return this
+     */
+    private Itr seekBlock(int b) {
+      pos = b << BLOCKSHIFT;
+      if(pos < size && pos >= 0) {
+        cur = blocks[b << 1];
+        bpos = blocks[(b << 1) + 1];
+      }
+      return this;
+    }
+
+    /**
+     * Advance to the first value not smaller than the given key, skipping
+     * entire blocks where possible.
+     *
+     * @param key Key to search for
+     */
+    private void skipTo(int key) {
+      int b = pos >>> BLOCKSHIFT;
+      final int nb = blocks.length >>> 1;
+      if(b + 1 < nb && blocks[(b + 1) << 1] <= key) {
+        // Gallop over the block headers.
+        int step = 1;
+        while(b + step < nb && blocks[(b + step) << 1] <= key) {
+          b += step;
+          step <<= 1;
+        }
+        for(step >>>= 1; step > 0; step >>>= 1) {
+          if(b + step < nb && blocks[(b + step) << 1] <= key) {
+            b += step;
+          }
+        }
+        seekBlock(b);
+      }
+      while(pos < size && cur < key) {
+        advance();
+      }
+    }
+
+    @Override
+    public boolean valid() {
+      return pos < size && pos >= 0;
+    }
+
+    @Override
+    public Itr advance() {
+      if((++pos & (BLOCKSIZE - 1)) == 0) {
+        return seekBlock(pos >>> BLOCKSHIFT);
+      }
+      if(pos > 0 && pos < size) {
+        final byte[] data = CompressedArrayIntegerDBIDs.this.data;
+        int d = 0, shift = 0;
+        byte b;
+        while((b = data[bpos++]) < 0) {
+          d |= (b & 0x7F) << shift;
+          shift += 7;
+        }
+        cur += d | (b << shift);
+      }
+      return this;
+    }
+
+    @Override
+    public Itr advance(int count) {
+      return seek(pos + count);
+    }
+
+    @Override
+    public Itr retract() {
+      return seek(pos - 1);
+    }
+
+    @Override
+    public Itr seek(int off) {
+      if(off < 0 || off >= size) {
+        pos = off;
+        return this;
+      }
+      if(off < pos || (off >>> BLOCKSHIFT) != (pos >>> BLOCKSHIFT)) {
+        seekBlock(off >>> BLOCKSHIFT);
+      }
+      while(pos < off) {
+        advance();
+      }
+      return this;
+    }
+
+    @Override
+    public int getOffset() {
+      return pos;
+    }
+
+    @Override
+    public int internalGetIndex() {
+      return cur;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if(other instanceof DBID) {
+        LoggingUtil.warning("Programming error detected: DBIDItr.equals(DBID). Use sameDBID()!", new Throwable());
+      }
+      return super.equals(other);
+    }
+
+    @Override
+    public String toString() {
+      return Integer.toString(internalGetIndex()) + "@" + pos;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.ids.integer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+
+/**
+ * Unit test for the bitset DBID set.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class BitSetModifiableIntegerDBIDsTest {
+  @Test
+  public void testAddRemoveContains() {
+    BitSetModifiableIntegerDBIDs set = new BitSetModifiableIntegerDBIDs(100, 200);
+    assertTrue(set.isEmpty());
+    assertTrue(set.add(new IntegerDBID(150)));
+    assertFalse(set.add(new IntegerDBID(150)));
+    assertTrue(set.add(new IntegerDBID(100)));
+    assertTrue(set.add(new IntegerDBID(299)));
+    // Outside of the range:
+    assertTrue(set.add(new IntegerDBID(5)));
+    assertTrue(set.add(new IntegerDBID(300)));
+    assertEquals(5, set.size());
+    assertTrue(set.contains(new IntegerDBID(100)));
+    assertTrue(set.contains(new IntegerDBID(5)));
+    assertFalse(set.contains(new IntegerDBID(151)));
+    assertFalse(set.contains(new IntegerDBID(301)));
+
+    assertTrue(set.remove(new IntegerDBID(150)));
+    assertFalse(set.remove(new IntegerDBID(150)));
+    assertTrue(set.remove(new IntegerDBID(300)));
+    assertFalse(set.remove(new IntegerDBID(301)));
+    assertEquals(3, set.size());
+    assertFalse(set.contains(new IntegerDBID(150)));
+
+    set.clear();
+    assertTrue(set.isEmpty());
+    assertFalse(set.iter().valid());
+  }
+
+  @Test
+  public void testIterationOrder() {
+    BitSetModifiableIntegerDBIDs set = new BitSetModifiableIntegerDBIDs(0, 1000);
+    TreeSet<Integer> ref = new TreeSet<>();
+    Random r = new Random(0L);
+    for(int i = 0; i < 300; i++) {
+      final int v = r.nextInt(1000);
+      assertEquals(ref.add(v), set.add(new IntegerDBID(v)));
+    }
+    assertEquals(ref.size(), set.size());
+    // Ascending within the range, then the overflow.
+    set.add(new IntegerDBID(2000));
+    ref.add(2000);
+    DBIDIter it = set.iter();
+    for(Integer v : ref) {
+      assertTrue(it.valid());
+      assertEquals(v.intValue(), it.internalGetIndex());
+      it.advance();
+    }
+    assertFalse(it.valid());
+  }
+
+  @Test
+  public void testPop() {
+    BitSetModifiableIntegerDBIDs set = new BitSetModifiableIntegerDBIDs(10, 500);
+    IntegerDBIDVar var = new IntegerDBIDVar();
+    for(int i = 100; i < 200; i++) {
+      set.add(new IntegerDBID(i));
+    }
+    set.add(new IntegerDBID(1000));
+    assertEquals(100, set.pop(var).internalGetIndex());
+    assertEquals(101, set.pop(var).internalGetIndex());
+    // Adding below the previous minimum must be seen by pop.
+    set.add(new IntegerDBID(10));
+    assertEquals(10, set.pop(var).internalGetIndex());
+    for(int i = 102; i < 200; i++) {
+      assertEquals(i, set.pop(var).internalGetIndex());
+    }
+    assertEquals(1, set.size());
+    assertEquals(1000, set.pop(var).internalGetIndex());
+    assertTrue(set.isEmpty());
+    set.add(new IntegerDBID(50));
+    assertEquals(50, set.pop(var).internalGetIndex());
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testPopEmpty() {
+    new BitSetModifiableIntegerDBIDs(0, 100).pop(new IntegerDBIDVar());
+  }
+
+  @Test(timeout = 10000)
+  public void testPopAll() {
+    final int n = 1 << 22;
+    BitSetModifiableIntegerDBIDs set = new BitSetModifiableIntegerDBIDs(0, n);
+    for(int i = 0; i < n; i++) {
+      set.add(new IntegerDBID(i));
+    }
+    IntegerDBIDVar var = new IntegerDBIDVar();
+    for(int i = 0; i < n; i++) {
+      assertEquals(i, set.pop(var).internalGetIndex());
+    }
+    assertTrue(set.isEmpty());
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.ids.integer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+
+/**
+ * Unit test for the compressed static DBID array.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class CompressedArrayIntegerDBIDsTest {
+  /**
+   * Generate sorted, distinct values spanning several blocks, including
+   * negative values and large gaps.
+   *
+   * @param r Random generator
+   * @param size Number of values
+   * @return Sorted values
+   */
+  private static int[] sortedValues(Random r, int size) {
+    int[] ids = new int[size];
+    int v = -5000;
+    for(int i = 0; i < size; i++) {
+      ids[i] = v += 1 + (r.nextInt(20) == 0 ? r.nextInt(1000) : r.nextInt(5));
+    }
+    return ids;
+  }
+
+  /**
+   * Check the contents via iteration and random access.
+   *
+   * @param expected Expected values
+   * @param ids Compressed array
+   */
+  private static void checkContents(int[] expected, CompressedArrayIntegerDBIDs ids) {
+    assertEquals(expected.length, ids.size());
+    DBIDIter it = ids.iter();
+    for(int i = 0; i < expected.length; i++, it.advance()) {
+      assertTrue(it.valid());
+      assertEquals(expected[i], it.internalGetIndex());
+    }
+    assertFalse(it.valid());
+    for(int i = 0; i < expected.length; i += 7) {
+      assertEquals(expected[i], ids.get(i).internalGetIndex());
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    CompressedArrayIntegerDBIDs ids = new CompressedArrayIntegerDBIDs(new int[0], 0);
+    assertTrue(ids.isEmpty());
+    assertFalse(ids.iter().valid());
+    assertEquals(-1, ids.binarySearch(new IntegerDBID(0)));
+    assertFalse(ids.contains(new IntegerDBID(0)));
+    assertEquals(0, ids.slice(0, 0).size());
+    assertEquals(0, ids.intersectionSize(new CompressedArrayIntegerDBIDs(new int[] { 1, 2 }, 2)));
+  }
+
+  @Test
+  public void testExtremeDeltas() {
+    // Negative values, and differences that do not fit into an int.
+    int[] sorted = { Integer.MIN_VALUE, -1000, -1, 0, 0, 1, 1 << 20, Integer.MAX_VALUE };
+    checkContents(sorted, new CompressedArrayIntegerDBIDs(sorted, sorted.length));
+    // Non-monotone input is stored as is, with negative differences.
+    int[] unsorted = { 5, -3, Integer.MAX_VALUE, Integer.MIN_VALUE, 7, 7, -200000, 1 };
+    checkContents(unsorted, new CompressedArrayIntegerDBIDs(unsorted, unsorted.length));
+    // But sortAndCompress sorts.
+    int[] copy = unsorted.clone();
+    Arrays.sort(copy);
+    checkContents(copy, CompressedArrayIntegerDBIDs.sortAndCompress(new ArrayStaticIntegerDBIDs(unsorted)));
+  }
+
+  @Test
+  public void testBinarySearch() {
+    int[] sorted = sortedValues(new Random(0L), 1000);
+    CompressedArrayIntegerDBIDs ids = new CompressedArrayIntegerDBIDs(sorted, sorted.length);
+    checkContents(sorted, ids);
+    for(int k = sorted[0] - 2; k <= sorted[sorted.length - 1] + 2; k++) {
+      final int expected = Arrays.binarySearch(sorted, k);
+      assertEquals("Key " + k, expected, ids.binarySearch(new IntegerDBID(k)));
+      assertEquals(expected >= 0, ids.contains(new IntegerDBID(k)));
+    }
+  }
+
+  @Test
+  public void testSliceRetract() {
+    int[] sorted = sortedValues(new Random(1L), 700);
+    CompressedArrayIntegerDBIDs ids = new CompressedArrayIntegerDBIDs(sorted, sorted.length);
+    int[][] ranges = { { 0, 0 }, { 0, 700 }, { 127, 129 }, { 128, 256 }, { 300, 699 }, { 699, 700 } };
+    for(int[] range : ranges) {
+      IntegerArrayDBIDs slice = ids.slice(range[0], range[1]);
+      assertEquals(range[1] - range[0], slice.size());
+      DBIDIter it = slice.iter();
+      for(int i = range[0]; i < range[1]; i++, it.advance()) {
+        assertEquals(sorted[i], it.internalGetIndex());
+      }
+      assertFalse(it.valid());
+    }
+    // Iterate backwards, across block boundaries.
+    DBIDArrayIter it = ids.iter().seek(sorted.length - 1);
+    for(int i = sorted.length - 1; i >= 0; i--, it.retract()) {
+      assertTrue(it.valid());
+      assertEquals(i, it.getOffset());
+      assertEquals(sorted[i], it.internalGetIndex());
+    }
+    assertFalse(it.valid());
+  }
+
+  @Test
+  public void testIntersection() {
+    Random r = new Random(2L);
+    for(int round = 0; round < 20; round++) {
+      int[] a = sortedValues(r, r.nextInt(1000)), b = sortedValues(r, r.nextInt(1000));
+      int expected = 0;
+      for(int v : a) {
+        expected += Arrays.binarySearch(b, v) >= 0 ? 1 : 0;
+      }
+      CompressedArrayIntegerDBIDs ca = new CompressedArrayIntegerDBIDs(a, a.length);
+      CompressedArrayIntegerDBIDs cb = new CompressedArrayIntegerDBIDs(b, b.length);
+      assertEquals(expected, ca.intersectionSize(cb));
+      assertEquals(expected, cb.intersectionSize(ca));
+    }
+  }
+}
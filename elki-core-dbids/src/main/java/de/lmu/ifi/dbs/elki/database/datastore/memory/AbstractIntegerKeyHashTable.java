@@ -0,0 +1,279 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.datastore.memory;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table for integer keys, using linear probing.
+ *
+ * Subclasses keep the values in parallel arrays, and are informed when values
+ * need to be moved. Removal uses backward shifting, so no tombstones are
+ * needed.
+ *
+ * Keys are placed using Fibonacci (multiplicative) hashing. DBIDs are usually
+ * consecutive integers; using the low bits directly would place them in one
+ * long contiguous run, making every removal and every unsuccessful lookup
+ * within this run take time linear in the run length.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+abstract class AbstractIntegerKeyHashTable {
+  /**
+   * Marker for unused slots (not a valid DBID).
+   */
+  static final int FREE = Integer.MIN_VALUE;
+
+  /**
+   * Minimum capacity.
+   */
+  private static final int MIN_CAPACITY = 8;
+
+  /**
+   * Maximum capacity.
+   */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * Keys.
+   */
+  int[] keys;
+
+  /**
+   * Bit mask for the slot index.
+   */
+  private int mask;
+
+  /**
+   * Shift for hashing.
+   */
+  private int shift;
+
+  /**
+   * Number of entries.
+   */
+  int size;
+
+  /**
+   * Constructor.
+   *
+   * @param expected Expected number of entries
+   */
+  AbstractIntegerKeyHashTable(int expected) {
+    super();
+    allocateKeys(capacityFor(expected));
+  }
+
+  /**
+   * Compute the table capacity, for a maximum load factor of 0.5.
+   *
+   * @param expected Expected number of entries
+   * @return Capacity, a power of two
+   */
+  static int capacityFor(int expected) {
+    int cap = MIN_CAPACITY;
+    while(cap < (expected << 1) && cap < MAX_CAPACITY) {
+      cap <<= 1;
+    }
+    return cap;
+  }
+
+  /**
+   * Allocate the key array.
+   *
+   * @param cap Capacity, a power of two
+   */
+  private void allocateKeys(int cap) {
+    keys = new int[cap];
+    Arrays.fill(keys, FREE);
+    mask = cap - 1;
+    shift = Integer.numberOfLeadingZeros(mask);
+  }
+
+  /**
+   * Home slot of a key.
+   *
+   * @param key Key
+   * @return Slot
+   */
+  final int home(int key) {
+    // Fold in the high bits first, for keys with a large power-of-two stride.
+    return ((key ^ (key >>> 16)) * 0x9E3779B9) >>> shift;
+  }
+
+  /**
+   * Find the slot of a key.
+   *
+   * @param key Key
+   * @return Slot, or -1 if not found
+   */
+  final int findSlot(int key) {
+    for(int i = home(key);; i = (i + 1) & mask) {
+      final int k = keys[i];
+      if(k == key) {
+        return i;
+      }
+      if(k == FREE) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * Find or create the slot of a key. New slots contain the default value.
+   *
+   * @param key Key
+   * @return Slot
+   */
+  final int insertSlot(int key) {
+    int i = home(key);
+    for(;; i = (i + 1) & mask) {
+      final int k = keys[i];
+      if(k == key) {
+        return i;
+      }
+      if(k == FREE) {
+        break;
+      }
+    }
+    if((size + 1) << 1 > keys.length && keys.length < MAX_CAPACITY) {
+      rehash(keys.length << 1);
+      for(i = home(key); keys[i] != FREE; i = (i + 1) & mask) {
+        // Find a free slot.
+      }
+    }
+    keys[i] = key;
+    ++size;
+    return i;
+  }
+
+  /**
+   * Rebuild the table.
+   *
+   * @param capacity New capacity
+   */
+  private void rehash(int capacity) {
+    final int[] okeys = keys;
+    allocateKeys(capacity);
+    startResize(keys.length);
+    for(int j = 0; j < okeys.length; j++) {
+      final int k = okeys[j];
+      if(k == FREE) {
+        continue;
+      }
+      int i = home(k);
+      while(keys[i] != FREE) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = k;
+      transfer(j, i);
+    }
+    finishResize();
+  }
+
+  /**
+   * Remove a key.
+   *
+   * @param key Key
+   * @return Former slot, or -1 if not found
+   */
+  final int removeKey(int key) {
+    final int slot = findSlot(key);
+    if(slot >= 0) {
+      removeSlot(slot);
+    }
+    return slot;
+  }
+
+  /**
+   * Remove the entry in the given slot, shifting back following entries.
+   *
+   * @param slot Slot
+   */
+  private void removeSlot(int slot) {
+    int gap = slot;
+    for(int i = (slot + 1) & mask;; i = (i + 1) & mask) {
+      final int k = keys[i];
+      if(k == FREE) {
+        break;
+      }
+      // Move back if the gap is between the home slot and the current slot.
+      if(((i - home(k)) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = k;
+        moveValue(i, gap);
+        gap = i;
+      }
+    }
+    keys[gap] = FREE;
+    clearValue(gap);
+    --size;
+  }
+
+  /**
+   * Remove all entries.
+   */
+  void clearKeys() {
+    Arrays.fill(keys, FREE);
+    size = 0;
+    clearValues();
+  }
+
+  /**
+   * Allocate new value storage for resizing.
+   *
+   * @param capacity New capacity
+   */
+  abstract void startResize(int capacity);
+
+  /**
+   * Transfer a value from the old to the new value storage during resizing.
+   *
+   * @param from Old slot
+   * @param to New slot
+   */
+  abstract void transfer(int from, int to);
+
+  /**
+   * Finish resizing, discarding the old value storage.
+   */
+  abstract void finishResize();
+
+  /**
+   * Move a value within the value storage.
+   *
+   * @param from Source slot
+   * @param to Destination slot
+   */
+  abstract void moveValue(int from, int to);
+
+  /**
+   * Reset a slot to the default value.
+   *
+   * @param slot Slot
+   */
+  abstract void clearValue(int slot);
+
+  /**
+   * Reset all slots to the default value.
+   */
+  abstract void clearValues();
+}
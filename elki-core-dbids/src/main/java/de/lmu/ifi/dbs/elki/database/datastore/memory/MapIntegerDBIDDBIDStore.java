@@ -20,8 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
-import gnu.trove.map.TIntIntMap;
-import gnu.trove.map.hash.TIntIntHashMap;
+import java.util.Arrays;
+
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBID;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDFactory;
@@ -35,11 +35,21 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
  * @author Erich Schubert
  * @since 0.5.0
  */
-public class MapIntegerDBIDDBIDStore implements WritableDBIDDataStore {
+public class MapIntegerDBIDDBIDStore extends AbstractIntegerKeyHashTable implements WritableDBIDDataStore {
   /**
-   * Data storage.
+   * Values.
    */
-  private TIntIntMap map;
+  private int[] values;
+
+  /**
+   * Values during resizing.
+   */
+  private int[] ovalues;
+
+  /**
+   * Default value (invalid DBID).
+   */
+  private final int def = DBIDUtil.asInteger(DBIDUtil.invalid());
 
   /**
    * Constructor.
@@ -47,52 +57,109 @@ public class MapIntegerDBIDDBIDStore implements WritableDBIDDataStore {
    * @param size Expected size
    */
   public MapIntegerDBIDDBIDStore(int size) {
-    super();
-    map = new TIntIntHashMap(size, 0.5f, Integer.MIN_VALUE, DBIDUtil.asInteger(DBIDUtil.invalid()));
+    super(size);
+    values = new int[keys.length];
+    Arrays.fill(values, def);
+  }
+
+  /**
+   * Get the internal value.
+   *
+   * @param id Key
+   * @return Internal value
+   */
+  private int getInternal(DBIDRef id) {
+    final int slot = findSlot(DBIDUtil.asInteger(id));
+    return slot >= 0 ? values[slot] : def;
+  }
+
+  /**
+   * Put the internal value.
+   *
+   * @param id Key
+   * @param value New value
+   * @return Previous value
+   */
+  private int putInternal(DBIDRef id, int value) {
+    final int slot = insertSlot(DBIDUtil.asInteger(id));
+    final int ret = values[slot];
+    values[slot] = value;
+    return ret;
   }
 
   @Override
   @Deprecated
   public DBID get(DBIDRef id) {
-    return DBIDUtil.importInteger(map.get(DBIDUtil.asInteger(id)));
+    return DBIDUtil.importInteger(getInternal(id));
   }
 
   @Override
   @Deprecated
   public DBID put(DBIDRef id, DBID value) {
-    return DBIDUtil.importInteger(map.put(DBIDUtil.asInteger(id), DBIDUtil.asInteger(value)));
+    return DBIDUtil.importInteger(putInternal(id, DBIDUtil.asInteger(value)));
   }
 
   @Override
   public void put(DBIDRef id, DBIDRef value) {
-    map.put(DBIDUtil.asInteger(id), DBIDUtil.asInteger(value));
+    putInternal(id, DBIDUtil.asInteger(value));
   }
 
   @Override
   public void putDBID(DBIDRef id, DBIDRef value) {
-    map.put(DBIDUtil.asInteger(id), DBIDUtil.asInteger(value));
+    putInternal(id, DBIDUtil.asInteger(value));
   }
 
   @Override
   public DBIDVar assignVar(DBIDRef id, DBIDVar var) {
-    final int val = map.get(DBIDUtil.asInteger(id));
-    DBIDFactory.FACTORY.assignVar(var, val);
+    DBIDFactory.FACTORY.assignVar(var, getInternal(id));
     return var;
   }
 
   @Override
   public void delete(DBIDRef id) {
-    map.remove(DBIDUtil.asInteger(id));
+    removeKey(DBIDUtil.asInteger(id));
   }
 
   @Override
   public void destroy() {
-    map.clear();
-    map = null;
+    keys = null;
+    values = null;
   }
 
   @Override
   public void clear() {
-    map.clear();
+    clearKeys();
+  }
+
+  @Override
+  void startResize(int capacity) {
+    ovalues = values;
+    values = new int[capacity];
+    Arrays.fill(values, def);
+  }
+
+  @Override
+  void transfer(int from, int to) {
+    values[to] = ovalues[from];
+  }
+
+  @Override
+  void finishResize() {
+    ovalues = null;
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int slot) {
+    values[slot] = def;
+  }
+
+  @Override
+  void clearValues() {
+    Arrays.fill(values, def);
   }
 }
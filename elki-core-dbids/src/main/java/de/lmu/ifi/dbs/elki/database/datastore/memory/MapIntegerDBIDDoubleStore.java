@@ -20,8 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
-import gnu.trove.map.TIntDoubleMap;
-import gnu.trove.map.hash.TIntDoubleHashMap;
+import java.util.Arrays;
+
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
@@ -32,11 +32,21 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
  * @author Erich Schubert
  * @since 0.5.0
  */
-public class MapIntegerDBIDDoubleStore implements WritableDoubleDataStore {
+public class MapIntegerDBIDDoubleStore extends AbstractIntegerKeyHashTable implements WritableDoubleDataStore {
+  /**
+   * Values.
+   */
+  private double[] values;
+
+  /**
+   * Values during resizing.
+   */
+  private double[] ovalues;
+
   /**
-   * Data storage.
+   * Default value.
    */
-  private TIntDoubleMap map;
+  private final double def;
 
   /**
    * Constructor.
@@ -54,55 +64,98 @@ public class MapIntegerDBIDDoubleStore implements WritableDoubleDataStore {
    * @param def Default value
    */
   public MapIntegerDBIDDoubleStore(int size, double def) {
-    super();
-    map = new TIntDoubleHashMap(size, 0.5f, Integer.MIN_VALUE, def);
+    super(size);
+    this.def = def;
+    this.values = new double[keys.length];
+    if(def != 0.) {
+      Arrays.fill(values, def);
+    }
   }
 
   @Override
   @Deprecated
   public Double get(DBIDRef id) {
-    return Double.valueOf(map.get(DBIDUtil.asInteger(id)));
+    return Double.valueOf(doubleValue(id));
   }
 
   @Override
   public double doubleValue(DBIDRef id) {
-    return map.get(DBIDUtil.asInteger(id));
+    final int slot = findSlot(DBIDUtil.asInteger(id));
+    return slot >= 0 ? values[slot] : def;
   }
 
   @Override
   @Deprecated
   public Double put(DBIDRef id, Double value) {
-    return Double.valueOf(map.put(DBIDUtil.asInteger(id), value.doubleValue()));
+    return Double.valueOf(putDouble(id, value.doubleValue()));
   }
 
   @Override
   public void delete(DBIDRef id) {
-    map.remove(DBIDUtil.asInteger(id));
+    removeKey(DBIDUtil.asInteger(id));
   }
 
   @Override
   public double putDouble(DBIDRef id, double value) {
-    return map.put(DBIDUtil.asInteger(id), value);
+    final int slot = insertSlot(DBIDUtil.asInteger(id));
+    final double ret = values[slot];
+    values[slot] = value;
+    return ret;
   }
 
   @Override
   public double put(DBIDRef id, double value) {
-    return map.put(DBIDUtil.asInteger(id), value);
+    return putDouble(id, value);
   }
 
   @Override
   public void increment(DBIDRef id, double value) {
-    map.adjustOrPutValue(DBIDUtil.asInteger(id), value, map.getNoEntryValue() + value);
+    final int slot = insertSlot(DBIDUtil.asInteger(id)); // May resize!
+    values[slot] += value;
   }
 
   @Override
   public void clear() {
-    map.clear();
+    clearKeys();
   }
 
   @Override
   public void destroy() {
-    map.clear();
-    map = null;
+    keys = null;
+    values = null;
+  }
+
+  @Override
+  void startResize(int capacity) {
+    ovalues = values;
+    values = new double[capacity];
+    if(def != 0.) {
+      Arrays.fill(values, def);
+    }
+  }
+
+  @Override
+  void transfer(int from, int to) {
+    values[to] = ovalues[from];
+  }
+
+  @Override
+  void finishResize() {
+    ovalues = null;
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int slot) {
+    values[slot] = def;
+  }
+
+  @Override
+  void clearValues() {
+    Arrays.fill(values, def);
   }
 }
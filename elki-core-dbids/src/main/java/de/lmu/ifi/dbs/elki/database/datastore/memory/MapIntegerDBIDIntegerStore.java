@@ -20,8 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
-import gnu.trove.map.TIntIntMap;
-import gnu.trove.map.hash.TIntIntHashMap;
+import java.util.Arrays;
+
 import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
@@ -32,11 +32,21 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
  * @author Erich Schubert
  * @since 0.5.0
  */
-public class MapIntegerDBIDIntegerStore implements WritableIntegerDataStore {
+public class MapIntegerDBIDIntegerStore extends AbstractIntegerKeyHashTable implements WritableIntegerDataStore {
+  /**
+   * Values.
+   */
+  private int[] values;
+
+  /**
+   * Values during resizing.
+   */
+  private int[] ovalues;
+
   /**
-   * Data storage.
+   * Default value.
    */
-  private TIntIntMap map;
+  private final int def;
 
   /**
    * Constructor.
@@ -54,55 +64,98 @@ public class MapIntegerDBIDIntegerStore implements WritableIntegerDataStore {
    * @param def Default value
    */
   public MapIntegerDBIDIntegerStore(int size, int def) {
-    super();
-    map = new TIntIntHashMap(size, 0.5f, Integer.MIN_VALUE, def);
+    super(size);
+    this.def = def;
+    this.values = new int[keys.length];
+    if(def != 0) {
+      Arrays.fill(values, def);
+    }
   }
 
   @Override
   @Deprecated
   public Integer get(DBIDRef id) {
-    return Integer.valueOf(map.get(DBIDUtil.asInteger(id)));
+    return Integer.valueOf(intValue(id));
   }
 
   @Override
   public int intValue(DBIDRef id) {
-    return map.get(DBIDUtil.asInteger(id));
+    final int slot = findSlot(DBIDUtil.asInteger(id));
+    return slot >= 0 ? values[slot] : def;
   }
 
   @Override
   @Deprecated
   public Integer put(DBIDRef id, Integer value) {
-    return Integer.valueOf(map.put(DBIDUtil.asInteger(id), value.intValue()));
+    return Integer.valueOf(putInt(id, value.intValue()));
   }
 
   @Override
   public void destroy() {
-    map.clear();
-    map = null;
+    keys = null;
+    values = null;
   }
 
   @Override
   public void delete(DBIDRef id) {
-    map.remove(DBIDUtil.asInteger(id));
+    removeKey(DBIDUtil.asInteger(id));
   }
 
   @Override
   public int putInt(DBIDRef id, int value) {
-    return map.put(DBIDUtil.asInteger(id), value);
+    final int slot = insertSlot(DBIDUtil.asInteger(id));
+    final int ret = values[slot];
+    values[slot] = value;
+    return ret;
   }
 
   @Override
   public int put(DBIDRef id, int value) {
-    return map.put(DBIDUtil.asInteger(id), value);
+    return putInt(id, value);
   }
 
   @Override
   public void increment(DBIDRef id, int adjust) {
-    map.adjustOrPutValue(DBIDUtil.asInteger(id), adjust, adjust);
+    final int slot = insertSlot(DBIDUtil.asInteger(id)); // May resize!
+    values[slot] += adjust;
   }
 
   @Override
   public void clear() {
-    map.clear();
+    clearKeys();
+  }
+
+  @Override
+  void startResize(int capacity) {
+    ovalues = values;
+    values = new int[capacity];
+    if(def != 0) {
+      Arrays.fill(values, def);
+    }
+  }
+
+  @Override
+  void transfer(int from, int to) {
+    values[to] = ovalues[from];
+  }
+
+  @Override
+  void finishResize() {
+    ovalues = null;
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int slot) {
+    values[slot] = def;
+  }
+
+  @Override
+  void clearValues() {
+    Arrays.fill(values, def);
   }
 }
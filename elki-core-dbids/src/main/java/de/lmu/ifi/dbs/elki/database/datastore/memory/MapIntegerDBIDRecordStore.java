@@ -20,8 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
+import java.util.Arrays;
+
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableRecordStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
@@ -36,28 +36,21 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
  *
  * @apiviz.has MapIntegerDBIDRecordStore.StorageAccessor oneway - - projectsTo
  */
-public class MapIntegerDBIDRecordStore implements WritableRecordStore {
+public class MapIntegerDBIDRecordStore extends AbstractIntegerKeyHashTable implements WritableRecordStore {
   /**
    * Record length.
    */
   private final int rlen;
 
   /**
-   * Storage Map.
+   * Records.
    */
-  private final TIntObjectMap<Object[]> data;
+  private Object[][] values;
 
   /**
-   * Constructor with existing data.
-   *
-   * @param rlen Number of columns (record length)
-   * @param data Existing data map
+   * Records during resizing.
    */
-  public MapIntegerDBIDRecordStore(int rlen, TIntObjectMap<Object[]> data) {
-    super();
-    this.rlen = rlen;
-    this.data = data;
-  }
+  private Object[][] ovalues;
 
   /**
    * Constructor without existing data.
@@ -65,7 +58,7 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
    * @param rlen Number of columns (record length)
    */
   public MapIntegerDBIDRecordStore(int rlen) {
-    this(rlen, new TIntObjectHashMap<Object[]>());
+    this(0, rlen);
   }
 
   /**
@@ -75,7 +68,9 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
    * @param rlen Number of columns (record length)
    */
   public MapIntegerDBIDRecordStore(int size, int rlen) {
-    this(rlen, new TIntObjectHashMap<Object[]>(size));
+    super(size);
+    this.rlen = rlen;
+    this.values = new Object[keys.length][];
   }
 
   @Override
@@ -94,11 +89,8 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
    */
   @SuppressWarnings("unchecked")
   protected <T> T get(DBIDRef id, int index) {
-    Object[] d = data.get(DBIDUtil.asInteger(id));
-    if (d == null) {
-      return null;
-    }
-    return (T) d[index];
+    final int slot = findSlot(DBIDUtil.asInteger(id));
+    return slot >= 0 ? (T) values[slot][index] : null;
   }
 
   /**
@@ -112,10 +104,10 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
    */
   @SuppressWarnings("unchecked")
   protected <T> T set(DBIDRef id, int index, T value) {
-    Object[] d = data.get(DBIDUtil.asInteger(id));
-    if (d == null) {
-      d = new Object[rlen];
-      data.put(DBIDUtil.asInteger(id), d);
+    final int slot = insertSlot(DBIDUtil.asInteger(id));
+    Object[] d = values[slot];
+    if(d == null) {
+      d = values[slot] = new Object[rlen];
     }
     T ret = (T) d[index];
     d[index] = value;
@@ -174,6 +166,37 @@ public class MapIntegerDBIDRecordStore implements WritableRecordStore {
 
   @Override
   public boolean remove(DBIDRef id) {
-    return data.remove(DBIDUtil.asInteger(id)) != null;
+    return removeKey(DBIDUtil.asInteger(id)) >= 0;
+  }
+
+  @Override
+  void startResize(int capacity) {
+    ovalues = values;
+    values = new Object[capacity][];
+  }
+
+  @Override
+  void transfer(int from, int to) {
+    values[to] = ovalues[from];
+  }
+
+  @Override
+  void finishResize() {
+    ovalues = null;
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int slot) {
+    values[slot] = null;
+  }
+
+  @Override
+  void clearValues() {
+    Arrays.fill(values, null);
   }
 }
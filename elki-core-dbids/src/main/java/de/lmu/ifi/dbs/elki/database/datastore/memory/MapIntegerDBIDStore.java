@@ -20,43 +20,37 @@
  */
 package de.lmu.ifi.dbs.elki.database.datastore.memory;
 
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
+import java.util.Arrays;
+
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 
 /**
- * A class to answer representation queries using a map. Basically, it is just a
- * wrapper around a regular map.
+ * A class to answer representation queries using an open addressing hash map
+ * with integer keys.
  *
  * @author Erich Schubert
  * @since 0.4.0
  *
  * @param <T> Representation object type
  */
-public class MapIntegerDBIDStore<T> implements WritableDataStore<T> {
+public class MapIntegerDBIDStore<T> extends AbstractIntegerKeyHashTable implements WritableDataStore<T> {
   /**
-   * Storage Map.
+   * Values.
    */
-  private TIntObjectMap<T> data;
+  private Object[] values;
 
   /**
-   * Constructor.
-   *
-   * @param data Existing map
+   * Values during resizing.
    */
-  public MapIntegerDBIDStore(TIntObjectMap<T> data) {
-    super();
-    this.data = data;
-  }
+  private Object[] ovalues;
 
   /**
    * Constructor.
    */
   public MapIntegerDBIDStore() {
-    super();
-    this.data = new TIntObjectHashMap<>();
+    this(0);
   }
 
   /**
@@ -65,34 +59,79 @@ public class MapIntegerDBIDStore<T> implements WritableDataStore<T> {
    * @param size Expected size
    */
   public MapIntegerDBIDStore(int size) {
-    this.data = new TIntObjectHashMap<>(size);
+    super(size);
+    this.values = new Object[keys.length];
   }
 
+  @SuppressWarnings("unchecked")
   @Override
   public T get(DBIDRef id) {
-    return data.get(DBIDUtil.asInteger(id));
+    final int slot = findSlot(DBIDUtil.asInteger(id));
+    return slot >= 0 ? (T) values[slot] : null;
   }
 
+  @SuppressWarnings("unchecked")
   @Override
   public T put(DBIDRef id, T value) {
     if(value == null) {
-      return data.remove(DBIDUtil.asInteger(id));
+      final int slot = findSlot(DBIDUtil.asInteger(id));
+      if(slot < 0) {
+        return null;
+      }
+      T ret = (T) values[slot];
+      removeKey(DBIDUtil.asInteger(id));
+      return ret;
     }
-    return data.put(DBIDUtil.asInteger(id), value);
+    final int slot = insertSlot(DBIDUtil.asInteger(id));
+    T ret = (T) values[slot];
+    values[slot] = value;
+    return ret;
   }
 
   @Override
   public void destroy() {
-    data = null;
+    keys = null;
+    values = null;
   }
 
   @Override
   public void delete(DBIDRef id) {
-    data.remove(DBIDUtil.asInteger(id));
+    removeKey(DBIDUtil.asInteger(id));
   }
 
   @Override
   public void clear() {
-    data.clear();
+    clearKeys();
+  }
+
+  @Override
+  void startResize(int capacity) {
+    ovalues = values;
+    values = new Object[capacity];
+  }
+
+  @Override
+  void transfer(int from, int to) {
+    values[to] = ovalues[from];
+  }
+
+  @Override
+  void finishResize() {
+    ovalues = null;
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int slot) {
+    values[slot] = null;
+  }
+
+  @Override
+  void clearValues() {
+    Arrays.fill(values, null);
   }
-}
\ No newline at end of file
+}
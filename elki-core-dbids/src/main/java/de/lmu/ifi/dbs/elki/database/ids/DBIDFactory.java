@@ -178,6 +178,24 @@ public interface DBIDFactory {
    */
   HashSetModifiableDBIDs newHashSet(DBIDs existing);
 
+  /**
+   * Make a new (modifiable), empty hash set for DBIDs from the given domain.
+   *
+   * If the domain is a contiguous range, a dense bitset can be used.
+   *
+   * @param domain DBIDs the set elements will be taken from
+   * @return New hash set
+   */
+  HashSetModifiableDBIDs newDomainHashSet(DBIDs domain);
+
+  /**
+   * Make a sorted, compressed and immutable copy of the given DBIDs.
+   *
+   * @param existing Existing DBIDs
+   * @return Compressed array
+   */
+  ArrayStaticDBIDs newCompressedArray(DBIDs existing);
+
   /**
    * Create an heap for kNN search.
    *
@@ -282,6 +282,34 @@ public final class DBIDUtil {
     return DBIDFactory.FACTORY.newHashSet(existing);
   }
 
+  /**
+   * Make a new (modifiable), empty hash set for DBIDs from the given domain.
+   *
+   * For DBIDs from a {@link DBIDRange}, as used by static databases, this will
+   * be a dense bitset, which avoids hashing.
+   *
+   * @param domain DBIDs the set elements will be taken from
+   * @return New hash set
+   */
+  public static HashSetModifiableDBIDs newDomainHashSet(DBIDs domain) {
+    return DBIDFactory.FACTORY.newDomainHashSet(domain);
+  }
+
+  /**
+   * Make a sorted, compressed and immutable copy of the given DBIDs.
+   *
+   * This is much more compact than an array for large or dense sets, such as
+   * cluster members or neighborhoods that need to be kept in memory. Iteration
+   * is sequential in the sorted order; random access is slower than with a
+   * plain array.
+   *
+   * @param existing Existing DBIDs
+   * @return Compressed array
+   */
+  public static ArrayStaticDBIDs compressedArray(DBIDs existing) {
+    return DBIDFactory.FACTORY.newCompressedArray(existing);
+  }
+
   /**
    * Compute the set intersection of two sets.
    *
@@ -432,6 +460,25 @@ public final class DBIDUtil {
     }
   }
 
+  /**
+   * Ensure that the given DBIDs are an array in ascending DBID order, e.g.,
+   * for addressing data structures by offset.
+   *
+   * A {@link DBIDRange} is already sorted and returned as is; otherwise a
+   * sorted copy is made.
+   *
+   * @param ids IDs
+   * @return Sorted array DBIDs.
+   */
+  public static ArrayDBIDs ensureSorted(DBIDs ids) {
+    if(ids instanceof DBIDRange) {
+      return (DBIDRange) ids;
+    }
+    ArrayModifiableDBIDs sorted = newArray(ids);
+    sorted.sort();
+    return sorted;
+  }
+
   /**
    * Ensure that the given DBIDs support fast "contains" operations.
    *
@@ -0,0 +1,218 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.datastore.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the open addressing hash table used by the map data stores.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class AbstractIntegerKeyHashTableTest {
+  @Test
+  public void testInsertRemove() {
+    IntTable t = new IntTable(10);
+    for(int i = 0; i < 100; i++) {
+      t.put(i, i * 2);
+    }
+    assertEquals("Size does not match.", 100, t.size);
+    for(int i = 0; i < 100; i += 2) {
+      assertEquals("Removal failed.", i * 2, t.remove(i));
+    }
+    assertEquals("Size does not match.", 50, t.size);
+    assertEquals("Removing a missing key.", -1, t.remove(0));
+    for(int i = 0; i < 100; i++) {
+      assertEquals("Value does not match.", (i & 1) == 0 ? -1 : i * 2, t.get(i));
+    }
+    // Re-insert with new values.
+    for(int i = 0; i < 100; i += 2) {
+      t.put(i, i * 3);
+    }
+    assertEquals("Size does not match.", 100, t.size);
+    for(int i = 0; i < 100; i++) {
+      assertEquals("Value does not match.", (i & 1) == 0 ? i * 3 : i * 2, t.get(i));
+    }
+  }
+
+  @Test
+  public void testWrapAround() {
+    IntTable t = new IntTable(3);
+    assertEquals("Unexpected capacity.", 8, t.keys.length);
+    // Find three keys that all hash to the last slot.
+    int[] wrap = new int[3];
+    for(int k = 0, n = 0; n < wrap.length; k++) {
+      if(t.home(k) == t.keys.length - 1) {
+        wrap[n++] = k;
+      }
+    }
+    for(int k : wrap) {
+      t.put(k, k);
+    }
+    assertEquals("Key not in home slot.", 7, t.findSlot(wrap[0]));
+    assertEquals("Key did not wrap around.", 0, t.findSlot(wrap[1]));
+    assertEquals("Key did not wrap around.", 1, t.findSlot(wrap[2]));
+    // Removal must shift back the wrapped entries.
+    t.remove(wrap[0]);
+    assertEquals("Key not shifted back.", 7, t.findSlot(wrap[1]));
+    assertEquals("Key not shifted back.", 0, t.findSlot(wrap[2]));
+    assertEquals("Slot not freed.", AbstractIntegerKeyHashTable.FREE, t.keys[1]);
+    assertEquals("Value does not match.", wrap[2], t.get(wrap[2]));
+    t.remove(wrap[1]);
+    assertEquals("Key not shifted back.", 7, t.findSlot(wrap[2]));
+    assertEquals("Value does not match.", wrap[2], t.get(wrap[2]));
+    assertEquals("Size does not match.", 1, t.size);
+  }
+
+  @Test
+  public void testResize() {
+    IntTable t = new IntTable(1);
+    for(int i = 0; i < 10000; i++) {
+      t.put(i * 7, i);
+      assertTrue("Load factor too high.", t.size * 2 <= t.keys.length);
+    }
+    for(int i = 0; i < 10000; i++) {
+      assertEquals("Value lost during resize.", i, t.get(i * 7));
+    }
+    t.clearKeys();
+    assertEquals("Table not empty.", 0, t.size);
+    assertEquals("Table not empty.", -1, t.get(7));
+  }
+
+  @Test
+  public void testRandomized() {
+    Random r = new Random(0L);
+    IntTable t = new IntTable(16);
+    Map<Integer, Integer> ref = new HashMap<>();
+    for(int i = 0; i < 100000; i++) {
+      // Mix of small and large keys, to also produce collisions.
+      final int k = r.nextBoolean() ? r.nextInt(1000) : r.nextInt(1000) << 20;
+      if(r.nextInt(3) == 0) {
+        Integer v = ref.remove(k);
+        assertEquals("Removal does not match.", v == null ? -1 : v.intValue(), t.remove(k));
+      }
+      else {
+        ref.put(k, i);
+        t.put(k, i);
+      }
+      assertEquals("Size does not match.", ref.size(), t.size);
+    }
+    for(int k = 0; k < 1000; k++) {
+      Integer v = ref.get(k);
+      assertEquals("Value does not match.", v == null ? -1 : v.intValue(), t.get(k));
+      v = ref.get(k << 20);
+      assertEquals("Value does not match.", v == null ? -1 : v.intValue(), t.get(k << 20));
+    }
+  }
+
+  /**
+   * Consecutive keys must not form one long probing run; otherwise removing
+   * keys in ascending order takes quadratic time.
+   */
+  @Test(timeout = 10000)
+  public void testAscendingRemoval() {
+    final int n = 1 << 20;
+    IntTable t = new IntTable(n);
+    for(int i = 0; i < n; i++) {
+      t.put(i, i);
+    }
+    for(int i = 0; i < n; i++) {
+      assertEquals("Unsuccessful lookup.", -1, t.get(n + i));
+    }
+    for(int i = 0; i < n; i++) {
+      assertEquals("Removal failed.", i, t.remove(i));
+    }
+    assertEquals("Table not empty.", 0, t.size);
+  }
+
+  /**
+   * Minimal table storing integer values, -1 for missing keys.
+   *
+   * @author Erich Schubert
+   */
+  private static class IntTable extends AbstractIntegerKeyHashTable {
+    int[] values, ovalues;
+
+    IntTable(int expected) {
+      super(expected);
+      values = new int[keys.length];
+      Arrays.fill(values, -1);
+    }
+
+    int get(int key) {
+      final int slot = findSlot(key);
+      return slot >= 0 ? values[slot] : -1;
+    }
+
+    void put(int key, int value) {
+      final int slot = insertSlot(key); // May resize!
+      values[slot] = value;
+    }
+
+    int remove(int key) {
+      final int slot = findSlot(key);
+      final int ret = slot >= 0 ? values[slot] : -1;
+      removeKey(key);
+      return ret;
+    }
+
+    @Override
+    void startResize(int capacity) {
+      ovalues = values;
+      values = new int[capacity];
+      Arrays.fill(values, -1);
+    }
+
+    @Override
+    void transfer(int from, int to) {
+      values[to] = ovalues[from];
+    }
+
+    @Override
+    void finishResize() {
+      ovalues = null;
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+      values[to] = values[from];
+    }
+
+    @Override
+    void clearValue(int slot) {
+      values[slot] = -1;
+    }
+
+    @Override
+    void clearValues() {
+      Arrays.fill(values, -1);
+    }
+  }
+}
@@ -83,6 +83,22 @@ public class HistogramMatchDistanceFunction extends AbstractNumberVectorDistance
     return agg;
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
+    final int dim = dimensionality(v1, v2);
+    double xs = 0., ys = 0., agg = 0.;
+    for(int i = 0; i < dim; i++) {
+      xs += v1.doubleValue(i);
+      ys += v2.doubleValue(i);
+      agg += Math.abs(xs - ys);
+      // Early abandoning, once the cutoff is exceeded:
+      if(agg > cutoff) {
+        return agg;
+      }
+    }
+    return agg;
+  }
+
   @Override
   public double minDist(SpatialComparable mbr1, SpatialComparable mbr2) {
     final int dim = dimensionality(mbr1, mbr2);
@@ -62,6 +62,23 @@ public class KolmogorovSmirnovDistanceFunction extends AbstractNumberVectorDista
     return agg;
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
+    final int dim = dimensionality(v1, v2);
+    double xs = 0., ys = 0., agg = 0.;
+    for(int i = 0; i < dim; i++) {
+      xs += v1.doubleValue(i);
+      ys += v2.doubleValue(i);
+      double diff = Math.abs(xs - ys);
+      // Early abandoning, once the cutoff is exceeded:
+      if(diff > cutoff) {
+        return diff;
+      }
+      agg = diff < agg ? agg : diff;
+    }
+    return agg;
+  }
+
   @Override
   public String toString() {
     return "KolmogorovSmirnovDistanceFunction";
@@ -119,6 +119,32 @@ public class EuclideanDistanceFunction extends LPIntegerNormDistanceFunction {
     return FastMath.sqrt(agg);
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = (dim1 < dim2) ? dim1 : dim2;
+    final double cut = cutoff > 0. ? cutoff * cutoff : 0.;
+    double agg = 0.;
+    for(int d = 0; d < mindim; d++) {
+      final double delta = v1.doubleValue(d) - v2.doubleValue(d);
+      agg += delta * delta;
+      // Early abandoning, once the cutoff is exceeded:
+      if(agg > cut) {
+        final double partial = FastMath.sqrt(agg);
+        if(partial > cutoff) {
+          return partial;
+        }
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return FastMath.sqrt(agg);
+  }
+
   @Override
   public double norm(NumberVector v) {
     return FastMath.sqrt(preNorm(v, 0, v.getDimensionality()));
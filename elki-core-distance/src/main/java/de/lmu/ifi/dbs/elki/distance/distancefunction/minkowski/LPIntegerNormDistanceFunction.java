@@ -133,6 +133,33 @@ public class LPIntegerNormDistanceFunction extends LPNormDistanceFunction {
     return FastMath.pow(agg, invp);
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = (dim1 < dim2) ? dim1 : dim2;
+    final double cut = cutoff > 0. ? MathUtil.powi(cutoff, intp) : 0.;
+    double agg = 0.;
+    for(int d = 0; d < mindim; d++) {
+      final double xd = v1.doubleValue(d), yd = v2.doubleValue(d);
+      final double delta = (xd >= yd) ? xd - yd : yd - xd;
+      agg += MathUtil.powi(delta, intp);
+      // Early abandoning, once the cutoff is exceeded:
+      if(agg > cut) {
+        final double partial = FastMath.pow(agg, invp);
+        if(partial > cutoff) {
+          return partial;
+        }
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return FastMath.pow(agg, invp);
+  }
+
   @Override
   public double norm(NumberVector v) {
     return FastMath.pow(preNorm(v, 0, v.getDimensionality()), invp);
@@ -140,6 +140,28 @@ public class SquaredEuclideanDistanceFunction extends AbstractNumberVectorDistan
     return agg;
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
+    final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
+    final int mindim = (dim1 < dim2) ? dim1 : dim2;
+    double agg = 0.;
+    for(int d = 0; d < mindim; d++) {
+      final double delta = v1.doubleValue(d) - v2.doubleValue(d);
+      agg += delta * delta;
+      // Early abandoning, once the cutoff is exceeded:
+      if(agg > cutoff) {
+        return agg;
+      }
+    }
+    if(dim1 > mindim) {
+      agg += preNorm(v1, mindim, dim1);
+    }
+    else if(dim2 > mindim) {
+      agg += preNorm(v2, mindim, dim2);
+    }
+    return agg;
+  }
+
   /**
    * Special version for double arrays.
    */
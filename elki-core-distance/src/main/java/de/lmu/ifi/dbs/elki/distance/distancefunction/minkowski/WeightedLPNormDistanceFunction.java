@@ -127,6 +127,12 @@ public class WeightedLPNormDistanceFunction extends LPNormDistanceFunction imple
     return FastMath.pow(agg, invp);
   }
 
+  @Override
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
+    // Do not inherit the unweighted early abandoning version.
+    return distance(v1, v2);
+  }
+
   @Override
   public double norm(NumberVector v) {
     return FastMath.pow(preNorm(v, 0, v.getDimensionality()), invp);
@@ -67,7 +67,7 @@ public class EDRDistanceFunction extends DTWDistanceFunction {
   }
 
   @Override
-  public double distance(NumberVector v1, NumberVector v2) {
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
     // Dimensionality, and last valid value in second vector:
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     final int m2 = dim2 - 1;
@@ -91,6 +91,7 @@ public class EDRDistanceFunction extends DTWDistanceFunction {
     int i = 1, l = 0, r = Math.min(m2, i + band);
     while(i < dim1) {
       final double val1 = v1.doubleValue(i);
+      double rmin = Double.POSITIVE_INFINITY;
       for(int j = l; j <= r; j++) {
         // Value in previous row (must exist, may be infinite):
         double min = buf[cur + j];
@@ -106,6 +107,11 @@ public class EDRDistanceFunction extends DTWDistanceFunction {
         }
         // Write:
         buf[nxt + j] = min + delta(val1, v2.doubleValue(j));
+        rmin = (buf[nxt + j] < rmin) ? buf[nxt + j] : rmin;
+      }
+      // Early abandoning: the row minimum is a lower bound of the result.
+      if(rmin > cutoff) {
+        return rmin;
       }
       // Swap buffer positions:
       cur = dim2 - cur;
@@ -67,7 +67,7 @@ public class ERPDistanceFunction extends DTWDistanceFunction {
   }
 
   @Override
-  public double distance(NumberVector v1, NumberVector v2) {
+  public double distance(NumberVector v1, NumberVector v2, double cutoff) {
     // Dimensionality, and last valid value in second vector:
     final int dim1 = v1.getDimensionality(), dim2 = v2.getDimensionality();
     final int m2 = dim2 - 1;
@@ -85,12 +85,16 @@ public class ERPDistanceFunction extends DTWDistanceFunction {
     // Fill first row:
     firstRow(buf, band, v1, v2, dim2);
 
+    // Cutoff on the squared distances:
+    final double cut = cutoff > 0. ? cutoff * cutoff : 0.;
+
     // Active buffer offsets (cur = read, nxt = write)
     int cur = 0, nxt = dim2;
     // Fill remaining rows:
     int i = 1, l = 0, r = Math.min(m2, i + band);
     while(i < dim1) {
       final double val1 = v1.doubleValue(i);
+      double rmin = Double.POSITIVE_INFINITY;
       for(int j = l; j <= r; j++) {
         // Value in previous row (must exist, may be infinite):
         double min = buf[cur + j] + delta(val1, g);
@@ -106,6 +110,14 @@ public class ERPDistanceFunction extends DTWDistanceFunction {
         }
         // Write:
         buf[nxt + j] = min;
+        rmin = (buf[nxt + j] < rmin) ? buf[nxt + j] : rmin;
+      }
+      // Early abandoning: the row minimum is a lower bound of the result.
+      if(rmin > cut) {
+        final double partial = FastMath.sqrt(rmin);
+        if(partial > cutoff) {
+          return partial;
+        }
       }
       // Swap buffer positions:
       cur = dim2 - cur;
@@ -0,0 +1,104 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.distance.distancefunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.histogram.HistogramMatchDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.histogram.KolmogorovSmirnovDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.LPIntegerNormDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.LPNormDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.ManhattanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.MaximumDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.WeightedEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.timeseries.DTWDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.timeseries.EDRDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.timeseries.ERPDistanceFunction;
+
+/**
+ * Validate the early abandoning distance computations: distances within the
+ * cutoff must be exact, all others must exceed the cutoff.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class PrimitiveDistanceFunctionCutoffTest {
+  @Test
+  public void testCutoffConsistency() {
+    final Random rnd = new Random(0);
+    final int dim = 40;
+    final int iters = 1000;
+
+    double[] weights = new double[dim];
+    for(int d = 0; d < dim; d++) {
+      weights[d] = rnd.nextDouble();
+    }
+    List<PrimitiveDistanceFunction<? super NumberVector>> dists = new ArrayList<>();
+    dists.add(EuclideanDistanceFunction.STATIC);
+    dists.add(ManhattanDistanceFunction.STATIC);
+    dists.add(MaximumDistanceFunction.STATIC);
+    dists.add(SquaredEuclideanDistanceFunction.STATIC);
+    dists.add(new LPIntegerNormDistanceFunction(3));
+    dists.add(new LPNormDistanceFunction(.5));
+    dists.add(new WeightedEuclideanDistanceFunction(weights));
+    dists.add(HistogramMatchDistanceFunction.STATIC);
+    dists.add(KolmogorovSmirnovDistanceFunction.STATIC);
+    dists.add(new DTWDistanceFunction());
+    dists.add(new DTWDistanceFunction(.1));
+    dists.add(new EDRDistanceFunction(Double.POSITIVE_INFINITY, .2));
+    dists.add(new ERPDistanceFunction(Double.POSITIVE_INFINITY, 0.));
+
+    double[] d1 = new double[dim], d2 = new double[dim];
+    DoubleVector v1 = DoubleVector.wrap(d1), v2 = DoubleVector.wrap(d2);
+    for(int i = 0; i < iters; i++) {
+      for(int d = 0; d < dim; d++) {
+        d1[d] = rnd.nextDouble();
+        d2[d] = rnd.nextDouble();
+      }
+      for(PrimitiveDistanceFunction<? super NumberVector> dis : dists) {
+        final double exact = dis.distance(v1, v2);
+        // Cutoffs below, at and above the exact distance:
+        for(double f : new double[] { 0., .3, .9, 1., 1.1, Double.POSITIVE_INFINITY }) {
+          final double cutoff = exact * f;
+          final double cut = dis.distance(v1, v2, cutoff);
+          if(exact <= cutoff) {
+            assertEquals("Not exact within cutoff: " + dis.toString(), exact, cut, 0.);
+          }
+          else {
+            assertTrue("Not above cutoff: " + dis.toString() + " " + cut + " <= " + cutoff, cut > cutoff);
+            assertTrue("Not a lower bound: " + dis.toString() + " " + cut + " > " + exact, cut <= exact);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Run a task on blocks of an integer range, using {@link ParallelCore}.
+ *
+ * Used for the embarrassingly parallel parts of algorithms that address their
+ * objects by offset, such as the initialization of a distance matrix, or the
+ * processing of grid cells. Small ranges are processed on the calling thread,
+ * as the task overhead would dominate.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.uses ParallelCore
+ */
+public final class ParallelRanges {
+  /**
+   * Number of tasks per thread, for load balancing.
+   */
+  private static final int TASKS_PER_THREAD = 4;
+
+  /**
+   * Private constructor. Static methods only.
+   */
+  private ParallelRanges() {
+    // Do not use.
+  }
+
+  /**
+   * Task processing a range of indexes.
+   *
+   * @author Erich Schubert
+   */
+  @FunctionalInterface
+  public interface RangeTask {
+    /**
+     * Process the indexes start (inclusive) to end (exclusive).
+     *
+     * @param start Start index
+     * @param end End index
+     */
+    void run(int start, int end);
+  }
+
+  /**
+   * Process the range [start, end) in equally sized blocks.
+   *
+   * @param start Start index
+   * @param end End index (exclusive)
+   * @param minsize Minimum block size
+   * @param task Task to run
+   */
+  public static void run(int start, int end, int minsize, RangeTask task) {
+    final ParallelCore core = ParallelCore.getCore();
+    final int parallelism = core.getParallelism();
+    final int numtasks = Math.min(parallelism * TASKS_PER_THREAD, (end - start) / minsize);
+    if(parallelism <= 1 || numtasks <= 1) {
+      task.run(start, end);
+      return;
+    }
+    int[] bounds = new int[numtasks + 1];
+    for(int i = 0; i <= numtasks; i++) {
+      bounds[i] = start + (int) ((end - start) * (long) i / numtasks);
+    }
+    run(core, bounds, task);
+  }
+
+  /**
+   * Process the rows [0, size) of a lower triangular matrix, where row x has
+   * x entries. Blocks are chosen to contain about the same number of entries.
+   *
+   * @param size Number of rows
+   * @param minsize Minimum number of entries per block
+   * @param task Task to run
+   */
+  public static void runTriangle(int size, int minsize, RangeTask task) {
+    final ParallelCore core = ParallelCore.getCore();
+    final long total = (((long) size) * (size - 1)) >>> 1;
+    final int parallelism = core.getParallelism();
+    final int numtasks = (int) Math.min(parallelism * TASKS_PER_THREAD, total / minsize);
+    if(parallelism <= 1 || numtasks <= 1) {
+      task.run(0, size);
+      return;
+    }
+    // Row r starts at entry r*(r-1)/2, so boundaries grow with the square root.
+    int[] bounds = new int[numtasks + 1];
+    for(int i = 1; i < numtasks; i++) {
+      bounds[i] = Math.max(bounds[i - 1], (int) Math.ceil(size * Math.sqrt(i / (double) numtasks)));
+    }
+    bounds[numtasks] = size;
+    run(core, bounds, task);
+  }
+
+  /**
+   * Run the blocks in parallel.
+   *
+   * @param core Parallel core
+   * @param bounds Block boundaries
+   * @param task Task to run
+   */
+  private static void run(ParallelCore core, int[] bounds, RangeTask task) {
+    core.connect();
+    try {
+      List<Future<Void>> futures = new ArrayList<>(bounds.length - 1);
+      for(int i = 1; i < bounds.length; i++) {
+        final int start = bounds[i - 1], end = bounds[i];
+        if(start < end) {
+          futures.add(core.submit(() -> {
+            task.run(start, end);
+            return null;
+          }));
+        }
+      }
+      for(Future<Void> fut : futures) {
+        fut.get();
+      }
+    }
+    catch(ExecutionException e) {
+      throw new RuntimeException("Processor execution failed.", e);
+    }
+    catch(InterruptedException e) {
+      throw new RuntimeException("Parallel execution interrupted.");
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+}
@@ -87,6 +87,18 @@ public class ParallelCore {
     return executor != null ? executor.getMaximumPoolSize() : processors;
   }
 
+  /**
+   * Test whether the current thread is a worker of the executor.
+   * <p>
+   * Tasks running on a worker must not wait for other tasks submitted to the
+   * executor, as all workers may be blocked this way.
+   *
+   * @return {@code true} when called from a worker thread
+   */
+  public static boolean isWorkerThread() {
+    return Thread.currentThread() instanceof Worker;
+  }
+
   /**
    * Submit a task to the executor core.
    * 
@@ -105,7 +117,7 @@ public class ParallelCore {
     if(executor == null) {
       synchronized(this) {
         if(executor == null) {
-          executor = new ThreadPoolExecutor(0, processors, 10L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+          executor = new ThreadPoolExecutor(0, processors, 10L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), Worker::new);
           executor.allowCoreThreadTimeOut(true);
         }
       }
@@ -129,4 +141,23 @@ public class ParallelCore {
       }
     }
   }
+
+  /**
+   * Worker thread, to recognize nested parallel execution.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class Worker extends Thread {
+    /**
+     * Constructor.
+     *
+     * @param r Runnable
+     */
+    Worker(Runnable r) {
+      super(r);
+      setDaemon(false);
+    }
+  }
 }
@@ -0,0 +1,217 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.arrays;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+
+/**
+ * Class to sort a double and an integer DBID array, using a parallel merge
+ * sort.
+ *
+ * The array is split into chunks that are radix sorted in parallel, then
+ * merged pairwise in parallel rounds, using the tasks of {@link ParallelCore}.
+ * Both steps are stable and use the same order as the radix sort, so the
+ * resulting order does not depend on the number of threads used.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.uses DoubleIntegerArrayRadixSort
+ * @apiviz.uses ParallelCore
+ */
+public final class DoubleIntegerArrayParallelSort {
+  /**
+   * Private constructor. Static methods only.
+   */
+  private DoubleIntegerArrayParallelSort() {
+    // Do not use.
+  }
+
+  /**
+   * Minimum chunk size to sort sequentially.
+   */
+  private static final int MIN_CHUNK = 1 << 14;
+
+  /**
+   * Number of chunks per thread, for load balancing.
+   */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /**
+   * Sort the array in ascending order.
+   *
+   * @param keys Keys for sorting
+   * @param values Values for sorting
+   * @param start First index
+   * @param end Last index (exclusive)
+   */
+  public static void sort(double[] keys, int[] values, int start, int end) {
+    sort(keys, values, start, end, false);
+  }
+
+  /**
+   * Sort the array in descending order.
+   *
+   * @param keys Keys for sorting
+   * @param values Values for sorting
+   * @param start First index
+   * @param end Last index (exclusive)
+   */
+  public static void sortReverse(double[] keys, int[] values, int start, int end) {
+    sort(keys, values, start, end, true);
+  }
+
+  /**
+   * Parallel merge sort.
+   *
+   * @param keys Keys for sorting
+   * @param values Values for sorting
+   * @param start First index
+   * @param end Last index (exclusive)
+   * @param reverse Sort in descending order
+   */
+  private static void sort(double[] keys, int[] values, int start, int end, boolean reverse) {
+    sort(keys, values, start, end, reverse, ParallelCore.getCore());
+  }
+
+  /**
+   * Parallel merge sort.
+   *
+   * @param keys Keys for sorting
+   * @param values Values for sorting
+   * @param start First index
+   * @param end Last index (exclusive)
+   * @param reverse Sort in descending order
+   * @param core Parallel core to use
+   */
+  static void sort(double[] keys, int[] values, int start, int end, boolean reverse, ParallelCore core) {
+    final int parallelism = core.getParallelism();
+    final int n = end - start;
+    final int numchunks = Math.min(parallelism * CHUNKS_PER_THREAD, n / MIN_CHUNK);
+    // Workers must not wait for other tasks, so nested calls run sequentially.
+    if(parallelism <= 1 || numchunks <= 1 || ParallelCore.isWorkerThread()) {
+      DoubleIntegerArrayRadixSort.sort(keys, values, start, end, reverse);
+      return;
+    }
+    final int[] bounds = new int[numchunks + 1];
+    for(int i = 0; i <= numchunks; i++) {
+      bounds[i] = start + (int) (n * (long) i / numchunks);
+    }
+    final double[] tkeys = new double[n];
+    final int[] tvalues = new int[n];
+    core.connect();
+    try {
+      List<Future<Void>> futures = new ArrayList<>(numchunks);
+      for(int i = 0; i < numchunks; i++) {
+        final int cstart = bounds[i], cend = bounds[i + 1];
+        futures.add(core.submit(() -> {
+          DoubleIntegerArrayRadixSort.sort(keys, values, cstart, cend, reverse);
+          return null;
+        }));
+      }
+      await(futures);
+      for(int width = 1; width < numchunks; width <<= 1) {
+        futures.clear();
+        for(int i = 0; i + width < numchunks; i += width << 1) {
+          final int lo = bounds[i], mid = bounds[i + width];
+          final int hi = bounds[Math.min(i + (width << 1), numchunks)];
+          futures.add(core.submit(() -> {
+            merge(keys, values, tkeys, tvalues, start, lo, mid, hi, reverse);
+            return null;
+          }));
+        }
+        await(futures);
+      }
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Wait for the completion of all tasks.
+   *
+   * @param futures Tasks
+   */
+  private static void await(List<Future<Void>> futures) {
+    try {
+      for(Future<Void> fut : futures) {
+        fut.get();
+      }
+    }
+    catch(ExecutionException e) {
+      throw new RuntimeException("Processor execution failed.", e);
+    }
+    catch(InterruptedException e) {
+      throw new RuntimeException("Parallel execution interrupted.");
+    }
+  }
+
+  /**
+   * Stable merge of two adjacent sorted ranges, in the order of
+   * {@link DoubleIntegerArrayRadixSort}.
+   *
+   * @param keys Keys
+   * @param values Values
+   * @param tkeys Temporary keys
+   * @param tvalues Temporary values
+   * @param off Offset of the temporary arrays
+   * @param start First index
+   * @param mid Start of the second range
+   * @param end End index (exclusive)
+   * @param reverse Sort order
+   */
+  private static void merge(double[] keys, int[] values, double[] tkeys, int[] tvalues, int off, int start, int mid, int end, boolean reverse) {
+    int i = start, j = mid, o = start - off;
+    long ki = DoubleIntegerArrayRadixSort.encode(keys[i], reverse);
+    long kj = DoubleIntegerArrayRadixSort.encode(keys[j], reverse);
+    while(true) {
+      // Take from the left on ties, for stability.
+      if(Long.compareUnsigned(kj, ki) < 0) {
+        tkeys[o] = keys[j];
+        tvalues[o++] = values[j++];
+        if(j == end) {
+          break;
+        }
+        kj = DoubleIntegerArrayRadixSort.encode(keys[j], reverse);
+      }
+      else {
+        tkeys[o] = keys[i];
+        tvalues[o++] = values[i++];
+        if(i == mid) {
+          break;
+        }
+        ki = DoubleIntegerArrayRadixSort.encode(keys[i], reverse);
+      }
+    }
+    // The remainder of the right half is already in place.
+    final int rest = mid - i;
+    System.arraycopy(keys, i, keys, end - rest, rest);
+    System.arraycopy(values, i, values, end - rest, rest);
+    System.arraycopy(tkeys, start - off, keys, start, o - (start - off));
+    System.arraycopy(tvalues, start - off, values, start, o - (start - off));
+  }
+}
@@ -23,9 +23,15 @@ package de.lmu.ifi.dbs.elki.utilities.datastructures.arrays;
 /**
  * Class to sort a double and an integer DBID array, using a quicksort with a
  * best of 5 heuristic.
+ * <p>
+ * Large arrays are handed over to {@link DoubleIntegerArrayRadixSort}, and to
+ * {@link DoubleIntegerArrayParallelSort} if multiple processors are available.
  * 
  * @author Erich Schubert
  * @since 0.5.5
+ *
+ * @apiviz.uses DoubleIntegerArrayRadixSort
+ * @apiviz.uses DoubleIntegerArrayParallelSort
  */
 public final class DoubleIntegerArrayQuickSort {
   /**
@@ -40,6 +46,16 @@ public final class DoubleIntegerArrayQuickSort {
    */
   private static final int INSERTION_THRESHOLD = 22;
 
+  /**
+   * Threshold for using radix sort.
+   */
+  private static final int RADIX_THRESHOLD = 1 << 12;
+
+  /**
+   * Threshold for using parallel sorting.
+   */
+  private static final int PARALLEL_THRESHOLD = 1 << 17;
+
   /**
    * Sort the full array using the given comparator.
    * 
@@ -60,6 +76,15 @@ public final class DoubleIntegerArrayQuickSort {
    * @param end Last index (exclusive)
    */
   public static void sort(double[] keys, int[] values, int start, int end) {
+    final int len = end - start;
+    if(len >= PARALLEL_THRESHOLD) {
+      DoubleIntegerArrayParallelSort.sort(keys, values, start, end);
+      return;
+    }
+    if(len >= RADIX_THRESHOLD) {
+      DoubleIntegerArrayRadixSort.sort(keys, values, start, end);
+      return;
+    }
     quickSort(keys, values, start, end);
   }
 
@@ -224,6 +249,15 @@ public final class DoubleIntegerArrayQuickSort {
    * @param end Last index (exclusive)
    */
   public static void sortReverse(double[] keys, int[] values, int start, int end) {
+    final int len = end - start;
+    if(len >= PARALLEL_THRESHOLD) {
+      DoubleIntegerArrayParallelSort.sortReverse(keys, values, start, end);
+      return;
+    }
+    if(len >= RADIX_THRESHOLD) {
+      DoubleIntegerArrayRadixSort.sortReverse(keys, values, start, end);
+      return;
+    }
     quickSortReverse(keys, values, start, end);
   }
 
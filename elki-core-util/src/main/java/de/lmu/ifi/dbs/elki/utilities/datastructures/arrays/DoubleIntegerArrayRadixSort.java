@@ -0,0 +1,156 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.arrays;
+
+/**
+ * Class to sort a double and an integer DBID array, using a stable LSD radix
+ * sort on the IEEE-754 bit patterns of the keys.
+ *
+ * The doubles are mapped to long values with the same (unsigned) order, and
+ * sorted in up to eight passes of eight bits each. Passes where all keys share
+ * the same byte (e.g., the sign and exponent bits of distances) are skipped.
+ * This needs temporary memory of 24 bytes per element, but for large arrays
+ * it is considerably faster than a comparison sort.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public final class DoubleIntegerArrayRadixSort {
+  /**
+   * Private constructor. Static methods only.
+   */
+  private DoubleIntegerArrayRadixSort() {
+    // Do not use.
+  }
+
+  /**
+   * Number of radix passes.
+   */
+  private static final int PASSES = 8;
+
+  /**
+   * Sort the array in ascending order.
+   *
+   * @param keys Keys for sorting
+   * @param values Values for sorting
+   * @param start First index
+   * @param end Last index (exclusive)
+   */
+  public static void sort(double[] keys, int[] values, int start, int end) {
+    sort(keys, values, start, end, false);
+  }
+
+  /**
+   * Sort the array in descending order.
+   *
+   * @param keys Keys for sorting
+   * @param values Values for sorting
+   * @param start First index
+   * @param end Last index (exclusive)
+   */
+  public static void sortReverse(double[] keys, int[] values, int start, int end) {
+    sort(keys, values, start, end, true);
+  }
+
+  /**
+   * Radix sort.
+   *
+   * @param keys Keys for sorting
+   * @param values Values for sorting
+   * @param start First index
+   * @param end Last index (exclusive)
+   * @param reverse Sort in descending order
+   */
+  static void sort(double[] keys, int[] values, int start, int end, boolean reverse) {
+    final int n = end - start;
+    if(n < 2) {
+      return;
+    }
+    long[] k = new long[n], tk = new long[n];
+    int[] v = new int[n], tv = new int[n];
+    final int[][] hist = new int[PASSES][256];
+    for(int i = 0; i < n; i++) {
+      final long b = encode(keys[start + i], reverse);
+      k[i] = b;
+      v[i] = values[start + i];
+      for(int p = 0; p < PASSES; p++) {
+        hist[p][(int) (b >>> (p << 3)) & 0xFF]++;
+      }
+    }
+    for(int p = 0; p < PASSES; p++) {
+      final int[] h = hist[p];
+      // Skip passes where all keys have the same byte.
+      if(h[(int) (k[0] >>> (p << 3)) & 0xFF] == n) {
+        continue;
+      }
+      // Prefix sums:
+      for(int i = 0, sum = 0; i < 256; i++) {
+        final int c = h[i];
+        h[i] = sum;
+        sum += c;
+      }
+      final int shift = p << 3;
+      for(int i = 0; i < n; i++) {
+        final long b = k[i];
+        final int pos = h[(int) (b >>> shift) & 0xFF]++;
+        tk[pos] = b;
+        tv[pos] = v[i];
+      }
+      long[] swk = k;
+      k = tk;
+      tk = swk;
+      int[] swv = v;
+      v = tv;
+      tv = swv;
+    }
+    for(int i = 0; i < n; i++) {
+      keys[start + i] = decode(k[i], reverse);
+      values[start + i] = v[i];
+    }
+  }
+
+  /**
+   * Map a double to a long with the same unsigned order.
+   *
+   * @param d Double value
+   * @param reverse Reverse the order
+   * @return Long value
+   */
+  static long encode(double d, boolean reverse) {
+    long b = Double.doubleToRawLongBits(d);
+    // Positive values: set the sign bit. Negative values: flip all bits.
+    b ^= (b >> 63) | Long.MIN_VALUE;
+    return reverse ? ~b : b;
+  }
+
+  /**
+   * Inverse of {@link #encode}.
+   *
+   * @param b Long value
+   * @param reverse Reverse the order
+   * @return Double value
+   */
+  private static double decode(long b, boolean reverse) {
+    b = reverse ? ~b : b;
+    b ^= ~(b >> 63) | Long.MIN_VALUE;
+    return Double.longBitsToDouble(b);
+  }
+}
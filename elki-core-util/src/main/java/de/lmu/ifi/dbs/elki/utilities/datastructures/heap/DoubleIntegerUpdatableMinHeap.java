@@ -0,0 +1,266 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.heap;
+
+import java.util.Arrays;
+
+/**
+ * Addressable 4-ary heap for primitive types, with decrease-key.
+ *
+ * Values must be integers in the range {@code [0;n)}, such as DBID offsets.
+ * Every value can be contained at most once; the heap positions are tracked
+ * in an array instead of a hash map. Adding a value already in the heap will
+ * only decrease its key, as in OPTICS and Dijkstra-style traversals.
+ *
+ * Entries with the same key are ordered by descending value, which makes the
+ * order of polls deterministic.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class DoubleIntegerUpdatableMinHeap {
+  /**
+   * Constant for "not in heap".
+   */
+  private static final int NOT_IN_HEAP = -1;
+
+  /**
+   * Heap keys.
+   */
+  protected double[] keys;
+
+  /**
+   * Heap values.
+   */
+  protected int[] vals;
+
+  /**
+   * Position of each value in the heap.
+   */
+  protected int[] index;
+
+  /**
+   * Current size of heap.
+   */
+  protected int size;
+
+  /**
+   * Constructor.
+   *
+   * @param n Size of the value domain, values must be in {@code [0;n)}.
+   */
+  public DoubleIntegerUpdatableMinHeap(int n) {
+    super();
+    final int initial = Math.min(n, 1 << 10);
+    this.keys = new double[initial];
+    this.vals = new int[initial];
+    this.index = new int[n];
+    Arrays.fill(index, NOT_IN_HEAP);
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() {
+    for(int i = 0; i < size; i++) {
+      index[vals[i]] = NOT_IN_HEAP;
+    }
+    size = 0;
+  }
+
+  /**
+   * Query the size.
+   *
+   * @return Size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Is the heap empty?
+   *
+   * @return {@code true} when the size is 0.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Test if a value is currently in the heap.
+   *
+   * @param val Value
+   * @return {@code true} if contained
+   */
+  public boolean contains(int val) {
+    return index[val] != NOT_IN_HEAP;
+  }
+
+  /**
+   * Get the current key of a value in the heap.
+   *
+   * @param val Value
+   * @return Key, or NaN if not contained
+   */
+  public double getKey(int val) {
+    final int pos = index[val];
+    return pos != NOT_IN_HEAP ? keys[pos] : Double.NaN;
+  }
+
+  /**
+   * Add a value, or decrease its key if it is already in the heap.
+   *
+   * @param key Key
+   * @param val Value
+   * @return {@code true} if the heap was modified.
+   */
+  public boolean offer(double key, int val) {
+    final int pos = index[val];
+    if(pos != NOT_IN_HEAP) {
+      if(key >= keys[pos]) {
+        return false;
+      }
+      heapifyUp(pos, key, val);
+      return true;
+    }
+    if(size >= keys.length) {
+      final int newsize = Math.min(index.length, keys.length + (keys.length >>> 1) + 1);
+      keys = Arrays.copyOf(keys, newsize);
+      vals = Arrays.copyOf(vals, newsize);
+    }
+    heapifyUp(size++, key, val);
+    return true;
+  }
+
+  /**
+   * Get the minimum key.
+   *
+   * @return Key of the top element
+   */
+  public double peekKey() {
+    return keys[0];
+  }
+
+  /**
+   * Get the value of the minimum element.
+   *
+   * @return Value of the top element
+   */
+  public int peekValue() {
+    return vals[0];
+  }
+
+  /**
+   * Remove the top element.
+   */
+  public void poll() {
+    index[vals[0]] = NOT_IN_HEAP;
+    if(--size > 0) {
+      heapifyDown(0, keys[size], vals[size]);
+    }
+  }
+
+  /**
+   * Compare two entries.
+   *
+   * @param k1 First key
+   * @param v1 First value
+   * @param k2 Second key
+   * @param v2 Second value
+   * @return {@code true} if the first entry is to be polled before the second
+   */
+  private static boolean before(double k1, int v1, double k2, int v2) {
+    return k1 < k2 || (k1 == k2 && v1 > v2);
+  }
+
+  /**
+   * Heapify-Up method for the 4-ary heap.
+   *
+   * @param pos Position in heap.
+   * @param key Current key
+   * @param val Current value
+   */
+  private void heapifyUp(int pos, double key, int val) {
+    while(pos > 0) {
+      final int parent = (pos - 1) >>> 2;
+      final double pkey = keys[parent];
+      final int pval = vals[parent];
+      if(!before(key, val, pkey, pval)) {
+        break;
+      }
+      keys[pos] = pkey;
+      vals[pos] = pval;
+      index[pval] = pos;
+      pos = parent;
+    }
+    keys[pos] = key;
+    vals[pos] = val;
+    index[val] = pos;
+  }
+
+  /**
+   * Heapify-Down method for the 4-ary heap.
+   *
+   * @param pos Position in heap.
+   * @param key Current key
+   * @param val Current value
+   */
+  private void heapifyDown(int pos, double key, int val) {
+    while(true) {
+      final int first = (pos << 2) + 1;
+      if(first >= size) {
+        break;
+      }
+      // Find the best of up to four children.
+      int best = first;
+      double bkey = keys[first];
+      int bval = vals[first];
+      final int end = Math.min(first + 4, size);
+      for(int c = first + 1; c < end; c++) {
+        if(before(keys[c], vals[c], bkey, bval)) {
+          best = c;
+          bkey = keys[c];
+          bval = vals[c];
+        }
+      }
+      if(!before(bkey, bval, key, val)) {
+        break;
+      }
+      keys[pos] = bkey;
+      vals[pos] = bval;
+      index[bval] = pos;
+      pos = best;
+    }
+    keys[pos] = key;
+    vals[pos] = val;
+    index[val] = pos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(size * 20 + 40);
+    buf.append(DoubleIntegerUpdatableMinHeap.class.getSimpleName()).append(" [");
+    for(int i = 0; i < size; i++) {
+      buf.append(i > 0 ? ", " : "").append(keys[i]).append(':').append(vals[i]);
+    }
+    return buf.append(']').toString();
+  }
+}
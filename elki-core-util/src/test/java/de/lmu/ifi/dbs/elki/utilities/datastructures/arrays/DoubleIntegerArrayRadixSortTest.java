@@ -0,0 +1,156 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+
+/**
+ * Test the radix and parallel sorts of double and integer arrays.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class DoubleIntegerArrayRadixSortTest {
+  /**
+   * Array size to use.
+   */
+  final int SIZE = 100000;
+
+  @Test
+  public void testRadixSort() {
+    for(int i = 1; i < 10; i++) {
+      testSort(i, false, false);
+      testSort(i, true, false);
+    }
+    testSort(SIZE, false, false);
+    testSort(SIZE, true, false);
+    testSort(SIZE + 1, false, false);
+  }
+
+  @Test
+  public void testParallelSort() {
+    testSort(SIZE, false, true);
+    testSort(SIZE, true, true);
+    testSort(SIZE + 1, false, true);
+  }
+
+  /**
+   * The parallel sort must produce exactly the order of the radix sort, also
+   * for signed zeros and NaN values. Uses four threads, independent of the
+   * number of processors available.
+   */
+  @Test
+  public void testParallelSpecialValues() {
+    final double[] special = { -0., 0., Double.NaN, Double.longBitsToDouble(0xfff8000000000000L) };
+    Random r = new Random(0L);
+    final double[] data = new double[SIZE];
+    final int[] idx = new int[SIZE];
+    for(int i = 0; i < SIZE; i++) {
+      data[i] = r.nextBoolean() ? special[r.nextInt(special.length)] : r.nextInt(100) - 50;
+      idx[i] = i;
+    }
+    final ParallelCore core = new ParallelCore(4) {
+      // Use a private core with a fixed number of threads.
+    };
+    for(boolean reverse : new boolean[] { false, true }) {
+      double[] pdata = data.clone(), rdata = data.clone();
+      int[] pidx = idx.clone(), ridx = idx.clone();
+      DoubleIntegerArrayParallelSort.sort(pdata, pidx, 0, SIZE, reverse, core);
+      DoubleIntegerArrayRadixSort.sort(rdata, ridx, 0, SIZE, reverse);
+      for(int i = 0; i < SIZE; i++) {
+        assertEquals("Bit pattern differs at " + i, Double.doubleToRawLongBits(rdata[i]), Double.doubleToRawLongBits(pdata[i]));
+        assertEquals("Order differs at " + i, ridx[i], pidx[i]);
+      }
+    }
+  }
+
+  private void testSort(int size, boolean reverse, boolean parallel) {
+    final double[] data = new double[size + 2];
+    int[] idx = new int[size + 2];
+
+    // Make a random generator, but remember the seed for debugging.
+    Random r = new Random();
+    long seed = r.nextLong();
+    r = new Random(seed);
+
+    // Produce data with negative values, and many ties.
+    for(int i = 1; i <= size; i++) {
+      data[i] = r.nextInt(size) - (size >> 1);
+      idx[i] = i;
+    }
+    // Sentinels outside of the sorted range:
+    data[0] = data[size + 1] = Double.NaN;
+    idx[0] = idx[size + 1] = -1;
+
+    if(parallel) {
+      if(reverse) {
+        DoubleIntegerArrayParallelSort.sortReverse(data, idx, 1, size + 1);
+      }
+      else {
+        DoubleIntegerArrayParallelSort.sort(data, idx, 1, size + 1);
+      }
+    }
+    else {
+      if(reverse) {
+        DoubleIntegerArrayRadixSort.sortReverse(data, idx, 1, size + 1);
+      }
+      else {
+        DoubleIntegerArrayRadixSort.sort(data, idx, 1, size + 1);
+      }
+    }
+    assertTrue("Sentinel modified.", Double.isNaN(data[0]) && Double.isNaN(data[size + 1]));
+    assertEquals("Sentinel modified.", -1, idx[0]);
+    assertEquals("Sentinel modified.", -1, idx[size + 1]);
+    boolean[] seen = new boolean[size + 1];
+    for(int i = 1; i <= size; i++) {
+      assertTrue("Value missing. Seed=" + seed, !seen[idx[i]]);
+      seen[idx[i]] = true;
+      if(i > 1) {
+        final double prev = data[i - 1], val = data[i];
+        assertTrue("Resulting array is not sorted. Seed=" + seed, reverse ? prev >= val : prev <= val);
+        // Ties must retain their original order.
+        assertTrue("Sort is not stable. Seed=" + seed, prev != val || idx[i - 1] < idx[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testSpecialValues() {
+    double[] data = { 1., -0., Double.NEGATIVE_INFINITY, -1e-300, 0., Double.MIN_VALUE, Double.POSITIVE_INFINITY, -1. };
+    double[] expect = { Double.NEGATIVE_INFINITY, -1., -1e-300, -0., 0., Double.MIN_VALUE, 1., Double.POSITIVE_INFINITY };
+    int[] idx = new int[data.length];
+    DoubleIntegerArrayRadixSort.sort(data, idx, 0, data.length);
+    for(int i = 0; i < data.length; i++) {
+      assertEquals("Bit pattern not preserved.", Double.doubleToRawLongBits(expect[i]), Double.doubleToRawLongBits(data[i]));
+    }
+    DoubleIntegerArrayRadixSort.sortReverse(data, idx, 0, data.length);
+    for(int i = 0; i < data.length; i++) {
+      assertEquals("Bit pattern not preserved.", Double.doubleToRawLongBits(expect[data.length - 1 - i]), Double.doubleToRawLongBits(data[i]));
+    }
+  }
+}
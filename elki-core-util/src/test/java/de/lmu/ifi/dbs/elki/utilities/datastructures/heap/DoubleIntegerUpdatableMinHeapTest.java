@@ -0,0 +1,94 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.datastructures.heap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the addressable heap used by OPTICS.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class DoubleIntegerUpdatableMinHeapTest {
+  @Test
+  public void testUpdatableHeap() {
+    final int iters = 100;
+    final int maxid = 5000;
+    final int bsize = 100;
+    final Random r = new Random(1);
+    // Simulation: current key of each id, NaN if not in heap.
+    double[] simulate = new double[maxid];
+    Arrays.fill(simulate, Double.NaN);
+    int simsize = 0;
+    DoubleIntegerUpdatableMinHeap heap = new DoubleIntegerUpdatableMinHeap(maxid);
+    for(int i = 0; i < iters; i++) {
+      int batchsize = r.nextInt(bsize);
+      for(int j = 0; j < batchsize; j++) {
+        int id = r.nextInt(maxid);
+        double score = r.nextInt(1000);
+        boolean modified = heap.offer(score, id);
+        if(Double.isNaN(simulate[id])) {
+          assertTrue("Insertion failed.", modified);
+          simulate[id] = score;
+          simsize++;
+        }
+        else if(score < simulate[id]) {
+          assertTrue("Decrease-key failed.", modified);
+          simulate[id] = score;
+        }
+        else {
+          assertFalse("Key was increased.", modified);
+        }
+        assertEquals("Key doesn't agree.", simulate[id], heap.getKey(id), 0.);
+      }
+      assertEquals("Sizes don't match!", simsize, heap.size());
+      int remove = simsize > 0 ? r.nextInt(simsize) : 0;
+      for(int j = 0; j < remove; j++) {
+        // Find the expected minimum: smallest key, largest id on ties.
+        int best = -1;
+        for(int id = maxid - 1; id >= 0; id--) {
+          if(!Double.isNaN(simulate[id]) && (best < 0 || simulate[id] < simulate[best])) {
+            best = id;
+          }
+        }
+        assertEquals("Priority doesn't agree.", simulate[best], heap.peekKey(), 0.);
+        assertEquals("Tie breaking doesn't agree.", best, heap.peekValue());
+        heap.poll();
+        assertFalse("Removed element still contained.", heap.contains(best));
+        simulate[best] = Double.NaN;
+        simsize--;
+      }
+    }
+    heap.clear();
+    assertTrue("Heap not empty.", heap.isEmpty());
+    for(int id = 0; id < maxid; id++) {
+      assertFalse("Element still contained after clear.", heap.contains(id));
+    }
+  }
+}
@@ -21,18 +21,26 @@
 package de.lmu.ifi.dbs.elki.database;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.CountingDistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanEuclideanDistanceKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanPrimitiveDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.LinearScanDistanceRangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.LinearScanDistanceRangeQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.LinearScanEuclideanDistanceRangeQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.LinearScanPrimitiveDistanceRangeQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.LinearScanPrimitiveSimilarityRangeQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.LinearScanSimilarityRangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQueryCountAdapter;
 import de.lmu.ifi.dbs.elki.database.query.rknn.RKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.similarity.PrimitiveSimilarityQuery;
 import de.lmu.ifi.dbs.elki.database.query.similarity.SimilarityQuery;
@@ -40,6 +48,10 @@ import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.similarityfunction.SimilarityFunction;
+import de.lmu.ifi.dbs.elki.index.DistanceBrowserIndex;
+import de.lmu.ifi.dbs.elki.index.RangeCountIndex;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.iterator.It;
 
 /**
  * Static class with utilities related to querying a database.
@@ -56,6 +68,9 @@ import de.lmu.ifi.dbs.elki.distance.similarityfunction.SimilarityFunction;
  * @apiviz.has KNNQuery
  * @apiviz.has RangeQuery
  * @apiviz.has RKNNQuery
+ * @apiviz.has DistanceBrowser
+ * @apiviz.has RangeCountQuery
+ * @apiviz.uses CountingDistanceQuery
  */
 public final class QueryUtil {
   /**
@@ -65,6 +80,18 @@ public final class QueryUtil {
     // Do not use.
   }
 
+  /**
+   * Wrap a distance query to count distance computations, if
+   * {@link Instrumentation} is enabled.
+   *
+   * @param <O> Object type
+   * @param distanceQuery Distance query, may be {@code null}
+   * @return Counting distance query, or the original query.
+   */
+  public static <O> DistanceQuery<O> instrument(DistanceQuery<O> distanceQuery) {
+    return CountingDistanceQuery.wrap(distanceQuery, Instrumentation.counterIfEnabled(Instrumentation.DISTANCE_COMPUTATIONS));
+  }
+
   /**
    * Get a distance query for a given distance function, automatically choosing
    * a relation.
@@ -219,6 +246,108 @@ public final class QueryUtil {
     return relation.getRKNNQuery(distanceQuery, hints);
   }
 
+  /**
+   * Get a range count query for a particular distance function.
+   *
+   * Indexes with native counting support are preferred. Otherwise, a range
+   * query of an index is used, or a linear scan. With
+   * {@link DatabaseQuery#HINT_OPTIMIZED_ONLY}, only native support is
+   * accepted, and {@code null} is returned otherwise.
+   *
+   * @param <O> Object type
+   * @param relation Relation used
+   * @param distanceFunction Distance function
+   * @param hints Optimizer hints
+   * @return Range count query, or {@code null}
+   */
+  public static <O> RangeCountQuery<O> getRangeCountQuery(Relation<O> relation, DistanceFunction<? super O> distanceFunction, Object... hints) {
+    // Do not pass the hints: the distance query itself is not optimized.
+    final DistanceQuery<O> distanceQuery = relation.getDistanceQuery(distanceFunction);
+    return getRangeCountQuery(distanceQuery, hints);
+  }
+
+  /**
+   * Get a range count query for a particular distance query.
+   *
+   * Indexes with native counting support are preferred. Otherwise, a range
+   * query of an index is used, or a linear scan. With
+   * {@link DatabaseQuery#HINT_OPTIMIZED_ONLY}, only native support is
+   * accepted, and {@code null} is returned otherwise.
+   *
+   * @param <O> Object type
+   * @param distanceQuery Distance query
+   * @param hints Optimizer hints
+   * @return Range count query, or {@code null}
+   */
+  public static <O> RangeCountQuery<O> getRangeCountQuery(DistanceQuery<O> distanceQuery, Object... hints) {
+    final Relation<? extends O> relation = distanceQuery.getRelation();
+    for(It<RangeCountIndex<O>> it = relation.getHierarchy().iterChildrenReverse(relation).filter(RangeCountIndex.class); it.valid(); it.advance()) {
+      RangeCountQuery<O> q = it.get().getRangeCountQuery(distanceQuery, hints);
+      if(q != null) {
+        return q;
+      }
+    }
+    for(Object hint : hints) {
+      if(hint == DatabaseQuery.HINT_OPTIMIZED_ONLY) {
+        return null;
+      }
+    }
+    // Counting the result of an indexed range query is still better.
+    @SuppressWarnings("unchecked")
+    RangeQuery<O> rq = ((Relation<O>) relation).getRangeQuery(distanceQuery, hints);
+    if(rq != null && !(rq instanceof LinearScanQuery)) {
+      return new RangeQueryCountAdapter<>(rq);
+    }
+    return getLinearScanRangeCountQuery(distanceQuery);
+  }
+
+  /**
+   * Get an incremental nearest neighbor search ("distance browser") for a
+   * particular distance function.
+   *
+   * An index is used when available, otherwise this falls back to a linear
+   * scan (unless {@link DatabaseQuery#HINT_OPTIMIZED_ONLY} is given).
+   *
+   * @param <O> Object type
+   * @param relation Relation used
+   * @param distanceFunction Distance function
+   * @param hints Optimizer hints
+   * @return Distance browser, or {@code null}
+   */
+  public static <O> DistanceBrowser<O> getDistanceBrowser(Relation<O> relation, DistanceFunction<? super O> distanceFunction, Object... hints) {
+    // Do not pass the hints: the distance query itself is not optimized.
+    final DistanceQuery<O> distanceQuery = relation.getDistanceQuery(distanceFunction);
+    return getDistanceBrowser(distanceQuery, hints);
+  }
+
+  /**
+   * Get an incremental nearest neighbor search ("distance browser") for a
+   * particular distance query.
+   *
+   * An index is used when available, otherwise this falls back to a linear
+   * scan (unless {@link DatabaseQuery#HINT_OPTIMIZED_ONLY} is given).
+   *
+   * @param <O> Object type
+   * @param distanceQuery Distance query
+   * @param hints Optimizer hints
+   * @return Distance browser, or {@code null}
+   */
+  public static <O> DistanceBrowser<O> getDistanceBrowser(DistanceQuery<O> distanceQuery, Object... hints) {
+    final Relation<? extends O> relation = distanceQuery.getRelation();
+    for(It<DistanceBrowserIndex<O>> it = relation.getHierarchy().iterChildrenReverse(relation).filter(DistanceBrowserIndex.class); it.valid(); it.advance()) {
+      DistanceBrowser<O> q = it.get().getDistanceBrowser(distanceQuery, hints);
+      if(q != null) {
+        return q;
+      }
+    }
+    for(Object hint : hints) {
+      if(hint == DatabaseQuery.HINT_OPTIMIZED_ONLY) {
+        return null;
+      }
+    }
+    return getLinearScanDistanceBrowser(distanceQuery);
+  }
+
   /**
    * Get a linear scan query for the given distance query.
    *
@@ -228,8 +357,8 @@ public final class QueryUtil {
    */
   @SuppressWarnings("unchecked")
   public static <O> KNNQuery<O> getLinearScanKNNQuery(DistanceQuery<O> distanceQuery) {
-    // Slight optimizations of linear scans
-    if(distanceQuery instanceof PrimitiveDistanceQuery) {
+    // Slight optimizations of linear scans, unless counting distances
+    if(distanceQuery instanceof PrimitiveDistanceQuery && !CountingDistanceQuery.isCounting(distanceQuery)) {
       final PrimitiveDistanceQuery<O> pdq = (PrimitiveDistanceQuery<O>) distanceQuery;
       if(EuclideanDistanceFunction.STATIC.equals(pdq.getDistanceFunction())) {
         final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
@@ -249,8 +378,8 @@ public final class QueryUtil {
    */
   @SuppressWarnings("unchecked")
   public static <O> RangeQuery<O> getLinearScanRangeQuery(DistanceQuery<O> distanceQuery) {
-    // Slight optimizations of linear scans
-    if(distanceQuery instanceof PrimitiveDistanceQuery) {
+    // Slight optimizations of linear scans, unless counting distances
+    if(distanceQuery instanceof PrimitiveDistanceQuery && !CountingDistanceQuery.isCounting(distanceQuery)) {
       final PrimitiveDistanceQuery<O> pdq = (PrimitiveDistanceQuery<O>) distanceQuery;
       if(EuclideanDistanceFunction.STATIC.equals(pdq.getDistanceFunction())) {
         final PrimitiveDistanceQuery<NumberVector> ndq = (PrimitiveDistanceQuery<NumberVector>) pdq;
@@ -276,4 +405,26 @@ public final class QueryUtil {
     }
     return new LinearScanSimilarityRangeQuery<>(simQuery);
   }
+
+  /**
+   * Get a linear scan distance browser for the given distance query.
+   *
+   * @param <O> Object type
+   * @param distanceQuery distance query
+   * @return Distance browser
+   */
+  public static <O> DistanceBrowser<O> getLinearScanDistanceBrowser(DistanceQuery<O> distanceQuery) {
+    return new LinearScanDistanceBrowser<>(distanceQuery);
+  }
+
+  /**
+   * Get a linear scan range count query for the given distance query.
+   *
+   * @param <O> Object type
+   * @param distanceQuery distance query
+   * @return Range count query
+   */
+  public static <O> RangeCountQuery<O> getLinearScanRangeCountQuery(DistanceQuery<O> distanceQuery) {
+    return new LinearScanDistanceRangeCountQuery<>(distanceQuery);
+  }
 }
@@ -0,0 +1,159 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerMinHeap;
+
+/**
+ * Abstract base class for incremental nearest neighbor search.
+ * 
+ * This class maintains the queue of result candidates, while subclasses
+ * maintain the queue of unexpanded index nodes. A candidate is only reported
+ * once no unexpanded node can contain a closer object, i.e. when the lower
+ * bound of the best node exceeds the distance of the best candidate.
+ * 
+ * Candidates are stored as offsets into an array, so that adding a candidate
+ * does not need to materialize a DBID object.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @param <O> Object type
+ */
+public abstract class AbstractDistanceBrowser<O> implements DistanceBrowser<O> {
+  /**
+   * Relation we query.
+   */
+  protected final Relation<? extends O> relation;
+
+  /**
+   * Candidate queue, pointing into {@link #candidates}.
+   */
+  private final DoubleIntegerMinHeap results = new DoubleIntegerMinHeap();
+
+  /**
+   * Candidate objects.
+   */
+  private final ArrayModifiableDBIDs candidates = DBIDUtil.newArray();
+
+  /**
+   * Current neighbor.
+   */
+  private final DBIDVar cur = DBIDUtil.newVar();
+
+  /**
+   * Distance of the current neighbor.
+   */
+  private double curdist = Double.NaN;
+
+  /**
+   * Constructor.
+   * 
+   * @param relation Relation to query
+   */
+  public AbstractDistanceBrowser(Relation<? extends O> relation) {
+    super();
+    this.relation = relation;
+  }
+
+  @Override
+  public DistanceBrowser<O> search(O obj) {
+    reset();
+    startSearch(obj);
+    return advance();
+  }
+
+  @Override
+  public DistanceBrowser<O> search(DBIDRef id) {
+    return search(relation.get(id));
+  }
+
+  /**
+   * Discard all result candidates of the previous search.
+   */
+  protected void reset() {
+    results.clear();
+    candidates.clear();
+  }
+
+  /**
+   * Initialize the node queue for a new query.
+   * 
+   * @param obj Query object
+   */
+  protected abstract void startSearch(O obj);
+
+  /**
+   * Expand the next node, if its lower bound distance is at most the given
+   * threshold.
+   * 
+   * @param threshold Distance of the best candidate (or infinity)
+   * @return {@code false} when no node was expanded.
+   */
+  protected abstract boolean expandNextNode(double threshold);
+
+  /**
+   * Add a result candidate.
+   * 
+   * @param distance Distance to the query object
+   * @param id Object
+   */
+  protected void addCandidate(double distance, DBIDRef id) {
+    results.add(distance, candidates.size());
+    candidates.add(id);
+  }
+
+  @Override
+  public DistanceBrowser<O> advance() {
+    while(expandNextNode(results.isEmpty() ? Double.POSITIVE_INFINITY : results.peekKey())) {
+      // Expand nodes until the best candidate is confirmed.
+    }
+    if(results.isEmpty()) {
+      cur.unset();
+      curdist = Double.NaN;
+      return this;
+    }
+    candidates.assignVar(results.peekValue(), cur);
+    curdist = results.peekKey();
+    results.poll();
+    return this;
+  }
+
+  @Override
+  public boolean valid() {
+    return cur.isSet();
+  }
+
+  @Override
+  public int internalGetIndex() {
+    return cur.internalGetIndex();
+  }
+
+  @Override
+  public double doubleValue() {
+    return curdist;
+  }
+}
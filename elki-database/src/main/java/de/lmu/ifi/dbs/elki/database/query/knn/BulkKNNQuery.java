@@ -0,0 +1,35 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+/**
+ * Marker interface for kNN queries with a genuine bulk implementation, e.g., a
+ * dual-tree join, where {@link #getKNNForBulkDBIDs} is supported and usually
+ * faster than one query per object.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ */
+public interface BulkKNNQuery<O> extends KNNQuery<O> {
+  // Empty marker interface
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.knn;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+
+/**
+ * Distance browser using a linear scan: all distances are computed on the
+ * first call, and the candidates are then returned in ascending order.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.has DistanceQuery
+ * 
+ * @param <O> Object type
+ */
+public class LinearScanDistanceBrowser<O> extends AbstractDistanceBrowser<O> implements LinearScanQuery {
+  /**
+   * Distance query to use.
+   */
+  protected final DistanceQuery<O> distanceQuery;
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceQuery Distance query
+   */
+  public LinearScanDistanceBrowser(DistanceQuery<O> distanceQuery) {
+    super(distanceQuery.getRelation());
+    this.distanceQuery = distanceQuery;
+  }
+
+  @Override
+  protected void startSearch(O obj) {
+    final DistanceQuery<O> dq = distanceQuery;
+    for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
+      addCandidate(dq.distance(obj, iter), iter);
+    }
+  }
+
+  @Override
+  public DistanceBrowser<O> search(DBIDRef id) {
+    // Use the DBID-based distance, which may be cheaper.
+    final DistanceQuery<O> dq = distanceQuery;
+    reset();
+    for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
+      addCandidate(dq.distance(id, iter), iter);
+    }
+    return advance();
+  }
+
+  @Override
+  protected boolean expandNextNode(double threshold) {
+    return false; // No index nodes.
+  }
+}
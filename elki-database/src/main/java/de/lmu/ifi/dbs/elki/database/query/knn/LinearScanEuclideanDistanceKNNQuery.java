@@ -21,10 +21,13 @@
 package de.lmu.ifi.dbs.elki.database.query.knn;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.SparseNumberVector;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
@@ -32,6 +35,7 @@ import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
@@ -49,7 +53,22 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanD
  * @apiviz.uses EuclideanDistanceFunction
  * @apiviz.uses SquaredEuclideanDistanceFunction
  */
-public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends LinearScanPrimitiveDistanceKNNQuery<O> implements LinearScanQuery {
+public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends LinearScanPrimitiveDistanceKNNQuery<O> implements LinearScanQuery, BulkKNNQuery<O> {
+  /**
+   * Number of queries processed in one block.
+   */
+  private static final int QUERY_BLOCK = 32;
+
+  /**
+   * Number of doubles of data vectors processed in one block (256 KB).
+   */
+  private static final int DATA_BLOCK_DOUBLES = 1 << 15;
+
+  /**
+   * Dense copy of the relation, built on the first batch query.
+   */
+  private DenseData dense;
+
   /**
    * Constructor.
    *
@@ -85,7 +104,7 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
     final SquaredEuclideanDistanceFunction squared = SquaredEuclideanDistanceFunction.STATIC;
     double max = Double.POSITIVE_INFINITY;
     while(iter.valid()) {
-      final double dist = squared.distance(obj, relation.get(iter));
+      final double dist = squared.distance(obj, relation.get(iter), max);
       if(dist <= max) {
         max = heap.insert(dist, iter);
       }
@@ -116,11 +135,296 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
   /**
    * Perform a linear scan batch kNN for primitive distance functions.
    *
+   * For dense vectors of uniform dimensionality, this uses a cache-blocked
+   * kernel, see {@link #blockedBatchKNN}.
+   *
    * @param objs Objects list
    * @param heaps Heaps array
    */
   @Override
   protected void linearScanBatchKNN(List<O> objs, List<KNNHeap> heaps) {
+    final Relation<? extends O> relation = getRelation();
+    final int size = objs.size();
+    if(size == 0) {
+      return;
+    }
+    final int dim = objs.get(0).getDimensionality();
+    double[][] qv = denseVectors(objs.iterator(), size, dim);
+    DenseData data = qv != null ? getDenseData(relation) : null;
+    if(data == null || data.vecs == null || data.dim != dim) {
+      linearScanBatchKNNGeneric(objs, heaps);
+      return;
+    }
+    blockedBatchKNN(qv, data.vecs, data.norms, data.ids, heaps);
+  }
+
+  /**
+   * Get the dense copy of the relation.
+   *
+   * For materialized relations, the copy is built once (also when the query
+   * is shared by multiple threads) and reused until the relation is modified.
+   * Other relations cannot report modifications, and are copied on every call.
+   *
+   * @param relation Data relation
+   * @return Dense data
+   */
+  private DenseData getDenseData(Relation<? extends O> relation) {
+    if(!(relation instanceof MaterializedRelation)) {
+      return new DenseData(relation, -1);
+    }
+    final MaterializedRelation<?> mrel = (MaterializedRelation<?>) relation;
+    synchronized(this) {
+      final int modcount = mrel.getModificationCount();
+      if(dense == null || dense.modcount != modcount) {
+        dense = new DenseData(relation, modcount);
+      }
+      return dense;
+    }
+  }
+
+  /**
+   * Cache-blocked batch kNN kernel.
+   *
+   * Squared distances are first approximated using cached squared norms as
+   * \(\|x\|^2+\|y\|^2-2\langle x,y\rangle\), where the inner products are
+   * computed for a tile of queries times a tile of data vectors at a time.
+   * Because this decomposition is numerically less precise, it is only used
+   * to discard candidates; all remaining candidates are recomputed exactly,
+   * so the result is identical to the naive linear scan.
+   *
+   * @param qv Query vectors
+   * @param dv Data vectors
+   * @param dn Squared norms of the data vectors
+   * @param ids Data vector ids
+   * @param heaps Output heaps
+   */
+  private static void blockedBatchKNN(double[][] qv, double[][] dv, double[] dn, ArrayDBIDs ids, List<KNNHeap> heaps) {
+    final int size = qv.length, n = dv.length;
+    final int dim = qv[0].length;
+    final double[] qn = squaredNorms(qv);
+    // Bound on the rounding error, relative to the squared norms:
+    final double eps = (dim + 2) * 0x1p-50;
+    final int qblock = QUERY_BLOCK, dblock = Math.max(16, DATA_BLOCK_DOUBLES / Math.max(dim, 1));
+    final double[] dots = new double[qblock * dblock];
+    DBIDArrayIter it = ids.iter();
+    for(int q0 = 0; q0 < size; q0 += qblock) {
+      final int q1 = Math.min(q0 + qblock, size);
+      for(int j0 = 0; j0 < n; j0 += dblock) {
+        final int j1 = Math.min(j0 + dblock, n), w = j1 - j0;
+        // Tiled inner products:
+        innerProducts(qv, q0, q1, dv, j0, j1, dots);
+        // Feed the heaps, verifying candidates exactly:
+        for(int q = q0, o = 0; q < q1; q++, o += w) {
+          final KNNHeap heap = heaps.get(q);
+          final double[] x = qv[q];
+          final double nq = qn[q];
+          double max = heap.getKNNDistance();
+          for(int j = j0; j < j1; j++) {
+            final double nd = dn[j];
+            if(nq + nd - 2 * dots[o + j - j0] - eps * (nq + nd) > max) {
+              continue;
+            }
+            final double dist = squaredDistance(x, dv[j], max);
+            if(dist <= max) {
+              max = heap.insert(dist, it.seek(j));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compute a tile of inner products, two queries times two data vectors at a
+   * time to reduce memory loads.
+   *
+   * @param qv Query vectors
+   * @param q0 First query
+   * @param q1 Query end (exclusive)
+   * @param dv Data vectors
+   * @param j0 First data vector
+   * @param j1 Data end (exclusive)
+   * @param dots Output array, row-major
+   */
+  private static void innerProducts(double[][] qv, int q0, int q1, double[][] dv, int j0, int j1, double[] dots) {
+    final int w = j1 - j0, dim = qv[q0].length;
+    int q = q0, o = 0;
+    for(; q + 1 < q1; q += 2, o += w << 1) {
+      final double[] x1 = qv[q], x2 = qv[q + 1];
+      int j = j0;
+      for(; j + 1 < j1; j += 2) {
+        final double[] y1 = dv[j], y2 = dv[j + 1];
+        double s11 = 0., s12 = 0., s21 = 0., s22 = 0.;
+        for(int d = 0; d < dim; d++) {
+          final double a1 = x1[d], a2 = x2[d], b1 = y1[d], b2 = y2[d];
+          s11 += a1 * b1;
+          s12 += a1 * b2;
+          s21 += a2 * b1;
+          s22 += a2 * b2;
+        }
+        final int p = o + j - j0;
+        dots[p] = s11;
+        dots[p + 1] = s12;
+        dots[p + w] = s21;
+        dots[p + w + 1] = s22;
+      }
+      if(j < j1) {
+        final int p = o + j - j0;
+        dots[p] = dot(x1, dv[j]);
+        dots[p + w] = dot(x2, dv[j]);
+      }
+    }
+    if(q < q1) {
+      final double[] x = qv[q];
+      for(int j = j0; j < j1; j++) {
+        dots[o + j - j0] = dot(x, dv[j]);
+      }
+    }
+  }
+
+  /**
+   * Inner product of two vectors.
+   *
+   * @param x First vector
+   * @param y Second vector
+   * @return Inner product
+   */
+  private static double dot(double[] x, double[] y) {
+    double agg = 0.;
+    for(int d = 0; d < x.length; d++) {
+      agg += x[d] * y[d];
+    }
+    return agg;
+  }
+
+  /**
+   * Exact squared Euclidean distance, with early abandoning.
+   *
+   * This must use the same summation order as
+   * {@link SquaredEuclideanDistanceFunction}.
+   *
+   * @param x First vector
+   * @param y Second vector
+   * @param cutoff Cutoff value
+   * @return Squared distance, or a value larger than cutoff
+   */
+  private static double squaredDistance(double[] x, double[] y, double cutoff) {
+    double agg = 0.;
+    for(int d = 0; d < x.length; d++) {
+      final double delta = x[d] - y[d];
+      agg += delta * delta;
+      if(agg > cutoff) {
+        return agg;
+      }
+    }
+    return agg;
+  }
+
+  /**
+   * Compute the squared norms of all vectors.
+   *
+   * @param vs Vectors
+   * @return Squared norms
+   */
+  private static double[] squaredNorms(double[][] vs) {
+    final double[] norms = new double[vs.length];
+    for(int i = 0; i < vs.length; i++) {
+      double agg = 0.;
+      for(double v : vs[i]) {
+        agg += v * v;
+      }
+      norms[i] = agg;
+    }
+    return norms;
+  }
+
+  /**
+   * Copy vectors into dense arrays.
+   *
+   * @param iter Vector iterator
+   * @param size Number of vectors
+   * @param dim Expected dimensionality
+   * @return Dense vectors, or {@code null} if sparse or of varying
+   *         dimensionality.
+   */
+  private static double[][] denseVectors(Iterator<? extends NumberVector> iter, int size, int dim) {
+    double[][] vs = new double[size][];
+    for(int i = 0; i < size; i++) {
+      NumberVector v = iter.next();
+      if(v instanceof SparseNumberVector || v.getDimensionality() != dim) {
+        return null;
+      }
+      vs[i] = v.toArray();
+    }
+    return vs;
+  }
+
+  /**
+   * Dense copy of the relation vectors, with their squared norms.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class DenseData {
+    /**
+     * Modification count of the relation the copy was made from.
+     */
+    final int modcount;
+
+    /**
+     * Ids, in the order of the vectors.
+     */
+    final ArrayDBIDs ids;
+
+    /**
+     * Dimensionality.
+     */
+    final int dim;
+
+    /**
+     * Dense vectors, or {@code null} if sparse or of varying dimensionality.
+     */
+    final double[][] vecs;
+
+    /**
+     * Squared norms of the vectors.
+     */
+    final double[] norms;
+
+    /**
+     * Copy the relation vectors into dense arrays.
+     *
+     * @param relation Data relation
+     * @param modcount Modification count of the relation
+     */
+    DenseData(Relation<? extends NumberVector> relation, int modcount) {
+      this.modcount = modcount;
+      this.ids = DBIDUtil.ensureArray(relation.getDBIDs());
+      double[][] vs = new double[ids.size()][];
+      int i = 0, d = -1;
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance(), i++) {
+        NumberVector v = relation.get(iter);
+        d = d < 0 ? v.getDimensionality() : d;
+        if(v instanceof SparseNumberVector || v.getDimensionality() != d) {
+          vs = null;
+          break;
+        }
+        vs[i] = v.toArray();
+      }
+      this.dim = d;
+      this.vecs = vs;
+      this.norms = vs != null ? squaredNorms(vs) : null;
+    }
+  }
+
+  /**
+   * Naive batch kNN, for sparse vectors or varying dimensionality.
+   *
+   * @param objs Objects list
+   * @param heaps Heaps array
+   */
+  private void linearScanBatchKNNGeneric(List<O> objs, List<KNNHeap> heaps) {
     final SquaredEuclideanDistanceFunction squared = SquaredEuclideanDistanceFunction.STATIC;
     final Relation<? extends O> relation = getRelation();
     final int size = objs.size();
@@ -129,8 +433,9 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
       O candidate = relation.get(iter);
       for(int index = 0; index < size; index++) {
         final KNNHeap heap = heaps.get(index);
-        final double dist = squared.distance(objs.get(index), candidate);
-        if(dist <= heap.getKNNDistance()) {
+        final double max = heap.getKNNDistance();
+        final double dist = squared.distance(objs.get(index), candidate, max);
+        if(dist <= max) {
           heap.insert(dist, iter);
         }
       }
@@ -87,7 +87,7 @@ public class LinearScanPrimitiveDistanceKNNQuery<O> extends AbstractDistanceKNNQ
     final PrimitiveDistanceFunction<? super O> rawdist = this.rawdist;
     double max = Double.POSITIVE_INFINITY;
     while(iter.valid()) {
-      final double dist = rawdist.distance(obj, relation.get(iter));
+      final double dist = rawdist.distance(obj, relation.get(iter), max);
       if(dist <= max) {
         max = heap.insert(dist, iter);
       }
@@ -130,8 +130,9 @@ public class LinearScanPrimitiveDistanceKNNQuery<O> extends AbstractDistanceKNNQ
       O candidate = relation.get(iter);
       for(int index = 0; index < size; index++) {
         final KNNHeap heap = heaps.get(index);
-        final double dist = rawdist.distance(objs.get(index), candidate);
-        if(dist <= heap.getKNNDistance()) {
+        final double max = heap.getKNNDistance();
+        final double dist = rawdist.distance(objs.get(index), candidate, max);
+        if(dist <= max) {
           heap.insert(dist, iter);
         }
       }
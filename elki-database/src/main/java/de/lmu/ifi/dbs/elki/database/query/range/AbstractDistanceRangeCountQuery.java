@@ -0,0 +1,65 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.range;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+
+/**
+ * Abstract base class for range count queries that use a distance query in
+ * their instance
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @param <O> Database object type
+ */
+public abstract class AbstractDistanceRangeCountQuery<O> implements RangeCountQuery<O> {
+  /**
+   * Hold the distance function to be used.
+   */
+  final protected DistanceQuery<O> distanceQuery;
+
+  /**
+   * Constructor.
+   * 
+   * @param distanceQuery Distance query
+   */
+  public AbstractDistanceRangeCountQuery(DistanceQuery<O> distanceQuery) {
+    super();
+    this.distanceQuery = distanceQuery;
+  }
+
+  @Override
+  public int getRangeCountForDBID(DBIDRef id, double range, int limit) {
+    return getRangeCountForObject(getRelation().get(id), range, limit);
+  }
+
+  /**
+   * Get the relation to query.
+   *
+   * @return Relation
+   */
+  protected Relation<? extends O> getRelation() {
+    return distanceQuery.getRelation();
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.range;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+
+/**
+ * Default linear scan range count query class, which stops as soon as the
+ * limit is reached.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.has DistanceQuery
+ * 
+ * @param <O> Database object type
+ */
+public class LinearScanDistanceRangeCountQuery<O> extends AbstractDistanceRangeCountQuery<O> implements LinearScanQuery {
+  /**
+   * Constructor.
+   * 
+   * @param distanceQuery Distance function to use
+   */
+  public LinearScanDistanceRangeCountQuery(DistanceQuery<O> distanceQuery) {
+    super(distanceQuery);
+  }
+
+  @Override
+  public int getRangeCountForDBID(DBIDRef id, double range, int limit) {
+    final DistanceQuery<O> dq = distanceQuery;
+    int count = 0;
+    for(DBIDIter iter = getRelation().iterDBIDs(); count < limit && iter.valid(); iter.advance()) {
+      if(dq.distance(id, iter) <= range) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public int getRangeCountForObject(O obj, double range, int limit) {
+    final DistanceQuery<O> dq = distanceQuery;
+    int count = 0;
+    for(DBIDIter iter = getRelation().iterDBIDs(); count < limit && iter.valid(); iter.advance()) {
+      if(dq.distance(obj, iter) <= range) {
+        ++count;
+      }
+    }
+    return count;
+  }
+}
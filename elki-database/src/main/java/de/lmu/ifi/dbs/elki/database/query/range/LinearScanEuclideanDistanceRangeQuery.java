@@ -100,7 +100,7 @@ public class LinearScanEuclideanDistanceRangeQuery<O extends NumberVector> exten
     // upper = MathUtil.floatToDoubleUpper((float)range);
     final double sqrange = upper * upper;
     while(iter.valid()) {
-      final double sqdistance = squared.distance(obj, relation.get(iter));
+      final double sqdistance = squared.distance(obj, relation.get(iter), sqrange);
       if(sqdistance <= sqrange) {
         final double dist = FastMath.sqrt(sqdistance);
         if(dist <= range) { // double check, as we increased the radius above
@@ -102,7 +102,7 @@ public class LinearScanPrimitiveDistanceRangeQuery<O> extends AbstractDistanceRa
   private void linearScan(Relation<? extends O> relation, DBIDIter iter, O obj, double range, ModifiableDoubleDBIDList result) {
     final PrimitiveDistanceFunction<? super O> rawdist = this.rawdist;
     while(iter.valid()) {
-      final double distance = rawdist.distance(obj, relation.get(iter));
+      final double distance = rawdist.distance(obj, relation.get(iter), range);
       if(distance <= range) {
         result.add(distance, iter);
       }
@@ -0,0 +1,69 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.query.range;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+
+/**
+ * Range count query that materializes the result of a range query. This is
+ * used for indexes that support range queries, but have no native support for
+ * counting.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.uses RangeQuery
+ * 
+ * @param <O> Database object type
+ */
+public class RangeQueryCountAdapter<O> implements RangeCountQuery<O> {
+  /**
+   * Range query to use.
+   */
+  private final RangeQuery<O> rangeQuery;
+
+  /**
+   * Constructor.
+   * 
+   * @param rangeQuery Range query to use
+   */
+  public RangeQueryCountAdapter(RangeQuery<O> rangeQuery) {
+    super();
+    this.rangeQuery = rangeQuery;
+  }
+
+  @Override
+  public int getRangeCountForDBID(DBIDRef id, double range, int limit) {
+    // Avoid sorting the result.
+    ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
+    rangeQuery.getRangeForDBID(id, range, neighbors);
+    return Math.min(neighbors.size(), limit);
+  }
+
+  @Override
+  public int getRangeCountForObject(O obj, double range, int limit) {
+    ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
+    rangeQuery.getRangeForObject(obj, range, neighbors);
+    return Math.min(neighbors.size(), limit);
+  }
+}
@@ -70,7 +70,7 @@ public abstract class AbstractRelation<O> extends AbstractHierarchicalResult imp
         getLogger().debugFinest((q != null ? "Using" : "Not using") + " index for distance query: " + it.get());
       }
       if(q != null) {
-        return q;
+        return QueryUtil.instrument(q);
       }
     }
     for(Object o : hints) {
@@ -78,7 +78,7 @@ public abstract class AbstractRelation<O> extends AbstractHierarchicalResult imp
         return null; // Linear scan is not desirable.
       }
     }
-    return distanceFunction.instantiate(this);
+    return QueryUtil.instrument(distanceFunction.instantiate(this));
   }
 
   @Override
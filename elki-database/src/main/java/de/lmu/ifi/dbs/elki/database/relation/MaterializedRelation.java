@@ -81,6 +81,11 @@ public class MaterializedRelation<O> extends AbstractRelation<O> implements Modi
    */
   private String shortname = "relation";
 
+  /**
+   * Number of modifications, to detect stale copies of the data.
+   */
+  private int modcount = 0;
+
   /**
    * Constructor.
    *
@@ -153,6 +158,7 @@ public class MaterializedRelation<O> extends AbstractRelation<O> implements Modi
       throw new AbortException("Data is stored in a non-writable data store. Modifications are not possible.");
     }
     ((WritableDataStore<O>) content).put(id, val);
+    ++modcount;
     for(It<Index> it = this.getHierarchy().iterDescendants(this).filter(Index.class); it.valid(); it.advance()) {
       if(!(it.get() instanceof DynamicIndex)) {
         throw new AbortException("A non-dynamic index was added to this database. Modifications are not allowed, unless this index is removed.");
@@ -172,6 +178,7 @@ public class MaterializedRelation<O> extends AbstractRelation<O> implements Modi
     if(!(content instanceof WritableDataStore)) {
       throw new AbortException("Data is stored in a non-writable data store. Modifications are not possible.");
     }
+    ++modcount;
     for(It<Index> it = this.getHierarchy().iterDescendants(this).filter(Index.class); it.valid(); it.advance()) {
       if(!(it.get() instanceof DynamicIndex)) {
         throw new AbortException("A non-dynamic index was added to this database. Modifications are not allowed, unless this index is removed.");
@@ -181,6 +188,19 @@ public class MaterializedRelation<O> extends AbstractRelation<O> implements Modi
     ((WritableDataStore<O>) content).delete(id);
   }
 
+  /**
+   * Get the number of modifications ({@link #insert} and {@link #delete}) of
+   * this relation, e.g., to detect when a cached copy of the data is stale.
+   * <p>
+   * Changes that bypass the relation, e.g., by writing to the underlying data
+   * store directly, are not counted.
+   *
+   * @return Modification count
+   */
+  public int getModificationCount() {
+    return modcount;
+  }
+
   @Override
   public StaticDBIDs getDBIDs() {
     return ids;
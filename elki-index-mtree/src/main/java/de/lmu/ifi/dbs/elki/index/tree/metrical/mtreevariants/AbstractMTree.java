@@ -35,6 +35,7 @@ import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.strategies.split.As
 import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.strategies.split.DistanceEntry;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
 import de.lmu.ifi.dbs.elki.persistent.PageFile;
 import de.lmu.ifi.dbs.elki.utilities.pairs.DoubleIntPair;
@@ -511,6 +512,11 @@ public abstract class AbstractMTree<O, N extends AbstractMTreeNode<O, N, E>, E e
      */
     protected final Counter rangeQueries;
 
+    /**
+     * Shared instrumentation counter for distance computations.
+     */
+    protected final Counter instrDistanceCalcs;
+
     /**
      * Constructor.
      */
@@ -520,6 +526,7 @@ public abstract class AbstractMTree<O, N extends AbstractMTreeNode<O, N, E>, E e
       distanceCalcs = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".distancecalcs") : null;
       knnQueries = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".knnqueries") : null;
       rangeQueries = log.isStatistics() ? log.newCounter(this.getClass().getName() + ".rangequeries") : null;
+      instrDistanceCalcs = Instrumentation.counterIfEnabled(Instrumentation.DISTANCE_COMPUTATIONS);
     }
 
     /**
@@ -529,6 +536,23 @@ public abstract class AbstractMTree<O, N extends AbstractMTreeNode<O, N, E>, E e
       if(distanceCalcs != null) {
         distanceCalcs.increment();
       }
+      if(instrDistanceCalcs != null) {
+        instrDistanceCalcs.increment();
+      }
+    }
+
+    /**
+     * Count multiple distance computations.
+     *
+     * @param count Number of distance computations
+     */
+    public void countDistanceCalculations(long count) {
+      if(distanceCalcs != null) {
+        distanceCalcs.increment(count);
+      }
+      if(instrDistanceCalcs != null) {
+        instrDistanceCalcs.increment(count);
+      }
     }
 
     /**
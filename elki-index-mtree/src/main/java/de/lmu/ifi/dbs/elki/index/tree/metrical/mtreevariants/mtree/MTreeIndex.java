@@ -30,11 +30,13 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.index.DistanceBrowserIndex;
 import de.lmu.ifi.dbs.elki.index.DynamicIndex;
 import de.lmu.ifi.dbs.elki.index.KNNIndex;
 import de.lmu.ifi.dbs.elki.index.RangeIndex;
@@ -54,7 +56,7 @@ import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
  *
  * @param <O> Object type
  */
-public class MTreeIndex<O> extends MTree<O>implements RangeIndex<O>, KNNIndex<O>, DynamicIndex {
+public class MTreeIndex<O> extends MTree<O>implements RangeIndex<O>, KNNIndex<O>, DistanceBrowserIndex<O>, DynamicIndex {
   /**
    * The relation indexed.
    */
@@ -209,6 +211,21 @@ public class MTreeIndex<O> extends MTree<O>implements RangeIndex<O>, KNNIndex<O>
     return MTreeQueryUtil.getKNNQuery(this, dq, hints);
   }
 
+  @Override
+  public DistanceBrowser<O> getDistanceBrowser(DistanceQuery<O> distanceQuery, Object... hints) {
+    // Query on the relation we index
+    if(distanceQuery.getRelation() != relation) {
+      return null;
+    }
+    DistanceFunction<? super O> distanceFunction = (DistanceFunction<? super O>) distanceQuery.getDistanceFunction();
+    if(!this.getDistanceFunction().equals(distanceFunction)) {
+      getLogger().debug("Distance function not supported by index - or 'equals' not implemented right!");
+      return null;
+    }
+    DistanceQuery<O> dq = distanceFunction.instantiate(relation);
+    return MTreeQueryUtil.getDistanceBrowser(this, dq, hints);
+  }
+
   @Override
   public RangeQuery<O> getRangeQuery(DistanceQuery<O> distanceQuery, Object... hints) {
     // Query on the relation we index
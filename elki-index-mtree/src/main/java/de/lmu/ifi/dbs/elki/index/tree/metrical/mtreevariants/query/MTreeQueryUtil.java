@@ -21,6 +21,7 @@
 package de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.query;
 
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.AbstractMTree;
@@ -65,4 +66,17 @@ public final class MTreeQueryUtil {
   public static <O> RangeQuery<O> getRangeQuery(AbstractMTree<O, ?, ?, ?> tree, DistanceQuery<O> distanceQuery, Object... hints) {
     return new MetricalIndexRangeQuery<>(tree, distanceQuery);
   }
+
+  /**
+   * Get an MTree distance browser (incremental nearest neighbor search).
+   * 
+   * @param <O> Object type
+   * @param tree Tree to query
+   * @param distanceQuery distance query
+   * @param hints Optimizer hints
+   * @return Query object
+   */
+  public static <O> DistanceBrowser<O> getDistanceBrowser(AbstractMTree<O, ?, ?, ?> tree, DistanceQuery<O> distanceQuery, Object... hints) {
+    return new MetricalIndexDistanceBrowser<>(tree, distanceQuery);
+  }
 }
@@ -0,0 +1,111 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.query;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceBrowser;
+import de.lmu.ifi.dbs.elki.index.tree.DirectoryEntry;
+import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.AbstractMTree;
+import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.AbstractMTreeNode;
+import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.MTreeEntry;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.ComparableMinHeap;
+
+/**
+ * Incremental nearest neighbor search on an M-tree.
+ * 
+ * Directory entries are queued with the lower bound
+ * {@code max(d(q, o_r) - r(o_r), 0)}, i.e. the distance to the covering ball.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.uses AbstractMTree
+ * @apiviz.uses MTreeSearchCandidate
+ * 
+ * @param <O> Object type
+ */
+public class MetricalIndexDistanceBrowser<O> extends AbstractDistanceBrowser<O> {
+  /**
+   * The index to use
+   */
+  protected final AbstractMTree<O, ?, ?, ?> index;
+
+  /**
+   * Distance query.
+   */
+  protected final DistanceQuery<O> distanceQuery;
+
+  /**
+   * Queue of unexpanded nodes.
+   */
+  private final ComparableMinHeap<MTreeSearchCandidate> pq = new ComparableMinHeap<>();
+
+  /**
+   * Current query object.
+   */
+  private O query;
+
+  /**
+   * Constructor.
+   * 
+   * @param index Index to use
+   * @param distanceQuery Distance query used
+   */
+  public MetricalIndexDistanceBrowser(AbstractMTree<O, ?, ?, ?> index, DistanceQuery<O> distanceQuery) {
+    super(distanceQuery.getRelation());
+    this.index = index;
+    this.distanceQuery = distanceQuery;
+  }
+
+  @Override
+  protected void startSearch(O obj) {
+    index.statistics.countKNNQuery();
+    query = obj;
+    pq.clear();
+    pq.add(new MTreeSearchCandidate(0., index.getRootID(), null, 0.));
+  }
+
+  @Override
+  protected boolean expandNextNode(double threshold) {
+    if(pq.isEmpty() || pq.peek().mindist > threshold) {
+      return false;
+    }
+    AbstractMTreeNode<?, ?, ?> node = index.getNode(pq.poll().nodeID);
+    if(!node.isLeaf()) {
+      for(int i = 0; i < node.getNumEntries(); i++) {
+        MTreeEntry entry = node.getEntry(i);
+        DBID o_r = entry.getRoutingObjectID();
+        double d3 = distanceQuery.distance(o_r, query);
+        double d_min = Math.max(d3 - entry.getCoveringRadius(), 0.);
+        pq.add(new MTreeSearchCandidate(d_min, ((DirectoryEntry) entry).getPageID(), o_r, d3));
+      }
+    }
+    else {
+      for(int i = 0; i < node.getNumEntries(); i++) {
+        DBID o_j = node.getEntry(i).getRoutingObjectID();
+        addCandidate(distanceQuery.distance(o_j, query), o_j);
+      }
+    }
+    index.statistics.countDistanceCalculations(node.getNumEntries());
+    return true;
+  }
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
 import de.lmu.ifi.dbs.elki.index.AbstractIndexStructureTest;
+import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.query.MetricalIndexDistanceBrowser;
 import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.query.MetricalIndexKNNQuery;
 import de.lmu.ifi.dbs.elki.index.tree.metrical.mtreevariants.query.MetricalIndexRangeQuery;
 import de.lmu.ifi.dbs.elki.persistent.AbstractPageFileFactory;
@@ -46,4 +47,15 @@ public class MTreeTest extends AbstractIndexStructureTest {
     metparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
     testExactEuclidean(metparams, MetricalIndexKNNQuery.class, MetricalIndexRangeQuery.class);
   }
+
+  /**
+   * Test the distance browser of {@link MTree}.
+   */
+  @Test
+  public void testMetricalBrowser() {
+    ListParameterization metparams = new ListParameterization();
+    metparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, MTreeFactory.class);
+    metparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    testDistanceBrowserEuclidean(metparams, MetricalIndexDistanceBrowser.class);
+  }
 }
@@ -21,8 +21,7 @@
 package de.lmu.ifi.dbs.elki.index.preprocessed.knn;
 
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
-import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
-import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
@@ -76,7 +75,7 @@ public abstract class AbstractMaterializeKNNPreprocessor<O> extends AbstractPrep
     super(relation);
     this.k = k;
     this.distanceFunction = distanceFunction;
-    this.distanceQuery = distanceFunction.instantiate(relation);
+    this.distanceQuery = QueryUtil.instrument(distanceFunction.instantiate(relation));
   }
 
   /**
@@ -122,7 +121,16 @@ public abstract class AbstractMaterializeKNNPreprocessor<O> extends AbstractPrep
    * Create the default storage.
    */
   void createStorage() {
-    storage = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT, KNNList.class);
+    storage = new FlatKNNStore(relation.getDBIDs(), k);
+  }
+
+  /**
+   * Reclaim the space of replaced kNN lists, after updates.
+   */
+  protected void compactStorage() {
+    if(storage instanceof FlatKNNStore) {
+      ((FlatKNNStore) storage).compact(relation.getDBIDs());
+    }
   }
 
   @Override
@@ -0,0 +1,449 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.preprocessed.knn;
+
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDPair;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+
+/**
+ * Compact storage for materialized kNN lists.
+ *
+ * Rather than keeping one list object (with two arrays each) per object, all
+ * neighbors are stored in two contiguous primitive arrays, and
+ * {@link #get(DBIDRef)} returns a lightweight view. This reduces memory
+ * overhead and improves locality when scanning all kNN lists.
+ *
+ * Storing a view obtained from this store (e.g., for duplicate points) only
+ * records its position, so the neighbors are shared. Stored entries are never
+ * overwritten: replacing a list appends the new list, so views obtained
+ * earlier remain unchanged. The space of replaced lists is reclaimed by
+ * {@link #compact(DBIDs)}, which copies the remaining lists to new arrays,
+ * and by {@link #clear()}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.has KNNList
+ */
+public class FlatKNNStore implements WritableDataStore<KNNList> {
+  /**
+   * Maximum array size.
+   */
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  /**
+   * The k value of the stored lists.
+   */
+  private final int k;
+
+  /**
+   * Start offset of each list, -1 if not stored.
+   */
+  private WritableIntegerDataStore start;
+
+  /**
+   * Size of each list.
+   */
+  private WritableIntegerDataStore sizes;
+
+  /**
+   * Neighbor ids (internal indexes).
+   */
+  int[] ids;
+
+  /**
+   * Neighbor distances.
+   */
+  double[] dists;
+
+  /**
+   * Number of used entries.
+   */
+  int used = 0;
+
+  /**
+   * Total size of the current lists, shared lists are counted once per object.
+   */
+  private long live = 0;
+
+  /**
+   * Generation of the arrays, incremented when entries are moved.
+   */
+  private int generation = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param objs Objects to store the kNN lists of
+   * @param k k value
+   */
+  public FlatKNNStore(DBIDs objs, int k) {
+    super();
+    this.k = k;
+    this.start = DataStoreUtil.makeIntegerStorage(objs, DataStoreFactory.HINT_HOT, -1);
+    this.sizes = DataStoreUtil.makeIntegerStorage(objs, DataStoreFactory.HINT_HOT, 0);
+    allocate(objs.size() * (long) k);
+  }
+
+  /**
+   * Allocate new arrays.
+   *
+   * @param size Expected number of entries
+   */
+  private void allocate(long size) {
+    // Reserve some extra space for ties.
+    final int length = (int) Math.min(MAX_ARRAY_SIZE, size + (size >>> 3) + 16);
+    ids = new int[length];
+    dists = new double[length];
+    used = 0;
+  }
+
+  @Override
+  public KNNList get(DBIDRef id) {
+    final int off = start.intValue(id);
+    return off < 0 ? null : new View(off, sizes.intValue(id));
+  }
+
+  @Override
+  public KNNList put(DBIDRef id, KNNList value) {
+    final int oldoff = start.intValue(id), oldsize = sizes.intValue(id);
+    final KNNList old = oldoff < 0 ? null : new View(oldoff, oldsize);
+    if(value == null) {
+      start.putInt(id, -1);
+      sizes.putInt(id, 0);
+      live -= oldsize;
+      return old;
+    }
+    if(value.getK() != k) {
+      throw new IllegalArgumentException("kNN list has k=" + value.getK() + ", but the store has k=" + k);
+    }
+    final int size = value.size();
+    live += size - oldsize;
+    // Current views into this store are shared, not copied.
+    if(value instanceof View && ((View) value).isCurrent(this)) {
+      start.putInt(id, ((View) value).off);
+      sizes.putInt(id, size);
+      return old;
+    }
+    ensureCapacity(size);
+    final int pos = used;
+    int i = pos;
+    for(DoubleDBIDListIter it = value.iter(); it.valid(); it.advance(), i++) {
+      ids[i] = it.internalGetIndex();
+      dists[i] = it.doubleValue();
+    }
+    used += size;
+    start.putInt(id, pos);
+    sizes.putInt(id, size);
+    return old;
+  }
+
+  /**
+   * Ensure there is space for additional entries.
+   *
+   * @param size Number of entries to add
+   */
+  private void ensureCapacity(int size) {
+    final long req = (long) used + size;
+    if(req <= ids.length) {
+      return;
+    }
+    if(req > MAX_ARRAY_SIZE) {
+      throw new IllegalStateException("Too many kNN entries for a flat store.");
+    }
+    // Growing keeps the offsets, so views remain current.
+    final int newlength = (int) Math.min(MAX_ARRAY_SIZE, Math.max(req, ids.length + (long) (ids.length >>> 1)));
+    int[] oids = ids;
+    ids = new int[newlength];
+    System.arraycopy(oids, 0, ids, 0, used);
+    double[] odists = dists;
+    dists = new double[newlength];
+    System.arraycopy(odists, 0, dists, 0, used);
+  }
+
+  /**
+   * Reclaim the space of replaced lists, if they occupy more than half of the
+   * used space. The remaining lists are copied to new arrays, so views
+   * obtained earlier remain valid, but are no longer shared when stored again.
+   *
+   * @param objs Objects with stored lists
+   * @return {@code true} if the storage was compacted
+   */
+  public boolean compact(DBIDs objs) {
+    if(used <= live << 1) {
+      return false;
+    }
+    final int[] oids = ids;
+    final double[] odists = dists;
+    // New position of shared lists, offset by 1 (0: not yet copied).
+    final int[] moved = new int[used];
+    allocate(live);
+    for(DBIDIter it = objs.iter(); it.valid(); it.advance()) {
+      final int off = start.intValue(it);
+      if(off < 0) {
+        continue;
+      }
+      if(moved[off] == 0) {
+        final int size = sizes.intValue(it);
+        System.arraycopy(oids, off, ids, used, size);
+        System.arraycopy(odists, off, dists, used, size);
+        moved[off] = used + 1;
+        used += size;
+      }
+      start.putInt(it, moved[off] - 1);
+    }
+    ++generation;
+    return true;
+  }
+
+  @Override
+  public void delete(DBIDRef id) {
+    put(id, null);
+  }
+
+  @Override
+  public void clear() {
+    start.clear();
+    sizes.clear();
+    // New arrays, to not modify views obtained earlier.
+    ids = new int[ids.length];
+    dists = new double[dists.length];
+    used = 0;
+    live = 0;
+    ++generation;
+  }
+
+  @Override
+  public void destroy() {
+    start.destroy();
+    sizes.destroy();
+    start = sizes = null;
+    ids = null;
+    dists = null;
+  }
+
+  /**
+   * Get the k value of this store.
+   *
+   * @return k
+   */
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * View of a single kNN list.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private class View implements KNNList {
+    /**
+     * Neighbor ids, of the arrays current when the view was created.
+     */
+    private final int[] vids;
+
+    /**
+     * Neighbor distances, of the arrays current when the view was created.
+     */
+    private final double[] vdists;
+
+    /**
+     * Generation of the arrays.
+     */
+    private final int gen;
+
+    /**
+     * Start offset.
+     */
+    private final int off;
+
+    /**
+     * List size.
+     */
+    private final int size;
+
+    /**
+     * Constructor.
+     *
+     * @param off Start offset
+     * @param size List size
+     */
+    private View(int off, int size) {
+      this.vids = ids;
+      this.vdists = dists;
+      this.gen = generation;
+      this.off = off;
+      this.size = size;
+    }
+
+    /**
+     * Test whether the view refers to the current entries of a store.
+     *
+     * @param store Store
+     * @return {@code true} if the view can be stored by offset
+     */
+    private boolean isCurrent(FlatKNNStore store) {
+      return store == FlatKNNStore.this && gen == generation;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    @Override
+    public int getK() {
+      return k;
+    }
+
+    @Override
+    public double getKNNDistance() {
+      return size >= k ? vdists[off + k - 1] : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public DoubleDBIDPair get(int index) {
+      return DBIDUtil.newPair(vdists[off + index], new Itr().seek(index));
+    }
+
+    @Override
+    public DBIDVar assignVar(int index, DBIDVar var) {
+      var.set(new Itr().seek(index));
+      return var;
+    }
+
+    @Override
+    public boolean contains(DBIDRef o) {
+      final int q = o.internalGetIndex();
+      for(int i = off, end = off + size; i < end; i++) {
+        if(vids[i] == q) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Itr iter() {
+      return new Itr();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder();
+      buf.append("kNNList[");
+      for(DoubleDBIDListIter iter = this.iter(); iter.valid();) {
+        buf.append(iter.doubleValue()).append(':').append(iter.internalGetIndex());
+        iter.advance();
+        if(iter.valid()) {
+          buf.append(',');
+        }
+      }
+      buf.append(']');
+      return buf.toString();
+    }
+
+    /**
+     * List iterator.
+     *
+     * @author Erich Schubert
+     *
+     * @apiviz.exclude
+     */
+    private class Itr implements DoubleDBIDListIter {
+      /**
+       * Current position.
+       */
+      int pos = 0;
+
+      @Override
+      public boolean valid() {
+        return pos < size && pos >= 0;
+      }
+
+      @Override
+      public Itr advance() {
+        ++pos;
+        return this;
+      }
+
+      @Override
+      public Itr advance(int count) {
+        pos += count;
+        return this;
+      }
+
+      @Override
+      public Itr retract() {
+        --pos;
+        return this;
+      }
+
+      @Override
+      public Itr seek(int o) {
+        pos = o;
+        return this;
+      }
+
+      @Override
+      public int getOffset() {
+        return pos;
+      }
+
+      @Override
+      public int internalGetIndex() {
+        return vids[off + pos];
+      }
+
+      @Override
+      public double doubleValue() {
+        return vdists[off + pos];
+      }
+
+      @Override
+      public DoubleDBIDPair getPair() {
+        return DBIDUtil.newPair(doubleValue(), this);
+      }
+
+      @Override
+      public String toString() {
+        return doubleValue() + ":" + internalGetIndex() + "@" + pos;
+      }
+    }
+  }
+}
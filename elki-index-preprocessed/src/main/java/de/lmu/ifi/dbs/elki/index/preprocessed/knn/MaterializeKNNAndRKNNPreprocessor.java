@@ -147,6 +147,7 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
     // update the old kNNs and RkNNs
     getLogger().beginStep(stepprog, 2, "New insertions ocurred, update the affected kNNs and RkNNs.");
     ArrayDBIDs rkNN_ids = updateKNNsAndRkNNs(ids);
+    compactStorage();
 
     // inform listener
     getLogger().beginStep(stepprog, 3, "New insertions ocurred, inform listeners.");
@@ -293,6 +294,7 @@ public class MaterializeKNNAndRKNNPreprocessor<O> extends MaterializeKNNPreproce
         }
       }
     }
+    compactStorage();
 
     // inform listener
     getLogger().beginStep(stepprog, 3, "New deletions ocurred, inform listeners.");
@@ -35,6 +35,7 @@ import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.ids.SetDBIDs;
 import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.BulkKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
@@ -72,13 +73,6 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
    */
   private static final Logging LOG = Logging.getLogger(MaterializeKNNPreprocessor.class);
 
-  /**
-   * Flag to use bulk operations.
-   *
-   * TODO: right now, bulk is not that good - so don't use
-   */
-  private static final boolean usebulk = false;
-
   /**
    * KNNQuery instance to use.
    */
@@ -116,16 +110,14 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
     }
     Duration duration = log.isStatistics() ? log.newDuration(this.getClass().getName() + ".precomputation-time").begin() : null;
     FiniteProgress progress = getLogger().isVerbose() ? new FiniteProgress("Materializing k nearest neighbors (k=" + k + ")", ids.size(), getLogger()) : null;
-    // Try bulk
-    List<? extends KNNList> kNNList = null;
-    if(usebulk) {
-      kNNList = knnQuery.getKNNForBulkDBIDs(ids, k);
-      if(kNNList != null) {
-        int i = 0;
-        for(DBIDIter id = ids.iter(); id.valid(); id.advance(), i++) {
-          storage.put(id, kNNList.get(i));
-          log.incrementProcessed(progress);
-        }
+    // Use bulk queries only where they are known to be supported and fast,
+    // e.g., a dual-tree join or the blocked Euclidean kernel.
+    List<? extends KNNList> kNNList = knnQuery instanceof BulkKNNQuery ? knnQuery.getKNNForBulkDBIDs(ids, k) : null;
+    if(kNNList != null) {
+      int i = 0;
+      for(DBIDIter id = ids.iter(); id.valid(); id.advance(), i++) {
+        storage.put(id, kNNList.get(i));
+        log.incrementProcessed(progress);
       }
     }
     else {
@@ -135,11 +127,14 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
           log.incrementProcessed(progress);
           continue; // Previously computed (duplicate point?)
         }
-        KNNList knn = knnQuery.getKNNForDBID(iter, k);
-        storage.put(iter, knn);
+        storage.put(iter, knnQuery.getKNNForDBID(iter, k));
         if(ismetric) {
+          // Use the stored list, so duplicates can share it.
+          KNNList knn = storage.get(iter);
           for(DoubleDBIDListIter it = knn.iter(); it.valid() && it.doubleValue() == 0.; it.advance()) {
-            storage.put(it, knn); // Reuse
+            if(!DBIDUtil.equal(it, iter)) {
+              storage.put(it, knn); // Reuse
+            }
           }
         }
         log.incrementProcessed(progress);
@@ -201,6 +196,7 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
     // update the affected kNNs
     log.beginStep(stepprog, 2, "New insertions ocurred, update the affected kNNs.");
     ArrayDBIDs rkNN_ids = updateKNNsAfterInsertion(ids);
+    compactStorage();
 
     // inform listener
     log.beginStep(stepprog, 3, "New insertions ocurred, inform listeners.");
@@ -292,6 +288,7 @@ public class MaterializeKNNPreprocessor<O> extends AbstractMaterializeKNNPreproc
     // update the affected kNNs
     log.beginStep(stepprog, 2, "New deletions ocurred, update the affected kNNs.");
     ArrayDBIDs rkNN_ids = updateKNNsAfterDeletion(ids);
+    compactStorage();
 
     // inform listener
     log.beginStep(stepprog, 3, "New deletions ocurred, inform listeners.");
@@ -242,7 +242,7 @@ public class NNDescent<O> extends AbstractMaterializeKNNPreprocessor<O> {
     }
     LOG.setCompleted(progress);
     // convert store to storage
-    storage = DataStoreFactory.FACTORY.makeStorage(ids, DataStoreFactory.HINT_DB, KNNList.class);
+    storage = new FlatKNNStore(ids, k);
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
       KNNHeap tempHeap = DBIDUtil.newHeap(k);
       // Add query point and convert heap to list:
@@ -22,8 +22,6 @@ package de.lmu.ifi.dbs.elki.index.preprocessed.knn;
 
 import gnu.trove.impl.Constants;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
-import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
-import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDPair;
@@ -92,7 +90,7 @@ public class PartitionApproximationMaterializeKNNPreprocessor<O> extends Abstrac
   @Override
   protected void preprocess() {
     DistanceQuery<O> distanceQuery = relation.getDistanceQuery(distanceFunction);
-    storage = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_STATIC, KNNList.class);
+    storage = new FlatKNNStore(relation.getDBIDs(), k);
     MeanVariance ksize = new MeanVariance();
     if(LOG.isVerbose()) {
       LOG.verbose("Approximating nearest neighbor lists to database objects");
@@ -199,7 +199,7 @@ public class SpacefillingMaterializeKNNPreprocessor<O extends NumberVector> exte
 
     // Convert to final storage
     final int wsize = (int) Math.ceil(window * k);
-    storage = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_STATIC, KNNList.class);
+    storage = new FlatKNNStore(relation.getDBIDs(), k);
     HashSetModifiableDBIDs cands = DBIDUtil.newHashSet(2 * wsize * numcurves);
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
       // Get candidates.
@@ -0,0 +1,232 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.preprocessed.snn;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.parallel.ParallelRanges;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.IntegerArray;
+
+/**
+ * Shared nearest neighbor graph, in compressed sparse row (CSR) form.
+ * <p>
+ * For each object, the graph contains all objects that share at least a
+ * minimum number of nearest neighbors with it (including the object itself),
+ * along with the number of shared neighbors.
+ * <p>
+ * Only objects that occur in the same nearest neighbor set can share a
+ * neighbor, so rather than intersecting the neighbor sets of all pairs, the
+ * shared neighbors are counted using the inverted neighbor sets. The rows of
+ * the graph are computed in parallel.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.uses SharedNearestNeighborIndex
+ */
+public class SharedNearestNeighborGraph {
+  /**
+   * Minimum number of objects per parallel block.
+   */
+  private static final int BLOCK_SIZE = 1024;
+
+  /**
+   * Object ids, sorted.
+   */
+  private final ArrayDBIDs ids;
+
+  /**
+   * Start of each row in {@link #columns}; one extra entry.
+   */
+  private final int[] rowstart;
+
+  /**
+   * Neighbor offsets, sorted within each row.
+   */
+  private final int[] columns;
+
+  /**
+   * Number of shared neighbors.
+   */
+  private final int[] shared;
+
+  /**
+   * Constructor.
+   *
+   * @param ids Object ids, sorted
+   * @param rowstart Start of each row
+   * @param columns Neighbor offsets
+   * @param shared Number of shared neighbors
+   */
+  private SharedNearestNeighborGraph(ArrayDBIDs ids, int[] rowstart, int[] columns, int[] shared) {
+    this.ids = ids;
+    this.rowstart = rowstart;
+    this.columns = columns;
+    this.shared = shared;
+  }
+
+  /**
+   * Build the shared nearest neighbor graph.
+   *
+   * @param index Shared nearest neighbor index
+   * @param dbids Object ids
+   * @param minshared Minimum number of shared neighbors, at least 1
+   * @return Graph
+   */
+  public static SharedNearestNeighborGraph build(SharedNearestNeighborIndex<?> index, DBIDs dbids, int minshared) {
+    assert minshared >= 1 : "Objects without shared neighbors cannot be found with the inverted neighbor sets.";
+    final ArrayDBIDs ids = DBIDUtil.ensureSorted(dbids);
+    final int size = ids.size();
+    if(size == 0) {
+      return new SharedNearestNeighborGraph(ids, new int[1], new int[0], new int[0]);
+    }
+    // The index is lazily initialized, which is not thread safe.
+    index.getNearestNeighborSet(ids.iter());
+
+    // Neighbor sets as sorted offsets.
+    final int[][] sets = new int[size][];
+    ParallelRanges.run(0, size, BLOCK_SIZE, (start, end) -> {
+      DBIDArrayIter it = ids.iter();
+      for(int i = start; i < end; i++) {
+        ArrayDBIDs set = index.getNearestNeighborSet(it.seek(i));
+        int[] offs = new int[set.size()];
+        int j = 0;
+        for(DBIDIter n = set.iter(); n.valid(); n.advance()) {
+          final int off = ids.binarySearch(n);
+          if(off >= 0) {
+            offs[j++] = off;
+          }
+        }
+        sets[i] = j < offs.length ? Arrays.copyOf(offs, j) : offs;
+      }
+    });
+
+    // Inverted neighbor sets, sorted because we add in order.
+    final int[] invstart = new int[size + 1];
+    for(int[] set : sets) {
+      for(int n : set) {
+        ++invstart[n + 1];
+      }
+    }
+    for(int i = 0; i < size; i++) {
+      invstart[i + 1] += invstart[i];
+    }
+    final int[] inverted = new int[invstart[size]];
+    final int[] pos = Arrays.copyOf(invstart, size);
+    for(int i = 0; i < size; i++) {
+      for(int n : sets[i]) {
+        inverted[pos[n]++] = i;
+      }
+    }
+
+    // Count the shared neighbors of each object.
+    final int[][] rows = new int[size][], rowshared = new int[size][];
+    ParallelRanges.run(0, size, BLOCK_SIZE, (start, end) -> {
+      int[] counts = new int[size];
+      IntegerArray touched = new IntegerArray();
+      for(int i = start; i < end; i++) {
+        touched.clear();
+        for(int n : sets[i]) {
+          for(int k = invstart[n], e = invstart[n + 1]; k < e; k++) {
+            if(counts[inverted[k]]++ == 0) {
+              touched.add(inverted[k]);
+            }
+          }
+        }
+        touched.sort();
+        int m = 0;
+        for(int k = 0; k < touched.size; k++) {
+          m += counts[touched.data[k]] >= minshared ? 1 : 0;
+        }
+        int[] row = new int[m], rshared = new int[m];
+        for(int k = 0, l = 0; k < touched.size; k++) {
+          final int j = touched.data[k], c = counts[j];
+          if(c >= minshared) {
+            row[l] = j;
+            rshared[l++] = c;
+          }
+          counts[j] = 0;
+        }
+        rows[i] = row;
+        rowshared[i] = rshared;
+      }
+    });
+
+    // Concatenate the rows.
+    final int[] rowstart = new int[size + 1];
+    for(int i = 0; i < size; i++) {
+      rowstart[i + 1] = rowstart[i] + rows[i].length;
+    }
+    final int[] columns = new int[rowstart[size]], shared = new int[rowstart[size]];
+    for(int i = 0; i < size; i++) {
+      System.arraycopy(rows[i], 0, columns, rowstart[i], rows[i].length);
+      System.arraycopy(rowshared[i], 0, shared, rowstart[i], rows[i].length);
+      rows[i] = rowshared[i] = null;
+    }
+    return new SharedNearestNeighborGraph(ids, rowstart, columns, shared);
+  }
+
+  /**
+   * Get the number of edges in the graph.
+   *
+   * @return Number of edges
+   */
+  public int numberOfEdges() {
+    return columns.length;
+  }
+
+  /**
+   * Add the neighbors of an object, in sorted order.
+   *
+   * @param id Object id
+   * @param result Output neighbors
+   */
+  public void getNeighbors(DBIDRef id, ModifiableDBIDs result) {
+    final int off = ids.binarySearch(id);
+    DBIDArrayIter it = ids.iter();
+    for(int k = rowstart[off], e = rowstart[off + 1]; k < e; k++) {
+      result.add(it.seek(columns[k]));
+    }
+  }
+
+  /**
+   * Add the neighbors of an object, with the number of shared neighbors, in
+   * sorted order.
+   *
+   * @param id Object id
+   * @param result Output neighbors
+   */
+  public void getNeighbors(DBIDRef id, ModifiableDoubleDBIDList result) {
+    final int off = ids.binarySearch(id);
+    DBIDArrayIter it = ids.iter();
+    for(int k = rowstart[off], e = rowstart[off + 1]; k < e; k++) {
+      result.add(shared[k], it.seek(columns[k]));
+    }
+  }
+}
@@ -20,16 +20,21 @@
  */
 package de.lmu.ifi.dbs.elki.index.preprocessed.snn;
 
+import java.util.List;
+
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.BulkKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
@@ -38,6 +43,7 @@ import de.lmu.ifi.dbs.elki.index.preprocessed.AbstractPreprocessorIndex;
 import de.lmu.ifi.dbs.elki.index.preprocessed.knn.MaterializeKNNPreprocessor;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.ParallelRanges;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
@@ -58,6 +64,11 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * neighbors, it does not keep the actual distances, but organizes the NN set in
  * a TreeSet for fast set operations.
  * 
+ * Linear scans are stateless, and are run in parallel on blocks of objects.
+ * Queries with a bulk implementation (e.g., a dual-tree join, which is
+ * parallel itself) are run as a single bulk query; all other queries one
+ * object at a time.
+ * 
  * @author Arthur Zimek
  * @author Erich Schubert
  * @since 0.4.0
@@ -74,6 +85,11 @@ public class SharedNearestNeighborPreprocessor<O> extends AbstractPreprocessorIn
    */
   private static final Logging LOG = Logging.getLogger(SharedNearestNeighborPreprocessor.class);
 
+  /**
+   * Number of objects per bulk kNN query.
+   */
+  private static final int BULK_SIZE = 256;
+
   /**
    * Holds the number of nearest neighbors to be used.
    */
@@ -102,27 +118,63 @@ public class SharedNearestNeighborPreprocessor<O> extends AbstractPreprocessorIn
     if(getLogger().isVerbose()) {
       getLogger().verbose("Assigning nearest neighbor lists to database objects");
     }
-    storage = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, ArrayDBIDs.class);
-    KNNQuery<O> knnquery = QueryUtil.getKNNQuery(relation, distanceFunction, numberOfNeighbors);
+    final KNNQuery<O> knnquery = QueryUtil.getKNNQuery(relation, distanceFunction, numberOfNeighbors);
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    final ArrayDBIDs[] sets = new ArrayDBIDs[ids.size()];
 
     FiniteProgress progress = getLogger().isVerbose() ? new FiniteProgress("assigning nearest neighbor lists", relation.size(), getLogger()) : null;
-    for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      ArrayModifiableDBIDs neighbors = DBIDUtil.newArray(numberOfNeighbors);
-      DBIDs kNN = knnquery.getKNNForDBID(iditer, numberOfNeighbors);
-      for(DBIDIter iter = kNN.iter(); iter.valid(); iter.advance()) {
-        // if(!id.equals(nid)) {
-        neighbors.add(iter);
-        // }
-        // Size limitation to exactly numberOfNeighbors
-        if(neighbors.size() >= numberOfNeighbors) {
-          break;
+    if(knnquery instanceof LinearScanQuery) {
+      ParallelRanges.run(0, ids.size(), BULK_SIZE, (start, end) -> {
+        for(int bstart = start; bstart < end; bstart += BULK_SIZE) {
+          processBlock(knnquery, ids, bstart, Math.min(bstart + BULK_SIZE, end), sets, progress);
         }
-      }
-      neighbors.sort();
-      storage.put(iditer, neighbors);
-      getLogger().incrementProcessed(progress);
+      });
+    }
+    else {
+      processBlock(knnquery, ids, 0, ids.size(), sets, progress);
     }
     getLogger().ensureCompleted(progress);
+    // The data store may not support concurrent writes.
+    storage = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, ArrayDBIDs.class);
+    for(DBIDArrayIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      storage.put(iter, sets[iter.getOffset()]);
+    }
+  }
+
+  /**
+   * Compute the neighbor sets of a block of objects, with a bulk query if
+   * supported by the kNN query.
+   * 
+   * @param knnquery kNN query
+   * @param ids Object ids
+   * @param start First object
+   * @param end End of block
+   * @param sets Output neighbor sets
+   * @param progress Progress
+   */
+  private void processBlock(KNNQuery<O> knnquery, ArrayDBIDs ids, int start, int end, ArrayDBIDs[] sets, FiniteProgress progress) {
+    List<? extends KNNList> knns = knnquery instanceof BulkKNNQuery ? knnquery.getKNNForBulkDBIDs(ids.slice(start, end), numberOfNeighbors) : null;
+    DBIDArrayIter iter = ids.iter();
+    for(int i = start; i < end; i++) {
+      sets[i] = neighborSet(knns != null ? knns.get(i - start) : knnquery.getKNNForDBID(iter.seek(i), numberOfNeighbors));
+      getLogger().incrementProcessed(progress);
+    }
+  }
+
+  /**
+   * Convert a kNN list into a sorted set of exactly numberOfNeighbors
+   * neighbors (or less, if the data set is too small).
+   * 
+   * @param knn kNN list
+   * @return Sorted, compressed neighbor set
+   */
+  private ArrayDBIDs neighborSet(KNNList knn) {
+    ArrayModifiableDBIDs neighbors = DBIDUtil.newArray(numberOfNeighbors);
+    for(DBIDIter iter = knn.iter(); iter.valid() && neighbors.size() < numberOfNeighbors; iter.advance()) {
+      neighbors.add(iter);
+    }
+    // Sorted, compressed storage:
+    return DBIDUtil.compressedArray(neighbors);
   }
 
   @Override
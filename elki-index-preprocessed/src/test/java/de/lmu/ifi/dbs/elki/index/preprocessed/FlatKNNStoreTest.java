@@ -0,0 +1,140 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.preprocessed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.FlatKNNStore;
+
+/**
+ * Unit test for the flat kNN storage.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class FlatKNNStoreTest {
+  @Test
+  public void testStoreAndReplace() {
+    final int n = 100, k = 5;
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(n);
+    FlatKNNStore store = new FlatKNNStore(ids, k);
+    Random r = new Random(0L);
+    KNNList[] exp = new KNNList[n];
+    DBIDArrayIter it = ids.iter(), it2 = ids.iter();
+    for(; it.valid(); it.advance()) {
+      assertNull(store.get(it));
+      exp[it.getOffset()] = randomKNN(it2, k, r);
+      store.put(it, exp[it.getOffset()]);
+    }
+    // Replace every list a few times; views obtained before do not change.
+    KNNList[] views = new KNNList[n], copies = new KNNList[n];
+    for(it.seek(0); it.valid(); it.advance()) {
+      views[it.getOffset()] = store.get(it);
+      copies[it.getOffset()] = exp[it.getOffset()];
+    }
+    for(int rep = 0; rep < 3; rep++) {
+      for(it.seek(0); it.valid(); it.advance()) {
+        KNNList old = exp[it.getOffset()];
+        assertSame(old, store.get(it));
+        exp[it.getOffset()] = randomKNN(it2, k, r);
+        assertSame(old, store.put(it, exp[it.getOffset()]));
+        assertSame(exp[it.getOffset()], store.get(it));
+      }
+      // Compacted when more than half of the space is unused.
+      assertEquals(rep == 1, store.compact(ids));
+    }
+    for(int i = 0; i < n; i++) {
+      assertSame(copies[i], views[i]);
+    }
+    for(it.seek(0); it.valid(); it.advance()) {
+      assertSame(exp[it.getOffset()], store.get(it));
+    }
+    it.seek(3);
+    store.delete(it);
+    assertNull(store.get(it));
+  }
+
+  @Test
+  public void testTies() {
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(10);
+    FlatKNNStore store = new FlatKNNStore(ids, 2);
+    KNNHeap heap = DBIDUtil.newHeap(2);
+    DBIDArrayIter it = ids.iter();
+    heap.insert(0., it.seek(0));
+    heap.insert(1., it.seek(1));
+    heap.insert(1., it.seek(2));
+    heap.insert(1., it.seek(3));
+    KNNList knn = heap.toKNNList();
+    store.put(it.seek(0), knn);
+    KNNList view = store.get(it);
+    assertEquals(4, view.size());
+    assertEquals(1., view.getKNNDistance(), 0.);
+    assertSame(knn, view);
+    assertTrue(view.contains(it.seek(2)));
+    assertFalse(view.contains(it.seek(5)));
+    assertTrue(DBIDUtil.equal(it.seek(3), view.get(3)));
+  }
+
+  /**
+   * Build a random kNN list.
+   *
+   * @param it Iterator over the candidates
+   * @param k k
+   * @param r Random generator
+   * @return kNN list
+   */
+  private static KNNList randomKNN(DBIDArrayIter it, int k, Random r) {
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    for(it.seek(0); it.valid(); it.advance()) {
+      heap.insert(r.nextDouble(), it);
+    }
+    return heap.toKNNList();
+  }
+
+  /**
+   * Assert that two kNN lists have the same contents.
+   *
+   * @param exp Expected list
+   * @param got Actual list
+   */
+  private static void assertSame(KNNList exp, KNNList got) {
+    assertEquals("k does not agree.", exp.getK(), got.getK());
+    assertEquals("Size does not agree.", exp.size(), got.size());
+    assertEquals("kNN distance does not agree.", exp.getKNNDistance(), got.getKNNDistance(), 0.);
+    for(DoubleDBIDListIter e = exp.iter(), g = got.iter(); e.valid(); e.advance(), g.advance()) {
+      assertTrue("Neighbors do not agree.", DBIDUtil.equal(e, g));
+      assertEquals("Distances do not agree.", e.doubleValue(), g.doubleValue(), 0.);
+    }
+  }
+}
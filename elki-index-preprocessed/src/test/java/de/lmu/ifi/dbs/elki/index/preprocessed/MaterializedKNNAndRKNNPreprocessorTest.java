@@ -39,9 +39,13 @@ import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.VectorUtil;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.AbstractDatabase;
+import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.HashmapDatabase;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
 import de.lmu.ifi.dbs.elki.database.UpdatableDatabase;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
@@ -50,10 +54,13 @@ import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanEuclideanDistanceKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.rknn.LinearScanRKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.rknn.RKNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.ModifiableRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
 import de.lmu.ifi.dbs.elki.datasource.InputStreamDatabaseConnection;
 import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
@@ -162,6 +169,47 @@ public class MaterializedKNNAndRKNNPreprocessorTest {
     testRKNNQueries(rep, lin_rknn_query, preproc_rknn_query, k);
   }
 
+  @Test
+  public void testBlockedEuclideanBulk() {
+    Random random = new Random(seed);
+    double[][] data = new double[500][20];
+    for(double[] row : data) {
+      for(int d = 0; d < row.length; d++) {
+        row[d] = random.nextDouble() * 1e3;
+      }
+    }
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+    Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    KNNQuery<DoubleVector> knnq = db.getKNNQuery(db.getDistanceQuery(rep, EuclideanDistanceFunction.STATIC), k);
+    assertTrue("Not using the Euclidean linear scan.", knnq instanceof LinearScanEuclideanDistanceKNNQuery);
+    ArrayDBIDs ids = DBIDUtil.ensureArray(rep.getDBIDs());
+    // The second round reuses the dense copy of the data, the third round
+    // must notice the modified values.
+    for(int round = 0; round < 3; round++) {
+      if(round == 2) {
+        DBIDArrayIter it = ids.iter();
+        for(int j = 0; j < 50; j++) {
+          double[] row = new double[20];
+          for(int d = 0; d < row.length; d++) {
+            row[d] = random.nextDouble() * 1e3;
+          }
+          ((ModifiableRelation<DoubleVector>) rep).insert(it.seek(j * 10), new DoubleVector(row));
+        }
+      }
+      List<? extends KNNList> bulk = knnq.getKNNForBulkDBIDs(ids, k);
+      int i = 0;
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance(), i++) {
+        KNNList exp = knnq.getKNNForDBID(iter, k), got = bulk.get(i);
+        assertEquals("kNN sizes do not agree.", exp.size(), got.size());
+        for(DoubleDBIDListIter e = exp.iter(), g = got.iter(); e.valid(); e.advance(), g.advance()) {
+          assertTrue("kNNs of bulk and single queries do not match!", DBIDUtil.equal(e, g));
+          assertEquals("kNN distances of bulk and single queries do not match!", e.doubleValue(), g.doubleValue(), 0.);
+        }
+      }
+    }
+  }
+
   private void testKNNQueries(Relation<DoubleVector> rep, KNNQuery<DoubleVector> lin_knn_query, KNNQuery<DoubleVector> preproc_knn_query, int k) {
     ArrayDBIDs sample = DBIDUtil.ensureArray(rep.getDBIDs());
     List<? extends KNNList> lin_knn_ids = lin_knn_query.getKNNForBulkDBIDs(sample, k);
@@ -26,6 +26,7 @@ import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.ids.*;
@@ -34,7 +35,9 @@ import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.MaterializeKNNPreprocessor;
 import de.lmu.ifi.dbs.elki.index.preprocessed.knn.SpacefillingKNNPreprocessor;
+import de.lmu.ifi.dbs.elki.index.preprocessed.snn.SharedNearestNeighborPreprocessor;
 import de.lmu.ifi.dbs.elki.math.linearalgebra.randomprojections.AchlioptasRandomProjectionFamily;
 import de.lmu.ifi.dbs.elki.math.spacefillingcurves.BinarySplitSpatialSorter;
 import de.lmu.ifi.dbs.elki.math.spacefillingcurves.HilbertSpatialSorter;
@@ -72,6 +75,69 @@ public class SpacefillingKNNPreprocessorTest {
     LinearScanDistanceKNNQuery<DoubleVector> lin_knn_query = new LinearScanDistanceKNNQuery<>(distanceQuery);
 
     // get preprocessed queries
+    SpacefillingKNNPreprocessor<DoubleVector> preproc = makePreprocessor(rel);
+    // add as index
+    db.getHierarchy().add(rel, preproc);
+    KNNQuery<DoubleVector> preproc_knn_query = preproc.getKNNQuery(distanceQuery, k);
+    assertFalse("Preprocessor knn query class incorrect.", preproc_knn_query instanceof LinearScanDistanceKNNQuery);
+
+    // test queries
+    testKNNQueries(rel, lin_knn_query, preproc_knn_query, k);
+    // also test partial queries, forward only
+    testKNNQueries(rel, lin_knn_query, preproc_knn_query, k / 2);
+  }
+
+  /**
+   * Materialize the kNN on top of the space-filling curve index, which does
+   * not support bulk queries.
+   */
+  @Test
+  public void testMaterializeOnTop() {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds);
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> distanceQuery = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    SpacefillingKNNPreprocessor<DoubleVector> preproc = makePreprocessor(rel);
+    db.getHierarchy().add(rel, preproc);
+    KNNQuery<DoubleVector> preproc_knn_query = preproc.getKNNQuery(distanceQuery, k);
+
+    MaterializeKNNPreprocessor<DoubleVector> mat = new MaterializeKNNPreprocessor<>(rel, EuclideanDistanceFunction.STATIC, k);
+    mat.initialize();
+    testKNNQueries(rel, preproc_knn_query, mat.getKNNQuery(distanceQuery, k), k);
+  }
+
+  /**
+   * Compute shared nearest neighbors on top of the space-filling curve index,
+   * which does not support bulk queries.
+   */
+  @Test
+  public void testSharedNearestNeighborsOnTop() {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds);
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> distanceQuery = db.getDistanceQuery(rel, EuclideanDistanceFunction.STATIC);
+    SpacefillingKNNPreprocessor<DoubleVector> preproc = makePreprocessor(rel);
+    db.getHierarchy().add(rel, preproc);
+    KNNQuery<DoubleVector> preproc_knn_query = preproc.getKNNQuery(distanceQuery, k);
+
+    Relation<NumberVector> nrel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    SharedNearestNeighborPreprocessor<NumberVector> snn = new SharedNearestNeighborPreprocessor<>(nrel, k, EuclideanDistanceFunction.STATIC);
+    snn.initialize();
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+      ArrayDBIDs set = snn.getNearestNeighborSet(it);
+      KNNList knn = preproc_knn_query.getKNNForDBID(it, k);
+      assertEquals("Neighbor set size does not match.", k, set.size());
+      for(DBIDIter n = knn.iter(); n.valid(); n.advance()) {
+        assertTrue("Neighbor missing in shared nearest neighbor set.", set.contains(n));
+      }
+    }
+  }
+
+  /**
+   * Build the space-filling curve index.
+   *
+   * @param rel Relation
+   * @return Initialized index
+   */
+  private static SpacefillingKNNPreprocessor<DoubleVector> makePreprocessor(Relation<DoubleVector> rel) {
     ListParameterization config = new ListParameterization();
     config.addParameter(SpacefillingKNNPreprocessor.Factory.Parameterizer.CURVES_ID, //
         HilbertSpatialSorter.class.getName() + "," + PeanoSpatialSorter.class.getName() + "," //
@@ -85,15 +151,7 @@ public class SpacefillingKNNPreprocessorTest {
     SpacefillingKNNPreprocessor.Factory<DoubleVector> preprocf = ClassGenericsUtil.parameterizeOrAbort(SpacefillingKNNPreprocessor.Factory.class, config);
     SpacefillingKNNPreprocessor<DoubleVector> preproc = preprocf.instantiate(rel);
     preproc.initialize();
-    // add as index
-    db.getHierarchy().add(rel, preproc);
-    KNNQuery<DoubleVector> preproc_knn_query = preproc.getKNNQuery(distanceQuery, k);
-    assertFalse("Preprocessor knn query class incorrect.", preproc_knn_query instanceof LinearScanDistanceKNNQuery);
-
-    // test queries
-    testKNNQueries(rel, lin_knn_query, preproc_knn_query, k);
-    // also test partial queries, forward only
-    testKNNQueries(rel, lin_knn_query, preproc_knn_query, k / 2);
+    return preproc;
   }
 
   private void testKNNQueries(Relation<DoubleVector> rep, KNNQuery<DoubleVector> lin_knn_query, KNNQuery<DoubleVector> preproc_knn_query, int k) {
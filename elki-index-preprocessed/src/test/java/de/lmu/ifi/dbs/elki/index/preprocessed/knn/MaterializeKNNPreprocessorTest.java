@@ -0,0 +1,235 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.preprocessed.knn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.HashmapDatabase;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.UpdatableDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.ManhattanDistanceFunction;
+
+/**
+ * Test the space used by the materialized kNN preprocessor.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MaterializeKNNPreprocessorTest {
+  @Test
+  public void testDuplicatesShared() {
+    // 100 points, each contained three times.
+    Random r = new Random(0L);
+    double[][] data = new double[300][];
+    for(int i = 0; i < 100; i++) {
+      data[i] = data[i + 100] = data[i + 200] = new double[] { r.nextDouble(), r.nextDouble() };
+    }
+    StaticArrayDatabase db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    Preprocessor preproc = new Preprocessor(rel, ManhattanDistanceFunction.STATIC, 5);
+    preproc.initialize();
+    int total = 0;
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+      total += preproc.get(it).size();
+    }
+    assertEquals("Lists of duplicates are not shared.", total / 3, preproc.getStore().used);
+  }
+
+  @Test
+  public void testUpdateViews() {
+    Random r = new Random(0L);
+    double[][] data = new double[200][];
+    for(int i = 0; i < data.length; i++) {
+      data[i] = new double[] { r.nextDouble(), r.nextDouble() };
+    }
+    UpdatableDatabase db = new HashmapDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+    Relation<DoubleVector> rel = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    final int k = 5;
+    Preprocessor preproc = new Preprocessor(rel, EuclideanDistanceFunction.STATIC, k);
+    db.getHierarchy().add(rel, preproc);
+    preproc.initialize();
+    FlatKNNStore store = preproc.getStore();
+    assertEquals("Unexpected space used.", data.length * k, store.used);
+    // Lists handed out before, and a copy of their contents.
+    List<KNNList> views = new ArrayList<>(), copies = new ArrayList<>();
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+      views.add(preproc.get(it));
+      copies.add(DBIDUtil.newHeap(preproc.get(it)).toKNNList());
+    }
+
+    // Insert new points repeatedly, which changes some existing lists.
+    for(int j = 0; j < 20; j++) {
+      List<DoubleVector> ins = new ArrayList<>();
+      for(int i = 0; i < 10; i++) {
+        ins.add(new DoubleVector(new double[] { r.nextDouble(), r.nextDouble() }));
+      }
+      db.insert(MultipleObjectsBundle.makeSimple(rel.getDataTypeInformation(), ins));
+      assertTrue("Replaced lists were not reclaimed.", store.used <= 2 * rel.size() * k);
+    }
+    for(int i = 0; i < views.size(); i++) {
+      assertSameList(copies.get(i), views.get(i));
+    }
+  }
+
+  @Test
+  public void testStore() {
+    final int k = 3;
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(10);
+    DBIDArrayIter it = ids.iter(), it2 = ids.iter();
+    FlatKNNStore store = new FlatKNNStore(ids, k);
+    Random r = new Random(0L);
+    for(; it.valid(); it.advance()) {
+      store.put(it, randomKNN(it2, k, r));
+    }
+    assertEquals(10 * k, store.used);
+    // Replace a list, the previous value must be unchanged.
+    KNNList view = store.get(it.seek(0));
+    KNNList before = DBIDUtil.newHeap(view).toKNNList();
+    KNNList repl = randomKNN(it2, k, r);
+    assertSameList(before, store.put(it, repl));
+    assertSameList(repl, store.get(it));
+    assertSameList(before, view);
+    assertEquals(11 * k, store.used);
+    // Share a list, then replace one of the sharing lists.
+    store.put(it.seek(1), store.get(it2.seek(2)));
+    assertEquals(11 * k, store.used);
+    KNNList shared = DBIDUtil.newHeap(store.get(it2)).toKNNList();
+    store.put(it2, randomKNN(it, k, r));
+    assertEquals(12 * k, store.used);
+    assertSameList(shared, store.get(it.seek(1)));
+    // Lists with ties are longer.
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    for(it2.seek(0); it2.valid(); it2.advance()) {
+      heap.insert(1., it2);
+    }
+    store.put(it.seek(4), heap.toKNNList());
+    assertEquals(12 * k + 10, store.used);
+    assertEquals(10, store.get(it).size());
+  }
+
+  @Test
+  public void testCompact() {
+    final int k = 3;
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(10);
+    DBIDArrayIter it = ids.iter(), it2 = ids.iter();
+    FlatKNNStore store = new FlatKNNStore(ids, k);
+    Random r = new Random(0L);
+    for(; it.valid(); it.advance()) {
+      store.put(it, randomKNN(it2, k, r));
+    }
+    // Share a list, and hold a view of it.
+    store.put(it.seek(1), store.get(it2.seek(2)));
+    KNNList view = store.get(it);
+    KNNList before = DBIDUtil.newHeap(view).toKNNList();
+    assertFalse("Nothing to reclaim.", store.compact(ids));
+    // Replace all other lists twice.
+    for(int rep = 0; rep < 2; rep++) {
+      for(it.seek(2); it.valid(); it.advance()) {
+        store.put(it, randomKNN(it2, k, r));
+      }
+    }
+    assertEquals(26 * k, store.used);
+    KNNList[] exp = new KNNList[ids.size()];
+    for(it.seek(0); it.valid(); it.advance()) {
+      exp[it.getOffset()] = DBIDUtil.newHeap(store.get(it)).toKNNList();
+    }
+    assertTrue("Storage was not compacted.", store.compact(ids));
+    // List 1 still has the contents of the original list 2.
+    assertEquals(10 * k, store.used);
+    for(it.seek(0); it.valid(); it.advance()) {
+      assertSameList(exp[it.getOffset()], store.get(it));
+    }
+    assertSameList(before, view);
+    // Views from before the compaction are copied when stored again.
+    store.put(it.seek(0), view);
+    assertEquals(11 * k, store.used);
+    assertSameList(before, store.get(it));
+  }
+
+  /**
+   * Preprocessor exposing its storage.
+   *
+   * @author Erich Schubert
+   */
+  private static class Preprocessor extends MaterializeKNNPreprocessor<DoubleVector> {
+    Preprocessor(Relation<DoubleVector> relation, DistanceFunction<? super DoubleVector> distanceFunction, int k) {
+      super(relation, distanceFunction, k);
+    }
+
+    FlatKNNStore getStore() {
+      return (FlatKNNStore) storage;
+    }
+  }
+
+  /**
+   * Build a random kNN list.
+   *
+   * @param it Iterator over the candidates
+   * @param k k
+   * @param r Random generator
+   * @return kNN list
+   */
+  private static KNNList randomKNN(DBIDArrayIter it, int k, Random r) {
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    for(it.seek(0); it.valid(); it.advance()) {
+      heap.insert(r.nextDouble(), it);
+    }
+    return heap.toKNNList();
+  }
+
+  /**
+   * Assert that two kNN lists have the same contents.
+   *
+   * @param exp Expected list
+   * @param got Actual list
+   */
+  private static void assertSameList(KNNList exp, KNNList got) {
+    assertEquals("Size does not agree.", exp.size(), got.size());
+    for(DoubleDBIDListIter e = exp.iter(), g = got.iter(); e.valid(); e.advance(), g.advance()) {
+      assertTrue("Neighbors do not agree.", DBIDUtil.equal(e, g));
+      assertEquals("Distances do not agree.", e.doubleValue(), g.doubleValue(), 0.);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.preprocessed.snn;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+
+/**
+ * Unit test for the shared nearest neighbor graph.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class SharedNearestNeighborGraphTest {
+  @Test
+  public void testSharedNeighborCounts() {
+    Random r = new Random(0L);
+    double[][] data = new double[300][2];
+    for(double[] row : data) {
+      row[0] = r.nextDouble();
+      row[1] = r.nextDouble();
+    }
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), null);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    SharedNearestNeighborPreprocessor<NumberVector> snn = new SharedNearestNeighborPreprocessor<>(rel, 10, EuclideanDistanceFunction.STATIC);
+    final int minshared = 3;
+    SharedNearestNeighborGraph graph = SharedNearestNeighborGraph.build(snn, rel.getDBIDs(), minshared);
+
+    int edges = 0;
+    ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
+    for(DBIDIter a = rel.iterDBIDs(); a.valid(); a.advance()) {
+      neighbors.clear();
+      graph.getNeighbors(a, neighbors);
+      DoubleDBIDListIter n = neighbors.iter();
+      for(DBIDIter b = rel.iterDBIDs(); b.valid(); b.advance()) {
+        final int shared = DBIDUtil.intersectionSize(snn.getNearestNeighborSet(a), snn.getNearestNeighborSet(b));
+        if(shared >= minshared) {
+          assertEquals("Missing or misordered neighbor.", true, n.valid() && DBIDUtil.equal(n, b));
+          assertEquals("Wrong number of shared neighbors.", shared, n.doubleValue(), 0.);
+          n.advance();
+          ++edges;
+        }
+      }
+      assertEquals("Extra neighbors.", false, n.valid());
+    }
+    assertEquals(edges, graph.numberOfEdges());
+  }
+}
@@ -44,6 +44,8 @@ import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.util.NodeArrayAdapter;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
+import de.lmu.ifi.dbs.elki.logging.statistics.LatencyHistogram;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
 import de.lmu.ifi.dbs.elki.persistent.PageFile;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.BitsUtil;
@@ -80,7 +82,7 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
   /**
    * For counting the number of distance computations.
    */
-  public Statistics statistics = new Statistics();
+  public Statistics statistics;
 
   /**
    * The last inserted entry.
@@ -101,6 +103,7 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
   public AbstractRStarTree(PageFile<N> pagefile, S settings) {
     super(pagefile);
     this.settings = settings;
+    this.statistics = new Statistics();
   }
 
   /**
@@ -838,6 +841,7 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
    * @author Erich Schubert
    *
    * @apiviz.composedOf Counter
+   * @apiviz.composedOf LatencyHistogram
    */
   public class Statistics {
     /**
@@ -855,6 +859,26 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
      */
     protected final Counter rangeQueries;
 
+    /**
+     * Shared instrumentation counter for distance computations.
+     */
+    protected final Counter instrDistanceCalcs;
+
+    /**
+     * Shared instrumentation counter for heap operations.
+     */
+    protected final Counter instrHeapOperations;
+
+    /**
+     * Latency of knn queries, in nanoseconds.
+     */
+    protected final LatencyHistogram knnLatency;
+
+    /**
+     * Latency of range queries, in nanoseconds.
+     */
+    protected final LatencyHistogram rangeLatency;
+
     /**
      * Constructor.
      */
@@ -865,6 +889,11 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       distanceCalcs = log.isStatistics() ? log.newCounter(prefix + ".distancecalcs") : null;
       knnQueries = log.isStatistics() ? log.newCounter(prefix + ".knnqueries") : null;
       rangeQueries = log.isStatistics() ? log.newCounter(prefix + ".rangequeries") : null;
+      final boolean timing = log.isStatistics() && settings.queryLatency;
+      knnLatency = timing ? log.newLatencyHistogram(prefix + ".knnlatency.ns") : null;
+      rangeLatency = timing ? log.newLatencyHistogram(prefix + ".rangelatency.ns") : null;
+      instrDistanceCalcs = Instrumentation.counterIfEnabled(Instrumentation.DISTANCE_COMPUTATIONS);
+      instrHeapOperations = Instrumentation.counterIfEnabled(Instrumentation.HEAP_OPERATIONS);
     }
 
     /**
@@ -874,6 +903,32 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       if(distanceCalcs != null) {
         distanceCalcs.increment();
       }
+      if(instrDistanceCalcs != null) {
+        instrDistanceCalcs.increment();
+      }
+    }
+
+    /**
+     * Count multiple distance computations.
+     *
+     * @param count Number of distance computations
+     */
+    public void countDistanceCalculations(long count) {
+      if(distanceCalcs != null) {
+        distanceCalcs.increment(count);
+      }
+      if(instrDistanceCalcs != null) {
+        instrDistanceCalcs.increment(count);
+      }
+    }
+
+    /**
+     * Count an operation on a search heap (insertion or removal).
+     */
+    public void countHeapOperation() {
+      if(instrHeapOperations != null) {
+        instrHeapOperations.increment();
+      }
     }
 
     /**
@@ -894,6 +949,38 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       }
     }
 
+    /**
+     * Start timing a query.
+     *
+     * @return Start time for {@link #recordKNNQuery} and
+     *         {@link #recordRangeQuery}, 0 when latency recording is disabled.
+     */
+    public long startTiming() {
+      return knnLatency != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Record the latency of a knn query.
+     *
+     * @param start Start time, from {@link #startTiming}
+     */
+    public void recordKNNQuery(long start) {
+      if(knnLatency != null) {
+        knnLatency.recordSince(start);
+      }
+    }
+
+    /**
+     * Record the latency of a range query.
+     *
+     * @param start Start time, from {@link #startTiming}
+     */
+    public void recordRangeQuery(long start) {
+      if(rangeLatency != null) {
+        rangeLatency.recordSince(start);
+      }
+    }
+
     /**
      * Log the statistics.
      */
@@ -908,6 +995,12 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       if(statistics.rangeQueries != null) {
         log.statistics(statistics.rangeQueries);
       }
+      if(statistics.knnLatency != null && statistics.knnLatency.getCount() > 0) {
+        log.statistics(statistics.knnLatency);
+      }
+      if(statistics.rangeLatency != null && statistics.rangeLatency.getCount() > 0) {
+        log.statistics(statistics.rangeLatency);
+      }
     }
   }
 
@@ -65,6 +65,11 @@ public class RTreeSettings {
    */
   protected double relativeMinFill = 0.4;
 
+  /**
+   * Record the latency of queries.
+   */
+  protected boolean queryLatency = false;
+
   /**
    * Constructor with default values.
    */
@@ -125,6 +130,17 @@ public class RTreeSettings {
     this.relativeMinFill = relative;
   }
 
+  /**
+   * Enable recording of query latencies. These are reported with the
+   * statistics, and cost two calls to {@link System#nanoTime} per query.
+   * (Only supported before the tree was created!)
+   * 
+   * @param queryLatency Record query latencies
+   */
+  public void setQueryLatency(boolean queryLatency) {
+    this.queryLatency = queryLatency;
+  }
+
   /**
    * @return the overflowTreatment
    */
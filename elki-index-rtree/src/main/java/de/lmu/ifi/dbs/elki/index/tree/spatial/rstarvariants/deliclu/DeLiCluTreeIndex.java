@@ -31,11 +31,15 @@ import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.SpatialDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.index.DistanceBrowserIndex;
 import de.lmu.ifi.dbs.elki.index.DynamicIndex;
 import de.lmu.ifi.dbs.elki.index.KNNIndex;
+import de.lmu.ifi.dbs.elki.index.RangeCountIndex;
 import de.lmu.ifi.dbs.elki.index.RangeIndex;
 import de.lmu.ifi.dbs.elki.index.tree.IndexTreePath;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.RTreeSettings;
@@ -52,7 +56,7 @@ import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
  * 
  * @param <O> Object type
  */
-public class DeLiCluTreeIndex<O extends NumberVector> extends DeLiCluTree implements KNNIndex<O>, RangeIndex<O>, DynamicIndex {
+public class DeLiCluTreeIndex<O extends NumberVector> extends DeLiCluTree implements KNNIndex<O>, DistanceBrowserIndex<O>, RangeIndex<O>, RangeCountIndex<O>, DynamicIndex {
   /**
    * The relation we index.
    */
@@ -210,6 +214,20 @@ public class DeLiCluTreeIndex<O extends NumberVector> extends DeLiCluTree implem
     return RStarTreeUtil.getRangeQuery(this, dq, hints);
   }
 
+  @Override
+  public RangeCountQuery<O> getRangeCountQuery(DistanceQuery<O> distanceQuery, Object... hints) {
+    // Query on the relation we index
+    if(distanceQuery.getRelation() != relation) {
+      return null;
+    }
+    // Can we support this distance function - spatial distances only!
+    if(!(distanceQuery instanceof SpatialDistanceQuery)) {
+      return null;
+    }
+    SpatialDistanceQuery<O> dq = (SpatialDistanceQuery<O>) distanceQuery;
+    return RStarTreeUtil.getRangeCountQuery(this, dq, hints);
+  }
+
   @Override
   public KNNQuery<O> getKNNQuery(DistanceQuery<O> distanceQuery, Object... hints) {
     // Query on the relation we index
@@ -224,6 +242,20 @@ public class DeLiCluTreeIndex<O extends NumberVector> extends DeLiCluTree implem
     return RStarTreeUtil.getKNNQuery(this, dq, hints);
   }
 
+  @Override
+  public DistanceBrowser<O> getDistanceBrowser(DistanceQuery<O> distanceQuery, Object... hints) {
+    // Query on the relation we index
+    if(distanceQuery.getRelation() != relation) {
+      return null;
+    }
+    // Can we support this distance function - spatial distances only!
+    if(!(distanceQuery instanceof SpatialDistanceQuery)) {
+      return null;
+    }
+    SpatialDistanceQuery<O> dq = (SpatialDistanceQuery<O>) distanceQuery;
+    return RStarTreeUtil.getDistanceBrowser(this, dq, hints);
+  }
+
   @Override
   public String getLongName() {
     return "DeLiClu-Tree";
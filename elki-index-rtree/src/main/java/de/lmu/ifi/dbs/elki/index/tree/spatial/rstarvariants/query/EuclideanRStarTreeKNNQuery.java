@@ -21,9 +21,7 @@
 package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.database.ids.*;
@@ -79,6 +77,7 @@ public class EuclideanRStarTreeKNNQuery<O extends NumberVector> extends RStarTre
       throw new IllegalArgumentException("At least one neighbor has to be requested!");
     }
     tree.statistics.countKNNQuery();
+    final long start = tree.statistics.startTiming();
 
     final KNNHeap knnList = DBIDUtil.newHeap(k);
     final DoubleIntegerMinHeap pq = new DoubleIntegerMinHeap(Math.min(knnList.getK() << 1, 21));
@@ -96,6 +95,7 @@ public class EuclideanRStarTreeKNNQuery<O extends NumberVector> extends RStarTre
       pq.poll(); // Remove from heap.
       maxDist = expandNode(obj, knnList, pq, maxDist, nodeID);
     }
+    tree.statistics.recordKNNQuery(start);
     return knnList.toKNNListSqrt();
   }
 
@@ -137,23 +137,14 @@ public class EuclideanRStarTreeKNNQuery<O extends NumberVector> extends RStarTre
     if(k < 1) {
       throw new IllegalArgumentException("At least one enumeration has to be requested!");
     }
-
-    // While this works, it seems to be slow at least for large sets!
-    // TODO: use a DataStore instead of a map.
-    final Map<DBID, KNNHeap> knnLists = new HashMap<>(ids.size());
-    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      DBID id = DBIDUtil.deref(iter);
-      knnLists.put(id, DBIDUtil.newHeap(k));
-    }
-
-    batchNN(tree.getRoot(), knnLists);
-
-    List<KNNList> result = new ArrayList<>();
-    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      DBID id = DBIDUtil.deref(iter);
-      tree.statistics.countKNNQuery();
-      result.add(knnLists.get(id).toKNNListSqrt());
+    // Small batches are cheaper to answer one by one.
+    if((ids.size() << 4) < relation.size()) {
+      List<KNNList> result = new ArrayList<>(ids.size());
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        result.add(getKNNForDBID(iter, k));
+      }
+      return result;
     }
-    return result;
+    return new RStarTreeDualTreeKNNJoin(tree, SQUARED).run(relation.getDBIDs(), ids, k, true);
   }
 }
@@ -74,6 +74,7 @@ public class EuclideanRStarTreeRangeQuery<O extends NumberVector> extends RStarT
   @Override
   public void getRangeForObject(O object, double range, ModifiableDoubleDBIDList result) {
     tree.statistics.countRangeQuery();
+    final long start = tree.statistics.startTiming();
     final double sqepsilon = range * range;
 
     // Processing queue.
@@ -110,5 +111,6 @@ public class EuclideanRStarTreeRangeQuery<O extends NumberVector> extends RStarT
         }
       }
     }
+    tree.statistics.recordRangeQuery(start);
   }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query;
+
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceBrowser;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTree;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeNode;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+/**
+ * Incremental nearest neighbor search on an R*-tree.
+ * 
+ * Reference:
+ * <p>
+ * G. R. Hjaltason, H. Samet<br />
+ * Distance browsing in spatial databases<br />
+ * ACM Transactions on Database Systems (TODS) 24(2)
+ * </p>
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.uses AbstractRStarTree
+ * @apiviz.uses SpatialPrimitiveDistanceFunction
+ * 
+ * @param <O> Object type
+ */
+@Reference(authors = "G. R. Hjaltason, H. Samet", //
+title = "Distance browsing in spatial databases", //
+booktitle = "ACM Transactions on Database Systems (TODS) 24(2)", //
+url = "http://dx.doi.org/10.1145/320248.320255")
+public class RStarTreeDistanceBrowser<O extends SpatialComparable> extends AbstractDistanceBrowser<O> {
+  /**
+   * The index to use
+   */
+  protected final AbstractRStarTree<?, ?, ?> tree;
+
+  /**
+   * Spatial primitive distance function.
+   */
+  protected final SpatialPrimitiveDistanceFunction<? super O> distanceFunction;
+
+  /**
+   * Queue of unexpanded pages.
+   */
+  private final DoubleIntegerMinHeap pq = new DoubleIntegerMinHeap();
+
+  /**
+   * Current query object.
+   */
+  private O query;
+
+  /**
+   * Constructor.
+   * 
+   * @param tree Index to use
+   * @param relation Data relation to query
+   * @param distanceFunction Distance function
+   */
+  public RStarTreeDistanceBrowser(AbstractRStarTree<?, ?, ?> tree, Relation<? extends O> relation, SpatialPrimitiveDistanceFunction<? super O> distanceFunction) {
+    super(relation);
+    this.tree = tree;
+    this.distanceFunction = distanceFunction;
+  }
+
+  @Override
+  protected void startSearch(O obj) {
+    tree.statistics.countKNNQuery();
+    query = obj;
+    pq.clear();
+    pq.add(0., tree.getRootID());
+  }
+
+  @Override
+  protected boolean expandNextNode(double threshold) {
+    if(pq.isEmpty() || pq.peekKey() > threshold) {
+      return false;
+    }
+    AbstractRStarTreeNode<?, ?> node = tree.getNode(pq.peekValue());
+    pq.poll(); // Remove from heap.
+    if(node.isLeaf()) {
+      for(int i = 0; i < node.getNumEntries(); i++) {
+        SpatialPointLeafEntry entry = (SpatialPointLeafEntry) node.getEntry(i);
+        addCandidate(distanceFunction.minDist(entry, query), entry.getDBID());
+      }
+    }
+    else {
+      for(int i = 0; i < node.getNumEntries(); i++) {
+        SpatialDirectoryEntry entry = (SpatialDirectoryEntry) node.getEntry(i);
+        pq.add(distanceFunction.minDist(entry, query), entry.getPageID());
+      }
+    }
+    tree.statistics.countDistanceCalculations(node.getNumEntries());
+    return true;
+  }
+}
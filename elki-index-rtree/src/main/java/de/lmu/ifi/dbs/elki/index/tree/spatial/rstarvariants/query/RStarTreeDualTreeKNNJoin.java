@@ -0,0 +1,414 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTree;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeNode;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arrays.DoubleIntegerArrayQuickSort;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+/**
+ * Dual-tree all-kNN join for R*-tree variants, used to answer bulk kNN queries.
+ *
+ * The tree is traversed simultaneously as query tree and as reference tree.
+ * A pair of nodes is pruned when the minimum distance of their MBRs exceeds
+ * the largest kNN distance of the query objects within the query node. These
+ * bounds are cached for each query node, and are updated bottom-up.
+ *
+ * The node structure is collected once before the join, so that the parallel
+ * tasks (one per query subtree) never access the page file concurrently.
+ *
+ * Reference:
+ * <p>
+ * A. G. Gray, A. W. Moore<br />
+ * "N-Body" problems in statistical learning<br />
+ * Advances in Neural Information Processing Systems 13 (NIPS 2000)
+ * </p>
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.uses AbstractRStarTree
+ * @apiviz.uses SpatialPrimitiveDistanceFunction
+ */
+@Reference(authors = "A. G. Gray, A. W. Moore", //
+    title = "'N-Body' problems in statistical learning", //
+    booktitle = "Advances in Neural Information Processing Systems 13 (NIPS 2000)", //
+    url = "http://papers.nips.cc/paper/1845-n-body-problems-in-statistical-learning")
+public class RStarTreeDualTreeKNNJoin {
+  /**
+   * Minimum number of query objects to run the join in parallel.
+   */
+  private static final int MIN_PARALLEL_SIZE = 2048;
+
+  /**
+   * The index to use.
+   */
+  private final AbstractRStarTree<?, ?, ?> tree;
+
+  /**
+   * Spatial primitive distance function.
+   */
+  private final SpatialPrimitiveDistanceFunction<?> distanceFunction;
+
+  /**
+   * Tree nodes, indexed in depth-first order.
+   */
+  private AbstractRStarTreeNode<?, ?>[] nodes;
+
+  /**
+   * Bounding rectangles of the nodes.
+   */
+  private SpatialComparable[] mbrs;
+
+  /**
+   * Child node indexes of directory nodes.
+   */
+  private int[][] children;
+
+  /**
+   * Upper bounds of the kNN distances within each query node.
+   */
+  private double[] bounds;
+
+  /**
+   * kNN heaps of the query objects.
+   */
+  private WritableDataStore<KNNHeap> heaps;
+
+  /**
+   * Constructor.
+   *
+   * @param tree Tree to join
+   * @param distanceFunction Distance function
+   */
+  public RStarTreeDualTreeKNNJoin(AbstractRStarTree<?, ?, ?> tree, SpatialPrimitiveDistanceFunction<?> distanceFunction) {
+    super();
+    this.tree = tree;
+    this.distanceFunction = distanceFunction;
+  }
+
+  /**
+   * Compute the kNN of all query objects.
+   *
+   * @param all All objects indexed by the tree
+   * @param ids Query objects, must be indexed by the tree
+   * @param k Number of neighbors
+   * @param sqrt Take the square root of the distances (for squared Euclidean)
+   * @return kNN lists, in the order of the query objects
+   */
+  public List<KNNList> run(DBIDs all, ArrayDBIDs ids, int k, boolean sqrt) {
+    heaps = DataStoreUtil.makeStorage(all, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, KNNHeap.class);
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      if(heaps.get(iter) == null) {
+        heaps.put(iter, DBIDUtil.newHeap(k));
+      }
+    }
+    AbstractRStarTreeNode<?, ?> root = tree.getRoot();
+    if(root.getNumEntries() > 0) {
+      collectNodes(root);
+      bounds = new double[nodes.length];
+      Arrays.fill(bounds, Double.POSITIVE_INFINITY);
+      ParallelCore core = ParallelCore.getCore();
+      final int parallelism = core.getParallelism();
+      if(parallelism <= 1 || ids.size() < MIN_PARALLEL_SIZE) {
+        new Task(0).call();
+      }
+      else {
+        runParallel(core, parallelism << 3);
+      }
+    }
+    List<KNNList> result = new ArrayList<>(ids.size());
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      KNNHeap heap = heaps.get(iter);
+      result.add(sqrt ? heap.toKNNListSqrt() : heap.toKNNList());
+    }
+    heaps.destroy();
+    heaps = null;
+    nodes = null;
+    mbrs = null;
+    children = null;
+    bounds = null;
+    return result;
+  }
+
+  /**
+   * Collect the tree nodes into arrays, in depth-first order.
+   *
+   * @param root Root node
+   */
+  private void collectNodes(AbstractRStarTreeNode<?, ?> root) {
+    List<AbstractRStarTreeNode<?, ?>> nodelist = new ArrayList<>();
+    List<SpatialComparable> mbrlist = new ArrayList<>();
+    List<int[]> childlist = new ArrayList<>();
+    collectNodes(root, root.computeMBR(), nodelist, mbrlist, childlist);
+    nodes = nodelist.toArray(new AbstractRStarTreeNode<?, ?>[nodelist.size()]);
+    mbrs = mbrlist.toArray(new SpatialComparable[mbrlist.size()]);
+    children = childlist.toArray(new int[childlist.size()][]);
+  }
+
+  /**
+   * Collect the tree nodes recursively.
+   *
+   * @param node Current node
+   * @param mbr Bounding rectangle of the node
+   * @param nodelist Output node list
+   * @param mbrlist Output rectangle list
+   * @param childlist Output list of child indexes
+   * @return Index of the node
+   */
+  private int collectNodes(AbstractRStarTreeNode<?, ?> node, SpatialComparable mbr, List<AbstractRStarTreeNode<?, ?>> nodelist, List<SpatialComparable> mbrlist, List<int[]> childlist) {
+    final int id = nodelist.size();
+    nodelist.add(node);
+    mbrlist.add(mbr);
+    childlist.add(null);
+    if(!node.isLeaf()) {
+      int[] c = new int[node.getNumEntries()];
+      for(int i = 0; i < c.length; i++) {
+        SpatialDirectoryEntry entry = (SpatialDirectoryEntry) node.getEntry(i);
+        c[i] = collectNodes(tree.getNode(entry.getPageID()), entry, nodelist, mbrlist, childlist);
+      }
+      childlist.set(id, c);
+    }
+    return id;
+  }
+
+  /**
+   * Run the join in parallel, one task per query subtree.
+   *
+   * @param core Parallel core
+   * @param numtasks Desired number of tasks
+   */
+  private void runParallel(ParallelCore core, int numtasks) {
+    // Expand the query tree breadth-first until we have enough subtrees.
+    List<Integer> subtrees = new ArrayList<>();
+    subtrees.add(0);
+    for(boolean expanded = true; expanded && subtrees.size() < numtasks;) {
+      expanded = false;
+      List<Integer> next = new ArrayList<>();
+      for(Integer n : subtrees) {
+        if(children[n] == null) {
+          next.add(n);
+          continue;
+        }
+        for(int c : children[n]) {
+          next.add(c);
+        }
+        expanded = true;
+      }
+      subtrees = next;
+    }
+    core.connect();
+    try {
+      List<Future<Void>> futures = new ArrayList<>(subtrees.size());
+      for(Integer n : subtrees) {
+        futures.add(core.submit(new Task(n)));
+      }
+      for(Future<Void> fut : futures) {
+        fut.get();
+      }
+    }
+    catch(ExecutionException e) {
+      throw new RuntimeException("Processor execution failed.", e);
+    }
+    catch(InterruptedException e) {
+      throw new RuntimeException("Parallel execution interrupted.");
+    }
+    finally {
+      core.disconnect();
+    }
+  }
+
+  /**
+   * Join of a single query subtree with the complete tree.
+   *
+   * Different tasks only modify the heaps and bounds of their own subtree.
+   *
+   * @author Erich Schubert
+   */
+  private class Task implements Callable<Void> {
+    /**
+     * Query subtree.
+     */
+    private final int qroot;
+
+    /**
+     * Number of distance computations.
+     */
+    private long distcalcs = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param qroot Query subtree
+     */
+    Task(int qroot) {
+      super();
+      this.qroot = qroot;
+    }
+
+    @Override
+    public Void call() {
+      dualTree(qroot, 0, minDist(mbrs[qroot], mbrs[0]));
+      synchronized(tree.statistics) {
+        tree.statistics.countDistanceCalculations(distcalcs);
+      }
+      return null;
+    }
+
+    /**
+     * Join a query node with a reference node.
+     *
+     * @param q Query node
+     * @param r Reference node
+     * @param mindist Minimum distance of the node rectangles
+     */
+    private void dualTree(int q, int r, double mindist) {
+      if(mindist > bound(q)) {
+        return; // Pruned
+      }
+      final int[] qc = children[q], rc = children[r];
+      if(qc == null && rc == null) {
+        baseCase(nodes[q], nodes[r]);
+        return;
+      }
+      if(qc == null) {
+        descendReference(q, rc);
+        return;
+      }
+      // Split the query node (and the reference node, if possible).
+      for(int c : qc) {
+        if(rc == null) {
+          dualTree(c, r, minDist(mbrs[c], mbrs[r]));
+        }
+        else {
+          descendReference(c, rc);
+        }
+      }
+      double max = Double.NEGATIVE_INFINITY;
+      for(int c : qc) {
+        final double b = bound(c);
+        max = b > max ? b : max;
+      }
+      bounds[q] = max;
+    }
+
+    /**
+     * Join a query node with all reference children, closest first.
+     *
+     * @param q Query node
+     * @param rc Reference children
+     */
+    private void descendReference(int q, int[] rc) {
+      double[] dists = new double[rc.length];
+      int[] order = rc.clone();
+      for(int i = 0; i < order.length; i++) {
+        dists[i] = minDist(mbrs[q], mbrs[order[i]]);
+      }
+      DoubleIntegerArrayQuickSort.sort(dists, order, order.length);
+      for(int i = 0; i < order.length; i++) {
+        if(dists[i] > bound(q)) {
+          break; // All remaining are farther away.
+        }
+        dualTree(q, order[i], dists[i]);
+      }
+    }
+
+    /**
+     * Compare all query objects in a leaf with all objects of another leaf.
+     *
+     * @param ql Query leaf
+     * @param rl Reference leaf
+     */
+    private void baseCase(AbstractRStarTreeNode<?, ?> ql, AbstractRStarTreeNode<?, ?> rl) {
+      for(int i = 0; i < ql.getNumEntries(); i++) {
+        SpatialPointLeafEntry qe = (SpatialPointLeafEntry) ql.getEntry(i);
+        KNNHeap heap = heaps.get(qe.getDBID());
+        if(heap == null) {
+          continue;
+        }
+        double kdist = heap.getKNNDistance();
+        for(int j = 0; j < rl.getNumEntries(); j++) {
+          SpatialPointLeafEntry re = (SpatialPointLeafEntry) rl.getEntry(j);
+          final double dist = minDist(qe, re);
+          ++distcalcs;
+          if(dist <= kdist) {
+            kdist = heap.insert(dist, re.getDBID());
+          }
+        }
+      }
+    }
+
+    /**
+     * Get an upper bound of the kNN distances of the query objects in a node.
+     *
+     * @param q Query node
+     * @return Bound, negative infinity if there are no query objects
+     */
+    private double bound(int q) {
+      if(children[q] != null) {
+        return bounds[q];
+      }
+      AbstractRStarTreeNode<?, ?> leaf = nodes[q];
+      double max = Double.NEGATIVE_INFINITY;
+      for(int i = 0; i < leaf.getNumEntries(); i++) {
+        KNNHeap heap = heaps.get(((SpatialPointLeafEntry) leaf.getEntry(i)).getDBID());
+        if(heap != null) {
+          final double kdist = heap.getKNNDistance();
+          max = kdist > max ? kdist : max;
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Minimum distance of two rectangles.
+     *
+     * @param a First rectangle
+     * @param b Second rectangle
+     * @return Minimum distance
+     */
+    private double minDist(SpatialComparable a, SpatialComparable b) {
+      return distanceFunction.minDist(a, b);
+    }
+  }
+}
@@ -20,18 +20,15 @@
  */
 package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query;
 
-import java.util.*;
-import java.util.Map.Entry;
+import java.util.ArrayList;
+import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
 import de.lmu.ifi.dbs.elki.database.ids.*;
-import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.BulkKNNQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
-import de.lmu.ifi.dbs.elki.index.tree.DirectoryEntry;
-import de.lmu.ifi.dbs.elki.index.tree.LeafEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
-import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTree;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeNode;
@@ -54,12 +51,13 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
  * @apiviz.uses AbstractRStarTree
  * @apiviz.uses SpatialPrimitiveDistanceFunction
  * @apiviz.uses DoubleDistanceSearchCandidate
+ * @apiviz.uses RStarTreeDualTreeKNNJoin
  */
 @Reference(authors = "G. R. Hjaltason, H. Samet", //
 title = "Ranking in spatial databases", //
 booktitle = "Advances in Spatial Databases - 4th Symposium, SSD'95", //
 url = "http://dx.doi.org/10.1007/3-540-60159-7_6")
-public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<O> {
+public class RStarTreeKNNQuery<O extends SpatialComparable> implements BulkKNNQuery<O> {
   /**
    * The index to use
    */
@@ -100,6 +98,7 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
       throw new IllegalArgumentException("At least one neighbor has to be requested!");
     }
     tree.statistics.countKNNQuery();
+    final long start = tree.statistics.startTiming();
 
     final KNNHeap knnList = DBIDUtil.newHeap(k);
     final DoubleIntegerMinHeap pq = new DoubleIntegerMinHeap(Math.min(knnList.getK() << 1, 21));
@@ -116,8 +115,10 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
       }
       int nodeID = pq.peekValue();
       pq.poll(); // Remove from heap.
+      tree.statistics.countHeapOperation();
       maxDist = expandNode(obj, knnList, pq, maxDist, nodeID);
     }
+    tree.statistics.recordKNNQuery(start);
     return knnList.toKNNList();
   }
 
@@ -131,6 +132,7 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
         tree.statistics.countDistanceCalculation();
         if(distance <= maxDist) {
           maxDist = knnList.insert(distance, entry.getDBID());
+          tree.statistics.countHeapOperation();
         }
       }
     }
@@ -147,6 +149,7 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
         else {
           if(distance <= maxDist) {
             pq.add(distance, entry.getPageID());
+            tree.statistics.countHeapOperation();
           }
         }
       }
@@ -154,138 +157,19 @@ public class RStarTreeKNNQuery<O extends SpatialComparable> implements KNNQuery<
     return maxDist;
   }
 
-  /**
-   * Performs a batch knn query.
-   * 
-   * @param node the node for which the query should be performed
-   * @param knnLists a map containing the knn lists for each query objects
-   */
-  protected void batchNN(AbstractRStarTreeNode<?, ?> node, Map<DBID, KNNHeap> knnLists) {
-    if(node.isLeaf()) {
-      for(int i = 0; i < node.getNumEntries(); i++) {
-        SpatialEntry p = node.getEntry(i);
-        for(Entry<DBID, KNNHeap> ent : knnLists.entrySet()) {
-          final DBID q = ent.getKey();
-          final KNNHeap knns_q = ent.getValue();
-          double knn_q_maxDist = knns_q.getKNNDistance();
-
-          DBID pid = ((LeafEntry) p).getDBID();
-          // FIXME: objects are NOT accessible by DBID in a plain R-tree
-          // context!
-          double dist_pq = distanceFunction.distance(relation.get(pid), relation.get(q));
-          tree.statistics.countDistanceCalculation();
-          if(dist_pq <= knn_q_maxDist) {
-            knns_q.insert(dist_pq, pid);
-          }
-        }
-      }
-    }
-    else {
-      ModifiableDBIDs ids = DBIDUtil.newArray(knnLists.size());
-      for(DBID id : knnLists.keySet()) {
-        ids.add(id);
-      }
-      List<DoubleDistanceEntry> entries = getSortedEntries(node, ids);
-      for(DoubleDistanceEntry distEntry : entries) {
-        double minDist = distEntry.distance;
-        for(Entry<DBID, KNNHeap> ent : knnLists.entrySet()) {
-          final KNNHeap knns_q = ent.getValue();
-          double knn_q_maxDist = knns_q.getKNNDistance();
-
-          if(minDist <= knn_q_maxDist) {
-            SpatialEntry entry = distEntry.entry;
-            AbstractRStarTreeNode<?, ?> child = tree.getNode(((DirectoryEntry) entry).getPageID());
-            batchNN(child, knnLists);
-            break;
-          }
-        }
-      }
-    }
-  }
-
-  /**
-   * Sorts the entries of the specified node according to their minimum distance
-   * to the specified objects.
-   * 
-   * @param node the node
-   * @param ids the id of the objects
-   * @return a list of the sorted entries
-   */
-  protected List<DoubleDistanceEntry> getSortedEntries(AbstractRStarTreeNode<?, ?> node, DBIDs ids) {
-    List<DoubleDistanceEntry> result = new ArrayList<>();
-
-    for(int i = 0; i < node.getNumEntries(); i++) {
-      SpatialEntry entry = node.getEntry(i);
-      double minMinDist = Double.MAX_VALUE;
-      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-        double minDist = distanceFunction.minDist(entry, relation.get(iter));
-        tree.statistics.countDistanceCalculation();
-        minMinDist = Math.min(minDist, minMinDist);
-      }
-      result.add(new DoubleDistanceEntry(entry, minMinDist));
-    }
-
-    Collections.sort(result);
-    return result;
-  }
-
-  /**
-   * Optimized double distance entry implementation.
-   * 
-   * @author Erich Schubert
-   * 
-   * @apiviz.hidden
-   */
-  static class DoubleDistanceEntry implements Comparable<DoubleDistanceEntry> {
-    /**
-     * Referenced entry
-     */
-    SpatialEntry entry;
-
-    /**
-     * Distance value
-     */
-    double distance;
-
-    /**
-     * Constructor.
-     * 
-     * @param entry Entry
-     * @param distance Distance
-     */
-    public DoubleDistanceEntry(SpatialEntry entry, double distance) {
-      this.entry = entry;
-      this.distance = distance;
-    }
-
-    @Override
-    public int compareTo(DoubleDistanceEntry o) {
-      return Double.compare(this.distance, o.distance);
-    }
-  }
-
   @Override
   public List<KNNList> getKNNForBulkDBIDs(ArrayDBIDs ids, int k) {
     if(k < 1) {
       throw new IllegalArgumentException("At least one enumeration has to be requested!");
     }
-
-    // While this works, it seems to be slow at least for large sets!
-    // TODO: use a DataStore instead of a map.
-    final Map<DBID, KNNHeap> knnLists = new HashMap<>(ids.size());
-    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      DBID id = DBIDUtil.deref(iter);
-      knnLists.put(id, DBIDUtil.newHeap(k));
-    }
-
-    batchNN(tree.getRoot(), knnLists);
-
-    List<KNNList> result = new ArrayList<>();
-    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      DBID id = DBIDUtil.deref(iter);
-      tree.statistics.countKNNQuery();
-      result.add(knnLists.get(id).toKNNList());
+    // Small batches are cheaper to answer one by one.
+    if((ids.size() << 4) < relation.size()) {
+      List<KNNList> result = new ArrayList<>(ids.size());
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        result.add(getKNNForDBID(iter, k));
+      }
+      return result;
     }
-    return result;
+    return new RStarTreeDualTreeKNNJoin(tree, distanceFunction).run(relation.getDBIDs(), ids, k, false);
   }
 }
\ No newline at end of file
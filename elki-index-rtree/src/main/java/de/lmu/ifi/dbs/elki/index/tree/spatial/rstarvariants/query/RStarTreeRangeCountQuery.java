@@ -0,0 +1,123 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialDirectoryEntry;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTree;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeNode;
+
+/**
+ * Instance of a range count query for a particular spatial index.
+ * 
+ * The traversal is the same as for {@link RStarTreeRangeQuery}, but no result
+ * list is built, and the search stops once the limit is reached.
+ * 
+ * @author Erich Schubert
+ * @since 0.7.5
+ * 
+ * @apiviz.uses AbstractRStarTree
+ * @apiviz.uses SpatialPrimitiveDistanceFunction
+ */
+public class RStarTreeRangeCountQuery<O extends SpatialComparable> implements RangeCountQuery<O> {
+  /**
+   * The index to use
+   */
+  protected final AbstractRStarTree<?, ?, ?> tree;
+
+  /**
+   * Spatial primitive distance function
+   */
+  protected final SpatialPrimitiveDistanceFunction<? super O> distanceFunction;
+
+  /**
+   * Relation we query.
+   */
+  protected Relation<? extends O> relation;
+
+  /**
+   * Constructor.
+   * 
+   * @param tree Index to use
+   * @param relation Data relation to query
+   * @param distanceFunction Distance function
+   */
+  public RStarTreeRangeCountQuery(AbstractRStarTree<?, ?, ?> tree, Relation<? extends O> relation, SpatialPrimitiveDistanceFunction<? super O> distanceFunction) {
+    super();
+    this.relation = relation;
+    this.tree = tree;
+    this.distanceFunction = distanceFunction;
+  }
+
+  @Override
+  public int getRangeCountForDBID(DBIDRef id, double range, int limit) {
+    return getRangeCountForObject(relation.get(id), range, limit);
+  }
+
+  @Override
+  public int getRangeCountForObject(O obj, double range, int limit) {
+    tree.statistics.countRangeQuery();
+
+    // Processing queue.
+    int[] pq = new int[101];
+    int ps = 0;
+    pq[ps++] = tree.getRootID();
+
+    int count = 0;
+    long distcalcs = 0;
+    // search in tree
+    while(ps > 0 && count < limit) {
+      int pqNode = pq[--ps]; // Pop last.
+      AbstractRStarTreeNode<?, ?> node = tree.getNode(pqNode);
+      final int numEntries = node.getNumEntries();
+
+      if(node.isLeaf()) {
+        for(int i = 0; i < numEntries && count < limit; i++) {
+          SpatialEntry entry = node.getEntry(i);
+          ++distcalcs;
+          if(distanceFunction.minDist(obj, entry) <= range) {
+            ++count;
+          }
+        }
+      }
+      else {
+        for(int i = 0; i < numEntries; i++) {
+          SpatialDirectoryEntry entry = (SpatialDirectoryEntry) node.getEntry(i);
+          if(distanceFunction.minDist(obj, entry) <= range) {
+            if(ps == pq.length) {
+              pq = Arrays.copyOf(pq, pq.length + (pq.length >>> 1));
+            }
+            pq[ps++] = entry.getPageID();
+          }
+        }
+      }
+    }
+    tree.statistics.countDistanceCalculations(distcalcs);
+    return count;
+  }
+}
@@ -108,6 +108,7 @@ public class RStarTreeRangeQuery<O extends SpatialComparable> implements RangeQu
   @Override
   public void getRangeForObject(O obj, double range, ModifiableDoubleDBIDList result) {
     tree.statistics.countRangeQuery();
+    final long start = tree.statistics.startTiming();
 
     // Processing queue.
     int[] pq = new int[101];
@@ -143,5 +144,6 @@ public class RStarTreeRangeQuery<O extends SpatialComparable> implements RangeQu
         }
       }
     }
+    tree.statistics.recordRangeQuery(start);
   }
 }
\ No newline at end of file
@@ -23,7 +23,9 @@ package de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query;
 import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
 import de.lmu.ifi.dbs.elki.database.query.distance.SpatialDistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
@@ -41,6 +43,8 @@ import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTree;
  * @apiviz.uses AbstractRStarTree
  * @apiviz.uses EuclideanRStarTreeKNNQuery
  * @apiviz.uses EuclideanRStarTreeRangeQuery
+ * @apiviz.uses RStarTreeDistanceBrowser
+ * @apiviz.uses RStarTreeRangeCountQuery
  * @apiviz.has RangeQuery
  * @apiviz.has KNNQuery
  */
@@ -91,4 +95,30 @@ public final class RStarTreeUtil {
     }
     return new RStarTreeKNNQuery<>(tree, distanceQuery.getRelation(), df);
   }
-}
\ No newline at end of file
+
+  /**
+   * Get an RTree distance browser (incremental nearest neighbor search).
+   * 
+   * @param <O> Object type
+   * @param tree Tree to query
+   * @param distanceQuery distance query
+   * @param hints Optimizer hints
+   * @return Query object
+   */
+  public static <O extends SpatialComparable> DistanceBrowser<O> getDistanceBrowser(AbstractRStarTree<?, ?, ?> tree, SpatialDistanceQuery<O> distanceQuery, Object... hints) {
+    return new RStarTreeDistanceBrowser<>(tree, distanceQuery.getRelation(), distanceQuery.getDistanceFunction());
+  }
+
+  /**
+   * Get an RTree range count query.
+   * 
+   * @param <O> Object type
+   * @param tree Tree to query
+   * @param distanceQuery distance query
+   * @param hints Optimizer hints
+   * @return Query object
+   */
+  public static <O extends SpatialComparable> RangeCountQuery<O> getRangeCountQuery(AbstractRStarTree<?, ?, ?> tree, SpatialDistanceQuery<O> distanceQuery, Object... hints) {
+    return new RStarTreeRangeCountQuery<>(tree, distanceQuery.getRelation(), distanceQuery.getDistanceFunction());
+  }
+}
@@ -25,7 +25,9 @@ import org.junit.Test;
 import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
 import de.lmu.ifi.dbs.elki.index.AbstractIndexStructureTest;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.AbstractRStarTreeFactory;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeDistanceBrowser;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeKNNQuery;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeRangeCountQuery;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeRangeQuery;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk.AdaptiveSortTileRecursiveBulkSplit;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk.FileOrderBulkSplit;
@@ -69,6 +71,40 @@ public class RStarTreeTest extends AbstractIndexStructureTest {
     testExactCosine(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
   }
 
+  /**
+   * Test {@link RStarTree} with query latency recording enabled.
+   */
+  @Test
+  public void testRStarTreeQueryLatency() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    spatparams.addFlag(AbstractRStarTreeFactory.Parameterizer.QUERY_LATENCY_ID);
+    testExactEuclidean(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+  }
+
+  /**
+   * Test the dual-tree bulk kNN join of {@link RStarTree}.
+   */
+  @Test
+  public void testRStarTreeBulk() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    testBulkKNNEuclidean(spatparams, RStarTreeKNNQuery.class);
+  }
+
+  /**
+   * Test the distance browser of {@link RStarTree}.
+   */
+  @Test
+  public void testRStarTreeBrowser() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    testDistanceBrowserEuclidean(spatparams, RStarTreeDistanceBrowser.class);
+  }
+
   /**
    * Test {@link RStarTree} using a file based database connection. With "fast"
    * mode enabled on an extreme level (since this should only reduce
@@ -356,4 +392,15 @@ public class RStarTreeTest extends AbstractIndexStructureTest {
     spatparams.addParameter(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, AdaptiveSortTileRecursiveBulkSplit.class);
     testExactCosine(spatparams, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
   }
+
+  /**
+   * Test the range count query of {@link RStarTree}.
+   */
+  @Test
+  public void testRStarTreeRangeCount() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, RStarTreeFactory.class);
+    spatparams.addParameter(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300);
+    testRangeCountEuclidean(spatparams, RStarTreeRangeCountQuery.class);
+  }
 }
@@ -21,6 +21,7 @@
 package de.lmu.ifi.dbs.elki.index.tree.metrical.covertree;
 
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
@@ -100,7 +101,7 @@ public abstract class AbstractCoverTree<O> extends AbstractIndex<O> {
   public AbstractCoverTree(Relation<O> relation, DistanceFunction<? super O> distanceFunction, double expansion, int truncate) {
     super(relation);
     this.distanceFunction = distanceFunction;
-    this.distanceQuery = distanceFunction.instantiate(relation);
+    this.distanceQuery = QueryUtil.instrument(distanceFunction.instantiate(relation));
     this.truncate = truncate;
     this.expansion = expansion;
     this.invLogExpansion = 1. / FastMath.log(expansion);
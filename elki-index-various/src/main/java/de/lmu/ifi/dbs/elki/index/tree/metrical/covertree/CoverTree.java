@@ -33,13 +33,19 @@ import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.AbstractDistanceRangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.AbstractDistanceRangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.index.DistanceBrowserIndex;
 import de.lmu.ifi.dbs.elki.index.KNNIndex;
+import de.lmu.ifi.dbs.elki.index.RangeCountIndex;
 import de.lmu.ifi.dbs.elki.index.RangeIndex;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
@@ -70,13 +76,15 @@ import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
  * @since 0.7.0
  *
  * @apiviz.has CoverTreeRangeQuery
+ * @apiviz.has CoverTreeRangeCountQuery
  * @apiviz.has CoverTreeKNNQuery
+ * @apiviz.has CoverTreeDistanceBrowser
  */
 @Reference(authors = "A. Beygelzimer, S. Kakade, J. Langford", //
 title = "Cover trees for nearest neighbor", //
 booktitle = "In Proc. 23rd International Conference on Machine Learning (ICML)", //
 url = "http://dx.doi.org/10.1145/1143844.1143857")
-public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>, KNNIndex<O> {
+public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>, RangeCountIndex<O>, KNNIndex<O>, DistanceBrowserIndex<O> {
   /**
    * Class logger.
    */
@@ -127,6 +135,11 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
      */
     ArrayList<Node> children;
 
+    /**
+     * Number of objects in this subtree.
+     */
+    int size;
+
     /**
      * Expansion scale.
      */
@@ -165,6 +178,7 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
       this.children = null;
       this.maxDist = maxDist;
       this.parentDist = parentDist;
+      this.size = this.singletons.size();
     }
 
     /**
@@ -275,6 +289,18 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
         node.singletons.add(parentDist, cur); // Add as regular singleton.
       }
     }
+    // Count the objects in this subtree; the routing object of inner nodes is
+    // contained in a child (or repeated as regular singleton).
+    if(node.isLeaf()) {
+      node.size = node.singletons.size();
+    }
+    else {
+      int size = node.singletons.size() - 1;
+      for(Node c : node.children) {
+        size += c.size;
+      }
+      node.size = size;
+    }
     // TODO: improve recycling of lists?
     return node;
   }
@@ -316,6 +342,21 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
     return new CoverTreeRangeQuery(dq);
   }
 
+  @Override
+  public RangeCountQuery<O> getRangeCountQuery(DistanceQuery<O> distanceQuery, Object... hints) {
+    // Query on the relation we index
+    if(distanceQuery.getRelation() != relation) {
+      return null;
+    }
+    DistanceFunction<? super O> distanceFunction = (DistanceFunction<? super O>) distanceQuery.getDistanceFunction();
+    if(!this.distanceFunction.equals(distanceFunction)) {
+      LOG.debug("Distance function not supported by index - or 'equals' not implemented right!");
+      return null;
+    }
+    DistanceQuery<O> dq = distanceFunction.instantiate(relation);
+    return new CoverTreeRangeCountQuery(dq);
+  }
+
   @Override
   public KNNQuery<O> getKNNQuery(DistanceQuery<O> distanceQuery, Object... hints) {
     // Query on the relation we index
@@ -331,6 +372,21 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
     return new CoverTreeKNNQuery(dq);
   }
 
+  @Override
+  public DistanceBrowser<O> getDistanceBrowser(DistanceQuery<O> distanceQuery, Object... hints) {
+    // Query on the relation we index
+    if(distanceQuery.getRelation() != relation) {
+      return null;
+    }
+    DistanceFunction<? super O> distanceFunction = (DistanceFunction<? super O>) distanceQuery.getDistanceFunction();
+    if(!this.distanceFunction.equals(distanceFunction)) {
+      LOG.debug("Distance function not supported by index - or 'equals' not implemented right!");
+      return null;
+    }
+    DistanceQuery<O> dq = distanceFunction.instantiate(relation);
+    return new CoverTreeDistanceBrowser(dq);
+  }
+
   @Override
   protected Logging getLogger() {
     return LOG;
@@ -393,6 +449,70 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
     }
   }
 
+  /**
+   * Range count query class.
+   *
+   * Subtrees that are completely within the query radius are counted without
+   * computing any further distances.
+   *
+   * @author Erich Schubert
+   */
+  public class CoverTreeRangeCountQuery extends AbstractDistanceRangeCountQuery<O> {
+    /**
+     * Constructor.
+     *
+     * @param distanceQuery Distance query
+     */
+    public CoverTreeRangeCountQuery(DistanceQuery<O> distanceQuery) {
+      super(distanceQuery);
+    }
+
+    @Override
+    public int getRangeCountForObject(O obj, double range, int limit) {
+      if(root == null) {
+        return 0;
+      }
+      int count = 0;
+      ArrayList<Node> open = new ArrayList<Node>(); // LIFO stack
+      open.add(root);
+      while(!open.isEmpty() && count < limit) {
+        final Node cur = open.remove(open.size() - 1); // pop()
+        final DoubleDBIDListIter it = cur.singletons.iter();
+        final double d = distance(obj, it);
+        // Covered area not in range (metric assumption!):
+        if(d - cur.maxDist > range) {
+          continue;
+        }
+        // Covered area completely in range (metric assumption!):
+        if(d + cur.maxDist <= range) {
+          count += cur.size;
+          continue;
+        }
+        if(!cur.isLeaf()) { // Inner node:
+          for(Node c : cur.children) {
+            if(d - c.maxDist - c.parentDist <= range) {
+              open.add(c);
+            }
+          }
+        }
+        else if(d <= range) { // Leaf node, consider routing object, too:
+          ++count;
+        }
+        it.advance(); // Skip routing object.
+        // For remaining singletons, compute the distances:
+        for(; it.valid() && count < limit; it.advance()) {
+          if(d + it.doubleValue() <= range) {
+            ++count; // Within range by triangle inequality.
+          }
+          else if(d - it.doubleValue() <= range && distance(obj, it) <= range) {
+            ++count;
+          }
+        }
+      }
+      return count < limit ? count : limit;
+    }
+  }
+
   /**
    * KNN Query class.
    *
@@ -471,6 +591,67 @@ public class CoverTree<O> extends AbstractCoverTree<O>implements RangeIndex<O>,
     }
   }
 
+  /**
+   * Incremental nearest neighbor search.
+   *
+   * @author Erich Schubert
+   */
+  public class CoverTreeDistanceBrowser extends AbstractDistanceBrowser<O> {
+    /**
+     * Queue of unexpanded nodes, by minimum distance to the cover.
+     */
+    private final DoubleObjectMinHeap<Node> pq = new DoubleObjectMinHeap<>();
+
+    /**
+     * Current query object.
+     */
+    private O query;
+
+    /**
+     * Constructor.
+     *
+     * @param distanceQuery Distance
+     */
+    public CoverTreeDistanceBrowser(DistanceQuery<O> distanceQuery) {
+      super(distanceQuery.getRelation());
+    }
+
+    @Override
+    protected void startSearch(O obj) {
+      query = obj;
+      pq.clear();
+      final double rootdist = distance(obj, root.singletons.iter());
+      pq.add(rootdist - root.maxDist, root);
+    }
+
+    @Override
+    protected boolean expandNextNode(double threshold) {
+      if(pq.isEmpty() || pq.peekKey() > threshold) {
+        return false;
+      }
+      final Node cur = pq.peekValue();
+      final double d = pq.peekKey() + cur.maxDist; // Restore distance to center.
+      pq.poll(); // Remove
+
+      final DoubleDBIDListIter it = cur.singletons.iter();
+      if(!cur.isLeaf()) { // Inner node:
+        for(Node c : cur.children) {
+          final DoubleDBIDListIter f = c.singletons.iter();
+          final double dist = DBIDUtil.equal(f, it) ? d : distance(query, f);
+          pq.add(dist - c.maxDist, c);
+        }
+      }
+      else { // Leaf node
+        addCandidate(d, it); // Consider routing object, too
+      }
+      it.advance(); // Skip routing object.
+      for(; it.valid(); it.advance()) {
+        addCandidate(distance(query, it), it);
+      }
+      return true;
+    }
+  }
+
   /**
    * Index factory.
    *
@@ -36,7 +36,9 @@ import de.lmu.ifi.dbs.elki.database.ids.QuickSelectDBIDs;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.AbstractDistanceRangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.AbstractDistanceRangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
@@ -48,6 +50,7 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanD
 import de.lmu.ifi.dbs.elki.index.AbstractIndex;
 import de.lmu.ifi.dbs.elki.index.IndexFactory;
 import de.lmu.ifi.dbs.elki.index.KNNIndex;
+import de.lmu.ifi.dbs.elki.index.RangeCountIndex;
 import de.lmu.ifi.dbs.elki.index.RangeIndex;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
@@ -84,6 +87,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  *
  * @apiviz.has KDTreeKNNQuery
  * @apiviz.has KDTreeRangeQuery
+ * @apiviz.has KDTreeRangeCountQuery
  *
  * @param <O> Vector type
  */
@@ -91,7 +95,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 title = "Multidimensional binary search trees used for associative searching", //
 booktitle = "Communications of the ACM, Vol. 18 Issue 9, Sept. 1975", //
 url = "http://dx.doi.org/10.1145/361002.361007")
-public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>implements KNNIndex<O>, RangeIndex<O> {
+public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>implements KNNIndex<O>, RangeIndex<O>, RangeCountIndex<O> {
   /**
    * Class logger
    */
@@ -283,6 +287,22 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
     return null;
   }
 
+  @Override
+  public RangeCountQuery<O> getRangeCountQuery(DistanceQuery<O> distanceQuery, Object... hints) {
+    DistanceFunction<? super O> df = distanceQuery.getDistanceFunction();
+    // TODO: if we know this works for other distance functions, add them, too!
+    if(df instanceof LPNormDistanceFunction) {
+      return new KDTreeRangeCountQuery(distanceQuery, (Norm<? super O>) df);
+    }
+    if(df instanceof SquaredEuclideanDistanceFunction) {
+      return new KDTreeRangeCountQuery(distanceQuery, (Norm<? super O>) df);
+    }
+    if(df instanceof SparseLPNormDistanceFunction) {
+      return new KDTreeRangeCountQuery(distanceQuery, (Norm<? super O>) df);
+    }
+    return null;
+  }
+
   /**
    * kNN query for the k-d-tree.
    *
@@ -327,7 +347,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
     private double kdKNNSearch(int left, int right, int axis, O query, KNNHeap knns, DBIDArrayIter iter, double maxdist) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = norm.distance(query, relation.get(iter));
+          double dist = norm.distance(query, relation.get(iter), maxdist);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= maxdist) {
@@ -353,7 +373,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
       // Exact match chance (delta == 0)!
       // process first, then descend both sides.
       if(onleft && onright) {
-        double dist = norm.distance(query, split);
+        double dist = norm.distance(query, split, maxdist);
         countDistanceComputation();
         if(dist <= maxdist) {
           assert(iter.getOffset() == middle);
@@ -374,7 +394,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
           }
           // Look at splitting element (unless already above):
           if(Math.abs(delta) <= maxdist) {
-            double dist = norm.distance(query, split);
+            double dist = norm.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               knns.insert(dist, iter.seek(middle));
@@ -391,7 +411,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
           }
           // Look at splitting element (unless already above):
           if(Math.abs(delta) <= maxdist) {
-            double dist = norm.distance(query, split);
+            double dist = norm.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               knns.insert(dist, iter.seek(middle));
@@ -448,7 +468,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
     private void kdRangeSearch(int left, int right, int axis, O query, ModifiableDoubleDBIDList res, DBIDArrayIter iter, double radius) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = norm.distance(query, relation.get(iter));
+          double dist = norm.distance(query, relation.get(iter), radius);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= radius) {
@@ -473,7 +493,7 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
 
       // Current object:
       if(close) {
-        double dist = norm.distance(query, split);
+        double dist = norm.distance(query, split, radius);
         countDistanceComputation();
         if(dist <= radius) {
           assert(iter.getOffset() == middle);
@@ -489,6 +509,90 @@ public class MinimalisticMemoryKDTree<O extends NumberVector> extends AbstractIn
     }
   }
 
+  /**
+   * Range count query for the k-d-tree.
+   *
+   * @author Erich Schubert
+   */
+  public class KDTreeRangeCountQuery extends AbstractDistanceRangeCountQuery<O> {
+    /**
+     * Norm to use.
+     */
+    private Norm<? super O> norm;
+
+    /**
+     * Constructor.
+     *
+     * @param distanceQuery Distance query
+     * @param norm Norm to use
+     */
+    public KDTreeRangeCountQuery(DistanceQuery<O> distanceQuery, Norm<? super O> norm) {
+      super(distanceQuery);
+      this.norm = norm;
+    }
+
+    @Override
+    public int getRangeCountForObject(O obj, double range, int limit) {
+      return kdRangeCount(0, sorted.size(), 0, obj, sorted.iter(), range, 0, limit);
+    }
+
+    /**
+     * Count the objects within the radius, stopping at the limit.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @param axis Current splitting axis
+     * @param query Query object
+     * @param iter Iterator variable (reduces memory footprint!)
+     * @param radius Query radius
+     * @param count Number of objects found so far
+     * @param limit Stop when this many objects were found
+     * @return New number of objects found
+     */
+    private int kdRangeCount(int left, int right, int axis, O query, DBIDArrayIter iter, double radius, int count, int limit) {
+      if(right - left <= leafsize) {
+        for(iter.seek(left); iter.getOffset() < right && count < limit; iter.advance()) {
+          double dist = norm.distance(query, relation.get(iter), radius);
+          countObjectAccess();
+          countDistanceComputation();
+          if(dist <= radius) {
+            ++count;
+          }
+        }
+        return count;
+      }
+      // Look at current node:
+      final int middle = (left + right) >>> 1;
+      O split = relation.get(iter.seek(middle));
+      countObjectAccess();
+
+      // Distance to axis:
+      final double delta = split.doubleValue(axis) - query.doubleValue(axis);
+      final boolean onleft = (delta >= 0);
+      final boolean onright = (delta <= 0);
+      final boolean close = (Math.abs(delta) <= radius);
+
+      // Next axis:
+      final int next = (axis + 1) % dims;
+
+      // Current object:
+      if(close) {
+        double dist = norm.distance(query, split, radius);
+        countDistanceComputation();
+        if(dist <= radius && ++count >= limit) {
+          return count;
+        }
+      }
+      if(left < middle && (onleft || close)) {
+        count = kdRangeCount(left, middle, next, query, iter, radius, count, limit);
+      }
+      if(middle + 1 < right && (onright || close) && count < limit) {
+        count = kdRangeCount(middle + 1, right, next, query, iter, radius, count, limit);
+      }
+      return count;
+    }
+  }
+
   /**
    * Factory class
    *
@@ -20,9 +20,22 @@
  */
 package de.lmu.ifi.dbs.elki.index.tree.spatial.kd;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import de.lmu.ifi.dbs.elki.data.ModifiableHyperBoundingBox;
 import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
@@ -32,24 +45,34 @@ import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.QuickSelectDBIDs;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.AbstractDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.BulkKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.AbstractDistanceRangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.AbstractDistanceRangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.Norm;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.SpatialPrimitiveDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.LPNormDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SparseLPNormDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
 import de.lmu.ifi.dbs.elki.index.AbstractIndex;
+import de.lmu.ifi.dbs.elki.index.DistanceBrowserIndex;
 import de.lmu.ifi.dbs.elki.index.IndexFactory;
 import de.lmu.ifi.dbs.elki.index.KNNIndex;
+import de.lmu.ifi.dbs.elki.index.RangeCountIndex;
 import de.lmu.ifi.dbs.elki.index.RangeIndex;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleObjectMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
@@ -73,6 +96,17 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  * Communications of the ACM, Vol. 18 Issue 9, Sept. 1975
  * </p>
  *
+ * Bulk kNN queries are answered with a dual-tree all-kNN join, which traverses
+ * the tree for the query points and the tree for the data points
+ * simultaneously, and prunes pairs of subtrees using their bounding boxes.
+ *
+ * Reference:
+ * <p>
+ * A. G. Gray, A. W. Moore<br />
+ * "N-Body" problems in statistical learning<br />
+ * Advances in Neural Information Processing Systems 13 (NIPS 2000)
+ * </p>
+ *
  * TODO: add support for weighted Minkowski distances.
  *
  * @author Erich Schubert
@@ -80,6 +114,9 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  *
  * @apiviz.has KDTreeKNNQuery
  * @apiviz.has KDTreeRangeQuery
+ * @apiviz.has KDTreeRangeCountQuery
+ * @apiviz.has DualTreeKNNJoin
+ * @apiviz.has KDTreeDistanceBrowser
  *
  * @param <O> Vector type
  */
@@ -87,12 +124,23 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 title = "Multidimensional binary search trees used for associative searching", //
 booktitle = "Communications of the ACM, Vol. 18 Issue 9, Sept. 1975", //
 url = "http://dx.doi.org/10.1145/361002.361007")
-public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>implements KNNIndex<O>, RangeIndex<O> {
+public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>implements KNNIndex<O>, RangeIndex<O>, RangeCountIndex<O>, DistanceBrowserIndex<O> {
   /**
    * Class logger
    */
   private static final Logging LOG = Logging.getLogger(SmallMemoryKDTree.class);
 
+  /**
+   * Subtrees of at most this size are joined by pairwise comparisons in the
+   * dual-tree join, even when the tree uses smaller leaves.
+   */
+  private static final int DUALTREE_LEAFSIZE = 16;
+
+  /**
+   * Minimum number of query objects per task for the parallel dual-tree join.
+   */
+  private static final int DUALTREE_MIN_TASKSIZE = 1024;
+
   /**
    * The actual "tree" as a sorted array.
    */
@@ -251,12 +299,38 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
     return null;
   }
 
+  @Override
+  public RangeCountQuery<O> getRangeCountQuery(DistanceQuery<O> distanceQuery, Object... hints) {
+    DistanceFunction<? super O> df = distanceQuery.getDistanceFunction();
+    // TODO: if we know this works for other distance functions, add them, too!
+    if(df instanceof LPNormDistanceFunction) {
+      return new KDTreeRangeCountQuery(distanceQuery, (Norm<? super O>) df);
+    }
+    if(df instanceof SquaredEuclideanDistanceFunction) {
+      return new KDTreeRangeCountQuery(distanceQuery, (Norm<? super O>) df);
+    }
+    if(df instanceof SparseLPNormDistanceFunction) {
+      return new KDTreeRangeCountQuery(distanceQuery, (Norm<? super O>) df);
+    }
+    return null;
+  }
+
+  @Override
+  public DistanceBrowser<O> getDistanceBrowser(DistanceQuery<O> distanceQuery, Object... hints) {
+    DistanceFunction<? super O> df = distanceQuery.getDistanceFunction();
+    // Bounding box distances are needed for incremental search.
+    if(df instanceof LPNormDistanceFunction || df instanceof SquaredEuclideanDistanceFunction) {
+      return new KDTreeDistanceBrowser(distanceQuery, (SpatialPrimitiveDistanceFunction<? super O>) df);
+    }
+    return null;
+  }
+
   /**
    * kNN query for the k-d-tree.
    *
    * @author Erich Schubert
    */
-  public class KDTreeKNNQuery extends AbstractDistanceKNNQuery<O> {
+  public class KDTreeKNNQuery extends AbstractDistanceKNNQuery<O> implements BulkKNNQuery<O> {
     /**
      * Norm to use.
      */
@@ -280,6 +354,110 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
       return knns.toKNNList();
     }
 
+    @Override
+    public List<? extends KNNList> getKNNForBulkDBIDs(ArrayDBIDs ids, int k) {
+      // Small batches are cheaper to answer one by one.
+      if(!(norm instanceof SpatialPrimitiveDistanceFunction) || (ids.size() << 4) < sorted.size()) {
+        return super.getKNNForBulkDBIDs(ids, k);
+      }
+      @SuppressWarnings("unchecked")
+      SpatialPrimitiveDistanceFunction<? super O> df = (SpatialPrimitiveDistanceFunction<? super O>) norm;
+      final int size = sorted.size();
+      // Map each DBID to its position in the tree.
+      WritableIntegerDataStore pos = DataStoreUtil.makeIntegerStorage(relation.getDBIDs(), DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+      for(DoubleDBIDListIter it = sorted.iter(); it.valid(); it.advance()) {
+        pos.putInt(it, it.getOffset());
+      }
+      // Heaps are only allocated for the query objects:
+      KNNHeap[] heaps = new KNNHeap[size];
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        final int p = pos.intValue(it);
+        if(heaps[p] == null) {
+          heaps[p] = DBIDUtil.newHeap(k);
+        }
+      }
+      double[] bounds = new double[size];
+      Arrays.fill(bounds, Double.POSITIVE_INFINITY);
+      double[][] minmax = RelationUtil.computeMinMax(relation);
+      ModifiableHyperBoundingBox rootbox = new ModifiableHyperBoundingBox(minmax[0], minmax[1]);
+
+      ParallelCore core = ParallelCore.getCore();
+      final int parallelism = core.getParallelism();
+      if(parallelism <= 1 || size < DUALTREE_MIN_TASKSIZE << 1) {
+        new DualTreeKNNJoin(df, heaps, bounds, 0, size, 0, rootbox, rootbox).call();
+      }
+      else {
+        // Split the query tree into enough subtrees to keep all cores busy.
+        int depth = 3; // About 8 tasks per core.
+        for(int p = parallelism - 1; p > 0; p >>>= 1) {
+          ++depth;
+        }
+        List<DualTreeKNNJoin> tasks = new ArrayList<>();
+        splitQueryTree(0, size, 0, rootbox, depth, df, heaps, bounds, rootbox, tasks);
+        core.connect();
+        try {
+          List<Future<Void>> futures = new ArrayList<>(tasks.size());
+          for(DualTreeKNNJoin task : tasks) {
+            futures.add(core.submit(task));
+          }
+          for(Future<Void> fut : futures) {
+            fut.get();
+          }
+        }
+        catch(ExecutionException e) {
+          throw new RuntimeException("Processor execution failed.", e);
+        }
+        catch(InterruptedException e) {
+          throw new RuntimeException("Parallel execution interrupted.");
+        }
+        finally {
+          core.disconnect();
+        }
+      }
+      List<KNNList> result = new ArrayList<>(ids.size());
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        result.add(heaps[pos.intValue(it)].toKNNList());
+      }
+      pos.destroy();
+      return result;
+    }
+
+    /**
+     * Split the query tree into independent tasks for the dual-tree join.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @param axis Current splitting axis
+     * @param box Bounding box of the subtree
+     * @param depth Remaining split depth
+     * @param df Distance function
+     * @param heaps kNN heaps, by tree position
+     * @param bounds kNN distance bounds, by tree position
+     * @param rootbox Bounding box of the whole tree
+     * @param tasks Output list of tasks
+     */
+    private void splitQueryTree(int left, int right, int axis, ModifiableHyperBoundingBox box, int depth, SpatialPrimitiveDistanceFunction<? super O> df, KNNHeap[] heaps, double[] bounds, SpatialComparable rootbox, List<DualTreeKNNJoin> tasks) {
+      if(depth == 0 || right - left <= Math.max(leafsize, DUALTREE_MIN_TASKSIZE)) {
+        tasks.add(new DualTreeKNNJoin(df, heaps, bounds, left, right, axis, box, rootbox));
+        return;
+      }
+      final int middle = (left + right) >>> 1;
+      final double split = sorted.iter().seek(middle).doubleValue();
+      final int next = (axis + 1) % dims;
+      if(left < middle) {
+        ModifiableHyperBoundingBox lbox = new ModifiableHyperBoundingBox(box);
+        lbox.setMax(axis, split);
+        splitQueryTree(left, middle, next, lbox, depth - 1, df, heaps, bounds, rootbox, tasks);
+      }
+      // The splitting element forms a task of its own.
+      tasks.add(new DualTreeKNNJoin(df, heaps, bounds, middle, middle + 1, next, relation.get(sorted.iter().seek(middle)), rootbox));
+      if(middle + 1 < right) {
+        ModifiableHyperBoundingBox rbox = new ModifiableHyperBoundingBox(box);
+        rbox.setMin(axis, split);
+        splitQueryTree(middle + 1, right, next, rbox, depth - 1, df, heaps, bounds, rootbox, tasks);
+      }
+    }
+
     /**
      * Perform a kNN search on the kd-tree.
      *
@@ -295,7 +473,7 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
     private double kdKNNSearch(int left, int right, int axis, O query, KNNHeap knns, DoubleDBIDListIter iter, double maxdist) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = norm.distance(query, relation.get(iter));
+          double dist = norm.distance(query, relation.get(iter), maxdist);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= maxdist) {
@@ -322,7 +500,7 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
       if(onleft && onright) {
         O split = relation.get(iter.seek(middle));
         countObjectAccess();
-        double dist = norm.distance(query, split);
+        double dist = norm.distance(query, split, maxdist);
         countDistanceComputation();
         if(dist <= maxdist) {
           assert(iter.getOffset() == middle);
@@ -345,7 +523,7 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
           if(Math.abs(delta) <= maxdist) {
             O split = relation.get(iter.seek(middle));
             countObjectAccess();
-            double dist = norm.distance(query, split);
+            double dist = norm.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               assert(iter.getOffset() == middle);
@@ -365,7 +543,7 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
           if(Math.abs(delta) <= maxdist) {
             O split = relation.get(iter.seek(middle));
             countObjectAccess();
-            double dist = norm.distance(query, split);
+            double dist = norm.distance(query, split, maxdist);
             countDistanceComputation();
             if(dist <= maxdist) {
               iter.seek(middle);
@@ -382,6 +560,249 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
     }
   }
 
+  /**
+   * Dual-tree kNN join of one query subtree against the complete tree.
+   *
+   * A subtree is identified by its position interval in the sorted array, and
+   * consists of the splitting element in the middle and two child subtrees.
+   * The splitting element is treated as a child subtree of size one. Pairs of
+   * subtrees are pruned if the minimum distance of their bounding boxes
+   * exceeds the largest kNN distance of any query object in the query subtree.
+   * These bounds are cached at the position of the splitting element.
+   *
+   * Different query subtrees only access the heaps and bounds of their own
+   * positions, and can therefore be processed in parallel.
+   *
+   * @author Erich Schubert
+   */
+  private class DualTreeKNNJoin implements Callable<Void> {
+    /**
+     * Distance function.
+     */
+    private final SpatialPrimitiveDistanceFunction<? super O> df;
+
+    /**
+     * kNN heaps, by tree position; {@code null} for non-query objects.
+     */
+    private final KNNHeap[] heaps;
+
+    /**
+     * Upper bounds of the kNN distances within each subtree, by position of
+     * the splitting element.
+     */
+    private final double[] bounds;
+
+    /**
+     * Query subtree begin.
+     */
+    private final int qleft;
+
+    /**
+     * Query subtree end (exclusive).
+     */
+    private final int qright;
+
+    /**
+     * Splitting axis of the query subtree.
+     */
+    private final int qaxis;
+
+    /**
+     * Bounding box of the query subtree.
+     */
+    private final SpatialComparable qbox;
+
+    /**
+     * Bounding box of the complete tree.
+     */
+    private final SpatialComparable rootbox;
+
+    /**
+     * Subtrees of at most this size are not split further.
+     */
+    private final int leafthreshold = Math.max(leafsize, DUALTREE_LEAFSIZE);
+
+    /**
+     * Iterators for query and reference subtrees.
+     */
+    private final DoubleDBIDListIter qiter = sorted.iter(), riter = sorted.iter();
+
+    /**
+     * Local statistics, to avoid contention on shared counters.
+     */
+    private long distcalcs = 0, objaccesses = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param df Distance function
+     * @param heaps kNN heaps, by tree position
+     * @param bounds kNN distance bounds, by tree position
+     * @param qleft Query subtree begin
+     * @param qright Query subtree end (exclusive)
+     * @param qaxis Splitting axis of the query subtree
+     * @param qbox Bounding box of the query subtree
+     * @param rootbox Bounding box of the complete tree
+     */
+    DualTreeKNNJoin(SpatialPrimitiveDistanceFunction<? super O> df, KNNHeap[] heaps, double[] bounds, int qleft, int qright, int qaxis, SpatialComparable qbox, SpatialComparable rootbox) {
+      super();
+      this.df = df;
+      this.heaps = heaps;
+      this.bounds = bounds;
+      this.qleft = qleft;
+      this.qright = qright;
+      this.qaxis = qaxis;
+      this.qbox = qbox;
+      this.rootbox = rootbox;
+    }
+
+    @Override
+    public Void call() {
+      dualTree(qleft, qright, qaxis, qbox, 0, sorted.size(), 0, rootbox, df.minDist(qbox, rootbox));
+      if(distcalc != null) {
+        synchronized(distcalc) {
+          distcalc.increment(distcalcs);
+        }
+      }
+      if(objaccess != null) {
+        synchronized(objaccess) {
+          objaccess.increment(objaccesses);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Join a query subtree with a reference subtree.
+     *
+     * @param ql Query subtree begin
+     * @param qr Query subtree end (exclusive)
+     * @param qa Query splitting axis
+     * @param qb Query bounding box
+     * @param rl Reference subtree begin
+     * @param rr Reference subtree end (exclusive)
+     * @param ra Reference splitting axis
+     * @param rb Reference bounding box
+     * @param mindist Minimum distance of the bounding boxes
+     */
+    private void dualTree(int ql, int qr, int qa, SpatialComparable qb, int rl, int rr, int ra, SpatialComparable rb, double mindist) {
+      if(mindist > bound(ql, qr)) {
+        return; // Pruned.
+      }
+      final boolean qleaf = qr - ql <= leafthreshold, rleaf = rr - rl <= leafthreshold;
+      if(qleaf && rleaf) {
+        baseCase(ql, qr, rl, rr);
+        return;
+      }
+      // Split the larger subtree first.
+      if(qleaf || (!rleaf && rr - rl >= qr - ql)) {
+        final int middle = (rl + rr) >>> 1, next = (ra + 1) % dims;
+        final double split = riter.seek(middle).doubleValue();
+        final O mid = relation.get(riter);
+        ++objaccesses;
+        ModifiableHyperBoundingBox lb = null, hb = null;
+        double ld = Double.POSITIVE_INFINITY, hd = Double.POSITIVE_INFINITY;
+        if(rl < middle) {
+          lb = new ModifiableHyperBoundingBox(rb);
+          lb.setMax(ra, split);
+          ld = df.minDist(qb, lb);
+        }
+        if(middle + 1 < rr) {
+          hb = new ModifiableHyperBoundingBox(rb);
+          hb.setMin(ra, split);
+          hd = df.minDist(qb, hb);
+        }
+        // Visit the closer side first, to obtain good bounds early.
+        if(ld <= hd) {
+          if(lb != null) {
+            dualTree(ql, qr, qa, qb, rl, middle, next, lb, ld);
+          }
+          dualTree(ql, qr, qa, qb, middle, middle + 1, next, mid, df.minDist(qb, mid));
+          if(hb != null) {
+            dualTree(ql, qr, qa, qb, middle + 1, rr, next, hb, hd);
+          }
+        }
+        else {
+          dualTree(ql, qr, qa, qb, middle + 1, rr, next, hb, hd);
+          dualTree(ql, qr, qa, qb, middle, middle + 1, next, mid, df.minDist(qb, mid));
+          if(lb != null) {
+            dualTree(ql, qr, qa, qb, rl, middle, next, lb, ld);
+          }
+        }
+        return;
+      }
+      // Split the query subtree.
+      final int middle = (ql + qr) >>> 1, next = (qa + 1) % dims;
+      final double split = qiter.seek(middle).doubleValue();
+      final O mid = relation.get(qiter);
+      ++objaccesses;
+      if(ql < middle) {
+        ModifiableHyperBoundingBox lb = new ModifiableHyperBoundingBox(qb);
+        lb.setMax(qa, split);
+        dualTree(ql, middle, next, lb, rl, rr, ra, rb, df.minDist(lb, rb));
+      }
+      dualTree(middle, middle + 1, next, mid, rl, rr, ra, rb, df.minDist(mid, rb));
+      if(middle + 1 < qr) {
+        ModifiableHyperBoundingBox hb = new ModifiableHyperBoundingBox(qb);
+        hb.setMin(qa, split);
+        dualTree(middle + 1, qr, next, hb, rl, rr, ra, rb, df.minDist(hb, rb));
+      }
+      double b = bound(ql, middle), b2 = bound(middle, middle + 1), b3 = bound(middle + 1, qr);
+      b = b2 > b ? b2 : b;
+      bounds[middle] = b3 > b ? b3 : b;
+    }
+
+    /**
+     * Compare all query objects with all reference objects.
+     *
+     * @param ql Query subtree begin
+     * @param qr Query subtree end (exclusive)
+     * @param rl Reference subtree begin
+     * @param rr Reference subtree end (exclusive)
+     */
+    private void baseCase(int ql, int qr, int rl, int rr) {
+      for(qiter.seek(ql); qiter.getOffset() < qr; qiter.advance()) {
+        final KNNHeap heap = heaps[qiter.getOffset()];
+        if(heap == null) {
+          continue;
+        }
+        final O q = relation.get(qiter);
+        ++objaccesses;
+        double kdist = heap.getKNNDistance();
+        for(riter.seek(rl); riter.getOffset() < rr; riter.advance()) {
+          final double dist = df.distance(q, relation.get(riter), kdist);
+          ++objaccesses;
+          ++distcalcs;
+          if(dist <= kdist) {
+            kdist = heap.insert(dist, riter);
+          }
+        }
+      }
+    }
+
+    /**
+     * Get an upper bound of the kNN distances of the query objects in a
+     * subtree.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @return Upper bound, negative infinity if there are no query objects
+     */
+    private double bound(int left, int right) {
+      if(right - left > leafthreshold) {
+        return bounds[(left + right) >>> 1];
+      }
+      double max = Double.NEGATIVE_INFINITY;
+      for(int i = left; i < right; i++) {
+        if(heaps[i] != null) {
+          final double kdist = heaps[i].getKNNDistance();
+          max = kdist > max ? kdist : max;
+        }
+      }
+      return max;
+    }
+  }
+
   /**
    * kNN query for the k-d-tree.
    *
@@ -423,7 +844,7 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
     private void kdRangeSearch(int left, int right, int axis, O query, ModifiableDoubleDBIDList res, DoubleDBIDListIter iter, double radius) {
       if(right - left <= leafsize) {
         for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
-          double dist = norm.distance(query, relation.get(iter));
+          double dist = norm.distance(query, relation.get(iter), radius);
           countObjectAccess();
           countDistanceComputation();
           if(dist <= radius) {
@@ -448,7 +869,7 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
       if(close) {
         O split = relation.get(iter.seek(middle));
         countObjectAccess();
-        double dist = norm.distance(query, split);
+        double dist = norm.distance(query, split, radius);
         countDistanceComputation();
         if(dist <= radius) {
           assert(iter.getOffset() == middle);
@@ -464,6 +885,208 @@ public class SmallMemoryKDTree<O extends NumberVector> extends AbstractIndex<O>i
     }
   }
 
+  /**
+   * Range count query for the k-d-tree.
+   *
+   * @author Erich Schubert
+   */
+  public class KDTreeRangeCountQuery extends AbstractDistanceRangeCountQuery<O> {
+    /**
+     * Norm to use.
+     */
+    private Norm<? super O> norm;
+
+    /**
+     * Constructor.
+     *
+     * @param distanceQuery Distance query
+     * @param norm Norm to use
+     */
+    public KDTreeRangeCountQuery(DistanceQuery<O> distanceQuery, Norm<? super O> norm) {
+      super(distanceQuery);
+      this.norm = norm;
+    }
+
+    @Override
+    public int getRangeCountForObject(O obj, double range, int limit) {
+      return kdRangeCount(0, sorted.size(), 0, obj, sorted.iter(), range, 0, limit);
+    }
+
+    /**
+     * Count the objects within the radius, stopping at the limit.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @param axis Current splitting axis
+     * @param query Query object
+     * @param iter Iterator variable (reduces memory footprint!)
+     * @param radius Query radius
+     * @param count Number of objects found so far
+     * @param limit Stop when this many objects were found
+     * @return New number of objects found
+     */
+    private int kdRangeCount(int left, int right, int axis, O query, DoubleDBIDListIter iter, double radius, int count, int limit) {
+      if(right - left <= leafsize) {
+        for(iter.seek(left); iter.getOffset() < right && count < limit; iter.advance()) {
+          double dist = norm.distance(query, relation.get(iter), radius);
+          countObjectAccess();
+          countDistanceComputation();
+          if(dist <= radius) {
+            ++count;
+          }
+        }
+        return count;
+      }
+      // Look at current node:
+      final int middle = (left + right) >>> 1;
+
+      // Distance to axis:
+      final double delta = iter.seek(middle).doubleValue() - query.doubleValue(axis);
+      final boolean onleft = (delta >= 0);
+      final boolean onright = (delta <= 0);
+      final boolean close = (Math.abs(delta) <= radius);
+
+      // Next axis:
+      final int next = (axis + 1) % dims;
+
+      // Current object:
+      if(close) {
+        O split = relation.get(iter.seek(middle));
+        countObjectAccess();
+        double dist = norm.distance(query, split, radius);
+        countDistanceComputation();
+        if(dist <= radius && ++count >= limit) {
+          return count;
+        }
+      }
+      if(left < middle && (onleft || close)) {
+        count = kdRangeCount(left, middle, next, query, iter, radius, count, limit);
+      }
+      if(middle + 1 < right && (onright || close) && count < limit) {
+        count = kdRangeCount(middle + 1, right, next, query, iter, radius, count, limit);
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Incremental nearest neighbor search on the k-d-tree.
+   *
+   * Subtrees are queued by the minimum distance of their bounding box, the
+   * splitting element of a subtree becomes a candidate when it is expanded.
+   *
+   * @author Erich Schubert
+   */
+  public class KDTreeDistanceBrowser extends AbstractDistanceBrowser<O> {
+    /**
+     * Distance function to use.
+     */
+    private SpatialPrimitiveDistanceFunction<? super O> df;
+
+    /**
+     * Queue of unexpanded subtrees.
+     */
+    private DoubleObjectMinHeap<KDTreeBrowserNode> pq = new DoubleObjectMinHeap<>();
+
+    /**
+     * Iterator into the tree.
+     */
+    private DoubleDBIDListIter iter = sorted.iter();
+
+    /**
+     * Current query object.
+     */
+    private O query;
+
+    /**
+     * Constructor.
+     *
+     * @param distanceQuery Distance query
+     * @param df Distance function
+     */
+    public KDTreeDistanceBrowser(DistanceQuery<O> distanceQuery, SpatialPrimitiveDistanceFunction<? super O> df) {
+      super(distanceQuery.getRelation());
+      this.df = df;
+    }
+
+    @Override
+    protected void startSearch(O obj) {
+      query = obj;
+      pq.clear();
+      ModifiableHyperBoundingBox box = new ModifiableHyperBoundingBox(dims, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+      pq.add(0., new KDTreeBrowserNode(0, sorted.size(), 0, box));
+    }
+
+    @Override
+    protected boolean expandNextNode(double threshold) {
+      if(pq.isEmpty() || pq.peekKey() > threshold) {
+        return false;
+      }
+      final KDTreeBrowserNode node = pq.peekValue();
+      pq.poll();
+      final int left = node.left, right = node.right;
+      if(right - left <= leafsize) {
+        for(iter.seek(left); iter.getOffset() < right; iter.advance()) {
+          addCandidate(df.distance(query, relation.get(iter)), iter);
+          countObjectAccess();
+          countDistanceComputation();
+        }
+        return true;
+      }
+      final int middle = (left + right) >>> 1;
+      final double split = iter.seek(middle).doubleValue();
+      addCandidate(df.distance(query, relation.get(iter)), iter);
+      countObjectAccess();
+      countDistanceComputation();
+      final int next = (node.axis + 1) % dims;
+      if(left < middle) {
+        ModifiableHyperBoundingBox lbox = new ModifiableHyperBoundingBox(node.box);
+        lbox.setMax(node.axis, split);
+        pq.add(df.minDist(lbox, query), new KDTreeBrowserNode(left, middle, next, lbox));
+      }
+      if(middle + 1 < right) {
+        ModifiableHyperBoundingBox rbox = node.box; // Reuse
+        rbox.setMin(node.axis, split);
+        pq.add(df.minDist(rbox, query), new KDTreeBrowserNode(middle + 1, right, next, rbox));
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Unexpanded subtree of the k-d-tree.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  private static class KDTreeBrowserNode {
+    /**
+     * Subtree interval and splitting axis.
+     */
+    final int left, right, axis;
+
+    /**
+     * Bounding box of the subtree.
+     */
+    final ModifiableHyperBoundingBox box;
+
+    /**
+     * Constructor.
+     *
+     * @param left Subtree begin
+     * @param right Subtree end (exclusive)
+     * @param axis Splitting axis
+     * @param box Bounding box
+     */
+    KDTreeBrowserNode(int left, int right, int axis, ModifiableHyperBoundingBox box) {
+      this.left = left;
+      this.right = right;
+      this.axis = axis;
+      this.box = box;
+    }
+  }
+
   /**
    * Factory class
    *
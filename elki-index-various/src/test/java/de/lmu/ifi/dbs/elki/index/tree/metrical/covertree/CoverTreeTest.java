@@ -44,4 +44,26 @@ public class CoverTreeTest extends AbstractIndexStructureTest {
     metparams.addParameter(CoverTree.Factory.Parameterizer.DISTANCE_FUNCTION_ID, EuclideanDistanceFunction.class);
     testExactEuclidean(metparams, CoverTree.CoverTreeKNNQuery.class, CoverTree.CoverTreeRangeQuery.class);
   }
+
+  /**
+   * Test the distance browser of {@link CoverTree}.
+   */
+  @Test
+  public void testCovertreeBrowser() {
+    ListParameterization metparams = new ListParameterization();
+    metparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, CoverTree.Factory.class);
+    metparams.addParameter(CoverTree.Factory.Parameterizer.DISTANCE_FUNCTION_ID, EuclideanDistanceFunction.class);
+    testDistanceBrowserEuclidean(metparams, CoverTree.CoverTreeDistanceBrowser.class);
+  }
+
+  /**
+   * Test the range count query of {@link CoverTree}.
+   */
+  @Test
+  public void testCovertreeRangeCount() {
+    ListParameterization metparams = new ListParameterization();
+    metparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, CoverTree.Factory.class);
+    metparams.addParameter(CoverTree.Factory.Parameterizer.DISTANCE_FUNCTION_ID, EuclideanDistanceFunction.class);
+    testRangeCountEuclidean(metparams, CoverTree.CoverTreeRangeCountQuery.class);
+  }
 }
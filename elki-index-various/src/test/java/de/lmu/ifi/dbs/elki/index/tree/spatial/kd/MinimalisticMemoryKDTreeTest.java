@@ -42,4 +42,15 @@ public class MinimalisticMemoryKDTreeTest extends AbstractIndexStructureTest {
     spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, MinimalisticMemoryKDTree.Factory.class);
     testExactEuclidean(spatparams, MinimalisticMemoryKDTree.KDTreeKNNQuery.class, MinimalisticMemoryKDTree.KDTreeRangeQuery.class);
   }
+
+  /**
+   * Test the range count query of {@link MinimalisticMemoryKDTree}.
+   */
+  @Test
+  public void testMinimalisticMemoryKDTreeRangeCount() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, MinimalisticMemoryKDTree.Factory.class);
+    spatparams.addParameter(MinimalisticMemoryKDTree.Factory.Parameterizer.LEAFSIZE_P, 3);
+    testRangeCountEuclidean(spatparams, MinimalisticMemoryKDTree.KDTreeRangeCountQuery.class);
+  }
 }
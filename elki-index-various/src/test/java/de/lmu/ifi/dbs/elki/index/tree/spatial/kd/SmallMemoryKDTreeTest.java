@@ -42,4 +42,37 @@ public class SmallMemoryKDTreeTest extends AbstractIndexStructureTest {
     spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, SmallMemoryKDTree.Factory.class);
     testExactEuclidean(spatparams, SmallMemoryKDTree.KDTreeKNNQuery.class, SmallMemoryKDTree.KDTreeRangeQuery.class);
   }
+
+  /**
+   * Test the dual-tree bulk kNN join of {@link SmallMemoryKDTree}.
+   */
+  @Test
+  public void testSmallMemoryKDTreeBulk() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, SmallMemoryKDTree.Factory.class);
+    spatparams.addParameter(MinimalisticMemoryKDTree.Factory.Parameterizer.LEAFSIZE_P, 3);
+    testBulkKNNEuclidean(spatparams, SmallMemoryKDTree.KDTreeKNNQuery.class);
+  }
+
+  /**
+   * Test the distance browser of {@link SmallMemoryKDTree}.
+   */
+  @Test
+  public void testSmallMemoryKDTreeBrowser() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, SmallMemoryKDTree.Factory.class);
+    spatparams.addParameter(MinimalisticMemoryKDTree.Factory.Parameterizer.LEAFSIZE_P, 3);
+    testDistanceBrowserEuclidean(spatparams, SmallMemoryKDTree.KDTreeDistanceBrowser.class);
+  }
+
+  /**
+   * Test the range count query of {@link SmallMemoryKDTree}.
+   */
+  @Test
+  public void testSmallMemoryKDTreeRangeCount() {
+    ListParameterization spatparams = new ListParameterization();
+    spatparams.addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, SmallMemoryKDTree.Factory.class);
+    spatparams.addParameter(MinimalisticMemoryKDTree.Factory.Parameterizer.LEAFSIZE_P, 3);
+    testRangeCountEuclidean(spatparams, SmallMemoryKDTree.KDTreeRangeCountQuery.class);
+  }
 }
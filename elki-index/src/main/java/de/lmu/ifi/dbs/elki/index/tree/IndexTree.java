@@ -22,6 +22,8 @@ package de.lmu.ifi.dbs.elki.index.tree;
 
 import de.lmu.ifi.dbs.elki.index.Index;
 import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
 import de.lmu.ifi.dbs.elki.persistent.PageFile;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
@@ -78,6 +80,12 @@ public abstract class IndexTree<N extends Node<E>, E extends Entry> implements I
    */
   private E rootEntry;
 
+  /**
+   * Shared instrumentation counter for node visits, {@code null} when
+   * disabled.
+   */
+  private final Counter nodeVisits;
+
   /**
    * Constructor.
    *
@@ -86,6 +94,7 @@ public abstract class IndexTree<N extends Node<E>, E extends Entry> implements I
   public IndexTree(PageFile<N> pagefile) {
     super();
     this.file = pagefile;
+    this.nodeVisits = Instrumentation.counterIfEnabled(Instrumentation.NODE_VISITS);
   }
 
   /**
@@ -131,6 +140,9 @@ public abstract class IndexTree<N extends Node<E>, E extends Entry> implements I
    * @return the root node of this index
    */
   public N getRoot() {
+    if (nodeVisits != null) {
+      nodeVisits.increment();
+    }
     return file.readPage(getPageID(rootEntry));
   }
 
@@ -167,6 +179,9 @@ public abstract class IndexTree<N extends Node<E>, E extends Entry> implements I
     if (nodeID == getPageID(rootEntry)) {
       return getRoot();
     } else {
+      if (nodeVisits != null) {
+        nodeVisits.increment();
+      }
       return file.readPage(nodeID);
     }
   }
@@ -32,6 +32,7 @@ import de.lmu.ifi.dbs.elki.logging.progress.ProgressLogRecord;
 import de.lmu.ifi.dbs.elki.logging.progress.StepProgress;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
 import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.logging.statistics.LatencyHistogram;
 import de.lmu.ifi.dbs.elki.logging.statistics.MillisTimeDuration;
 import de.lmu.ifi.dbs.elki.logging.statistics.Statistic;
 import de.lmu.ifi.dbs.elki.logging.statistics.UnsynchronizedLongCounter;
@@ -621,6 +622,16 @@ public class Logging {
     return new MillisTimeDuration(key);
   }
 
+  /**
+   * Generate a new latency histogram (thread-safe).
+   * 
+   * @param key Key to use
+   * @return Latency histogram.
+   */
+  public LatencyHistogram newLatencyHistogram(String key) {
+    return new LatencyHistogram(key);
+  }
+
   /**
    * Increment a progress (unless {@code null}).
    * 
@@ -0,0 +1,401 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.logging.statistics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.lmu.ifi.dbs.elki.logging.Logging;
+
+/**
+ * Process-wide registry of instrumentation counters, such as the number of
+ * distance computations, index node visits, page accesses and heap
+ * operations.
+ * <p>
+ * Instrumentation is disabled by default. Components should obtain their
+ * counters once, using {@link #counterIfEnabled}, and only increment them if
+ * they are not {@code null}. This way, the overhead when instrumentation is
+ * disabled is a single null check.
+ * <p>
+ * Counter values can be aggregated into named phases (e.g. the input step, and
+ * each algorithm run), which are reported via {@link #logStatistics} and
+ * {@link #writeJSON}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.composedOf AtomicLongCounter
+ * @apiviz.has Phase
+ */
+public final class Instrumentation {
+  /**
+   * Key for counting distance computations.
+   */
+  public static final String DISTANCE_COMPUTATIONS = "distance.computations";
+
+  /**
+   * Key for counting index node visits.
+   */
+  public static final String NODE_VISITS = "index.nodevisits";
+
+  /**
+   * Key for counting page reads.
+   */
+  public static final String PAGE_READS = "page.reads";
+
+  /**
+   * Key for counting page writes.
+   */
+  public static final String PAGE_WRITES = "page.writes";
+
+  /**
+   * Key for counting priority queue operations (insertions and removals).
+   */
+  public static final String HEAP_OPERATIONS = "heap.operations";
+
+  /**
+   * Prefix used when logging.
+   */
+  private static final String PREFIX = "instrumentation.";
+
+  /**
+   * Flag to enable instrumentation.
+   */
+  private static volatile boolean enabled = false;
+
+  /**
+   * Shared counters, in order of creation.
+   */
+  private static final Map<String, AtomicLongCounter> COUNTERS = new LinkedHashMap<>();
+
+  /**
+   * Finished phases.
+   */
+  private static final List<Phase> PHASES = new ArrayList<>();
+
+  /**
+   * Name of the currently active phase, may be {@code null}.
+   */
+  private static String currentName = null;
+
+  /**
+   * Counter values at the beginning of the active phase.
+   */
+  private static Map<String, Long> currentStart = null;
+
+  /**
+   * Start time of the active phase.
+   */
+  private static long currentTime;
+
+  /**
+   * Fake constructor: do not instantiate.
+   */
+  private Instrumentation() {
+    // Do not instantiate.
+  }
+
+  /**
+   * Test whether instrumentation is enabled.
+   *
+   * @return {@code true} when enabled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enable or disable instrumentation.
+   * <p>
+   * Note: components obtain their counters on initialization, so this should
+   * be set before the database and indexes are created.
+   *
+   * @param enable New value
+   */
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+  }
+
+  /**
+   * Get (or create) the shared counter for the given key.
+   *
+   * @param key Counter key
+   * @return Counter
+   */
+  public static synchronized Counter getCounter(String key) {
+    AtomicLongCounter c = COUNTERS.get(key);
+    if(c == null) {
+      COUNTERS.put(key, c = new AtomicLongCounter(key));
+    }
+    return c;
+  }
+
+  /**
+   * Get the shared counter for the given key, if instrumentation is enabled.
+   *
+   * @param key Counter key
+   * @return Counter, or {@code null} when disabled
+   */
+  public static Counter counterIfEnabled(String key) {
+    return enabled ? getCounter(key) : null;
+  }
+
+  /**
+   * Begin a new phase. An active phase will be ended first.
+   *
+   * @param name Phase name
+   */
+  public static synchronized void beginPhase(String name) {
+    if(currentName != null) {
+      endPhase();
+    }
+    currentName = name;
+    currentStart = snapshot();
+    currentTime = System.nanoTime();
+  }
+
+  /**
+   * End the current phase, and record the counter increments since its
+   * beginning.
+   */
+  public static synchronized void endPhase() {
+    if(currentName == null) {
+      return;
+    }
+    final long nanos = System.nanoTime() - currentTime;
+    Map<String, Long> delta = new LinkedHashMap<>();
+    for(Map.Entry<String, AtomicLongCounter> e : COUNTERS.entrySet()) {
+      Long b = currentStart.get(e.getKey());
+      delta.put(e.getKey(), e.getValue().getValue() - (b != null ? b : 0L));
+    }
+    PHASES.add(new Phase(currentName, delta, nanos));
+    currentName = null;
+    currentStart = null;
+  }
+
+  /**
+   * Get the finished phases.
+   *
+   * @return Phases
+   */
+  public static synchronized List<Phase> getPhases() {
+    return Collections.unmodifiableList(new ArrayList<>(PHASES));
+  }
+
+  /**
+   * Get the current totals of all counters.
+   *
+   * @return Counter values
+   */
+  public static synchronized Map<String, Long> getTotals() {
+    return Collections.unmodifiableMap(snapshot());
+  }
+
+  /**
+   * Discard all phases, and reset the counters to zero.
+   * <p>
+   * Counters already handed out remain valid.
+   */
+  public static synchronized void reset() {
+    for(AtomicLongCounter c : COUNTERS.values()) {
+      c.counter.set(0L);
+    }
+    PHASES.clear();
+    currentName = null;
+    currentStart = null;
+  }
+
+  /**
+   * Log the per-phase increments and the totals.
+   *
+   * @param log Logger to report to
+   */
+  public static synchronized void logStatistics(Logging log) {
+    if(!log.isStatistics()) {
+      return;
+    }
+    for(Phase p : PHASES) {
+      final String prefix = PREFIX + p.name + ".";
+      log.statistics(new LongStatistic(prefix + "time.ms", p.nanos / 1000000L));
+      for(Map.Entry<String, Long> e : p.values.entrySet()) {
+        log.statistics(new LongStatistic(prefix + e.getKey(), e.getValue()));
+      }
+    }
+    for(Map.Entry<String, AtomicLongCounter> e : COUNTERS.entrySet()) {
+      log.statistics(new LongStatistic(PREFIX + "total." + e.getKey(), e.getValue().getValue()));
+    }
+  }
+
+  /**
+   * Write the per-phase increments and the totals as JSON.
+   *
+   * @param out Output
+   * @throws IOException on write errors
+   */
+  public static synchronized void writeJSON(Appendable out) throws IOException {
+    out.append("{\n  \"phases\": [");
+    boolean first = true;
+    for(Phase p : PHASES) {
+      out.append(first ? "\n" : ",\n").append("    {\"name\": ");
+      appendString(out, p.name);
+      out.append(", \"time.ns\": ").append(Long.toString(p.nanos)).append(", \"counters\": ");
+      appendCounters(out, p.values);
+      out.append('}');
+      first = false;
+    }
+    out.append(first ? "],\n" : "\n  ],\n").append("  \"totals\": ");
+    appendCounters(out, snapshot());
+    out.append("\n}\n");
+  }
+
+  /**
+   * Snapshot the current counter values.
+   *
+   * @return Counter values
+   */
+  private static Map<String, Long> snapshot() {
+    Map<String, Long> values = new LinkedHashMap<>();
+    for(Map.Entry<String, AtomicLongCounter> e : COUNTERS.entrySet()) {
+      values.put(e.getKey(), e.getValue().getValue());
+    }
+    return values;
+  }
+
+  /**
+   * Append a JSON object of counter values.
+   *
+   * @param out Output
+   * @param values Values
+   * @throws IOException on write errors
+   */
+  private static void appendCounters(Appendable out, Map<String, Long> values) throws IOException {
+    out.append('{');
+    boolean first = true;
+    for(Map.Entry<String, Long> e : values.entrySet()) {
+      out.append(first ? "" : ", ");
+      appendString(out, e.getKey());
+      out.append(": ").append(Long.toString(e.getValue()));
+      first = false;
+    }
+    out.append('}');
+  }
+
+  /**
+   * Append a quoted JSON string.
+   *
+   * @param out Output
+   * @param s String
+   * @throws IOException on write errors
+   */
+  private static void appendString(Appendable out, String s) throws IOException {
+    out.append('"');
+    for(int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if(c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      }
+      else if(c < 0x20) {
+        out.append(String.format("\\u%04x", (int) c));
+      }
+      else {
+        out.append(c);
+      }
+    }
+    out.append('"');
+  }
+
+  /**
+   * A named phase, with the counter increments observed during the phase.
+   *
+   * @author Erich Schubert
+   */
+  public static class Phase {
+    /**
+     * Phase name.
+     */
+    final String name;
+
+    /**
+     * Counter increments during this phase.
+     */
+    final Map<String, Long> values;
+
+    /**
+     * Duration in nanoseconds.
+     */
+    final long nanos;
+
+    /**
+     * Constructor.
+     *
+     * @param name Phase name
+     * @param values Counter increments
+     * @param nanos Duration
+     */
+    Phase(String name, Map<String, Long> values, long nanos) {
+      this.name = name;
+      this.values = values;
+      this.nanos = nanos;
+    }
+
+    /**
+     * Get the phase name.
+     *
+     * @return Name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Get the duration of the phase.
+     *
+     * @return Duration in nanoseconds
+     */
+    public long getNanos() {
+      return nanos;
+    }
+
+    /**
+     * Get the counter increment during this phase.
+     *
+     * @param key Counter key
+     * @return Increment, 0 if unknown.
+     */
+    public long get(String key) {
+      Long v = values.get(key);
+      return v != null ? v : 0L;
+    }
+
+    /**
+     * Get all counter increments of this phase.
+     *
+     * @return Counter increments
+     */
+    public Map<String, Long> getCounters() {
+      return Collections.unmodifiableMap(values);
+    }
+  }
+}
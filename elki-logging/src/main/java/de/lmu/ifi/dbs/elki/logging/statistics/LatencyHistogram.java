@@ -0,0 +1,357 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.logging.statistics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * High dynamic range histogram of (non-negative) long values, such as
+ * latencies in nanoseconds, for percentile reporting.
+ * <p>
+ * Values are stored in logarithmic buckets, each power of two being split
+ * into 32 linear sub-buckets; values below 64 are exact. Reported values are
+ * thus accurate to about 3%, for the full range of {@code long}.
+ * <p>
+ * Recording is lock-free (but uses atomic operations). For high-frequency
+ * recording from multiple threads, use one unsynchronized {@link Recorder} per
+ * thread, and {@link #merge} it when done.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.has Recorder
+ */
+public class LatencyHistogram extends AbstractStatistic {
+  /**
+   * Number of bits for linear sub-buckets.
+   */
+  private static final int SUB_BITS = 6;
+
+  /**
+   * Number of exact values, and sub-buckets per power of two.
+   */
+  private static final int SUB = 1 << SUB_BITS, HALF = SUB >>> 1;
+
+  /**
+   * Number of buckets needed to cover all long values.
+   */
+  static final int NUM_BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+  /**
+   * Bucket counts.
+   */
+  private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+
+  /**
+   * Total count and sum.
+   */
+  private final AtomicLong count = new AtomicLong(), sum = new AtomicLong();
+
+  /**
+   * Minimum and maximum.
+   */
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE), max = new AtomicLong(Long.MIN_VALUE);
+
+  /**
+   * Constructor.
+   *
+   * @param key Key
+   */
+  public LatencyHistogram(String key) {
+    super(key);
+  }
+
+  /**
+   * Record a value.
+   *
+   * @param value Value, negative values are recorded as 0.
+   */
+  public void record(long value) {
+    value = value > 0 ? value : 0;
+    counts.incrementAndGet(bucket(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    updateMin(value);
+    updateMax(value);
+  }
+
+  /**
+   * Record the time elapsed since the given {@link System#nanoTime()}.
+   *
+   * @param start Start time in nanoseconds
+   */
+  public void recordSince(long start) {
+    record(System.nanoTime() - start);
+  }
+
+  /**
+   * Merge the values of a recorder into this histogram, and reset the
+   * recorder.
+   *
+   * @param rec Recorder
+   */
+  public void merge(Recorder rec) {
+    if(rec.count == 0) {
+      return;
+    }
+    final long[] rcounts = rec.counts;
+    for(int i = 0; i < NUM_BUCKETS; i++) {
+      if(rcounts[i] != 0) {
+        counts.addAndGet(i, rcounts[i]);
+      }
+    }
+    count.addAndGet(rec.count);
+    sum.addAndGet(rec.sum);
+    updateMin(rec.min);
+    updateMax(rec.max);
+    rec.reset();
+  }
+
+  /**
+   * Merge the values of another histogram into this histogram.
+   *
+   * @param other Other histogram
+   */
+  public void merge(LatencyHistogram other) {
+    for(int i = 0; i < NUM_BUCKETS; i++) {
+      final long c = other.counts.get(i);
+      if(c != 0) {
+        counts.addAndGet(i, c);
+      }
+    }
+    count.addAndGet(other.count.get());
+    sum.addAndGet(other.sum.get());
+    updateMin(other.min.get());
+    updateMax(other.max.get());
+  }
+
+  /**
+   * Lock-free minimum update.
+   *
+   * @param value New value
+   */
+  private void updateMin(long value) {
+    long cur = min.get();
+    while(value < cur && !min.compareAndSet(cur, value)) {
+      cur = min.get();
+    }
+  }
+
+  /**
+   * Lock-free maximum update.
+   *
+   * @param value New value
+   */
+  private void updateMax(long value) {
+    long cur = max.get();
+    while(value > cur && !max.compareAndSet(cur, value)) {
+      cur = max.get();
+    }
+  }
+
+  /**
+   * Get the number of recorded values.
+   *
+   * @return Count
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Get the exact mean of the recorded values.
+   *
+   * @return Mean, {@code NaN} if empty.
+   */
+  public double getMean() {
+    final long c = count.get();
+    return c > 0 ? sum.get() / (double) c : Double.NaN;
+  }
+
+  /**
+   * Get the exact minimum.
+   *
+   * @return Minimum, 0 if empty.
+   */
+  public long getMin() {
+    return count.get() > 0 ? min.get() : 0L;
+  }
+
+  /**
+   * Get the exact maximum.
+   *
+   * @return Maximum, 0 if empty.
+   */
+  public long getMax() {
+    return count.get() > 0 ? max.get() : 0L;
+  }
+
+  /**
+   * Get the value at the given quantile (nearest rank), as the upper bound of
+   * its bucket (but at most the maximum).
+   *
+   * @param q Quantile, in [0:1]
+   * @return Value, 0 if empty.
+   */
+  public long getValueAtQuantile(double q) {
+    final long c = count.get();
+    if(c == 0) {
+      return 0L;
+    }
+    final long rank = Math.max(1L, (long) Math.ceil(q * c));
+    long seen = 0;
+    for(int i = 0; i < NUM_BUCKETS; i++) {
+      seen += counts.get(i);
+      if(seen >= rank) {
+        return Math.max(Math.min(upperBound(i), max.get()), min.get());
+      }
+    }
+    return max.get(); // Concurrent modification
+  }
+
+  /**
+   * Reset the histogram.
+   * <p>
+   * Note: not atomic with respect to concurrent recording.
+   */
+  public void reset() {
+    for(int i = 0; i < NUM_BUCKETS; i++) {
+      counts.set(i, 0L);
+    }
+    count.set(0L);
+    sum.set(0L);
+    min.set(Long.MAX_VALUE);
+    max.set(Long.MIN_VALUE);
+  }
+
+  @Override
+  public String formatValue() {
+    return "count=" + getCount() + " mean=" + getMean() //
+        + " p50=" + getValueAtQuantile(.5) + " p90=" + getValueAtQuantile(.9) //
+        + " p99=" + getValueAtQuantile(.99) + " p99.9=" + getValueAtQuantile(.999) //
+        + " max=" + getMax();
+  }
+
+  /**
+   * Bucket of a value.
+   *
+   * @param value Non-negative value
+   * @return Bucket number
+   */
+  static int bucket(long value) {
+    if(value < SUB) {
+      return (int) value;
+    }
+    final int e = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+    return e * HALF + (int) (value >>> e);
+  }
+
+  /**
+   * Smallest value of a bucket.
+   *
+   * @param b Bucket number
+   * @return Lower bound
+   */
+  static long lowerBound(int b) {
+    if(b < SUB) {
+      return b;
+    }
+    final int e = b / HALF - 1;
+    return ((long) (b - e * HALF)) << e;
+  }
+
+  /**
+   * Largest value of a bucket.
+   *
+   * @param b Bucket number
+   * @return Upper bound
+   */
+  static long upperBound(int b) {
+    if(b < SUB) {
+      return b;
+    }
+    final int e = b / HALF - 1;
+    return lowerBound(b) + ((1L << e) - 1);
+  }
+
+  /**
+   * Unsynchronized recorder, for use by a single thread.
+   *
+   * @author Erich Schubert
+   */
+  public static class Recorder {
+    /**
+     * Bucket counts.
+     */
+    final long[] counts = new long[NUM_BUCKETS];
+
+    /**
+     * Count, sum, minimum and maximum.
+     */
+    long count = 0L, sum = 0L, min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+
+    /**
+     * Record a value.
+     *
+     * @param value Value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+      value = value > 0 ? value : 0;
+      ++counts[bucket(value)];
+      ++count;
+      sum += value;
+      min = value < min ? value : min;
+      max = value > max ? value : max;
+    }
+
+    /**
+     * Record the time elapsed since the given {@link System#nanoTime()}.
+     *
+     * @param start Start time in nanoseconds
+     */
+    public void recordSince(long start) {
+      record(System.nanoTime() - start);
+    }
+
+    /**
+     * Get the number of values recorded since the last merge.
+     *
+     * @return Count
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Reset the recorder.
+     */
+    void reset() {
+      if(count > 0) {
+        Arrays.fill(counts, 0L);
+      }
+      count = sum = 0L;
+      min = Long.MAX_VALUE;
+      max = Long.MIN_VALUE;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.logging.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test the instrumentation registry.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class InstrumentationTest {
+  /**
+   * Restore the default state.
+   */
+  @After
+  public void cleanup() {
+    Instrumentation.reset();
+    Instrumentation.setEnabled(false);
+  }
+
+  @Test
+  public void testDisabled() {
+    Instrumentation.setEnabled(false);
+    assertNull(Instrumentation.counterIfEnabled(Instrumentation.DISTANCE_COMPUTATIONS));
+  }
+
+  @Test
+  public void testPhases() throws IOException {
+    Instrumentation.reset();
+    Instrumentation.setEnabled(true);
+    Counter d = Instrumentation.counterIfEnabled(Instrumentation.DISTANCE_COMPUTATIONS);
+    assertSame(d, Instrumentation.getCounter(Instrumentation.DISTANCE_COMPUTATIONS));
+    d.increment(5);
+    Instrumentation.beginPhase("first");
+    d.increment(10);
+    Instrumentation.beginPhase("second"); // Implicitly ends "first"
+    Counter p = Instrumentation.counterIfEnabled(Instrumentation.PAGE_READS);
+    p.increment(3);
+    d.increment();
+    Instrumentation.endPhase();
+    d.increment(100); // Outside of any phase.
+
+    List<Instrumentation.Phase> phases = Instrumentation.getPhases();
+    assertEquals(2, phases.size());
+    assertEquals("first", phases.get(0).getName());
+    assertEquals(10, phases.get(0).get(Instrumentation.DISTANCE_COMPUTATIONS));
+    assertEquals(0, phases.get(0).get(Instrumentation.PAGE_READS));
+    assertEquals(1, phases.get(1).get(Instrumentation.DISTANCE_COMPUTATIONS));
+    assertEquals(3, phases.get(1).get(Instrumentation.PAGE_READS));
+    assertEquals(116L, (long) Instrumentation.getTotals().get(Instrumentation.DISTANCE_COMPUTATIONS));
+
+    StringBuilder buf = new StringBuilder();
+    Instrumentation.writeJSON(buf);
+    String json = buf.toString();
+    assertEquals(true, json.contains("\"name\": \"second\""));
+    assertEquals(true, json.contains("\"distance.computations\": 116"));
+
+    Instrumentation.reset();
+    assertEquals(0, Instrumentation.getPhases().size());
+    assertEquals(0, d.getValue());
+  }
+}
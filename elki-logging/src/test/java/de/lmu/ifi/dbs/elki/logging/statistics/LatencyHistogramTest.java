@@ -0,0 +1,133 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.logging.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the high dynamic range latency histogram.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class LatencyHistogramTest {
+  @Test
+  public void testBuckets() {
+    // Buckets must be contiguous, and cover the full range of long.
+    assertEquals(0, LatencyHistogram.lowerBound(0));
+    for(int b = 1; b < LatencyHistogram.NUM_BUCKETS; b++) {
+      assertEquals("Gap at bucket " + b, LatencyHistogram.upperBound(b - 1) + 1, LatencyHistogram.lowerBound(b));
+      assertEquals(b, LatencyHistogram.bucket(LatencyHistogram.lowerBound(b)));
+      assertEquals(b, LatencyHistogram.bucket(LatencyHistogram.upperBound(b)));
+    }
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.NUM_BUCKETS - 1));
+    // Relative bucket width
+    for(int b = 64; b < LatencyHistogram.NUM_BUCKETS; b++) {
+      long lo = LatencyHistogram.lowerBound(b), hi = LatencyHistogram.upperBound(b);
+      assertTrue((hi - lo) / (double) lo <= 1. / 32);
+    }
+  }
+
+  @Test
+  public void testExactSmall() {
+    LatencyHistogram h = new LatencyHistogram("test");
+    for(int i = 1; i <= 50; i++) {
+      h.record(i);
+    }
+    h.record(-5); // Recorded as 0
+    assertEquals(51, h.getCount());
+    assertEquals(0, h.getMin());
+    assertEquals(50, h.getMax());
+    assertEquals(25, h.getValueAtQuantile(.5));
+    assertEquals(45, h.getValueAtQuantile(.9));
+    assertEquals(50, h.getValueAtQuantile(1.));
+    assertEquals(1275 / 51., h.getMean(), 1e-15);
+  }
+
+  @Test
+  public void testQuantiles() {
+    Random r = new Random(0L);
+    final int n = 100000;
+    long[] values = new long[n];
+    LatencyHistogram h = new LatencyHistogram("test");
+    for(int i = 0; i < n; i++) {
+      // Log-normal, as typical for latencies.
+      h.record(values[i] = (long) Math.exp(10 + 2 * r.nextGaussian()));
+    }
+    Arrays.sort(values);
+    for(double q : new double[] { .01, .5, .9, .99, .999 }) {
+      long exact = values[(int) Math.ceil(q * n) - 1];
+      long approx = h.getValueAtQuantile(q);
+      assertTrue(q + ": " + approx + " vs. " + exact, approx >= exact && approx <= exact * (1 + 1. / 32) + 1);
+    }
+    assertEquals(values[n - 1], h.getMax());
+    assertEquals(values[0], h.getMin());
+  }
+
+  @Test
+  public void testRecorders() throws InterruptedException {
+    final LatencyHistogram h = new LatencyHistogram("test");
+    final int threads = 4, per = 10000;
+    Thread[] ts = new Thread[threads];
+    for(int t = 0; t < threads; t++) {
+      final long offset = t * per;
+      ts[t] = new Thread() {
+        @Override
+        public void run() {
+          LatencyHistogram.Recorder rec = new LatencyHistogram.Recorder();
+          for(int i = 0; i < per; i++) {
+            rec.record(offset + i);
+            if(i % 1000 == 999) {
+              h.merge(rec);
+              assertEquals(0, rec.getCount());
+            }
+          }
+          h.merge(rec);
+          for(int i = 0; i < 10; i++) {
+            h.record(1L << 40); // Also record directly
+          }
+        }
+      };
+      ts[t].start();
+    }
+    for(Thread t : ts) {
+      t.join();
+    }
+    assertEquals(threads * (per + 10), h.getCount());
+    assertEquals(0, h.getMin());
+    assertEquals(1L << 40, h.getMax());
+    long med = h.getValueAtQuantile(.5);
+    assertTrue(Math.abs(med - threads * per / 2) <= threads * per / 32);
+
+    LatencyHistogram h2 = new LatencyHistogram("test2");
+    h2.record(1L << 50);
+    h2.merge(h);
+    assertEquals(h.getCount() + 1, h2.getCount());
+    assertEquals(1L << 50, h2.getMax());
+    assertEquals(med, h2.getValueAtQuantile(.5));
+  }
+}
@@ -21,17 +21,17 @@
 package de.lmu.ifi.dbs.elki.algorithm.outlier.distance;
 
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
-import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
-import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
@@ -100,9 +100,14 @@ public class DBOutlierDetection<O> extends AbstractDBOutlier<O> {
   @Override
   protected DoubleDataStore computeOutlierScores(Database database, Relation<O> relation, double d) {
     DistanceQuery<O> distFunc = database.getDistanceQuery(relation, getDistanceFunction());
-    // Prefer kNN query if available, as this will usually stop earlier.
-    KNNQuery<O> knnQuery = database.getKNNQuery(distFunc, DatabaseQuery.HINT_OPTIMIZED_ONLY);
-    RangeQuery<O> rangeQuery = knnQuery == null ? database.getRangeQuery(distFunc, DatabaseQuery.HINT_OPTIMIZED_ONLY, d) : null;
+    // Prefer range counting or kNN queries if supported by an index, as these
+    // will usually stop earlier.
+    RangeCountQuery<O> countQuery = QueryUtil.getRangeCountQuery(distFunc, DatabaseQuery.HINT_OPTIMIZED_ONLY);
+    KNNQuery<O> knnQuery = countQuery == null ? database.getKNNQuery(distFunc, DatabaseQuery.HINT_OPTIMIZED_ONLY) : null;
+    if(countQuery == null && knnQuery == null) {
+      // Linear scan (or range query), but stop early.
+      countQuery = QueryUtil.getRangeCountQuery(distFunc);
+    }
 
     // maximum number of objects in the D-neighborhood of an outlier
     int m = (int) Math.floor((distFunc.getRelation().size()) * (1 - p));
@@ -119,26 +124,11 @@ public class DBOutlierDetection<O> extends AbstractDBOutlier<O> {
         LOG.incrementProcessed(prog);
       }
     }
-    else if(rangeQuery != null) {
-      for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-        DoubleDBIDList neighbors = rangeQuery.getRangeForDBID(iditer, d);
-        scores.putDouble(iditer, (neighbors.size() < m) ? 1. : 0.);
-        LOG.incrementProcessed(prog);
-      }
-    }
     else {
-      // Linear scan neighbors for each object, but stop early.
+      // Count neighbors for each object, but stop at m.
       for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-        int count = 0;
-        for(DBIDIter iterator = relation.iterDBIDs(); iterator.valid(); iterator.advance()) {
-          double currentDistance = distFunc.distance(iditer, iterator);
-          if(currentDistance <= d) {
-            if(++count >= m) {
-              break;
-            }
-          }
-        }
-        scores.putDouble(iditer, (count < m) ? 1.0 : 0);
+        int count = countQuery.getRangeCountForDBID(iditer, d, m);
+        scores.putDouble(iditer, (count < m) ? 1. : 0.);
         LOG.incrementProcessed(prog);
       }
     }
@@ -22,6 +22,8 @@ package de.lmu.ifi.dbs.elki.persistent;
 
 import java.util.Stack;
 
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
 
 /**
@@ -49,6 +51,12 @@ public abstract class AbstractStoringPageFile<P extends Page> extends AbstractPa
    */
   protected int pageSize;
 
+  /**
+   * Shared instrumentation counters for physical page accesses (caches are not
+   * counted), {@code null} when disabled.
+   */
+  private Counter instrReads, instrWrites;
+
   /**
    * Creates a new PageFile.
    */
@@ -56,6 +64,24 @@ public abstract class AbstractStoringPageFile<P extends Page> extends AbstractPa
     this.emptyPages = new Stack<>();
     this.nextPageID = 0;
     this.pageSize = pageSize;
+    this.instrReads = Instrumentation.counterIfEnabled(Instrumentation.PAGE_READS);
+    this.instrWrites = Instrumentation.counterIfEnabled(Instrumentation.PAGE_WRITES);
+  }
+
+  @Override
+  protected void countRead() {
+    super.countRead();
+    if(instrReads != null) {
+      instrReads.increment();
+    }
+  }
+
+  @Override
+  protected void countWrite() {
+    super.countWrite();
+    if(instrWrites != null) {
+      instrWrites.increment();
+    }
   }
 
   /**
@@ -23,15 +23,25 @@ package de.lmu.ifi.dbs.elki.index;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+
 import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.DistanceBrowser;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.LinearScanDistanceRangeQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeCountQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.CosineDistanceFunction;
@@ -156,6 +166,94 @@ public abstract class AbstractIndexStructureTest {
     }
   }
 
+  /**
+   * Test bulk kNN queries for all objects against a linear scan.
+   *
+   * @param inputparams
+   */
+  protected void testBulkKNNEuclidean(ListParameterization inputparams, Class<?> expectKNNQuery) {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds, inputparams);
+    Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> dist = db.getDistanceQuery(rep, EuclideanDistanceFunction.STATIC);
+
+    KNNQuery<DoubleVector> knnq = db.getKNNQuery(dist, k);
+    assertTrue("Returned knn query is not of expected class: expected " + expectKNNQuery + " got " + knnq.getClass(), expectKNNQuery.isAssignableFrom(knnq.getClass()));
+    KNNQuery<DoubleVector> linq = new LinearScanDistanceKNNQuery<>(dist);
+    ArrayDBIDs ids = DBIDUtil.ensureArray(rep.getDBIDs());
+    List<? extends KNNList> knns = knnq.getKNNForBulkDBIDs(ids, k);
+    assertEquals("Number of results does not match expectation!", ids.size(), knns.size());
+    int i = 0;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance(), i++) {
+      KNNList should = linq.getKNNForDBID(iter, k), is = knns.get(i);
+      assertEquals("Result size does not match expectation!", should.size(), is.size());
+      for(DoubleDBIDListIter s = should.iter(), r = is.iter(); s.valid(); s.advance(), r.advance()) {
+        assertEquals("Expected distance doesn't match.", s.doubleValue(), r.doubleValue(), 1e-12);
+      }
+    }
+  }
+
+  /**
+   * Test incremental nearest neighbor search against the known neighbors and a
+   * linear scan.
+   *
+   * @param inputparams
+   */
+  protected void testDistanceBrowserEuclidean(ListParameterization inputparams, Class<?> expectBrowser) {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds, inputparams);
+    Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> dist = db.getDistanceQuery(rep, EuclideanDistanceFunction.STATIC);
+
+    DistanceBrowser<DoubleVector> browser = QueryUtil.getDistanceBrowser(dist);
+    assertTrue("Returned browser is not of expected class: expected " + expectBrowser + " got " + browser.getClass(), expectBrowser.isAssignableFrom(browser.getClass()));
+    // Browse the complete data set.
+    int i = 0;
+    double prev = 0.;
+    for(browser.search(DoubleVector.wrap(querypoint)); browser.valid(); browser.advance(), i++) {
+      if(i < shouldd.length) {
+        assertEquals("Expected distance doesn't match.", shouldd[i], browser.doubleValue(), 1e-6);
+        DoubleVector c = rep.get(browser), c2 = DoubleVector.wrap(shouldc[i]);
+        assertEquals("Expected vector doesn't match: " + c.toString(), 0.0, dist.distance(c, c2), 1e-15);
+      }
+      assertEquals("Distance does not match the object.", dist.distance(DoubleVector.wrap(querypoint), browser), browser.doubleValue(), 1e-12);
+      assertTrue("Distances not ascending.", prev <= browser.doubleValue());
+      prev = browser.doubleValue();
+    }
+    assertEquals("Browser did not return all objects!", shoulds, i);
+    // Reuse the browser for a database object, and stop early.
+    KNNQuery<DoubleVector> linq = new LinearScanDistanceKNNQuery<>(dist);
+    for(DBIDIter iter = rep.iterDBIDs(); iter.valid(); iter.advance()) {
+      browser.search(iter);
+      for(DoubleDBIDListIter s = linq.getKNNForDBID(iter, k).iter(); s.valid(); s.advance(), browser.advance()) {
+        assertTrue("Browser ended early.", browser.valid());
+        assertEquals("Expected distance doesn't match.", s.doubleValue(), browser.doubleValue(), 1e-12);
+      }
+    }
+  }
+
+  /**
+   * Test the range count query, for Euclidean distance.
+   *
+   * @param inputparams
+   * @param expectCount Expected range count query class
+   */
+  protected void testRangeCountEuclidean(ListParameterization inputparams, Class<?> expectCount) {
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds, inputparams);
+    Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> dist = db.getDistanceQuery(rep, EuclideanDistanceFunction.STATIC);
+
+    RangeCountQuery<DoubleVector> countq = QueryUtil.getRangeCountQuery(dist);
+    assertTrue("Returned range count query is not of expected class: expected " + expectCount + " got " + countq.getClass(), expectCount.isAssignableFrom(countq.getClass()));
+    assertEquals("Result size does not match expectation!", shouldd.length, countq.getRangeCountForObject(DoubleVector.wrap(querypoint), eps));
+    RangeQuery<DoubleVector> linq = new LinearScanDistanceRangeQuery<>(dist);
+    for(DBIDIter iter = rep.iterDBIDs(); iter.valid(); iter.advance()) {
+      final int size = linq.getRangeForDBID(iter, eps).size();
+      assertEquals("Range count does not match.", size, countq.getRangeCountForDBID(iter, eps));
+      for(int limit = 1; limit <= size + 1; limit += 3) {
+        assertEquals("Limited range count does not match.", Math.min(size, limit), countq.getRangeCountForDBID(iter, eps, limit));
+      }
+    }
+  }
+
   /**
    * Actual test routine, for cosine distance
    *
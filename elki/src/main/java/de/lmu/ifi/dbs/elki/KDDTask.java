@@ -101,6 +101,8 @@ public class KDDTask {
    * connection.
    */
   public void run() {
+    // Enable instrumentation before the database and indexes are initialized.
+    algorithmStep.beginInstrumentation();
     // Input step
     Database db = inputStep.getDatabase();
     hier = db.getHierarchy();
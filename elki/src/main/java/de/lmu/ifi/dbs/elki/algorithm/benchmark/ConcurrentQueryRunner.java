@@ -0,0 +1,249 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.benchmark;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LatencyHistogram;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.MeanVariance;
+import de.lmu.ifi.dbs.elki.utilities.Util;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Run the queries of a benchmark from one or more threads, and record the
+ * latency of every query.
+ *
+ * Each thread uses its own query object, as obtained from the given factory,
+ * and its own latency recorder. Results are stored by query number, so the
+ * result hash code does not depend on the number of threads.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @apiviz.composedOf LatencyHistogram
+ */
+class ConcurrentQueryRunner {
+  /**
+   * A query workload.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  interface Worker {
+    /**
+     * Run a single query.
+     *
+     * @param it Query id (positioned iterator, owned by the calling thread)
+     * @return Query result
+     */
+    DoubleDBIDList query(DBIDArrayIter it);
+  }
+
+  /**
+   * Factory to create one worker per thread.
+   *
+   * @author Erich Schubert
+   *
+   * @apiviz.exclude
+   */
+  interface WorkerFactory {
+    /**
+     * Create a new worker.
+     *
+     * @return Worker
+     */
+    Worker newWorker();
+  }
+
+  /**
+   * Percentiles to report.
+   */
+  private static final double[] PERCENTILES = { .5, .9, .99, .999 };
+
+  /**
+   * Labels of the percentiles.
+   */
+  private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+  /**
+   * Number of threads.
+   */
+  private final int threads;
+
+  /**
+   * Query latencies in nanoseconds.
+   */
+  private LatencyHistogram latencies;
+
+  /**
+   * Per-query checksums.
+   */
+  private int[] checksums;
+
+  /**
+   * Per-query result sizes.
+   */
+  private int[] sizes;
+
+  /**
+   * Per-query largest result distance.
+   */
+  private double[] maxdists;
+
+  /**
+   * Wall clock time, in nanoseconds.
+   */
+  private long wallTime;
+
+  /**
+   * Constructor.
+   *
+   * @param threads Number of threads
+   */
+  ConcurrentQueryRunner(int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Run all queries.
+   *
+   * @param queries Query ids
+   * @param factory Worker factory
+   * @param prog Progress (may be {@code null})
+   * @param log Logger for progress
+   */
+  void run(final ArrayDBIDs queries, final WorkerFactory factory, final FiniteProgress prog, final Logging log) {
+    final int n = queries.size();
+    latencies = new LatencyHistogram("latency");
+    checksums = new int[n];
+    sizes = new int[n];
+    maxdists = new double[n];
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Worker worker = factory.newWorker();
+          LatencyHistogram.Recorder rec = new LatencyHistogram.Recorder();
+          DBIDArrayIter it = queries.iter();
+          for(int i = next.getAndIncrement(); i < n && failure.get() == null; i = next.getAndIncrement()) {
+            it.seek(i);
+            final long start = System.nanoTime();
+            DoubleDBIDList res = worker.query(it);
+            rec.recordSince(start);
+            int checksum = 0;
+            for(DBIDIter r = res.iter(); r.valid(); r.advance()) {
+              checksum += DBIDUtil.asInteger(r);
+            }
+            checksums[i] = checksum;
+            sizes[i] = res.size();
+            maxdists[i] = res.size() > 0 ? res.iter().seek(res.size() - 1).doubleValue() : Double.NaN;
+            log.incrementProcessed(prog);
+          }
+          latencies.merge(rec);
+        }
+        catch(Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      }
+    };
+    final long start = System.nanoTime();
+    if(threads == 1) {
+      task.run();
+    }
+    else {
+      Thread[] workers = new Thread[threads];
+      for(int t = 0; t < threads; t++) {
+        (workers[t] = new Thread(task, "benchmark-" + t)).start();
+      }
+      try {
+        for(Thread t : workers) {
+          t.join();
+        }
+      }
+      catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AbortException("Interrupted.", e);
+      }
+    }
+    wallTime = System.nanoTime() - start;
+    Throwable e = failure.get();
+    if(e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    }
+    if(e != null) {
+      throw new AbortException("Query failed.", e);
+    }
+    log.ensureCompleted(prog);
+  }
+
+  /**
+   * Log the statistics of the last run.
+   *
+   * @param log Logger
+   * @param prefix Statistics key prefix
+   * @param distname Name of the distance statistic, or {@code null}
+   */
+  void logStatistics(Logging log, String prefix, String distname) {
+    if(!log.isStatistics()) {
+      return;
+    }
+    final int n = checksums.length;
+    int hash = 0;
+    MeanVariance mv = new MeanVariance(), mvdist = new MeanVariance();
+    for(int i = 0; i < n; i++) {
+      hash = Util.mixHashCodes(hash, checksums[i]);
+      mv.put(sizes[i]);
+      if(sizes[i] > 0) {
+        mvdist.put(maxdists[i]);
+      }
+    }
+    log.statistics("Result hashcode: " + hash);
+    log.statistics("Mean number of results: " + mv.getMean() + " +- " + mv.getNaiveStddev());
+    if(distname != null && mvdist.getCount() > 0) {
+      log.statistics("Mean " + distname + ": " + mvdist.getMean() + " +- " + mvdist.getNaiveStddev());
+    }
+    log.statistics(new LongStatistic(prefix + ".queries", n));
+    log.statistics(new LongStatistic(prefix + ".threads", threads));
+    log.statistics(new LongStatistic(prefix + ".time.ms", wallTime / 1000000L));
+    log.statistics(new DoubleStatistic(prefix + ".throughput.qps", wallTime > 0 ? n * 1e9 / wallTime : Double.NaN));
+    if(n == 0) {
+      return;
+    }
+    log.statistics(new DoubleStatistic(prefix + ".latency.mean.us", latencies.getMean() * 1e-3));
+    for(int i = 0; i < PERCENTILES.length; i++) {
+      log.statistics(new DoubleStatistic(prefix + ".latency." + PERCENTILE_NAMES[i] + ".us", latencies.getValueAtQuantile(PERCENTILES[i]) * 1e-3));
+    }
+    log.statistics(new DoubleStatistic(prefix + ".latency.max.us", latencies.getMax() * 1e-3));
+  }
+}
@@ -24,10 +24,10 @@ import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
@@ -37,11 +37,10 @@ import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
-import de.lmu.ifi.dbs.elki.math.MeanVariance;
 import de.lmu.ifi.dbs.elki.result.Result;
-import de.lmu.ifi.dbs.elki.utilities.Util;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.IncompatibleDataException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
@@ -54,12 +53,18 @@ import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
  * point. The query points can either come from a separate data source, or from
  * the original database.
  *
+ * Queries can be run from multiple threads concurrently. Besides the result
+ * hash code, the throughput and latency percentiles are logged as statistics.
+ * Index construction time is logged by the database. To compare different
+ * indexes, use the same random seed to obtain the same query workload.
+ *
  * @author Erich Schubert
  * @since 0.5.5
  *
  * @param <O> Object type
  *
  * @apiviz.uses KNNQuery
+ * @apiviz.uses ConcurrentQueryRunner
  */
 public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O, Result> {
   /**
@@ -87,6 +92,11 @@ public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O,
    */
   protected RandomFactory random;
 
+  /**
+   * Number of query threads.
+   */
+  protected int threads = 1;
+
   /**
    * Constructor.
    *
@@ -97,11 +107,26 @@ public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O,
    * @param random Random factory
    */
   public KNNBenchmarkAlgorithm(DistanceFunction<? super O> distanceFunction, int k, DatabaseConnection queries, double sampling, RandomFactory random) {
+    this(distanceFunction, k, queries, sampling, random, 1);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function to use
+   * @param k K parameter
+   * @param queries Query data set (may be null!)
+   * @param sampling Sampling rate
+   * @param random Random factory
+   * @param threads Number of query threads
+   */
+  public KNNBenchmarkAlgorithm(DistanceFunction<? super O> distanceFunction, int k, DatabaseConnection queries, double sampling, RandomFactory random, int threads) {
     super(distanceFunction);
     this.k = k;
     this.queries = queries;
     this.sampling = sampling;
     this.random = random;
+    this.threads = threads;
   }
 
   /**
@@ -111,41 +136,32 @@ public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O,
    * @param relation Relation
    * @return Null result
    */
-  public Result run(Database database, Relation<O> relation) {
-    // Get a distance and kNN query instance.
-    DistanceQuery<O> distQuery = database.getDistanceQuery(relation, getDistanceFunction());
-    KNNQuery<O> knnQuery = database.getKNNQuery(distQuery, k);
+  public Result run(final Database database, Relation<O> relation) {
+    // Get a distance query instance.
+    final DistanceQuery<O> distQuery = database.getDistanceQuery(relation, getDistanceFunction());
+    ConcurrentQueryRunner runner = new ConcurrentQueryRunner(threads);
 
     // No query set - use original database.
     if(queries == null) {
-      final DBIDs sample = DBIDUtil.randomSample(relation.getDBIDs(), sampling, random);
+      final ArrayDBIDs sample = DBIDUtil.ensureArray(DBIDUtil.randomSample(relation.getDBIDs(), sampling, random));
       FiniteProgress prog = LOG.isVeryVerbose() ? new FiniteProgress("kNN queries", sample.size(), LOG) : null;
-      int hash = 0;
-      MeanVariance mv = new MeanVariance(), mvdist = new MeanVariance();
-      for(DBIDIter iditer = sample.iter(); iditer.valid(); iditer.advance()) {
-        KNNList knns = knnQuery.getKNNForDBID(iditer, k);
-        int ichecksum = 0;
-        for(DBIDIter it = knns.iter(); it.valid(); it.advance()) {
-          ichecksum += DBIDUtil.asInteger(it);
-        }
-        hash = Util.mixHashCodes(hash, ichecksum);
-        mv.put(knns.size());
-        mvdist.put(knns.getKNNDistance());
-        LOG.incrementProcessed(prog);
-      }
-      LOG.ensureCompleted(prog);
-      if(LOG.isStatistics()) {
-        LOG.statistics("Result hashcode: " + hash);
-        LOG.statistics("Mean number of results: " + mv.getMean() + " +- " + mv.getNaiveStddev());
-        if(mvdist.getCount() > 0) {
-          LOG.statistics("Mean k-distance: " + mvdist.getMean() + " +- " + mvdist.getNaiveStddev());
+      runner.run(sample, new ConcurrentQueryRunner.WorkerFactory() {
+        @Override
+        public ConcurrentQueryRunner.Worker newWorker() {
+          final KNNQuery<O> knnQuery = database.getKNNQuery(distQuery, k);
+          return new ConcurrentQueryRunner.Worker() {
+            @Override
+            public KNNList query(DBIDArrayIter it) {
+              return knnQuery.getKNNForDBID(it, k);
+            }
+          };
         }
-      }
+      }, prog, LOG);
     }
     else {
       // Separate query set.
       TypeInformation res = getDistanceFunction().getInputTypeRestriction();
-      MultipleObjectsBundle bundle = queries.loadData();
+      final MultipleObjectsBundle bundle = queries.loadData();
       int col = -1;
       for(int i = 0; i < bundle.metaLength(); i++) {
         if(res.isAssignableFromType(bundle.meta(i))) {
@@ -156,37 +172,30 @@ public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O,
       if(col < 0) {
         throw new IncompatibleDataException("No compatible data type in query input was found. Expected: " + res.toString());
       }
+      final int qcol = col;
       // Random sampling is a bit of hack, sorry.
       // But currently, we don't (yet) have an "integer random sample" function.
-      DBIDRange sids = DBIDUtil.generateStaticDBIDRange(bundle.dataLength());
-      final DBIDs sample = DBIDUtil.randomSample(sids, sampling, random);
+      final DBIDRange sids = DBIDUtil.generateStaticDBIDRange(bundle.dataLength());
+      final ArrayDBIDs sample = DBIDUtil.ensureArray(DBIDUtil.randomSample(sids, sampling, random));
       FiniteProgress prog = LOG.isVeryVerbose() ? new FiniteProgress("kNN queries", sample.size(), LOG) : null;
-      int hash = 0;
-      MeanVariance mv = new MeanVariance(), mvdist = new MeanVariance();
-      for(DBIDIter iditer = sample.iter(); iditer.valid(); iditer.advance()) {
-        int off = sids.binarySearch(iditer);
-        assert (off >= 0);
-        @SuppressWarnings("unchecked")
-        O o = (O) bundle.data(off, col);
-        KNNList knns = knnQuery.getKNNForObject(o, k);
-        int ichecksum = 0;
-        for(DBIDIter it = knns.iter(); it.valid(); it.advance()) {
-          ichecksum += DBIDUtil.asInteger(it);
+      runner.run(sample, new ConcurrentQueryRunner.WorkerFactory() {
+        @Override
+        public ConcurrentQueryRunner.Worker newWorker() {
+          final KNNQuery<O> knnQuery = database.getKNNQuery(distQuery, k);
+          return new ConcurrentQueryRunner.Worker() {
+            @Override
+            public KNNList query(DBIDArrayIter it) {
+              int off = sids.binarySearch(it);
+              assert (off >= 0);
+              @SuppressWarnings("unchecked")
+              O o = (O) bundle.data(off, qcol);
+              return knnQuery.getKNNForObject(o, k);
+            }
+          };
         }
-        hash = Util.mixHashCodes(hash, ichecksum);
-        mv.put(knns.size());
-        mvdist.put(knns.getKNNDistance());
-        LOG.incrementProcessed(prog);
-      }
-      LOG.ensureCompleted(prog);
-      if(LOG.isStatistics()) {
-        LOG.statistics("Result hashcode: " + hash);
-        LOG.statistics("Mean number of results: " + mv.getMean() + " +- " + mv.getNaiveStddev());
-        if(mvdist.getCount() > 0) {
-          LOG.statistics("Mean k-distance: " + mvdist.getMean() + " +- " + mvdist.getNaiveStddev());
-        }
-      }
+      }, prog, LOG);
     }
+    runner.logStatistics(LOG, KNNBenchmarkAlgorithm.class.getName(), "k-distance");
     return null;
   }
 
@@ -230,6 +239,11 @@ public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O,
      */
     public static final OptionID RANDOM_ID = new OptionID("knnbench.random", "Random generator for sampling.");
 
+    /**
+     * Parameter for the number of query threads.
+     */
+    public static final OptionID THREADS_ID = new OptionID("knnbench.threads", "Number of threads to run the queries from concurrently. The index must support concurrent queries.");
+
     /**
      * K parameter
      */
@@ -250,6 +264,11 @@ public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O,
      */
     protected RandomFactory random;
 
+    /**
+     * Number of query threads.
+     */
+    protected int threads = 1;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -271,11 +290,16 @@ public class KNNBenchmarkAlgorithm<O> extends AbstractDistanceBasedAlgorithm<O,
       if(config.grab(randomP)) {
         random = randomP.getValue();
       }
+      IntParameter threadsP = new IntParameter(THREADS_ID, 1) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(threadsP)) {
+        threads = threadsP.intValue();
+      }
     }
 
     @Override
     protected KNNBenchmarkAlgorithm<O> makeInstance() {
-      return new KNNBenchmarkAlgorithm<>(distanceFunction, k, queries, sampling, random);
+      return new KNNBenchmarkAlgorithm<>(distanceFunction, k, queries, sampling, random, threads);
     }
   }
 }
@@ -26,10 +26,10 @@ import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
 import de.lmu.ifi.dbs.elki.database.Database;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
-import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
@@ -40,14 +40,14 @@ import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
-import de.lmu.ifi.dbs.elki.math.MeanVariance;
 import de.lmu.ifi.dbs.elki.result.Result;
-import de.lmu.ifi.dbs.elki.utilities.Util;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.IncompatibleDataException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
 import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
@@ -84,6 +84,9 @@ import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
  * split the relation into a 3-dimensional data vector, and 1 dimensional radius
  * vector.
  *
+ * Queries can be run from multiple threads concurrently. Besides the result
+ * hash code, the throughput and latency percentiles are logged as statistics.
+ *
  * TODO: alternatively, allow using a fixed radius?
  *
  * @author Erich Schubert
@@ -92,6 +95,7 @@ import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
  * @param <O> Vector type
  *
  * @apiviz.uses RangeQuery
+ * @apiviz.uses ConcurrentQueryRunner
  */
 public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends AbstractDistanceBasedAlgorithm<O, Result> {
   /**
@@ -114,6 +118,11 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
    */
   protected RandomFactory random;
 
+  /**
+   * Number of query threads.
+   */
+  protected int threads = 1;
+
   /**
    * Constructor.
    *
@@ -123,10 +132,24 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
    * @param random Random factory
    */
   public RangeQueryBenchmarkAlgorithm(DistanceFunction<? super O> distanceFunction, DatabaseConnection queries, double sampling, RandomFactory random) {
+    this(distanceFunction, queries, sampling, random, 1);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function to use
+   * @param queries Query data set (may be null!)
+   * @param sampling Sampling rate
+   * @param random Random factory
+   * @param threads Number of query threads
+   */
+  public RangeQueryBenchmarkAlgorithm(DistanceFunction<? super O> distanceFunction, DatabaseConnection queries, double sampling, RandomFactory random, int threads) {
     super(distanceFunction);
     this.queries = queries;
     this.sampling = sampling;
     this.random = random;
+    this.threads = threads;
   }
 
   /**
@@ -137,34 +160,29 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
    * @param radrel Radius relation
    * @return Null result
    */
-  public Result run(Database database, Relation<O> relation, Relation<NumberVector> radrel) {
+  public Result run(final Database database, Relation<O> relation, final Relation<NumberVector> radrel) {
     if(queries != null) {
       throw new AbortException("This 'run' method will not use the given query set!");
     }
-    // Get a distance and kNN query instance.
-    DistanceQuery<O> distQuery = database.getDistanceQuery(relation, getDistanceFunction());
-    RangeQuery<O> rangeQuery = database.getRangeQuery(distQuery);
+    // Get a distance query instance.
+    final DistanceQuery<O> distQuery = database.getDistanceQuery(relation, getDistanceFunction());
 
-    final DBIDs sample = DBIDUtil.randomSample(relation.getDBIDs(), sampling, random);
+    final ArrayDBIDs sample = DBIDUtil.ensureArray(DBIDUtil.randomSample(relation.getDBIDs(), sampling, random));
     FiniteProgress prog = LOG.isVeryVerbose() ? new FiniteProgress("kNN queries", sample.size(), LOG) : null;
-    int hash = 0;
-    MeanVariance mv = new MeanVariance();
-    for(DBIDIter iditer = sample.iter(); iditer.valid(); iditer.advance()) {
-      double r = radrel.get(iditer).doubleValue(0);
-      DoubleDBIDList rres = rangeQuery.getRangeForDBID(iditer, r);
-      int ichecksum = 0;
-      for(DBIDIter it = rres.iter(); it.valid(); it.advance()) {
-        ichecksum += DBIDUtil.asInteger(it);
+    ConcurrentQueryRunner runner = new ConcurrentQueryRunner(threads);
+    runner.run(sample, new ConcurrentQueryRunner.WorkerFactory() {
+      @Override
+      public ConcurrentQueryRunner.Worker newWorker() {
+        final RangeQuery<O> rangeQuery = database.getRangeQuery(distQuery);
+        return new ConcurrentQueryRunner.Worker() {
+          @Override
+          public DoubleDBIDList query(DBIDArrayIter it) {
+            return rangeQuery.getRangeForDBID(it, radrel.get(it).doubleValue(0));
+          }
+        };
       }
-      hash = Util.mixHashCodes(hash, ichecksum);
-      mv.put(rres.size());
-      LOG.incrementProcessed(prog);
-    }
-    LOG.ensureCompleted(prog);
-    if(LOG.isStatistics()) {
-      LOG.statistics("Result hashcode: " + hash);
-      LOG.statistics("Mean number of results: " + mv.getMean() + " +- " + mv.getNaiveStddev());
-    }
+    }, prog, LOG);
+    runner.logStatistics(LOG, RangeQueryBenchmarkAlgorithm.class.getName(), null);
     return null;
   }
 
@@ -175,19 +193,18 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
    * @param relation Relation
    * @return Null result
    */
-  public Result run(Database database, Relation<O> relation) {
+  public Result run(final Database database, Relation<O> relation) {
     if(queries == null) {
       throw new AbortException("A query set is required for this 'run' method.");
     }
-    // Get a distance and kNN query instance.
-    DistanceQuery<O> distQuery = database.getDistanceQuery(relation, getDistanceFunction());
-    RangeQuery<O> rangeQuery = database.getRangeQuery(distQuery);
-    NumberVector.Factory<O> ofactory = RelationUtil.getNumberVectorFactory(relation);
-    int dim = RelationUtil.dimensionality(relation);
+    // Get a distance query instance.
+    final DistanceQuery<O> distQuery = database.getDistanceQuery(relation, getDistanceFunction());
+    final NumberVector.Factory<O> ofactory = RelationUtil.getNumberVectorFactory(relation);
+    final int dim = RelationUtil.dimensionality(relation);
 
     // Separate query set.
     TypeInformation res = VectorFieldTypeInformation.typeRequest(NumberVector.class, dim + 1, dim + 1);
-    MultipleObjectsBundle bundle = queries.loadData();
+    final MultipleObjectsBundle bundle = queries.loadData();
     int col = -1;
     for(int i = 0; i < bundle.metaLength(); i++) {
       if(res.isAssignableFromType(bundle.meta(i))) {
@@ -208,38 +225,35 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
       }
       throw new IncompatibleDataException(buf.toString());
     }
+    final int qcol = col;
     // Random sampling is a bit of hack, sorry.
     // But currently, we don't (yet) have an "integer random sample" function.
-    DBIDRange sids = DBIDUtil.generateStaticDBIDRange(bundle.dataLength());
+    final DBIDRange sids = DBIDUtil.generateStaticDBIDRange(bundle.dataLength());
 
-    final DBIDs sample = DBIDUtil.randomSample(sids, sampling, random);
+    final ArrayDBIDs sample = DBIDUtil.ensureArray(DBIDUtil.randomSample(sids, sampling, random));
     FiniteProgress prog = LOG.isVeryVerbose() ? new FiniteProgress("kNN queries", sample.size(), LOG) : null;
-    int hash = 0;
-    MeanVariance mv = new MeanVariance();
-    double[] buf = new double[dim];
-    for(DBIDIter iditer = sample.iter(); iditer.valid(); iditer.advance()) {
-      int off = sids.binarySearch(iditer);
-      assert (off >= 0);
-      NumberVector o = (NumberVector) bundle.data(off, col);
-      for(int i = 0; i < dim; i++) {
-        buf[i] = o.doubleValue(i);
-      }
-      O v = ofactory.newNumberVector(buf);
-      double r = o.doubleValue(dim);
-      DoubleDBIDList rres = rangeQuery.getRangeForObject(v, r);
-      int ichecksum = 0;
-      for(DBIDIter it = rres.iter(); it.valid(); it.advance()) {
-        ichecksum += DBIDUtil.asInteger(it);
+    ConcurrentQueryRunner runner = new ConcurrentQueryRunner(threads);
+    runner.run(sample, new ConcurrentQueryRunner.WorkerFactory() {
+      @Override
+      public ConcurrentQueryRunner.Worker newWorker() {
+        final RangeQuery<O> rangeQuery = database.getRangeQuery(distQuery);
+        final double[] buf = new double[dim];
+        return new ConcurrentQueryRunner.Worker() {
+          @Override
+          public DoubleDBIDList query(DBIDArrayIter it) {
+            int off = sids.binarySearch(it);
+            assert (off >= 0);
+            NumberVector o = (NumberVector) bundle.data(off, qcol);
+            for(int i = 0; i < dim; i++) {
+              buf[i] = o.doubleValue(i);
+            }
+            O v = ofactory.newNumberVector(buf);
+            return rangeQuery.getRangeForObject(v, o.doubleValue(dim));
+          }
+        };
       }
-      hash = Util.mixHashCodes(hash, ichecksum);
-      mv.put(rres.size());
-      LOG.incrementProcessed(prog);
-    }
-    LOG.ensureCompleted(prog);
-    if(LOG.isStatistics()) {
-      LOG.statistics("Result hashcode: " + hash);
-      LOG.statistics("Mean number of results: " + mv.getMean() + " +- " + mv.getNaiveStddev());
-    }
+    }, prog, LOG);
+    runner.logStatistics(LOG, RangeQueryBenchmarkAlgorithm.class.getName(), null);
     return null;
   }
 
@@ -283,6 +297,11 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
      */
     public static final OptionID RANDOM_ID = new OptionID("rangebench.random", "Random generator for sampling.");
 
+    /**
+     * Parameter for the number of query threads.
+     */
+    public static final OptionID THREADS_ID = new OptionID("rangebench.threads", "Number of threads to run the queries from concurrently. The index must support concurrent queries.");
+
     /**
      * The alternate query point source. Optional.
      */
@@ -298,6 +317,11 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
      */
     protected RandomFactory random;
 
+    /**
+     * Number of query threads.
+     */
+    protected int threads = 1;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -315,11 +339,16 @@ public class RangeQueryBenchmarkAlgorithm<O extends NumberVector> extends Abstra
       if(config.grab(randomP)) {
         random = randomP.getValue();
       }
+      IntParameter threadsP = new IntParameter(THREADS_ID, 1) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(threadsP)) {
+        threads = threadsP.intValue();
+      }
     }
 
     @Override
     protected RangeQueryBenchmarkAlgorithm<O> makeInstance() {
-      return new RangeQueryBenchmarkAlgorithm<>(distanceFunction, queries, sampling, random);
+      return new RangeQueryBenchmarkAlgorithm<>(distanceFunction, queries, sampling, random, threads);
     }
   }
 }
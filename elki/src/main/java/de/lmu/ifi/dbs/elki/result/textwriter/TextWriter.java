@@ -201,6 +201,10 @@ public class TextWriter {
       writeIterableResult(streamOpener, rii);
     }
     for(Clustering<?> c : rc) {
+      if(c instanceof LabelClustering && !((LabelClustering<?>) c).isMaterialized()) {
+        writeLabelClusteringResult(db, streamOpener, (LabelClustering<Model>) c, ra);
+        continue;
+      }
       NamingScheme naming = new SimpleEnumeratingScheme(c);
       for(Cluster<?> clus : c.getAllClusters()) {
         writeClusterResult(db, streamOpener, (Clustering<Model>) c, (Cluster<Model>) clus, ra, naming);
@@ -290,13 +294,50 @@ public class TextWriter {
     }
     out.flush();
 
+    printClusterMembers(out, db, clus, ra);
+    streamOpener.closeStream(outStream);
+  }
+
+  /**
+   * Write a label clustering, without converting it to cluster objects.
+   *
+   * Clusters are named as in {@link SimpleEnumeratingScheme}.
+   */
+  private void writeLabelClusteringResult(Database db, StreamFactory streamOpener, LabelClustering<Model> clustering, List<Relation<?>> ra) throws IOException {
+    final int k = clustering.getNumClusters();
+    Map<String, Integer> namecount = new HashMap<>();
+    for(int c = 0; c < k; c++) {
+      String sugname = clustering.makeCluster(c).getNameAutomatic();
+      Integer count = namecount.get(sugname);
+      namecount.put(sugname, count == null ? 1 : count + 1);
+    }
+    Map<String, Integer> seen = new HashMap<>();
+    for(int c = 0; c < k; c++) {
+      Cluster<Model> clus = clustering.makeCluster(c);
+      String sugname = clus.getNameAutomatic();
+      Integer count = seen.get(sugname);
+      count = count == null ? 0 : count;
+      seen.put(sugname, count + 1);
+      String name = namecount.get(sugname) > 1 ? sugname + " " + count : sugname;
+
+      PrintStream outStream = streamOpener.openStream(getFilename(clus, filenameFromLabel(name)));
+      TextWriterStream out = new TextWriterStream(outStream, writers, fallback);
+      out.commentPrintLn("Cluster: " + name);
+      clus.writeToText(out, null);
+      out.flush();
+
+      printClusterMembers(out, db, clus, ra);
+      streamOpener.closeStream(outStream);
+    }
+  }
+
+  private void printClusterMembers(TextWriterStream out, Database db, Cluster<Model> clus, List<Relation<?>> ra) throws IOException {
     // print ids.
     DBIDs ids = clus.getIDs();
     for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
       printObject(out, db, iter, ra);
     }
     out.flush();
-    streamOpener.closeStream(outStream);
   }
 
   private void writeIterableResult(StreamFactory streamOpener, IterableResult<?> ri) throws IOException {
@@ -20,6 +20,10 @@
  */
 package de.lmu.ifi.dbs.elki.workflow;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
@@ -29,6 +33,7 @@ import de.lmu.ifi.dbs.elki.index.Index;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.LoggingConfiguration;
 import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
 import de.lmu.ifi.dbs.elki.result.BasicResult;
 import de.lmu.ifi.dbs.elki.result.Result;
 import de.lmu.ifi.dbs.elki.result.ResultHierarchy;
@@ -36,6 +41,7 @@ import de.lmu.ifi.dbs.elki.utilities.datastructures.iterator.It;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectListParameter;
 
@@ -48,6 +54,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectListParamet
  * @apiviz.has Algorithm
  * @apiviz.has Result
  * @apiviz.uses Database
+ * @apiviz.uses Instrumentation
  */
 public class AlgorithmStep implements WorkflowStep {
   /**
@@ -65,14 +72,58 @@ public class AlgorithmStep implements WorkflowStep {
    */
   private Result stepresult;
 
+  /**
+   * Enable instrumentation.
+   */
+  private boolean instrument;
+
+  /**
+   * File to write instrumentation data to, may be {@code null}.
+   */
+  private File instrumentationFile;
+
+  /**
+   * Flag whether instrumentation was started by this step.
+   */
+  private boolean instrumenting = false;
+
   /**
    * Constructor.
    *
    * @param algorithms
    */
   public AlgorithmStep(List<Algorithm> algorithms) {
+    this(algorithms, false, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param algorithms Algorithms to run
+   * @param instrument Enable instrumentation
+   * @param instrumentationFile File to write instrumentation data to, may be
+   *        {@code null}
+   */
+  public AlgorithmStep(List<Algorithm> algorithms, boolean instrument, File instrumentationFile) {
     super();
     this.algorithms = algorithms;
+    this.instrument = instrument;
+    this.instrumentationFile = instrumentationFile;
+  }
+
+  /**
+   * Reset and enable instrumentation, if requested and not yet started.
+   * <p>
+   * Components obtain their counters on construction, so call this before the
+   * database is initialized to also count the input phase and index
+   * construction. Otherwise, it is called by {@link #runAlgorithms}.
+   */
+  public void beginInstrumentation() {
+    if(instrument && !instrumenting) {
+      Instrumentation.reset();
+      Instrumentation.setEnabled(true);
+      instrumenting = true;
+    }
   }
 
   /**
@@ -82,6 +133,7 @@ public class AlgorithmStep implements WorkflowStep {
    * @return Algorithm result
    */
   public Result runAlgorithms(Database database) {
+    beginInstrumentation();
     ResultHierarchy hier = database.getHierarchy();
     if(LOG.isStatistics()) {
       boolean first = true;
@@ -94,31 +146,73 @@ public class AlgorithmStep implements WorkflowStep {
       }
     }
     stepresult = new BasicResult("Algorithm Step", "algorithm-step");
-    for(Algorithm algorithm : algorithms) {
-      Thread.currentThread().setName(algorithm.toString());
-      Duration duration = LOG.isStatistics() ? LOG.newDuration(algorithm.getClass().getName() + ".runtime").begin() : null;
-      Result res = algorithm.run(database);
-      if(duration != null) {
-        LOG.statistics(duration.end());
-      }
-      if(LOG.isStatistics()) {
-        boolean first = true;
-        for(It<Index> it = hier.iterDescendants(database).filter(Index.class); it.valid(); it.advance()) {
-          if(first) {
-            LOG.statistics("Index statistics after running algorithm " + algorithm.toString() + ":");
-            first = false;
+    try {
+      for(Algorithm algorithm : algorithms) {
+        Thread.currentThread().setName(algorithm.toString());
+        Duration duration = LOG.isStatistics() ? LOG.newDuration(algorithm.getClass().getName() + ".runtime").begin() : null;
+        if(instrumenting) {
+          Instrumentation.beginPhase(algorithm.getClass().getName());
+        }
+        Result res;
+        try {
+          res = algorithm.run(database);
+        }
+        finally {
+          if(instrumenting) {
+            Instrumentation.endPhase();
+          }
+        }
+        if(duration != null) {
+          LOG.statistics(duration.end());
+        }
+        if(LOG.isStatistics()) {
+          boolean first = true;
+          for(It<Index> it = hier.iterDescendants(database).filter(Index.class); it.valid(); it.advance()) {
+            if(first) {
+              LOG.statistics("Index statistics after running algorithm " + algorithm.toString() + ":");
+              first = false;
+            }
+            it.get().logStatistics();
           }
-          it.get().logStatistics();
+        }
+        if(res != null) {
+          // Make sure the result is attached, but usually this is a noop:
+          hier.add(database, res);
         }
       }
-      if(res != null) {
-        // Make sure the result is attached, but usually this is a noop:
-        hier.add(database, res);
+    }
+    finally {
+      // Also disables instrumentation if an algorithm failed.
+      if(instrumenting) {
+        reportInstrumentation();
       }
     }
     return stepresult;
   }
 
+  /**
+   * Log the instrumentation counters, and write them to the output file.
+   * Afterwards, instrumentation is disabled and all counters are cleared.
+   */
+  private void reportInstrumentation() {
+    try {
+      Instrumentation.logStatistics(LOG);
+      if(instrumentationFile != null) {
+        try (Writer out = new FileWriter(instrumentationFile)) {
+          Instrumentation.writeJSON(out);
+        }
+        catch(IOException e) {
+          LOG.exception("Could not write instrumentation data to " + instrumentationFile, e);
+        }
+      }
+    }
+    finally {
+      Instrumentation.setEnabled(false);
+      Instrumentation.reset();
+      instrumenting = false;
+    }
+  }
+
   /**
    * Get the result.
    *
@@ -141,6 +235,16 @@ public class AlgorithmStep implements WorkflowStep {
      */
     protected boolean time = false;
 
+    /**
+     * Enable instrumentation
+     */
+    protected boolean instrument = false;
+
+    /**
+     * Instrumentation output file
+     */
+    protected File instrumentationFile = null;
+
     /**
      * Holds the algorithm to run.
      */
@@ -162,6 +266,23 @@ public class AlgorithmStep implements WorkflowStep {
      */
     public static final OptionID ALGORITHM_ID = AbstractAlgorithm.ALGORITHM_ID;
 
+    /**
+     * Flag to enable counting of distance computations, index node visits and
+     * page accesses, aggregated per workflow phase.
+     * <p>
+     * Key: {@code -instrument}
+     * </p>
+     */
+    public static final OptionID INSTRUMENT_ID = new OptionID("instrument", "Count distance computations, index node visits and page accesses, per workflow phase.");
+
+    /**
+     * Parameter to write the instrumentation counters to a JSON file.
+     * <p>
+     * Key: {@code -instrument.json}
+     * </p>
+     */
+    public static final OptionID INSTRUMENT_JSON_ID = new OptionID("instrument.json", "File to write the instrumentation counters to, in JSON format. Implies -instrument.");
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -170,6 +291,16 @@ public class AlgorithmStep implements WorkflowStep {
       if(config.grab(timeF)) {
         time = timeF.getValue();
       }
+      final Flag instrumentF = new Flag(INSTRUMENT_ID);
+      if(config.grab(instrumentF)) {
+        instrument = instrumentF.getValue();
+      }
+      final FileParameter instrumentJsonP = new FileParameter(INSTRUMENT_JSON_ID, FileParameter.FileType.OUTPUT_FILE);
+      instrumentJsonP.setOptional(true);
+      if(config.grab(instrumentJsonP)) {
+        instrumentationFile = instrumentJsonP.getValue();
+        instrument = true;
+      }
       // parameter algorithm
       final ObjectListParameter<Algorithm> ALGORITHM_PARAM = new ObjectListParameter<>(ALGORITHM_ID, Algorithm.class);
       if(config.grab(ALGORITHM_PARAM)) {
@@ -182,7 +313,10 @@ public class AlgorithmStep implements WorkflowStep {
       if(time) {
         LoggingConfiguration.setStatistics();
       }
-      return new AlgorithmStep(algorithms);
+      if(instrument) {
+        LoggingConfiguration.setStatistics();
+      }
+      return new AlgorithmStep(algorithms, instrument, instrumentationFile);
     }
   }
 }
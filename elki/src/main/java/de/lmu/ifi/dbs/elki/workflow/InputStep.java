@@ -23,6 +23,7 @@ package de.lmu.ifi.dbs.elki.workflow;
 import de.lmu.ifi.dbs.elki.application.AbstractApplication;
 import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
@@ -58,7 +59,13 @@ public class InputStep implements WorkflowStep {
    * @return Database
    */
   public Database getDatabase() {
+    if (Instrumentation.isEnabled()) {
+      Instrumentation.beginPhase("input");
+    }
     database.initialize();
+    if (Instrumentation.isEnabled()) {
+      Instrumentation.endPhase();
+    }
     return database;
   }
 
@@ -0,0 +1,113 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2017
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.workflow;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.Algorithm;
+import de.lmu.ifi.dbs.elki.algorithm.outlier.distance.KNNOutlier;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.logging.statistics.Instrumentation;
+import de.lmu.ifi.dbs.elki.result.Result;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the instrumentation life cycle of the algorithm step.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class AlgorithmStepTest {
+  @Test
+  public void testInstrumentation() throws IOException {
+    File json = File.createTempFile("elki-instrumentation", ".json");
+    json.deleteOnExit();
+    ListParameterization params = new ListParameterization();
+    params.addFlag(AlgorithmStep.Parameterizer.INSTRUMENT_ID);
+    params.addParameter(AlgorithmStep.Parameterizer.INSTRUMENT_JSON_ID, json);
+    params.addParameter(AlgorithmStep.Parameterizer.ALGORITHM_ID, KNNOutlier.class);
+    params.addParameter(KNNOutlier.Parameterizer.K_ID, 5);
+    AlgorithmStep step = ClassGenericsUtil.parameterizeOrAbort(AlgorithmStep.class, params);
+    // Parameterization must not have global side effects.
+    assertFalse(Instrumentation.isEnabled());
+
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(AbstractSimpleAlgorithmTest.UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    step.runAlgorithms(db);
+    String out = new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8);
+    assertTrue(out, out.contains(KNNOutlier.class.getName()));
+    assertTrue(out, out.contains(Instrumentation.DISTANCE_COMPUTATIONS));
+    // Disabled and cleared after reporting.
+    assertFalse(Instrumentation.isEnabled());
+    assertTrue(Instrumentation.getPhases().isEmpty());
+  }
+
+  /**
+   * A failing algorithm must not leave instrumentation enabled.
+   */
+  @Test
+  public void testInstrumentationOnFailure() {
+    ListParameterization params = new ListParameterization();
+    params.addFlag(AlgorithmStep.Parameterizer.INSTRUMENT_ID);
+    params.addParameter(AlgorithmStep.Parameterizer.ALGORITHM_ID, FailingAlgorithm.class);
+    AlgorithmStep step = ClassGenericsUtil.parameterizeOrAbort(AlgorithmStep.class, params);
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(AbstractSimpleAlgorithmTest.UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    try {
+      step.runAlgorithms(db);
+      fail("Exception expected.");
+    }
+    catch(AbortException e) {
+      // Expected.
+    }
+    assertFalse(Instrumentation.isEnabled());
+    assertTrue(Instrumentation.getPhases().isEmpty());
+  }
+
+  /**
+   * Algorithm that always fails.
+   *
+   * @author Erich Schubert
+   */
+  public static class FailingAlgorithm implements Algorithm {
+    @Override
+    public Result run(Database database) {
+      throw new AbortException("Failing on purpose.");
+    }
+
+    @Override
+    public TypeInformation[] getInputTypeRestriction() {
+      return TypeUtil.array(TypeUtil.ANY);
+    }
+  }
+}